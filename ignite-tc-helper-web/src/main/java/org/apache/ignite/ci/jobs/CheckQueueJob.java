@@ -30,6 +30,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 import javax.inject.Inject;
 import org.apache.ignite.ci.teamcity.ignited.BuildRefCompacted;
@@ -47,8 +48,7 @@ import org.apache.ignite.tcbot.notify.ISlackSender;
 import org.apache.ignite.tcbot.persistence.IStringCompactor;
 import org.apache.ignite.tcignited.ITeamcityIgnited;
 import org.apache.ignite.tcignited.ITeamcityIgnitedProvider;
-import org.apache.ignite.tcservice.model.Property;
-import org.apache.ignite.tcservice.model.agent.Agent;
+import org.apache.ignite.tcignited.agent.AgentsSnapshot;
 import org.apache.ignite.tcservice.model.result.Build;
 import org.apache.ignite.tcservice.model.result.Triggered;
 import org.apache.ignite.tcservice.model.user.User;
@@ -194,34 +194,18 @@ public class CheckQueueJob implements Runnable {
     protected String checkQueue(String srvCode, List<ITrackedChain> chains) {
         ITeamcityIgnited tcIgn = tcIgnitedProv.server(srvCode, creds);
 
-        List<Agent> agents = tcIgn.agents(true, true);
+        AgentsSnapshot agents = tcIgn.agentsSnapshot();
 
-        int total = agents.size();
-        int winAgents = 0;
-        int running = 0;
-        int winRunning = 0;
+        int total = agents.total();
+        int running = agents.running();
 
-        for (Agent agent : agents) {
-            //filter for windows agents
-            if (agent.getPool().getName().contains("Default") &&
-                    agent.isEnabled() &&
-                    agent.getProperties().getProperty().stream()
-                    .filter(prop -> prop.getName().equals("teamcity.agent.jvm.os.name")).findAny().orElseGet(() -> {
-                        Property emptyProp = new Property();
+        //filter for windows agents
+        Predicate<AgentsSnapshot.AgentsGroup> winFilter = grp -> grp.pool().contains("Default")
+            && grp.enabled()
+            && grp.os().contains("Windows");
 
-                        emptyProp.setValue("");
-
-                        return emptyProp;
-                    }).getValue().contains("Windows")) {
-                winAgents++;
-
-                if (agent.getBuild() != null)
-                    winRunning++;
-            }
-
-            if (agent.getBuild() != null) //  || !STATE_RUNNING.equals(agent.getFatBuild().status)
-                ++running;
-        }
+        int winAgents = agents.total(winFilter);
+        int winRunning = agents.running(winFilter);
 
         int free = total == 0 ? -1 : (total - running) * 100 / total;
 
@@ -73,6 +73,7 @@ public class ClientTmpHelper {
         Ignite ignite = TcHelperDb.startClient();
 
         IgniteCache<Object, Object> cache = ignite.cache(IssuesStorage.BOT_DETECTED_ISSUES);
+        IgniteCache<Object, Object> notifications = ignite.cache(IssuesStorage.BOT_ISSUES_NOTIFICATIONS);
 
         cache.forEach(
             issue -> {
@@ -80,9 +81,13 @@ public class ClientTmpHelper {
                 Issue val = (Issue)issue.getValue();
 
                 if(val.issueKey.testOrBuildName.contains(
-                    "GridCachePartitionEvictionDuringReadThroughSelfTest.testPartitionRent"))
+                    "GridCachePartitionEvictionDuringReadThroughSelfTest.testPartitionRent")) {
                     val.addressNotified.clear();
 
+                    if (notifications != null)
+                        notifications.remove(key);
+                }
+
                 cache.put(key, val);
             }
         );
@@ -19,25 +19,33 @@ package org.apache.ignite.ci.tcbot.issue;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import org.apache.ignite.ci.issue.Issue;
 import org.apache.ignite.ci.issue.IssueKey;
 import org.apache.ignite.ci.teamcity.ignited.runhist.Invocation;
 import org.apache.ignite.tcbot.engine.issue.IIssuesStorage;
+import org.apache.ignite.tcbot.engine.issue.IssueNotifications;
 import org.apache.ignite.tcbot.engine.issue.IssueType;
 import org.apache.ignite.ci.jobs.CheckQueueJob;
 import org.apache.ignite.tcbot.engine.tracked.DisplayMode;
@@ -50,8 +58,12 @@ import org.apache.ignite.ci.user.TcHelperUser;
 import org.apache.ignite.tcbot.common.TcBotConst;
 import org.apache.ignite.tcbot.common.interceptor.AutoProfiling;
 import org.apache.ignite.tcbot.common.interceptor.MonitoredTask;
+import org.apache.ignite.lang.IgniteBiTuple;
+import org.apache.ignite.tcbot.engine.chain.BuildChainProcessor;
+import org.apache.ignite.tcbot.engine.chain.MultBuildRunCtx;
 import org.apache.ignite.tcbot.engine.conf.INotificationChannel;
 import org.apache.ignite.tcbot.engine.conf.ITcBotConfig;
+import org.apache.ignite.tcbot.engine.conf.ITrackedChain;
 import org.apache.ignite.tcbot.engine.conf.NotificationsConfig;
 import org.apache.ignite.tcbot.engine.issue.EventTemplate;
 import org.apache.ignite.tcbot.engine.issue.EventTemplates;
@@ -65,6 +77,7 @@ import org.apache.ignite.tcbot.persistence.IStringCompactor;
 import org.apache.ignite.tcignited.ITeamcityIgnited;
 import org.apache.ignite.tcignited.ITeamcityIgnitedProvider;
 import org.apache.ignite.tcignited.SyncMode;
+import org.apache.ignite.tcignited.build.FatBuildDao;
 import org.apache.ignite.tcignited.history.IRunHistory;
 import org.apache.ignite.tcignited.history.InvocationData;
 import org.jetbrains.annotations.NotNull;
@@ -113,9 +126,27 @@ public class IssueDetector {
     /** Email sender. */
     @Inject private ISlackSender slackSender;
 
+    /** Build chain processor. */
+    @Inject private BuildChainProcessor chainProc;
+
+    /** Fat builds DAO, source of build arrival events. */
+    @Inject private Provider<FatBuildDao> fatBuildDaoProv;
+
     /** Send notification guard. */
     private final AtomicBoolean sndNotificationGuard = new AtomicBoolean();
 
+    /** Fat build cache keys of builds arrived for tracked branches, waiting for issues detection. */
+    private final Set<Long> buildsArrived = ConcurrentHashMap.newKeySet();
+
+    /** Detection in builds arrived is scheduled. */
+    private final AtomicBoolean buildsArrivedCheckScheduled = new AtomicBoolean();
+
+    /**
+     * Tracked chains accessible for background operations: server id mask high -> normalized branch -> tracked chains.
+     * Refreshed periodically, so each build saved is checked without config and servers access.
+     */
+    private volatile Table<Integer, String, List<TrackedChainSuites>> trackedChains = HashBasedTable.create();
+
     private String registerIssuesAndNotifyLater(DsSummaryUi res,
                                                 ITcBotUserCreds creds) {
 
@@ -124,12 +155,19 @@ public class IssueDetector {
 
         String newIssues = registerNewIssues(res, creds);
 
-        if (sndNotificationGuard.compareAndSet(false, true))
-            executorService.schedule(this::sendNewNotifications, 90, TimeUnit.SECONDS);
+        scheduleNotifications();
 
         return newIssues;
     }
 
+    /**
+     * Schedules sending of notifications about new issues, if it was not scheduled yet.
+     */
+    private void scheduleNotifications() {
+        if (sndNotificationGuard.compareAndSet(false, true))
+            executorService.schedule(this::sendNewNotifications, 90, TimeUnit.SECONDS);
+    }
+
     private void sendNewNotifications() {
         try {
             sendNewNotificationsEx();
@@ -167,16 +205,29 @@ public class IssueDetector {
         AtomicInteger hasSubscriptions = new AtomicInteger();
         AtomicInteger neverSentBefore = new AtomicInteger();
 
-        issuesStorage.allIssues()
+        long now = System.currentTimeMillis();
+        long maxAgeSinceDetect = TimeUnit.HOURS.toMillis(Math.max(TcBotConst.NOTIFY_MAX_AGE_SINCE_DETECT_HOURS,
+            TcBotConst.NOTIFY_MAX_AGE_SINCE_DETECT_FOR_NOTIFIED_ISSUE_HOURS));
+
+        List<Issue> recentIssues = issuesStorage.issuesDetectedAfter(now - maxAgeSinceDetect)
+            .collect(Collectors.toList());
+
+        Map<IssueKey, IssueNotifications> notificationsState = issuesStorage.getNotifications(recentIssues);
+
+        // Notification state changes of this cycle, saved in one batch after sending.
+        Map<IssueKey, IssueNotifications> notificationsChanged = new HashMap<>();
+        Map<IssueKey, Map<String, Object>> subscribersStat = new HashMap<>();
+
+        recentIssues.stream()
             .peek(issue -> issuesChecked.incrementAndGet())
             .filter(issue -> {
                 long detected = issue.detectedTs == null ? 0 : issue.detectedTs;
-                long issueAgeMs = System.currentTimeMillis() - detected;
+                long issueAgeMs = now - detected;
 
                 //here boundary can be not an absolute, but some ts when particular notification channel config was changed
                 // alternatively boundary may depend to issue notification histroy
 
-                boolean neverNotified = issue.addressNotified == null || issue.addressNotified.isEmpty();
+                boolean neverNotified = notificationsState.get(issue.issueKey()).neverNotified();
                 // if issue had a prior notification, limit age by 2 hours to avoid new addresses spamming.
                 // otherwise check last day issues if it is notifiable
                 long bound = TimeUnit.HOURS.toMillis(neverNotified
@@ -191,7 +242,7 @@ public class IssueDetector {
                     return true; // exception due to bug in issue detection; field was not filled
 
                 long buildStartTs = issue.buildStartTs == null ? 0 : issue.buildStartTs;
-                long buildAgeMs = System.currentTimeMillis() - buildStartTs;
+                long buildAgeMs = now - buildStartTs;
                 long maxBuildAgeToNotify = TimeUnit.DAYS.toMillis(TcBotConst.NOTIFY_MAX_AGE_SINCE_START_DAYS) / 2;
 
                 return buildAgeMs <= maxBuildAgeToNotify;
@@ -242,10 +293,12 @@ public class IssueDetector {
                     hasSubscriptions.incrementAndGet();
 
                 boolean nonNotifedChFound = false;
+                IssueNotifications notifications = notificationsState.get(issue.issueKey());
 
                 for (String nextAddr : addrs) {
-                    if (issuesStorage.getIsNewAndSetNotified(issue.issueKey, nextAddr, null)) {
+                    if (notifications.markNotified(nextAddr)) {
                         nonNotifedChFound = true;
+                        notificationsChanged.put(issue.issueKey(), notifications);
 
                         toBeSent.computeIfAbsent(nextAddr, addr -> {
                             Notification notification = new Notification();
@@ -257,10 +310,13 @@ public class IssueDetector {
                 }
 
                 if (!nonNotifedChFound) {
-                    issuesStorage.saveIssueSubscribersStat(issue.issueKey,
-                        ctnSrvAllowed.get(),
-                        cntSubscibed.get(),
-                        cntTagsFilterPassed.get());
+                    Map<String, Object> issueStat = new HashMap<>();
+
+                    issueStat.put("cntSrvAllowed", ctnSrvAllowed.get());
+                    issueStat.put("cntSubscribed", cntSubscibed.get());
+                    issueStat.put("cntTagsFilterPassed", cntTagsFilterPassed.get());
+
+                    subscribersStat.put(issue.issueKey(), issueStat);
                 }
                 else
                     neverSentBefore.incrementAndGet();
@@ -273,8 +329,11 @@ public class IssueDetector {
             hasSubscriptions.get() + " has subscriber, " +
             neverSentBefore.get() + " non sent before";
 
-        if (toBeSent.isEmpty())
+        if (toBeSent.isEmpty()) {
+            issuesStorage.saveNotifications(notificationsChanged, subscribersStat);
+
             return "Noting to notify, " + stat;
+        }
 
         NotificationsConfig notifications = cfg.notifications();
 
@@ -309,15 +368,16 @@ public class IssueDetector {
                 logger.warn("Unable to notify address [" + addr + "] about build failures", e);
 
                 next.allIssues().forEach(issue -> {
-                        IssueKey key = issue.issueKey();
                         // rollback successfull notification
-                        issuesStorage.getIsNewAndSetNotified(key, addr, e);
+                        notificationsState.get(issue.issueKey()).markFailed(addr, e);
                     });
 
                 stat += " ;" + e.getClass().getSimpleName() + ": " + e.getMessage();
             }
         }
 
+        issuesStorage.saveNotifications(notificationsChanged, subscribersStat);
+
         return "Send " + sndStat.toString() + "; Statistics: " + stat;
     }
 
@@ -329,7 +389,7 @@ public class IssueDetector {
     @SuppressWarnings({"WeakerAccess", "UnusedReturnValue"})
     @AutoProfiling
     @MonitoredTask(name = "Register new issues")
-    protected String registerNewIssues(DsSummaryUi res, ITcBotUserCreds creds) {
+    protected synchronized String registerNewIssues(DsSummaryUi res, ITcBotUserCreds creds) {
         int newIssues = 0;
 
         for (DsChainUi next : res.servers) {
@@ -340,24 +400,218 @@ public class IssueDetector {
 
             ITeamcityIgnited tcIgnited = tcProv.server(srvCode, creds);
 
-            for (DsSuiteUi suiteCurrentStatus : next.suites) {
-                String normalizeBranch = normalizeBranch(suiteCurrentStatus.branchName());
+            for (DsSuiteUi suiteCurrentStatus : next.suites)
+                newIssues += registerSuiteIssues(tcIgnited, srvCode, suiteCurrentStatus, res.getTrackedBranch());
+        }
+
+        return "New issues found " + newIssues;
+    }
+
+    /**
+     * @param tcIgnited Tc ignited.
+     * @param srvCode Servers (services) code.
+     * @param suiteCurrentStatus Suite current status.
+     * @param trackedBranch Tracked branch.
+     * @return Count of new issues registered.
+     */
+    private int registerSuiteIssues(ITeamcityIgnited tcIgnited, String srvCode, DsSuiteUi suiteCurrentStatus,
+        String trackedBranch) {
+        int newIssues = 0;
+        String normalizeBranch = normalizeBranch(suiteCurrentStatus.branchName());
+
+        String suiteId = suiteCurrentStatus.suiteId;
+        for (DsTestFailureUi testFailure : suiteCurrentStatus.testFailures) {
+            if (registerTestFailIssues(tcIgnited, srvCode, suiteId, normalizeBranch, testFailure, trackedBranch,
+                suiteCurrentStatus.tags))
+                newIssues++;
+        }
+
+        if (registerSuiteFailIssues(tcIgnited, srvCode, suiteId, normalizeBranch, suiteCurrentStatus, trackedBranch))
+            newIssues++;
+
+        return newIssues;
+    }
+
+    /**
+     * Registers build arrived for issues detection if it is a finished suite run in a tracked branch. Called from
+     * build sync thread, so detection itself is done later in background.
+     *
+     * @param srvIdMaskHigh Server id mask high.
+     * @param buildId Build ID.
+     * @param build Build saved.
+     */
+    private void onBuildSaved(int srvIdMaskHigh, int buildId, FatBuildCompacted build) {
+        if (build.isFakeStub()
+            || build.isComposite()
+            || !build.isFinished(compactor)
+            || build.isCancelled(compactor))
+            return;
+
+        List<TrackedChainSuites> chains =
+            trackedChains.get(srvIdMaskHigh, normalizeBranch(build.branchName(compactor)));
+
+        if (chains == null || chains.stream().noneMatch(chain -> chain.containsSuite(build.buildTypeId())))
+            return;
+
+        if (buildsArrived.add(FatBuildDao.buildIdToCacheKey(srvIdMaskHigh, buildId))
+            && buildsArrivedCheckScheduled.compareAndSet(false, true))
+            executorService.schedule(this::checkBuildsArrived, 10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @param branchName Build branch name.
+     * @param buildTypeId Build type ID of build.
+     * @param consumer Consumer of tracked branch name and tracked chain having the same server and branch as build and
+     * containing build type of build.
+     */
+    private void forEachTrackedChain(int srvIdMaskHigh, @Nullable String branchName, int buildTypeId,
+        BiConsumer<String, ITrackedChain> consumer) {
+        List<TrackedChainSuites> chains = trackedChains.get(srvIdMaskHigh, normalizeBranch(branchName));
+
+        if (chains == null)
+            return;
+
+        chains.stream()
+            .filter(t -> t.containsSuite(buildTypeId))
+            .forEach(t -> consumer.accept(t.trackedBranch, t.chain));
+    }
+
+    /**
+     * Re-reads tracked chains accessible for background operations from config.
+     */
+    private void refreshTrackedChains() {
+        try {
+            Table<Integer, String, List<TrackedChainSuites>> res = HashBasedTable.create();
+
+            cfg.getTrackedBranches().branchesStream().forEach(tb -> tb.chainsStream()
+                .filter(chain -> tcProv.hasAccess(chain.serverCode(), backgroundOpsCreds))
+                .forEach(chain -> {
+                    ITeamcityIgnited tcIgnited = tcProv.server(chain.serverCode(), backgroundOpsCreds);
+                    int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(tcIgnited.serverCode());
+                    String branch = normalizeBranch(chain.tcBranch());
+
+                    List<TrackedChainSuites> chains = res.get(srvIdMaskHigh, branch);
+
+                    if (chains == null)
+                        res.put(srvIdMaskHigh, branch, chains = new ArrayList<>());
 
-                final String trackedBranch = res.getTrackedBranch();
+                    chains.add(new TrackedChainSuites(tb.name(), chain, chainBuildTypes(tcIgnited, chain)));
+                }));
 
-                String suiteId = suiteCurrentStatus.suiteId;
-                for (DsTestFailureUi testFailure : suiteCurrentStatus.testFailures) {
-                    if (registerTestFailIssues(tcIgnited, srvCode, suiteId, normalizeBranch, testFailure, trackedBranch,
-                        suiteCurrentStatus.tags))
-                        newIssues++;
+            trackedChains = res;
+        }
+        catch (Exception e) {
+            logger.error("Tracked chains refresh failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Collects build types of the latest chain build and all its snapshot dependencies, reading only builds already
+     * saved.
+     *
+     * @param tcIgnited Tc ignited.
+     * @param chain Tracked chain.
+     * @return Compacted build type IDs of suites in chain.
+     */
+    private Set<Integer> chainBuildTypes(ITeamcityIgnited tcIgnited, ITrackedChain chain) {
+        Set<Integer> res = new HashSet<>();
+
+        Collection<Integer> level = tcIgnited.getLastNBuildsFromHistory(chain.tcSuiteId(), chain.tcBranch(), 1);
+        Set<Integer> visited = new HashSet<>(level);
+
+        while (!level.isEmpty()) {
+            List<Integer> nextLevel = new ArrayList<>();
+
+            for (FatBuildCompacted build : tcIgnited.getFatBuildsIfActual(level, SyncMode.NONE).values()) {
+                if (build.isFakeStub())
+                    continue;
+
+                res.add(build.buildTypeId());
+
+                for (int depId : build.snapshotDependencies()) {
+                    if (visited.add(depId))
+                        nextLevel.add(depId);
                 }
+            }
+
+            level = nextLevel;
+        }
+
+        return res;
+    }
+
+    /**
+     * Detects issues in builds arrived: only the suite and tests of each new build are checked against their history,
+     * without building report for the whole tracked branch.
+     */
+    @SuppressWarnings({"WeakerAccess", "UnusedReturnValue"})
+    @AutoProfiling
+    @MonitoredTask(name = "Detect Issues in builds arrived")
+    protected synchronized String checkBuildsArrived() {
+        buildsArrivedCheckScheduled.set(false);
+
+        int buildsChecked = 0;
+        int newIssues = 0;
+
+        for (Iterator<Long> iter = buildsArrived.iterator(); iter.hasNext(); ) {
+            long key = iter.next();
+
+            iter.remove();
+
+            try {
+                newIssues += registerBuildIssues(FatBuildDao.cacheKeyToSrvIdAndBuildId(key));
 
-                if (registerSuiteFailIssues(tcIgnited, srvCode, suiteId, normalizeBranch, suiteCurrentStatus, trackedBranch))
-                    newIssues++;
+                buildsChecked++;
+            }
+            catch (Exception e) {
+                logger.error("Issues detection failed for build " + key + ": " + e.getMessage(), e);
             }
         }
 
-        return "New issues found " + newIssues;
+        if (newIssues > 0)
+            scheduleNotifications();
+
+        return buildsChecked + " builds checked, new issues found " + newIssues;
+    }
+
+    /**
+     * @param srvAndBuild Server id mask high and build ID.
+     * @return Count of new issues registered.
+     */
+    private int registerBuildIssues(IgniteBiTuple<Integer, Integer> srvAndBuild) {
+        int buildId = srvAndBuild.get2();
+        AtomicInteger newIssues = new AtomicInteger();
+
+        ITcBotUserCreds creds = backgroundOpsCreds;
+        FatBuildCompacted build = fatBuildDaoProv.get().getFatBuild(srvAndBuild.get1(), buildId);
+
+        if (build == null || build.isFakeStub())
+            return 0;
+
+        forEachTrackedChain(srvAndBuild.get1(), build.branchName(compactor), build.buildTypeId(),
+            (trackedBranch, chain) -> {
+                ITeamcityIgnited tcIgnited = tcProv.server(chain.serverCode(), creds);
+
+                //branch is tracked, so fail rate should be taken from this branch data (otherwise it is specified).
+                String baseBranchTc = chain.tcBaseBranch().orElse(chain.tcBranch());
+                Integer baseBranchId = compactor.getStringIdIfPresent(normalizeBranch(baseBranchTc));
+
+                MultBuildRunCtx suite = new MultBuildRunCtx(build.toBuildRef(compactor), compactor);
+
+                suite.addBuild(chainProc.loadChanges(build, tcIgnited));
+
+                if (!suite.isFailed() && !suite.hasTestToReport(tcIgnited, baseBranchId, false, false))
+                    return;
+
+                DsSuiteUi suiteCurrentStatus = new DsSuiteUi()
+                    .initFromContext(tcIgnited, suite, baseBranchTc, compactor, false, -1, null, false, false);
+
+                newIssues.addAndGet(
+                    registerSuiteIssues(tcIgnited, chain.serverCode(), suiteCurrentStatus, trackedBranch));
+            });
+
+        return newIssues.get();
     }
 
     /**
@@ -386,7 +640,8 @@ public class IssueDetector {
 
         boolean issueFound = false;
 
-        Integer firstFailedBuildId = runStat.detectTemplate(EventTemplates.newCriticalFailure);
+        Integer[] detected = runStat.detectTemplates(EventTemplates.newCriticalFailure, EventTemplates.newFailure);
+        Integer firstFailedBuildId = detected[0];
 
         if (firstFailedBuildId != null && Boolean.TRUE.equals(suiteFailure.hasCriticalProblem)) {
             IssueKey issueKey = new IssueKey(srvCode, firstFailedBuildId, suiteId);
@@ -401,7 +656,7 @@ public class IssueDetector {
 
         if (cfg.getTeamcityConfig(srvCode).trustedSuites().contains(suiteId)
             || tcIgnited.config().trustedSuites().contains(suiteId)) {
-            Integer firstTrustedSuiteFailue = runStat.detectTemplate(EventTemplates.newFailure);
+            Integer firstTrustedSuiteFailue = detected[1];
 
             if (firstTrustedSuiteFailue != null) {
                 IssueKey issueKey = new IssueKey(srvCode, firstTrustedSuiteFailue, suiteId);
@@ -464,20 +719,22 @@ public class IssueDetector {
 
         IssueType type = null;
 
-        Integer firstFailedBuildId = runStat.detectTemplate(EventTemplates.newContributedTestFailure);
+        Integer[] detected = runStat.detectTemplates(EventTemplates.newContributedTestFailure,
+            EventTemplates.newFailure, EventTemplates.newFailureForFlakyTest);
+
+        Integer firstFailedBuildId = detected[0];
 
         if (firstFailedBuildId != null)
             type = IssueType.newContributedTestFailure;
 
         if (firstFailedBuildId == null) {
-            firstFailedBuildId = runStat.detectTemplate(EventTemplates.newFailure);
+            firstFailedBuildId = detected[1];
 
             if (firstFailedBuildId != null) {
                 type = IssueType.newFailure;
                 final String flakyComments = runStat.getFlakyComments();
 
-                if (!Strings.isNullOrEmpty(flakyComments) &&
-                    runStat.detectTemplate(EventTemplates.newFailureForFlakyTest) != null)
+                if (!Strings.isNullOrEmpty(flakyComments) && detected[2] != null)
                         type = IssueType.newFailureForFlakyTest;
             }
         }
@@ -572,7 +829,14 @@ public class IssueDetector {
 
                 executorService = Executors.newScheduledThreadPool(3);
 
-                executorService.scheduleAtFixedRate(this::checkFailures, 0, 15, TimeUnit.MINUTES);
+                // Issues are detected as builds arrive, full check of tracked branches catches up anything missed.
+                executorService.scheduleAtFixedRate(this::checkFailures, 0, 60, TimeUnit.MINUTES);
+
+                refreshTrackedChains();
+
+                executorService.scheduleAtFixedRate(this::refreshTrackedChains, 5, 5, TimeUnit.MINUTES);
+
+                fatBuildDaoProv.get().addListener(this::onBuildSaved);
 
                 final CheckQueueJob checkQueueJob = checkQueueJobProv.get();
 
@@ -652,4 +916,36 @@ public class IssueDetector {
             executorService.shutdownNow();
 
     }
+
+    /**
+     * Tracked chain with build types of suites included.
+     */
+    private static class TrackedChainSuites {
+        /** Tracked branch name. */
+        private final String trackedBranch;
+
+        /** Chain. */
+        private final ITrackedChain chain;
+
+        /** Compacted build type IDs of the chain and its snapshot dependencies. */
+        private final Set<Integer> buildTypeIds;
+
+        /**
+         * @param trackedBranch Tracked branch name.
+         * @param chain Chain.
+         * @param buildTypeIds Build type IDs.
+         */
+        TrackedChainSuites(String trackedBranch, ITrackedChain chain, Set<Integer> buildTypeIds) {
+            this.trackedBranch = trackedBranch;
+            this.chain = chain;
+            this.buildTypeIds = buildTypeIds;
+        }
+
+        /**
+         * @param buildTypeId Compacted build type ID.
+         */
+        boolean containsSuite(int buildTypeId) {
+            return buildTypeIds.contains(buildTypeId);
+        }
+    }
 }
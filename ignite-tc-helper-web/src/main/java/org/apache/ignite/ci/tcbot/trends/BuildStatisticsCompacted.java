@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.tcbot.trends;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.ignite.ci.web.model.trends.BuildStatisticsSummary;
+import org.apache.ignite.internal.util.typedef.T2;
+import org.apache.ignite.tcbot.persistence.IVersionedEntity;
+import org.apache.ignite.tcbot.persistence.Persisted;
+
+import static org.apache.ignite.ci.web.model.trends.BuildStatisticsSummary.TOTAL;
+import static org.apache.ignite.ci.web.model.trends.BuildStatisticsSummary.shortProblemNames;
+import static org.apache.ignite.tcservice.model.result.problems.ProblemOccurrence.TC_EXECUTION_TIMEOUT;
+import static org.apache.ignite.tcservice.model.result.problems.ProblemOccurrence.TC_EXIT_CODE;
+import static org.apache.ignite.tcservice.model.result.problems.ProblemOccurrence.TC_JVM_CRASH;
+import static org.apache.ignite.tcservice.model.result.problems.ProblemOccurrence.TC_OOME;
+
+/**
+ * Statistics of finished chain, calculated once from all builds of the chain.
+ *
+ * @see BuildStatisticsSummary
+ */
+@Persisted
+public class BuildStatisticsCompacted implements IVersionedEntity {
+    /** Latest version. */
+    private static final short LATEST_VERSION = 1;
+
+    /** Start date format, same with used for summary calculation. */
+    public static final String START_DATE_FORMAT = "dd-MM-yyyy'T'HH:mm:ss";
+
+    /** Entity version. */
+    private short _ver = LATEST_VERSION;
+
+    /** Start date of chain root build. The number of milliseconds since January 1, 1970, 00:00:00 GMT */
+    private long startDate;
+
+    /** Test occurrences: total. */
+    private int testsCnt;
+
+    /** Test occurrences: failed. */
+    private int testsFailed;
+
+    /** Test occurrences: ignored. */
+    private int testsIgnored;
+
+    /** Test occurrences: muted. */
+    private int testsMuted;
+
+    /** Duration (seconds). */
+    private long duration;
+
+    /** Execution timeout problems. */
+    private int executionTimeouts;
+
+    /** JVM crash problems. */
+    private int jvmCrashes;
+
+    /** OOMe problems. */
+    private int oomes;
+
+    /** Exit code problems. */
+    private int exitCodes;
+
+    /** Failed tests: build type string ID. */
+    private int[] failedTestBuildTypes;
+
+    /** Failed tests: test name string ID. */
+    private int[] failedTestNames;
+
+    /** Failed tests: test ID. */
+    private long[] failedTestIds;
+
+    /** Failed tests: count of failures. */
+    private int[] failedTestCnts;
+
+    /**
+     * @param s Calculated summary.
+     * @param startDate Start date of chain root build.
+     */
+    public BuildStatisticsCompacted(BuildStatisticsSummary s, long startDate) {
+        this.startDate = startDate;
+
+        testsCnt = s.testOccurrences.count;
+        testsFailed = s.testOccurrences.failed;
+        testsIgnored = s.testOccurrences.ignored;
+        testsMuted = s.testOccurrences.muted;
+
+        duration = s.duration;
+
+        executionTimeouts = problemsCount(s, TC_EXECUTION_TIMEOUT);
+        jvmCrashes = problemsCount(s, TC_JVM_CRASH);
+        oomes = problemsCount(s, TC_OOME);
+        exitCodes = problemsCount(s, TC_EXIT_CODE);
+
+        int failedCnt = s.failedTests().values().stream().mapToInt(Map::size).sum();
+
+        failedTestBuildTypes = new int[failedCnt];
+        failedTestNames = new int[failedCnt];
+        failedTestIds = new long[failedCnt];
+        failedTestCnts = new int[failedCnt];
+
+        int idx = 0;
+
+        for (Map.Entry<Integer, Map<Integer, T2<Long, Integer>>> btEntry : s.failedTests().entrySet()) {
+            for (Map.Entry<Integer, T2<Long, Integer>> testEntry : btEntry.getValue().entrySet()) {
+                T2<Long, Integer> val = testEntry.getValue();
+
+                failedTestBuildTypes[idx] = btEntry.getKey();
+                failedTestNames[idx] = testEntry.getKey();
+                failedTestIds[idx] = val.get1() == null ? 0 : val.get1();
+                failedTestCnts[idx] = val.get2() == null ? 1 : val.get2();
+
+                idx++;
+            }
+        }
+    }
+
+    /**
+     * @param s Summary.
+     * @param problemName Problem name.
+     */
+    private static int problemsCount(BuildStatisticsSummary s, String problemName) {
+        if (s.totalProblems == null)
+            return 0;
+
+        Long cnt = s.totalProblems.get(shortProblemNames.get(problemName));
+
+        return cnt == null ? 0 : cnt.intValue();
+    }
+
+    /**
+     * @param buildId Chain root build ID.
+     * @return Summary restored from this statistics.
+     */
+    public BuildStatisticsSummary toSummary(int buildId) {
+        BuildStatisticsSummary s = new BuildStatisticsSummary(buildId);
+
+        s.startDate = new SimpleDateFormat(START_DATE_FORMAT).format(new Date(startDate));
+
+        s.testOccurrences.count = testsCnt;
+        s.testOccurrences.failed = testsFailed;
+        s.testOccurrences.ignored = testsIgnored;
+        s.testOccurrences.muted = testsMuted;
+        s.testOccurrences.passed = testsCnt - testsFailed - testsIgnored - testsMuted;
+
+        s.duration = duration;
+
+        Map<String, Long> problems = new HashMap<>();
+
+        problems.put(shortProblemNames.get(TC_EXECUTION_TIMEOUT), (long)executionTimeouts);
+        problems.put(shortProblemNames.get(TC_JVM_CRASH), (long)jvmCrashes);
+        problems.put(shortProblemNames.get(TC_OOME), (long)oomes);
+        problems.put(shortProblemNames.get(TC_EXIT_CODE), (long)exitCodes);
+        problems.put(shortProblemNames.get(TOTAL), (long)executionTimeouts + jvmCrashes + oomes + exitCodes);
+
+        s.totalProblems = problems;
+
+        for (int i = 0; i < failedTestNames.length; i++) {
+            s.failedTests()
+                .computeIfAbsent(failedTestBuildTypes[i], k -> new HashMap<>())
+                .put(failedTestNames[i], new T2<>(failedTestIds[i], failedTestCnts[i]));
+        }
+
+        return s;
+    }
+
+    /** {@inheritDoc} */
+    @Override public int version() {
+        return _ver;
+    }
+
+    /** {@inheritDoc} */
+    @Override public int latestVersion() {
+        return LATEST_VERSION;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.tcbot.trends;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.tcbot.common.interceptor.AutoProfiling;
+import org.apache.ignite.tcbot.engine.cleaner.IBuildStatisticsStorage;
+import org.apache.ignite.tcbot.persistence.CacheConfigs;
+
+/**
+ * Storage of statistics of finished chains, cache key is built from server ID and chain root build ID. Statistics of
+ * chain is removed when chain root build is removed by cleaner.
+ */
+public class BuildStatisticsStorage implements IBuildStatisticsStorage {
+    /** Cache name. */
+    public static final String BUILD_STATISTICS_CACHE_NAME = "buildStatisticsSummary";
+
+    /** Ignite provider. */
+    @Inject private Provider<Ignite> igniteProvider;
+
+    /** */
+    private IgniteCache<Long, BuildStatisticsCompacted> cache() {
+        return igniteProvider.get().getOrCreateCache(CacheConfigs.getCacheV2Config(BUILD_STATISTICS_CACHE_NAME));
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @param buildId Build id.
+     */
+    private static long buildIdToCacheKey(int srvIdMaskHigh, int buildId) {
+        return (long)buildId | (long)srvIdMaskHigh << 32;
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @param buildIds Chain root build IDs.
+     * @return Actual statistics found, mapped by build ID.
+     */
+    @AutoProfiling
+    public Map<Integer, BuildStatisticsCompacted> getAll(int srvIdMaskHigh, Collection<Integer> buildIds) {
+        Set<Long> keys = buildIds.stream()
+            .map(id -> buildIdToCacheKey(srvIdMaskHigh, id))
+            .collect(Collectors.toSet());
+
+        Map<Integer, BuildStatisticsCompacted> res = new HashMap<>();
+
+        cache().getAll(keys).forEach((key, stat) -> {
+            if (!stat.isOutdatedEntityVersion())
+                res.put((int)key.longValue(), stat);
+        });
+
+        return res;
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @param buildId Chain root build ID.
+     * @param stat Statistics.
+     */
+    public void put(int srvIdMaskHigh, int buildId, BuildStatisticsCompacted stat) {
+        cache().put(buildIdToCacheKey(srvIdMaskHigh, buildId), stat);
+    }
+
+    /** {@inheritDoc} */
+    @Override public void removeAll(Set<Long> buildKeys) {
+        cache().removeAll(buildKeys);
+    }
+}
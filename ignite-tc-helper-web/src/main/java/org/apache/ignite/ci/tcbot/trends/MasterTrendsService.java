@@ -77,25 +77,65 @@ public class MasterTrendsService {
 
     @Inject private ITcBotConfig cfg;
 
+    /** Statistics of finished chains. */
+    @Inject private BuildStatisticsStorage buildStatStorage;
+
     /** */
     private static final Logger logger = LoggerFactory.getLogger(MasterTrendsService.class);
 
+    /**
+     * Returns build summary. Statistics of finished chain is calculated once and then is read from the storage, summary
+     * of unfinished chain is cached for a minute.
+     *
+     * @param ignited Ignited.
+     * @param buildId Chain root build ID.
+     */
     @NotNull
-    @GuavaCached(maximumSize = 500, softValues = true)
+    @GuavaCached(maximumSize = 500, expireAfterWriteSecs = 60, softValues = true)
     @AutoProfiling
     public BuildStatisticsSummary getBuildSummary(ITeamcityIgnited ignited, int buildId) {
+        int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(ignited.serverCode());
+
+        BuildStatisticsCompacted stat = buildStatStorage.getAll(srvIdMaskHigh, Collections.singletonList(buildId))
+            .get(buildId);
+
+        if (stat != null)
+            return stat.toSummary(buildId);
+
+        return calculateBuildSummary(ignited, srvIdMaskHigh, buildId);
+    }
+
+    /**
+     * Calculates build summary from all builds in chain. If all builds are finished, statistics is saved.
+     *
+     * @param ignited Ignited.
+     * @param srvIdMaskHigh Server id mask high.
+     * @param buildId Chain root build ID.
+     */
+    @NotNull
+    private BuildStatisticsSummary calculateBuildSummary(ITeamcityIgnited ignited, int srvIdMaskHigh, int buildId) {
         String msg = "Loading build [" + buildId + "] summary";
 
         if (DEBUG)
             System.out.println(msg);
 
         BuildStatisticsSummary buildsStatistic = new BuildStatisticsSummary(buildId);
-        initialize(buildsStatistic, ignited);
+        Long finishedChainStartDate = initialize(buildsStatistic, ignited);
+
+        if (finishedChainStartDate != null)
+            buildStatStorage.put(srvIdMaskHigh, buildId, new BuildStatisticsCompacted(buildsStatistic, finishedChainStartDate));
+
         return buildsStatistic;
     }
 
-    /** Initialize build statistics. */
-    public void initialize(BuildStatisticsSummary s, @Nonnull final ITeamcityIgnited tcIgn) {
+    /**
+     * Initialize build statistics.
+     *
+     * @return Start date of chain root build if all builds in the chain are finished, so statistics will not be
+     * changed anymore; {@code null} otherwise.
+     */
+    @Nullable
+    public Long initialize(BuildStatisticsSummary s, @Nonnull final ITeamcityIgnited tcIgn) {
         BuildStatisticsSummary.initStrings(compactor);
 
         FatBuildCompacted build = tcIgn.getFatBuild(s.buildId);
@@ -103,7 +143,7 @@ public class MasterTrendsService {
         s.isFakeStub = build.isFakeStub();
 
         if (s.isFakeStub)
-            return;
+            return null;
 
         Map<Integer, Future<FatBuildCompacted>> builds = bcp.loadAllBuildsInChains(
             Collections.singletonList(s.buildId), SyncMode.RELOAD_QUEUED, tcIgn);
@@ -112,12 +152,12 @@ public class MasterTrendsService {
 
         if (chainBuilds.stream().allMatch(b -> build.isFakeStub())) {
             s.isFakeStub = true;
-            return;
+            return null;
         }
 
         Date startDate = build.getStartDate();
 
-        DateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy'T'HH:mm:ss");
+        DateFormat dateFormat = new SimpleDateFormat(BuildStatisticsCompacted.START_DATE_FORMAT);
 
         s.startDate = dateFormat.format(startDate);
 
@@ -168,6 +208,11 @@ public class MasterTrendsService {
         List<ProblemCompacted> problems = s.getProblems(snapshotDependenciesWithProblems);
 
         s.totalProblems = s.getBuildTypeProblemsCount(problems);
+
+        boolean chainFinished = startDate != null && chainBuilds.stream()
+            .allMatch(b -> !b.isFakeStub() && b.isFinished(compactor));
+
+        return chainFinished ? startDate.getTime() : null;
     }
 
     /**
@@ -260,7 +305,24 @@ public class MasterTrendsService {
         Map<Integer, Boolean> buildIdsWithConditions) {
         List<Future<BuildStatisticsSummary>> buildStaticsFutures = new ArrayList<>();
 
+        int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(ignited.serverCode());
+
+        Map<Integer, BuildStatisticsCompacted> stored = buildStatStorage.getAll(srvIdMaskHigh,
+            buildIdsWithConditions.keySet());
+
         for (int buildId : buildIdsWithConditions.keySet()) {
+            BuildStatisticsCompacted stat = stored.get(buildId);
+
+            if (stat != null) {
+                BuildStatisticsSummary buildsStatistic = stat.toSummary(buildId);
+
+                buildsStatistic.isValid = buildIdsWithConditions.get(buildId);
+
+                buildStaticsFutures.add(CompletableFuture.completedFuture(buildsStatistic));
+
+                continue;
+            }
+
             Future<BuildStatisticsSummary> buildFut = CompletableFuture.supplyAsync(() -> {
                 BuildStatisticsSummary buildsStatistic = getBuildSummary(ignited, buildId);
 
@@ -34,6 +34,7 @@ import org.apache.ignite.tcbot.common.interceptor.MonitoredTaskInterceptor;
 import org.apache.ignite.tcbot.engine.cleaner.Cleaner;
 import org.apache.ignite.tcbot.engine.pool.TcUpdatePool;
 import org.apache.ignite.tcbot.persistence.scheduler.IScheduler;
+import org.apache.ignite.tcignited.pool.TcRequestsPool;
 import org.apache.ignite.tcservice.http.TeamcityRecorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,6 +90,7 @@ public class CtxListener implements ServletContextListener {
             injector.getInstance(TcUpdatePool.class).stop();
             injector.getInstance(BuildObserver.class).stop();
             injector.getInstance(IScheduler.class).stop();
+            injector.getInstance(TcRequestsPool.class).stop();
             injector.getInstance(Cleaner.class).stop();
         }
         catch (Exception e) {
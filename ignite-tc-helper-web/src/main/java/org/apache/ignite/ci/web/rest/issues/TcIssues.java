@@ -18,6 +18,8 @@
 package org.apache.ignite.ci.web.rest.issues;
 
 import com.google.inject.Injector;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
@@ -27,8 +29,11 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import org.apache.ignite.ci.issue.Issue;
+import org.apache.ignite.ci.issue.IssueKey;
 import org.apache.ignite.tcbot.engine.ui.IssueListUi;
 import org.apache.ignite.tcbot.engine.issue.IIssuesStorage;
+import org.apache.ignite.tcbot.engine.issue.IssueNotifications;
 import org.apache.ignite.ci.web.CtxListener;
 import org.apache.ignite.ci.web.model.SimpleResult;
 import org.apache.ignite.tcbot.engine.ui.UpdateInfo;
@@ -67,7 +72,12 @@ public class TcIssues {
 
         IIssuesStorage issues = injector.getInstance(IIssuesStorage.class);
 
-        IssueListUi issueList = new IssueListUi(issues.allIssues().collect(Collectors.toList()));
+        List<Issue> all = issues.allIssues().collect(Collectors.toList());
+        Map<IssueKey, IssueNotifications> notifications = issues.getNotifications(all);
+
+        all.forEach(issue -> notifications.get(issue.issueKey()).copyTo(issue));
+
+        IssueListUi issueList = new IssueListUi(all);
 
         issueList.branch = branch;
 
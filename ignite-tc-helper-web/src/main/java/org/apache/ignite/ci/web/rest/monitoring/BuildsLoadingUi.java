@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.ci.web.rest.monitoring;
+
+import org.apache.ignite.tcignited.build.FatBuildLoadMetrics;
+
+@SuppressWarnings("WeakerAccess")
+public class BuildsLoadingUi {
+    public String srvCode;
+    public Integer inFlight;
+    public Long builds;
+    public Long requests;
+    public String buildsPerSec;
+    public String requestsPerSec;
+
+    public BuildsLoadingUi(String srvCode, FatBuildLoadMetrics metrics) {
+        this.srvCode = srvCode;
+        this.inFlight = metrics.inFlight();
+        this.builds = metrics.builds();
+        this.requests = metrics.requests();
+        this.buildsPerSec = String.format("%.2f", metrics.buildsPerSec());
+        this.requestsPerSec = String.format("%.2f", metrics.requestsPerSec());
+    }
+}
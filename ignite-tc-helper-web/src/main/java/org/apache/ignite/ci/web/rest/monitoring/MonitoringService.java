@@ -28,6 +28,7 @@ import org.apache.ignite.tcbot.engine.conf.INotificationChannel;
 import org.apache.ignite.tcbot.engine.conf.ITcBotConfig;
 import org.apache.ignite.tcbot.engine.conf.NotificationsConfig;
 import org.apache.ignite.tcbot.notify.ISlackSender;
+import org.apache.ignite.tcignited.build.ProactiveFatBuildSync;
 
 import javax.annotation.security.PermitAll;
 import javax.servlet.ServletContext;
@@ -128,6 +129,18 @@ public class MonitoringService {
     }
 
 
+    @GET
+    @PermitAll
+    @Path("buildsLoading")
+    public List<BuildsLoadingUi> getBuildsLoading() {
+        ProactiveFatBuildSync fatBuildSync = CtxListener.getInjector(ctx).getInstance(ProactiveFatBuildSync.class);
+
+        return fatBuildSync.loadMetrics().entrySet().stream()
+            .map(e -> new BuildsLoadingUi(e.getKey(), e.getValue()))
+            .sorted(Comparator.comparing(ui -> ui.srvCode))
+            .collect(Collectors.toList());
+    }
+
     @GET
     @PermitAll
     @Path("cacheMetrics")
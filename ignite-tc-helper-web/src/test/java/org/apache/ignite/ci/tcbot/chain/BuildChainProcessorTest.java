@@ -17,18 +17,26 @@
 package org.apache.ignite.ci.tcbot.chain;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.internal.SingletonScope;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.apache.ignite.ci.teamcity.ignited.BuildRefCompacted;
 import org.apache.ignite.tcbot.engine.chain.*;
+import org.apache.ignite.tcbot.common.util.FutureUtil;
 import org.apache.ignite.tcignited.build.TestCompactedV2;
+import org.apache.ignite.tcignited.build.UpdateCountersStorage;
 import org.apache.ignite.tcignited.buildlog.IBuildLogProcessor;
 import org.apache.ignite.tcservice.ITeamcity;
 import org.apache.ignite.tcservice.model.hist.BuildRef;
@@ -46,8 +54,16 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
 import static junit.framework.TestCase.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Test for chain processor
@@ -69,6 +85,7 @@ public class BuildChainProcessorTest {
             bind(IStringCompactor.class).to(InMemoryStringCompactor.class).in(new SingletonScope());
 
             bind(IBuildLogProcessor.class).toInstance(Mockito.mock(IBuildLogProcessor.class));
+            bind(UpdateCountersStorage.class).in(new SingletonScope());
         }
     });
 
@@ -130,6 +147,9 @@ public class BuildChainProcessorTest {
             builds.put(pds1.id(), pds1);
         }
 
+        // Builds saving increments branch counter, chain loaded before becomes outdated.
+        injector.getInstance(UpdateCountersStorage.class).increment(c.getStringId(BRANCH));
+
         FullChainRunCtx ctx2 = bcp.loadFullChainContext(tcIgnited,
             entry,
             LatestRebuildMode.ALL, ProcessLogsMode.SUITE_NOT_COMPLETE, false, ITeamcity.DEFAULT, SyncMode.NONE, null, null);
@@ -171,6 +191,118 @@ public class BuildChainProcessorTest {
         assertTrue(suiteMultCtx.failedTests() >= 1);
     }
 
+    /**
+     * Build saved while chain is loading should make loaded chain outdated.
+     */
+    @Test
+    public void testChainLoadedConcurrentlyWithBuildSaveIsReloaded() {
+        IStringCompactor c = injector.getInstance(IStringCompactor.class);
+        BuildChainProcessor bcp = injector.getInstance(BuildChainProcessor.class);
+        UpdateCountersStorage counters = injector.getInstance(UpdateCountersStorage.class);
+
+        Map<Integer, FatBuildCompacted> builds = new HashMap<>();
+
+        List<Integer> entry = Lists.newArrayList();
+        for (int i = 0; i < 10; i++)
+            addTestBuild(c, builds, entry, i);
+
+        ITeamcityIgnited tcIgnited = tcIgnitedMock(builds);
+
+        AtomicInteger loads = new AtomicInteger();
+
+        when(tcIgnited.getFatBuildsIfActual(anyCollection(), any(SyncMode.class))).thenAnswer(inv -> {
+            loads.incrementAndGet();
+
+            return Collections.emptyMap();
+        });
+
+        AtomicBoolean saved = new AtomicBoolean();
+
+        // Successful re-runs are saved (and counter is incremented) after suite history was read during chain load.
+        when(tcIgnited.getAllBuildsCompacted(anyString(), anyString())).thenAnswer(inv -> {
+            String btId = inv.getArgument(0);
+
+            List<BuildRefCompacted> res = builds.values()
+                .stream()
+                .filter(fb -> btId.equals(fb.buildTypeId(c)))
+                .sorted(Comparator.comparing(BuildRefCompacted::id).reversed())
+                .collect(Collectors.toList());
+
+            if (PDS_1_BT_ID.equals(btId) && saved.compareAndSet(false, true)) {
+                for (int j = 0; j < 10; j++) {
+                    FatBuildCompacted pds1 = testFatBuild(c, 130 + j, PDS_1_BT_ID);
+                    pds1.buildTypeName(UNIQUE_FAILED_TEST, c);
+
+                    TestOccurrenceFull t1 = new TestOccurrenceFull();
+                    t1.name = UNIQUE_FAILED_TEST + j;
+                    t1.status = TestOccurrence.STATUS_SUCCESS;
+                    pds1.addTests(c, Lists.newArrayList(t1), null);
+
+                    builds.put(pds1.id(), pds1);
+                }
+
+                counters.increment(c.getStringId(BRANCH));
+            }
+
+            return res;
+        });
+
+        FullChainRunCtx ctx = bcp.loadFullChainContext(tcIgnited,
+            entry,
+            LatestRebuildMode.ALL, ProcessLogsMode.SUITE_NOT_COMPLETE, false, ITeamcity.DEFAULT, SyncMode.NONE, null, null);
+
+        assertFalse("Chain loaded concurrently with build save should not be returned",
+            ctx.failedChildSuites()
+                .flatMap(MultBuildRunCtx::getFailedTestsNames)
+                .anyMatch(name -> name.startsWith(UNIQUE_FAILED_TEST)));
+
+        int loadRequests = loads.get();
+
+        bcp.loadFullChainContext(tcIgnited,
+            entry,
+            LatestRebuildMode.ALL, ProcessLogsMode.SUITE_NOT_COMPLETE, false, ITeamcity.DEFAULT, SyncMode.NONE, null, null);
+
+        assertEquals("Actual chain should be reused", loadRequests, loads.get());
+    }
+
+    /**
+     * Finished builds are read with one bulk request, running builds are loaded one by one in reload queued mode.
+     */
+    @Test
+    public void testActualBuildsReadInBulkOthersLoaded() {
+        IStringCompactor c = injector.getInstance(IStringCompactor.class);
+        BuildChainProcessor bcp = injector.getInstance(BuildChainProcessor.class);
+
+        Map<Integer, FatBuildCompacted> builds = new HashMap<>();
+
+        List<Integer> entry = Lists.newArrayList();
+        addTestBuild(c, builds, entry, 0);
+
+        BuildRef running = new BuildRef();
+        running.setId(200);
+        running.buildTypeId = "Pds2";
+        running.state = BuildRef.STATE_RUNNING;
+        running.branchName = BRANCH;
+        builds.get(200).fillFieldsFromBuildRef(c, running);
+
+        ITeamcityIgnited tcIgnited = tcIgnitedMock(builds);
+
+        assertEquals(Sets.newHashSet(0, 100),
+            tcIgnited.getFatBuildsIfActual(Lists.newArrayList(0, 100, 200, 300), SyncMode.RELOAD_QUEUED).keySet());
+        assertEquals(Sets.newHashSet(0, 100, 200),
+            tcIgnited.getFatBuildsIfActual(Lists.newArrayList(0, 100, 200, 300), SyncMode.NONE).keySet());
+
+        Map<Integer, Future<FatBuildCompacted>> chain =
+            bcp.loadAllBuildsInChains(entry, SyncMode.RELOAD_QUEUED, tcIgnited);
+
+        assertEquals(Sets.newHashSet(0, 100, 200), chain.keySet());
+        assertEquals(builds.get(200), FutureUtil.getResult(chain.get(200)));
+
+        verify(tcIgnited, never()).getFatBuild(eq(0), any(SyncMode.class));
+        verify(tcIgnited, never()).getFatBuild(eq(100), any(SyncMode.class));
+        verify(tcIgnited).getFatBuild(eq(200), eq(SyncMode.RELOAD_QUEUED));
+    }
+
     public void addTestBuild(IStringCompactor c, Map<Integer, FatBuildCompacted> builds, List<Integer> entry, int i) {
         FatBuildCompacted root = testFatBuild(c, i, "RunAll");
         entry.add(root.id());
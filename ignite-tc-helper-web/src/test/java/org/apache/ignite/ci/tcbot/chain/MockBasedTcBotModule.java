@@ -50,6 +50,7 @@ import org.apache.ignite.tcbot.persistence.InMemoryStringCompactor;
 import org.apache.ignite.ci.teamcity.ignited.TeamcityIgnitedProviderMock;
 import org.apache.ignite.tcbot.common.conf.IDataSourcesConfigSupplier;
 import org.apache.ignite.tcignited.buildlog.IBuildLogProcessor;
+import org.apache.ignite.tcignited.buildlog.ILogProductSpecific;
 import org.mockito.Mockito;
 
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -76,6 +77,7 @@ public class MockBasedTcBotModule extends AbstractModule {
         bind(IStringCompactor.class).to(InMemoryStringCompactor.class).in(new SingletonScope());
 
         bind(IBuildLogProcessor.class).toInstance(Mockito.mock(IBuildLogProcessor.class));
+        bind(ILogProductSpecific.class).toInstance(Mockito.mock(ILogProductSpecific.class));
 
         final IGitHubConnectionProvider ghProv = Mockito.mock(IGitHubConnectionProvider.class);
         bind(IGitHubConnectionProvider.class).toInstance(ghProv);
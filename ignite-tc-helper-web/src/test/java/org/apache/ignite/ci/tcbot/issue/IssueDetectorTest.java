@@ -19,8 +19,10 @@ package org.apache.ignite.ci.tcbot.issue;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.util.Modules;
 import java.util.List;
 import java.util.Map;
 import java.util.OptionalInt;
@@ -34,20 +36,30 @@ import org.apache.ignite.ci.user.ITcBotUserCreds;
 import org.apache.ignite.tcbot.engine.conf.BranchTracked;
 import org.apache.ignite.tcbot.engine.conf.ChainAtServerTracked;
 import org.apache.ignite.tcbot.engine.conf.TcBotJsonConfig;
+import org.apache.ignite.tcbot.engine.issue.IIssuesStorage;
 import org.apache.ignite.tcbot.persistence.IStringCompactor;
 import org.apache.ignite.tcignited.ITeamcityIgnitedProvider;
+import org.apache.ignite.tcignited.ITeamcityIgnited;
 import org.apache.ignite.tcignited.TeamcityIgnitedImpl;
+import org.apache.ignite.tcignited.build.FatBuildDao;
+import org.apache.ignite.tcignited.build.IFatBuildListener;
 import org.apache.ignite.tcservice.ITeamcity;
 import org.apache.ignite.tcservice.model.result.tests.TestOccurrenceFull;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
 import static org.apache.ignite.ci.tcbot.chain.PrChainsProcessorTest.createFatBuild;
 import static org.apache.ignite.ci.tcbot.chain.PrChainsProcessorTest.createTest;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -58,6 +70,7 @@ public class IssueDetectorTest {
     public static final String SRV_ID = "apacheTest";
     public static final String PDS_1 = "PDS1";
     public static final String PDS_2 = "PDS2_noChanges";
+    public static final String PDS_NOT_IN_CHAIN = "PDS3_notInChain";
 
     /** Builds emulated storage. */
     private Map<Integer, FatBuildCompacted> apacheBuilds = new ConcurrentHashMap<>();
@@ -136,6 +149,142 @@ public class IssueDetectorTest {
         issueDetector.stop();
     }
 
+    /**
+     * Build saved for tracked server and branch is checked for issues, build of other branch is ignored.
+     */
+    @Test
+    public void testIssuesDetectedInTrackedBuildArrived() {
+        FatBuildDao fatBuildDao = mock(FatBuildDao.class);
+        when(fatBuildDao.getFatBuild(anyInt(), anyInt()))
+            .thenAnswer(inv -> apacheBuilds.get(inv.<Integer>getArgument(1)));
+
+        Injector injector = Guice.createInjector(Modules.override(new MockBasedTcBotModule(branchesTracked))
+            .with(new AbstractModule() {
+                @Override protected void configure() {
+                    bind(FatBuildDao.class).toProvider(() -> fatBuildDao);
+                }
+            }));
+
+        ITeamcityIgnitedProvider tcProv = injector.getInstance(ITeamcityIgnitedProvider.class);
+        ((TeamcityIgnitedProviderMock)tcProv).addServer(SRV_ID, apacheBuilds);
+
+        String chainId = TeamcityIgnitedImpl.DEFAULT_PROJECT_ID;
+        BranchTracked branch = new BranchTracked();
+        branch.id = "masterTest";
+        branch.chains.add(trackedChain(chainId));
+        branchesTracked.addBranch(branch);
+
+        IStringCompactor c = injector.getInstance(IStringCompactor.class);
+
+        Map<String, String> pds1Hist = new TreeMap<String, String>() {
+            {
+                put("testFailed", "0000011111");
+                put("testOk", "      0000");
+            }
+        };
+
+        emulateHistory(chainId, c, pds1Hist, new TreeMap<>());
+
+        FatBuildCompacted trackedBuild = apacheBuilds.get(1109);
+
+        FatBuildCompacted otherBranchBuild = createFatBuild(c, PDS_1, "refs/heads/other", 1500, 0, false)
+            .addTests(c, Lists.newArrayList(createTest("testFailed".hashCode(), "testFailed", false)), null);
+        apacheBuilds.put(otherBranchBuild.id(), otherBranchBuild);
+
+        IssueDetector issueDetector = injector.getInstance(IssueDetector.class);
+
+        ITcBotUserCreds creds = mock(ITcBotUserCreds.class);
+        when(creds.hasAccess(anyString())).thenReturn(true);
+        issueDetector.startBackgroundCheck(creds);
+
+        ArgumentCaptor<IFatBuildListener> listener = ArgumentCaptor.forClass(IFatBuildListener.class);
+        verify(fatBuildDao).addListener(listener.capture());
+
+        int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(tcProv.server(SRV_ID, creds).serverCode());
+
+        listener.getValue().onBuildSaved(srvIdMaskHigh, otherBranchBuild.id(), otherBranchBuild);
+
+        String otherBranchRes = issueDetector.checkBuildsArrived();
+        assertTrue(otherBranchRes, otherBranchRes.startsWith("0 builds checked"));
+
+        listener.getValue().onBuildSaved(srvIdMaskHigh, trackedBuild.id(), trackedBuild);
+
+        String trackedRes = issueDetector.checkBuildsArrived();
+        assertTrue(trackedRes, trackedRes.startsWith("1 builds checked"));
+        assertFalse(trackedRes, trackedRes.endsWith("new issues found 0"));
+
+        issueDetector.stop();
+    }
+
+    /**
+     * Build saved for tracked server and branch, but of build type not included into tracked chain, is not checked.
+     */
+    @Test
+    public void testIssuesNotDetectedInBuildArrivedOutsideOfChain() {
+        FatBuildDao fatBuildDao = mock(FatBuildDao.class);
+        when(fatBuildDao.getFatBuild(anyInt(), anyInt()))
+            .thenAnswer(inv -> apacheBuilds.get(inv.<Integer>getArgument(1)));
+
+        Injector injector = Guice.createInjector(Modules.override(new MockBasedTcBotModule(branchesTracked))
+            .with(new AbstractModule() {
+                @Override protected void configure() {
+                    bind(FatBuildDao.class).toProvider(() -> fatBuildDao);
+                }
+            }));
+
+        ITeamcityIgnitedProvider tcProv = injector.getInstance(ITeamcityIgnitedProvider.class);
+        ((TeamcityIgnitedProviderMock)tcProv).addServer(SRV_ID, apacheBuilds);
+
+        String chainId = TeamcityIgnitedImpl.DEFAULT_PROJECT_ID;
+        BranchTracked branch = new BranchTracked();
+        branch.id = "masterTest";
+        branch.chains.add(trackedChain(chainId));
+        branchesTracked.addBranch(branch);
+
+        IStringCompactor c = injector.getInstance(IStringCompactor.class);
+
+        Map<String, String> failingHist = new TreeMap<String, String>() {
+            {
+                put("testFailed", "0000011111");
+            }
+        };
+
+        emulateHistory(chainId, c, failingHist, new TreeMap<>());
+
+        int histLen = 10;
+        FatBuildCompacted notInChainBuild = null;
+
+        for (int i = 0; i < histLen; i++) {
+            notInChainBuild = createFatBuild(c, PDS_NOT_IN_CHAIN, ITeamcity.DEFAULT, 1300 + i, 100 * i, false)
+                .addTests(c, testsMapToXmlModel(failingHist, histLen, i), null)
+                .changes(new int[] {i});
+
+            apacheBuilds.put(notInChainBuild.id(), notInChainBuild);
+        }
+
+        IssueDetector issueDetector = injector.getInstance(IssueDetector.class);
+
+        ITcBotUserCreds creds = mock(ITcBotUserCreds.class);
+        when(creds.hasAccess(anyString())).thenReturn(true);
+        issueDetector.startBackgroundCheck(creds);
+
+        ArgumentCaptor<IFatBuildListener> listener = ArgumentCaptor.forClass(IFatBuildListener.class);
+        verify(fatBuildDao).addListener(listener.capture());
+
+        int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(tcProv.server(SRV_ID, creds).serverCode());
+
+        listener.getValue().onBuildSaved(srvIdMaskHigh, notInChainBuild.id(), notInChainBuild);
+
+        String res = issueDetector.checkBuildsArrived();
+        assertTrue(res, res.startsWith("0 builds checked"));
+
+        // Tracked branch check running in background may register issues for suites of the chain.
+        verify(injector.getInstance(IIssuesStorage.class), never()).saveIssue(argThat(issue ->
+            issue.issueKey.buildId >= 1300 && issue.issueKey.buildId < 1300 + histLen));
+
+        issueDetector.stop();
+    }
+
     /**
      * @param chainId Chain id.
      * @param c Compactor.
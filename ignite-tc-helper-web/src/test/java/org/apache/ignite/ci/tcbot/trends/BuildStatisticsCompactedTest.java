@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.tcbot.trends;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.ignite.ci.web.model.trends.BuildStatisticsSummary;
+import org.apache.ignite.internal.util.typedef.T2;
+import org.junit.Test;
+
+import static org.apache.ignite.ci.web.model.trends.BuildStatisticsSummary.TOTAL;
+import static org.apache.ignite.ci.web.model.trends.BuildStatisticsSummary.shortProblemNames;
+import static org.apache.ignite.tcservice.model.result.problems.ProblemOccurrence.TC_EXECUTION_TIMEOUT;
+import static org.apache.ignite.tcservice.model.result.problems.ProblemOccurrence.TC_EXIT_CODE;
+import static org.apache.ignite.tcservice.model.result.problems.ProblemOccurrence.TC_JVM_CRASH;
+import static org.apache.ignite.tcservice.model.result.problems.ProblemOccurrence.TC_OOME;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks summary of finished chain is restored from persisted statistics without changes.
+ */
+public class BuildStatisticsCompactedTest {
+    /** Chain root build ID. */
+    private static final int BUILD_ID = 2153237;
+
+    @Test
+    public void testSummaryRestoredFromStatistics() {
+        long startDate = System.currentTimeMillis() / 1000 * 1000;
+
+        BuildStatisticsSummary s = new BuildStatisticsSummary(BUILD_ID);
+
+        s.startDate = new SimpleDateFormat(BuildStatisticsCompacted.START_DATE_FORMAT).format(new Date(startDate));
+        s.testOccurrences.count = 100;
+        s.testOccurrences.failed = 7;
+        s.testOccurrences.ignored = 5;
+        s.testOccurrences.muted = 3;
+        s.testOccurrences.passed = 85;
+        s.duration = 3600;
+
+        Map<String, Long> problems = new HashMap<>();
+        problems.put(shortProblemNames.get(TC_EXECUTION_TIMEOUT), 2L);
+        problems.put(shortProblemNames.get(TC_JVM_CRASH), 1L);
+        problems.put(shortProblemNames.get(TC_OOME), 0L);
+        problems.put(shortProblemNames.get(TC_EXIT_CODE), 4L);
+        problems.put(shortProblemNames.get(TOTAL), 7L);
+        s.totalProblems = problems;
+
+        s.failedTests().computeIfAbsent(11, k -> new HashMap<>()).put(101, new T2<>(1001L, 3));
+        s.failedTests().computeIfAbsent(11, k -> new HashMap<>()).put(102, new T2<>(1002L, 1));
+        s.failedTests().computeIfAbsent(12, k -> new HashMap<>()).put(101, new T2<>(1001L, 2));
+
+        BuildStatisticsSummary restored = new BuildStatisticsCompacted(s, startDate).toSummary(BUILD_ID);
+
+        assertEquals(s.buildId, restored.buildId);
+        assertEquals(s.startDate, restored.startDate);
+        assertEquals(s.duration, restored.duration);
+
+        assertEquals(s.testOccurrences.count, restored.testOccurrences.count);
+        assertEquals(s.testOccurrences.failed, restored.testOccurrences.failed);
+        assertEquals(s.testOccurrences.ignored, restored.testOccurrences.ignored);
+        assertEquals(s.testOccurrences.muted, restored.testOccurrences.muted);
+        assertEquals(s.testOccurrences.passed, restored.testOccurrences.passed);
+
+        assertEquals(s.totalProblems, restored.totalProblems);
+        assertEquals(s.failedTests(), restored.failedTests());
+    }
+
+    @Test
+    public void testSummaryWithoutProblemsAndFailures() {
+        BuildStatisticsSummary s = new BuildStatisticsSummary(BUILD_ID);
+
+        s.testOccurrences.count = 10;
+        s.testOccurrences.failed = 0;
+        s.testOccurrences.ignored = 0;
+        s.testOccurrences.muted = 0;
+        s.testOccurrences.passed = 10;
+
+        BuildStatisticsSummary restored = new BuildStatisticsCompacted(s, 0).toSummary(BUILD_ID);
+
+        assertEquals(10, (int)restored.testOccurrences.passed);
+        assertEquals(0L, (long)restored.totalProblems.get(shortProblemNames.get(TOTAL)));
+        assertEquals(5, restored.totalProblems.size());
+        assertEquals(s.failedTests(), restored.failedTests());
+    }
+}
@@ -35,7 +35,9 @@ import org.mockito.Mockito;
 import org.mockito.stubbing.Answer;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -60,6 +62,23 @@ public class TeamcityIgnitedMock {
         when(tcIgnited.getFatBuild(anyInt(), any(SyncMode.class))).thenAnswer(buildAnswer);
         when(tcIgnited.getFatBuild(anyInt())).thenAnswer(buildAnswer);
 
+        when(tcIgnited.getFatBuildsIfActual(anyCollection(), any(SyncMode.class)))
+            .thenAnswer(inv -> {
+                Collection<Integer> ids = inv.getArgument(0);
+                SyncMode mode = inv.getArgument(1);
+
+                Map<Integer, FatBuildCompacted> res = new HashMap<>();
+
+                for (Integer id : ids) {
+                    FatBuildCompacted build = builds.get(id);
+
+                    if (build != null && !isReloadRequired(c, build, mode))
+                        res.put(id, build);
+                }
+
+                return res;
+            });
+
         when(tcIgnited.getAllBuildsCompacted(anyString(), anyString()))
             .thenAnswer(inv -> {
                 String btId = inv.getArgument(0);
@@ -164,6 +183,20 @@ public class TeamcityIgnitedMock {
         return tcIgnited;
     }
 
+    /**
+     * Same check with real server: only finished builds may be used as is in {@link SyncMode#RELOAD_QUEUED} mode.
+     *
+     * @param c Compactor.
+     * @param build Saved build.
+     * @param mode Refresh mode.
+     */
+    private static boolean isReloadRequired(IStringCompactor c, FatBuildCompacted build, SyncMode mode) {
+        if (mode != SyncMode.RELOAD_QUEUED)
+            return false;
+
+        return build.state(c) == null || build.isRunning(c) || build.isQueued(c);
+    }
+
     public static void initHistory(IStringCompactor c, Map<RunHistKey, RunHistCompacted> resHistCache,
         Map<Integer, FatBuildCompacted> builds, int srvId) {
         Map<RunHistKey, RunHistCompacted> histCache = new ConcurrentHashMap<>();
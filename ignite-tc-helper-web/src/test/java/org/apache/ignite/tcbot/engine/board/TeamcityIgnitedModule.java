@@ -19,6 +19,7 @@ package org.apache.ignite.tcbot.engine.board;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.internal.SingletonScope;
+import org.apache.ignite.ci.tcbot.trends.BuildStatisticsStorage;
 import org.apache.ignite.ci.teamcity.ignited.buildcondition.BuildConditionDao;
 import org.apache.ignite.ci.teamcity.ignited.buildtype.BuildTypeDao;
 import org.apache.ignite.ci.teamcity.ignited.buildtype.BuildTypeRefDao;
@@ -26,6 +27,7 @@ import org.apache.ignite.ci.teamcity.ignited.buildtype.BuildTypeSync;
 import org.apache.ignite.ci.teamcity.ignited.change.ChangeDao;
 import org.apache.ignite.ci.teamcity.ignited.change.ChangeSync;
 import org.apache.ignite.tcbot.engine.cleaner.Cleaner;
+import org.apache.ignite.tcbot.engine.cleaner.IBuildStatisticsStorage;
 import org.apache.ignite.tcbot.engine.defect.DefectsStorage;
 import org.apache.ignite.tcbot.engine.issue.IIssuesStorage;
 import org.apache.ignite.tcbot.engine.issue.IssuesStorage;
@@ -71,6 +73,8 @@ public class TeamcityIgnitedModule extends AbstractModule {
         bind(ILogProductSpecific.class).to(LogIgniteSpecific.class).in(new SingletonScope());
         bind(UpdateCountersStorage.class).in(new SingletonScope());
         bind(Cleaner.class).in(new SingletonScope());
+        bind(BuildStatisticsStorage.class).in(new SingletonScope());
+        bind(IBuildStatisticsStorage.class).to(BuildStatisticsStorage.class);
         bind(DefectsStorage.class).in(new SingletonScope());
         bind(IIssuesStorage.class).to(IssuesStorage.class).in(new SingletonScope());
         bind(BoardService.class).in(new SingletonScope());
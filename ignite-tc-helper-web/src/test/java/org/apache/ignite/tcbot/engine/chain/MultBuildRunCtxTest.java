@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcbot.engine.chain;
+
+import java.util.stream.Stream;
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
+import org.apache.ignite.tcbot.persistence.IStringCompactor;
+import org.apache.ignite.tcbot.persistence.InMemoryStringCompactor;
+import org.apache.ignite.tcservice.model.hist.BuildRef;
+import org.apache.ignite.tcservice.model.result.problems.ProblemOccurrence;
+import org.junit.Test;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks problems summary of several builds.
+ */
+public class MultBuildRunCtxTest {
+    /** Compactor. */
+    private final IStringCompactor compactor = new InMemoryStringCompactor();
+
+    @Test
+    public void testProblemsSummary() {
+        MultBuildRunCtx ctx = new MultBuildRunCtx(new BuildRef(), compactor);
+
+        ctx.addBuild(build(1, ProblemOccurrence.TC_EXECUTION_TIMEOUT, ProblemOccurrence.TC_FAILED_TESTS));
+        ctx.addBuild(build(2, ProblemOccurrence.TC_EXECUTION_TIMEOUT, ProblemOccurrence.TC_JVM_CRASH));
+        ctx.addBuild(build(3, "CUSTOM_PROBLEM"));
+
+        assertTrue(ctx.hasTimeoutProblem());
+        assertTrue(ctx.hasJvmCrashProblem());
+        assertEquals(1, ctx.getJvmCrashProblemCount());
+        assertFalse(ctx.hasOomeProblem());
+        assertFalse(ctx.hasCompilationProblem());
+        assertTrue(ctx.hasAnyBuildProblemExceptTestOrSnapshot());
+        assertTrue(ctx.hasProblemNonByFailedTest());
+
+        assertEquals("TIMEOUT [2], JVM CRASH , CUSTOM_PROBLEM ", ctx.getResult());
+    }
+
+    @Test
+    public void testTestsAndSnapshotProblemsOnly() {
+        MultBuildRunCtx ctx = new MultBuildRunCtx(new BuildRef(), compactor);
+
+        ctx.addBuild(build(1, ProblemOccurrence.TC_FAILED_TESTS));
+        ctx.addBuild(build(2, ProblemOccurrence.SNAPSHOT_DEPENDENCY_ERROR));
+
+        assertFalse(ctx.hasAnyBuildProblemExceptTestOrSnapshot());
+        assertTrue(ctx.hasProblemNonByFailedTest());
+        assertEquals("", ctx.getResult());
+    }
+
+    /**
+     * @param id Build ID.
+     * @param problemTypes Problem types.
+     */
+    private SingleBuildRunCtx build(int id, String... problemTypes) {
+        FatBuildCompacted build = new FatBuildCompacted();
+        build.setId(id);
+
+        build.addProblems(compactor, Stream.of(problemTypes).map(type -> {
+            ProblemOccurrence occurrence = new ProblemOccurrence();
+            occurrence.setType(type);
+
+            return occurrence;
+        }).collect(toList()));
+
+        return new SingleBuildRunCtx(build, compactor);
+    }
+}
@@ -17,21 +17,28 @@
 
 package org.apache.ignite.tcbot.engine.cleaner;
 
+import com.google.common.collect.Sets;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.internal.SingletonScope;
 import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
 import org.apache.ignite.Ignition;
 import org.apache.ignite.ci.db.TcHelperDb;
 import org.apache.ignite.ci.issue.Issue;
 import org.apache.ignite.ci.issue.IssueKey;
+import org.apache.ignite.ci.tcbot.trends.BuildStatisticsCompacted;
+import org.apache.ignite.ci.tcbot.trends.BuildStatisticsStorage;
 import org.apache.ignite.ci.teamcity.ignited.BuildRefCompacted;
 import org.apache.ignite.ci.teamcity.ignited.buildcondition.BuildConditionDao;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
+import org.apache.ignite.ci.web.model.trends.BuildStatisticsSummary;
 import org.apache.ignite.configuration.IgniteConfiguration;
 import org.apache.ignite.jiraservice.IJiraIntegrationProvider;
 import org.apache.ignite.spi.discovery.tcp.TcpDiscoverySpi;
@@ -111,6 +118,7 @@ public class CleanerTest {
         FatBuildDao fatBuildDao = injector.getInstance(FatBuildDao.class);
         DefectsStorage defectsStorage = injector.getInstance(DefectsStorage.class);
         IssuesStorage issuesStorage = injector.getInstance(IssuesStorage.class);
+        BuildStatisticsStorage buildStatStorage = injector.getInstance(BuildStatisticsStorage.class);
         Cleaner cleaner = injector.getInstance(Cleaner.class);
 
         fatBuildDao.init();
@@ -149,12 +157,20 @@ public class CleanerTest {
         IssueEntry issueToSave1 = IssueEntry.createIssueEntry(tc2, oldBuildToRemove1.buildId, nowTime);
         IssueEntry issueWithBrokenConsistencyToSave2 = IssueEntry.createIssueEntry(tc1, Math.abs(rnd.nextInt()), nowTime);
 
+        for (FatBuildEntry entry : Arrays.asList(oldBuildToRemove1, oldBuildToSave1, buildToSave1)) {
+            buildStatStorage.put(entry.tcId, entry.buildId, buildStatistics(entry.buildId, nowTime));
+        }
+
         cleaner.clean();
 
         Assert.assertNull(fatBuildDao.getFatBuild(oldBuildToRemove1.tcId, oldBuildToRemove1.buildId));
         Assert.assertNotNull(fatBuildDao.getFatBuild(oldBuildToSave1.tcId, oldBuildToSave1.buildId));
         Assert.assertNotNull(fatBuildDao.getFatBuild(buildToSave1.tcId, buildToSave1.buildId));
 
+        Assert.assertEquals(Sets.newHashSet(oldBuildToSave1.buildId, buildToSave1.buildId),
+            buildStatStorage.getAll(tcId1, Arrays.asList(oldBuildToRemove1.buildId, oldBuildToSave1.buildId,
+                buildToSave1.buildId)).keySet());
+
         Assert.assertNull(defectsStorage.load(oldClosedDefectToRemove1.id));
         Assert.assertNull(defectsStorage.load(oldClosedWithBrokenConsistencyDefectToRemove2.id));
         Assert.assertNotNull(defectsStorage.load(oldOpenedDefectToSave1.id));
@@ -165,6 +181,29 @@ public class CleanerTest {
         Assert.assertNull(issuesStorage.getIssue(issueWithBrokenConsistencyToRemove2.issueKey));
         Assert.assertNotNull(issuesStorage.getIssue(issueToSave1.issueKey));
         Assert.assertNotNull(issuesStorage.getIssue(issueWithBrokenConsistencyToSave2.issueKey));
+
+        Set<IssueKey> recentIssues = issuesStorage.issuesDetectedAfter(nowTime - 1000)
+            .map(Issue::issueKey)
+            .collect(Collectors.toSet());
+
+        Assert.assertEquals(Sets.newHashSet(issueToSave1.issueKey, issueWithBrokenConsistencyToSave2.issueKey),
+            recentIssues);
+    }
+
+    /**
+     * @param buildId Chain root build ID.
+     * @param startDate Start date.
+     * @return Statistics of chain without tests.
+     */
+    private static BuildStatisticsCompacted buildStatistics(int buildId, long startDate) {
+        BuildStatisticsSummary s = new BuildStatisticsSummary(buildId);
+
+        s.testOccurrences.count = 0;
+        s.testOccurrences.failed = 0;
+        s.testOccurrences.ignored = 0;
+        s.testOccurrences.muted = 0;
+
+        return new BuildStatisticsCompacted(s, startDate);
     }
 
     private static class FatBuildEntry {
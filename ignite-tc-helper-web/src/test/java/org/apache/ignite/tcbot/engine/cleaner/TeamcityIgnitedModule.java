@@ -19,6 +19,7 @@ package org.apache.ignite.tcbot.engine.cleaner;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.internal.SingletonScope;
+import org.apache.ignite.ci.tcbot.trends.BuildStatisticsStorage;
 import org.apache.ignite.ci.teamcity.ignited.buildcondition.BuildConditionDao;
 import org.apache.ignite.ci.teamcity.ignited.buildtype.BuildTypeDao;
 import org.apache.ignite.ci.teamcity.ignited.buildtype.BuildTypeRefDao;
@@ -66,6 +67,8 @@ public class TeamcityIgnitedModule extends AbstractModule {
         bind(ILogProductSpecific.class).to(LogIgniteSpecific.class).in(new SingletonScope());
         bind(UpdateCountersStorage.class).in(new SingletonScope());
         bind(Cleaner.class).in(new SingletonScope());
+        bind(BuildStatisticsStorage.class).in(new SingletonScope());
+        bind(IBuildStatisticsStorage.class).to(BuildStatisticsStorage.class);
         bind(DefectsStorage.class).in(new SingletonScope());
         bind(IIssuesStorage.class).to(IssuesStorage.class).in(new SingletonScope());
 
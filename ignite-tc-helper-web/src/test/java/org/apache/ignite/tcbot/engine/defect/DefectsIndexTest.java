@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcbot.engine.defect;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks lookups of {@link DefectsIndex}.
+ */
+public class DefectsIndexTest {
+    /** Server ID. */
+    private static final int SRV_ID = 42;
+
+    @Test
+    public void testBuildAndCommitsLookup() {
+        DefectsIndex idx = new DefectsIndex();
+
+        List<CommitCompacted> commits = Arrays.asList(commit(1), commit(2));
+        List<CommitCompacted> revisions = Collections.singletonList(commit(3));
+
+        idx.put(1, defect(1, 100, commits, revisions));
+        idx.put(2, defect(2, 200, Collections.emptyList(), revisions));
+
+        assertEquals(Integer.valueOf(1), idx.defectForBuild(SRV_ID, 100));
+        assertEquals(Integer.valueOf(2), idx.defectForBuild(SRV_ID, 200));
+        assertNull(idx.defectForBuild(SRV_ID + 1, 100));
+
+        assertEquals(Collections.singleton(1), idx.openDefectsByCommits(SRV_ID, commits));
+        assertTrue(idx.openDefectsByCommits(SRV_ID + 1, commits).isEmpty());
+        assertEquals(2, idx.openDefectsByRevisions(SRV_ID, revisions).size());
+
+        DefectCompacted resolved = defect(1, 100, commits, revisions);
+        resolved.resolvedByUsernameId(7);
+        idx.put(1, resolved);
+
+        // Resolved defect is still found by build, but not by commits or revisions.
+        assertEquals(Integer.valueOf(1), idx.defectForBuild(SRV_ID, 100));
+        assertTrue(idx.openDefectsByCommits(SRV_ID, commits).isEmpty());
+        assertEquals(Collections.singleton(2), idx.openDefectsByRevisions(SRV_ID, revisions));
+
+        idx.remove(2);
+
+        assertNull(idx.defectForBuild(SRV_ID, 200));
+        assertTrue(idx.openDefectsByRevisions(SRV_ID, revisions).isEmpty());
+    }
+
+    /**
+     * @param id Defect ID.
+     * @param buildId Build ID.
+     * @param commits Commits.
+     * @param revisions Revisions.
+     */
+    private static DefectCompacted defect(int id, int buildId, List<CommitCompacted> commits,
+        List<CommitCompacted> revisions) {
+        DefectCompacted defect = new DefectCompacted(id).tcSrvId(SRV_ID).commits(commits).revisions(revisions);
+
+        FatBuildCompacted build = new FatBuildCompacted();
+        build.setId(buildId);
+        defect.computeIfAbsent(build);
+
+        return defect;
+    }
+
+    /**
+     * @param b Byte.
+     */
+    private static CommitCompacted commit(int b) {
+        return new CommitCompacted(new byte[] {(byte)b, 1, 2, 3});
+    }
+}
@@ -17,6 +17,7 @@
 package org.apache.ignite.tcignited;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -33,14 +34,17 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
@@ -51,6 +55,9 @@ import javax.xml.bind.JAXBException;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
 import org.apache.ignite.Ignition;
+import org.apache.ignite.cache.QueryEntity;
+import org.apache.ignite.cache.QueryIndex;
+import org.apache.ignite.cache.query.SqlFieldsQuery;
 import org.apache.ignite.ci.db.TcHelperDb;
 import org.apache.ignite.ci.tcbot.chain.PrChainsProcessorTest;
 import org.apache.ignite.ci.tcbot.issue.IssueDetectorTest;
@@ -59,6 +66,7 @@ import org.apache.ignite.ci.teamcity.ignited.buildtype.BuildTypeRefCompacted;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
 import org.apache.ignite.ci.teamcity.pure.BuildHistoryEmulator;
 import org.apache.ignite.ci.user.ITcBotUserCreds;
+import org.apache.ignite.configuration.CacheConfiguration;
 import org.apache.ignite.configuration.IgniteConfiguration;
 import org.apache.ignite.jiraservice.IJiraIntegrationProvider;
 import org.apache.ignite.spi.discovery.tcp.TcpDiscoverySpi;
@@ -70,16 +78,24 @@ import org.apache.ignite.tcbot.engine.chain.TestCompactedMult;
 import org.apache.ignite.tcbot.engine.conf.ITcBotConfig;
 import org.apache.ignite.tcbot.engine.conf.TcBotJsonConfig;
 import org.apache.ignite.tcbot.engine.issue.EventTemplates;
+import org.apache.ignite.tcbot.persistence.CacheConfigs;
 import org.apache.ignite.tcbot.persistence.IStringCompactor;
 import org.apache.ignite.tcbot.persistence.IgniteStringCompactor;
 import org.apache.ignite.tcbot.persistence.TcBotPersistenceModule;
 import org.apache.ignite.tcbot.persistence.scheduler.DirectExecNoWaitScheduler;
 import org.apache.ignite.tcbot.persistence.scheduler.IScheduler;
+import org.apache.ignite.tcignited.agent.AgentCompacted;
+import org.apache.ignite.tcignited.agent.AgentDao;
 import org.apache.ignite.tcignited.build.FatBuildDao;
+import org.apache.ignite.tcignited.build.FatBuildDayIndexDao;
 import org.apache.ignite.tcignited.build.ProactiveFatBuildSync;
 import org.apache.ignite.tcignited.build.TestCompactedV2;
 import org.apache.ignite.tcignited.buildlog.ILogProductSpecific;
 import org.apache.ignite.tcignited.buildref.BuildRefDao;
+import org.apache.ignite.tcignited.buildtime.BuildTimeAggregator;
+import org.apache.ignite.tcignited.buildtime.BuildTimeRecord;
+import org.apache.ignite.tcignited.buildtime.BuildTimeResult;
+import org.apache.ignite.tcignited.history.BuildStartTimeChunk;
 import org.apache.ignite.tcignited.history.BuildStartTimeStorage;
 import org.apache.ignite.tcignited.history.HistoryCollector;
 import org.apache.ignite.tcignited.history.IRunHistory;
@@ -88,6 +104,7 @@ import org.apache.ignite.tcignited.history.SuiteInvocationHistoryDao;
 import org.apache.ignite.tcservice.ITeamcity;
 import org.apache.ignite.tcservice.TeamcityServiceConnection;
 import org.apache.ignite.tcservice.http.ITeamcityHttpConnection;
+import org.apache.ignite.tcservice.model.agent.AgentRef;
 import org.apache.ignite.tcservice.model.changes.ChangesList;
 import org.apache.ignite.tcservice.model.conf.BuildType;
 import org.apache.ignite.tcservice.model.conf.Project;
@@ -171,6 +188,7 @@ public class IgnitedTcInMemoryIntegrationTest {
     public void clearIgniteCaches() {
         clearCache(BuildRefDao.TEAMCITY_BUILD_CACHE_NAME);
         clearCache(FatBuildDao.TEAMCITY_FAT_BUILD_CACHE_NAME);
+        clearCache(FatBuildDayIndexDao.TEAMCITY_FAT_BUILD_DAY_IDX_CACHE_NAME);
 
         BuildRefCompacted.resetCached();
         TestCompactedV2.resetCached();
@@ -629,6 +647,57 @@ public class IgnitedTcInMemoryIntegrationTest {
         //assertEquals(0.18, cache1Hist.self().getCriticalFailRate(), 0.05);
     }
 
+    @Test
+    public void testBuildStartTimesMigratedFromLegacyCache() {
+        ignite.destroyCache(BuildStartTimeStorage.BUILD_START_TIME_IDX_CACHE_NAME);
+
+        IgniteCache<Long, Long> legacy = ignite.getOrCreateCache(BuildStartTimeStorage.BUILD_START_TIME_CACHE_NAME);
+
+        int srvId = ITeamcityIgnited.serverIdToInt("apacheMigration");
+        int firstBuildId = 7 * BuildStartTimeChunk.CHUNK_SIZE;
+        long baseTs = 1_500_000_000_000L;
+
+        List<Integer> buildIds = new ArrayList<>();
+        for (int i = 0; i < BuildStartTimeChunk.CHUNK_SIZE; i++)
+            buildIds.add(firstBuildId + i);
+
+        // Entries of one chunk are migrated in an order not matching build IDs.
+        Collections.shuffle(buildIds, new Random(42));
+
+        Map<Long, Long> legacyEntries = new HashMap<>();
+        for (Integer buildId : buildIds)
+            legacyEntries.put(BuildStartTimeStorage.buildIdToCacheKey(srvId, buildId), baseTs + buildId * 60_000L);
+
+        legacy.putAll(legacyEntries);
+
+        Injector injector = Guice.createInjector(new TeamcityIgnitedModule(), new IgniteAndSchedulerTestModule());
+
+        BuildStartTimeStorage storage = injector.getInstance(BuildStartTimeStorage.class);
+        storage.init();
+
+        assertFalse(ignite.cacheNames().contains(BuildStartTimeStorage.BUILD_START_TIME_CACHE_NAME));
+
+        IgniteCache<Long, BuildStartTimeChunk> idxCache = ignite.cache(BuildStartTimeStorage.BUILD_START_TIME_IDX_CACHE_NAME);
+        assertEquals(1, idxCache.size());
+
+        BuildStartTimeChunk saved = idxCache.iterator().next().getValue();
+        assertEquals(BuildStartTimeChunk.CHUNK_SIZE, saved.size());
+
+        for (Integer buildId : buildIds) {
+            Long expTs = baseTs + buildId * 60_000L;
+
+            assertEquals(expTs, saved.startTime(buildId));
+            assertEquals(expTs, storage.getBuildStartTime(srvId, buildId));
+        }
+
+        // Storage started after migration reads the same chunk.
+        BuildStartTimeStorage reloaded = Guice.createInjector(new TeamcityIgnitedModule(),
+            new IgniteAndSchedulerTestModule()).getInstance(BuildStartTimeStorage.class);
+        reloaded.init();
+
+        assertEquals(Long.valueOf(baseTs + firstBuildId * 60_000L), reloaded.getBuildStartTime(srvId, firstBuildId));
+    }
+
     @Test
     public void testHistoryBackgroundUpdateWorks() {
         Injector injector = Guice.createInjector(new TeamcityIgnitedModule(), new IgniteAndSchedulerTestModule());
@@ -739,6 +808,180 @@ public class IgnitedTcInMemoryIntegrationTest {
         assertTrue(checkNotNull(running4).isEmpty());
     }
 
+    @Test
+    public void testBuildsLoadedInParallel() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        TeamcityIgnitedModule module = new TeamcityIgnitedModule();
+        module.overrideHttp((basicAuthTok, url) -> {
+            if (url.contains("app/rest/latest/builds/id:")) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+
+                inFlight.decrementAndGet();
+            }
+
+            throw new FileNotFoundException(url);
+        });
+        Injector injector = Guice.createInjector(module, new IgniteAndSchedulerTestModule());
+
+        injector.getInstance(BuildRefDao.class).init();
+        FatBuildDao fatBuildDao = injector.getInstance(FatBuildDao.class).init();
+
+        String srvCode = APACHE;
+        int srvIdInt = ITeamcityIgnited.serverIdToInt(srvCode);
+        TeamcityServiceConnection srvConn = injector.getInstance(TeamcityServiceConnection.class);
+        srvConn.init(srvCode);
+
+        Set<Integer> load = new HashSet<>();
+        for (int i = 0; i < 50; i++)
+            load.add(2000000 + i);
+
+        injector.getInstance(ProactiveFatBuildSync.class).doLoadBuilds(0, srvCode, srvConn, new HashSet<>(load));
+
+        for (Integer buildId : load) {
+            FatBuildCompacted fatBuild = fatBuildDao.getFatBuild(srvIdInt, buildId);
+
+            assertNotNull("Build " + buildId + " is not saved", fatBuild);
+            assertTrue(fatBuild.isFakeStub());
+        }
+
+        assertTrue("Builds were loaded sequentially", maxInFlight.get() > 1);
+        assertTrue("Builds in flight: " + maxInFlight.get(),
+            maxInFlight.get() <= ProactiveFatBuildSync.MAX_BUILDS_IN_FLIGHT_PER_SRV);
+    }
+
+    @Test
+    public void testOldBuildsFoundByDayIndex() {
+        Injector injector = Guice.createInjector(new TeamcityIgnitedModule(), new IgniteAndSchedulerTestModule());
+
+        IStringCompactor c = injector.getInstance(IStringCompactor.class);
+        FatBuildDao fatBuildDao = injector.getInstance(FatBuildDao.class).init();
+        FatBuildDayIndexDao dayIdxDao = injector.getInstance(FatBuildDayIndexDao.class);
+
+        int srvId = ITeamcityIgnited.serverIdToInt(APACHE);
+        long dayMs = Duration.ofDays(1).toMillis();
+        long thresholdTs = System.currentTimeMillis() - 10 * dayMs;
+
+        Set<Long> oldKeys = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            int buildId = 100 + i;
+            fatBuildDao.putFatBuild(srvId, buildId,
+                PrChainsProcessorTest.createFatBuild(c, "Old", ITeamcity.DEFAULT, buildId, (20 + i) * dayMs, true));
+            oldKeys.add(FatBuildDao.buildIdToCacheKey(srvId, buildId));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            int buildId = 200 + i;
+            fatBuildDao.putFatBuild(srvId, buildId,
+                PrChainsProcessorTest.createFatBuild(c, "Fresh", ITeamcity.DEFAULT, buildId, i * dayMs, true));
+        }
+
+        // Emulate builds saved before the index was introduced.
+        clearCache(FatBuildDayIndexDao.TEAMCITY_FAT_BUILD_DAY_IDX_CACHE_NAME);
+
+        assertFalse(dayIdxDao.isBackfilled());
+
+        // Backfill marker has max day, so it is never returned as old build.
+        assertEquals(oldKeys, fatBuildDao.getOldBuilds(thresholdTs, 100));
+        assertTrue(dayIdxDao.isBackfilled());
+
+        // Build saved after backfill is indexed on save, oldest builds are returned first.
+        fatBuildDao.putFatBuild(srvId, 105,
+            PrChainsProcessorTest.createFatBuild(c, "Old", ITeamcity.DEFAULT, 105, 30 * dayMs, true));
+
+        long key105 = FatBuildDao.buildIdToCacheKey(srvId, 105);
+
+        Set<Long> oldest = Sets.newHashSet(key105,
+            FatBuildDao.buildIdToCacheKey(srvId, 104),
+            FatBuildDao.buildIdToCacheKey(srvId, 103));
+
+        assertEquals(oldest, fatBuildDao.getOldBuilds(thresholdTs, 3));
+
+        fatBuildDao.removeAll(oldKeys);
+
+        assertEquals(Collections.singleton(key105), fatBuildDao.getOldBuilds(thresholdTs, 100));
+        assertNull(fatBuildDao.getFatBuild(srvId, 100));
+        assertNotNull(fatBuildDao.getFatBuild(srvId, 200));
+
+        fatBuildDao.remove(key105);
+
+        assertTrue(fatBuildDao.getOldBuilds(thresholdTs, 100).isEmpty());
+        assertTrue(dayIdxDao.isBackfilled());
+    }
+
+    /**
+     * Build times of builds saved before aggregation start are read from binary builds.
+     */
+    @Test
+    public void testBuildTimesLoadedFromBinaryBuilds() throws JAXBException, IOException {
+        Statistics statistics = jaxbTestXml("/statistics.xml", Statistics.class);
+        long duration = 2499107;
+
+        Injector injector = Guice.createInjector(new TeamcityIgnitedModule(), new IgniteAndSchedulerTestModule());
+
+        IStringCompactor c = injector.getInstance(IStringCompactor.class);
+        FatBuildDao fatBuildDao = injector.getInstance(FatBuildDao.class).init();
+
+        int srvId = ITeamcityIgnited.serverIdToInt(APACHE);
+        long hourMs = Duration.ofHours(1).toMillis();
+
+        ProblemOccurrence timeout = new ProblemOccurrence();
+        timeout.setType(ProblemOccurrence.TC_EXECUTION_TIMEOUT);
+
+        saveFinishedBuild(fatBuildDao, srvId, 100, "Suite", hourMs, false, statistics, Collections.emptyList());
+        saveFinishedBuild(fatBuildDao, srvId, 101, "Suite", 2 * hourMs, false, statistics,
+            Collections.singletonList(timeout));
+        saveFinishedBuild(fatBuildDao, srvId, 102, "Chain", hourMs, true, statistics, Collections.emptyList());
+        saveFinishedBuild(fatBuildDao, srvId, 103, "Suite", Duration.ofDays(40).toMillis(), false, statistics,
+            Collections.emptyList());
+
+        BuildTimeAggregator aggregator = injector.getInstance(BuildTimeAggregator.class);
+
+        aggregator.ensureStarted(Collections.singleton(APACHE));
+
+        BuildTimeResult res = aggregator.result(1);
+        long suiteKey = BuildTimeResult.buildTypeToCacheKey(srvId, c.getStringId("Suite"));
+
+        List<Map.Entry<Long, BuildTimeRecord>> top = res.topByBuildTypes(Collections.singleton(srvId), -1, 10, -1);
+        assertEquals(1, top.size());
+        assertEquals(suiteKey, (long)top.get(0).getKey());
+        assertEquals(2, top.get(0).getValue().count());
+        assertEquals(2 * duration, top.get(0).getValue().totalDuration());
+
+        List<Map.Entry<Long, BuildTimeRecord>> timeouts =
+            res.topTimeoutsByBuildTypes(Collections.singleton(srvId), -1, 10, -1);
+        assertEquals(1, timeouts.size());
+        assertEquals(1, timeouts.get(0).getValue().count());
+        assertEquals(duration, timeouts.get(0).getValue().totalDuration());
+    }
+
+    /**
+     * @param fatBuildDao Fat build DAO.
+     * @param srvId Server id.
+     * @param buildId Build id.
+     * @param btId Build type id.
+     * @param ageMs Age of the build.
+     * @param composite Composite flag.
+     * @param statistics Statistics.
+     * @param problems Problems.
+     */
+    private void saveFinishedBuild(FatBuildDao fatBuildDao, int srvId, int buildId, String btId, long ageMs,
+        boolean composite, Statistics statistics, List<ProblemOccurrence> problems) {
+        Build build = new Build();
+        build.buildTypeId = btId;
+        build.setId(buildId);
+        build.setStartDateTs(System.currentTimeMillis() - ageMs);
+        build.setBranchName(ITeamcity.DEFAULT);
+        build.state = Build.STATE_FINISHED;
+        build.status = Build.STATUS_SUCCESS;
+        build.composite = composite;
+
+        fatBuildDao.saveBuild(srvId, buildId, build, Collections.emptyList(), problems, statistics, null, null);
+    }
+
     public void putOldFashionFakeBuild(IStringCompactor c, FatBuildDao fatBuildDao, int buildId, int srvIdInt) {
         FatBuildCompacted fb = fatBuildDao.getFatBuild(srvIdInt, buildId);
 
@@ -826,6 +1069,224 @@ public class IgnitedTcInMemoryIntegrationTest {
         svc.shutdown();
     }
 
+    @Test
+    public void testBuildRefsIndexLookup() {
+        Injector injector = Guice.createInjector(new TeamcityIgnitedModule(), new GuavaCachedModule(),
+            new IgniteAndSchedulerTestModule());
+
+        IStringCompactor c = injector.getInstance(IStringCompactor.class);
+        BuildRefDao storage = injector.getInstance(BuildRefDao.class);
+        storage.init();
+
+        int srvId = ITeamcityIgnited.serverIdToInt("apacheIdx");
+        int otherSrvId = ITeamcityIgnited.serverIdToInt("privateIdx");
+        int branch = c.getStringId("idxBranch");
+        int suite = c.getStringId("idxSuite");
+        int otherSuite = c.getStringId("idxOtherSuite");
+        int queued = c.getStringId(BuildRef.STATE_QUEUED);
+        int finished = c.getStringId(BuildRef.STATE_FINISHED);
+
+        for (int i = 0; i < 20; i++) {
+            storage.save(srvId, new BuildRefCompacted().withId(1000 + i).branchName(branch)
+                .buildTypeId(i % 2 == 0 ? suite : otherSuite).state(i < 3 ? queued : finished));
+        }
+
+        storage.save(otherSrvId, new BuildRefCompacted().withId(1000).branchName(branch).buildTypeId(suite).state(queued));
+
+        List<BuildRefCompacted> builds = storage.getBuildsNonCached(srvId, suite, branch);
+        assertEquals(10, builds.size());
+        assertTrue(builds.stream().allMatch(b -> b.buildTypeId() == suite));
+
+        assertEquals(1, storage.getBuildsNonCached(otherSrvId, suite, branch).size());
+        assertEquals(3, storage.getQueuedAndRunning(srvId).size());
+        assertEquals(20, storage.getBuildsForBranchNonCached(srvId, branch).size());
+    }
+
+    @Test
+    public void testBuildRefsIndexesAddedToLegacyCache() {
+        ignite.destroyCache(BuildRefDao.TEAMCITY_BUILD_CACHE_NAME);
+
+        try {
+            // Query entity of previous versions: only branch name is indexed.
+            QueryEntity legacyEntity = new QueryEntity(Long.class.getName(), BuildRefCompacted.class.getName())
+                .addQueryField("branchName", Integer.class.getName(), null)
+                .setIndexes(Collections.singletonList(new QueryIndex("branchName")));
+
+            CacheConfiguration<Long, BuildRefCompacted> legacyCfg
+                = CacheConfigs.getCacheV2Config(BuildRefDao.TEAMCITY_BUILD_CACHE_NAME);
+            legacyCfg.setQueryEntities(Collections.singletonList(legacyEntity));
+
+            IgniteCache<Long, BuildRefCompacted> legacy = ignite.getOrCreateCache(legacyCfg);
+
+            Injector injector = Guice.createInjector(new TeamcityIgnitedModule(), new GuavaCachedModule(),
+                new IgniteAndSchedulerTestModule());
+
+            IStringCompactor c = injector.getInstance(IStringCompactor.class);
+
+            int srvId = ITeamcityIgnited.serverIdToInt("apacheLegacyIdx");
+            int otherSrvId = ITeamcityIgnited.serverIdToInt("privateLegacyIdx");
+            int branch = c.getStringId("legacyIdxBranch");
+            int otherBranch = c.getStringId("legacyIdxOtherBranch");
+            int suite = c.getStringId("legacyIdxSuite");
+            int otherSuite = c.getStringId("legacyIdxOtherSuite");
+            int queued = c.getStringId(BuildRef.STATE_QUEUED);
+            int running = c.getStringId(BuildRef.STATE_RUNNING);
+            int finished = c.getStringId(BuildRef.STATE_FINISHED);
+
+            for (int i = 0; i < 30; i++) {
+                int buildId = 2000 + i;
+
+                legacy.put(BuildRefDao.buildIdToCacheKey(srvId, buildId), new BuildRefCompacted().withId(buildId)
+                    .branchName(i % 3 == 0 ? otherBranch : branch)
+                    .buildTypeId(i % 2 == 0 ? suite : otherSuite)
+                    .state(i < 3 ? queued : i < 5 ? running : finished));
+            }
+
+            legacy.put(BuildRefDao.buildIdToCacheKey(otherSrvId, 2000), new BuildRefCompacted().withId(2000)
+                .branchName(branch).buildTypeId(suite).state(queued));
+
+            BuildRefDao storage = injector.getInstance(BuildRefDao.class).init();
+
+            assertEquals(1, buildRefIndexesCount("BRANCHNAME", "BUILDTYPEID"));
+            assertEquals(1, buildRefIndexesCount("STATE"));
+
+            Set<Integer> suiteBuilds = storage.getAllBuildsCompacted(srvId, suite, Collections.singletonList(branch))
+                .stream().map(BuildRefCompacted::id).collect(Collectors.toSet());
+
+            Set<Integer> suiteBuildsScan = storage.compactedBuildsForServer(srvId,
+                ref -> ref.branchName() == branch && ref.buildTypeId() == suite)
+                .map(BuildRefCompacted::id).collect(Collectors.toSet());
+
+            assertFalse(suiteBuildsScan.isEmpty());
+            assertEquals(suiteBuildsScan, suiteBuilds);
+
+            Set<Integer> queuedAndRunning = storage.getQueuedAndRunning(srvId)
+                .stream().map(BuildRefCompacted::id).collect(Collectors.toSet());
+
+            Set<Integer> queuedAndRunningScan = storage.compactedBuildsForServer(srvId,
+                ref -> ref.state() == queued || ref.state() == running)
+                .map(BuildRefCompacted::id).collect(Collectors.toSet());
+
+            assertEquals(5, queuedAndRunningScan.size());
+            assertEquals(queuedAndRunningScan, queuedAndRunning);
+
+            // Migration on the next start doesn't create indexes again.
+            Guice.createInjector(new TeamcityIgnitedModule(), new GuavaCachedModule(),
+                new IgniteAndSchedulerTestModule()).getInstance(BuildRefDao.class).init();
+
+            assertEquals(1, buildRefIndexesCount("BRANCHNAME", "BUILDTYPEID"));
+            assertEquals(1, buildRefIndexesCount("STATE"));
+        }
+        finally {
+            ignite.destroyCache(BuildRefDao.TEAMCITY_BUILD_CACHE_NAME);
+        }
+
+        // New cache has indexes declared by query entity, these are not duplicated.
+        Guice.createInjector(new TeamcityIgnitedModule(), new GuavaCachedModule(),
+            new IgniteAndSchedulerTestModule()).getInstance(BuildRefDao.class).init();
+
+        assertEquals(1, buildRefIndexesCount("BRANCHNAME", "BUILDTYPEID"));
+        assertEquals(1, buildRefIndexesCount("STATE"));
+    }
+
+    /**
+     * @param cols Leading columns of index.
+     * @return Count of build references indexes starting with provided columns.
+     */
+    private int buildRefIndexesCount(String... cols) {
+        String prefix = Stream.of(cols).map(col -> "\"" + col + "\"").collect(Collectors.joining(" ASC, ")) + " ASC";
+
+        List<List<?>> rows = ignite.cache(BuildRefDao.TEAMCITY_BUILD_CACHE_NAME).query(
+            new SqlFieldsQuery("SELECT COLUMNS FROM SYS.INDEXES WHERE CACHE_NAME = ? AND TABLE_NAME = ?")
+                .setArgs(BuildRefDao.TEAMCITY_BUILD_CACHE_NAME, "BUILDREFCOMPACTED")).getAll();
+
+        return (int)rows.stream()
+            .map(row -> String.valueOf(row.get(0)))
+            .filter(idxCols -> idxCols.equals(prefix) || idxCols.startsWith(prefix + ","))
+            .count();
+    }
+
+    @Test
+    public void testCachedHistoriesPatchedOnSaveAndRemove() {
+        Injector injector = Guice.createInjector(new TeamcityIgnitedModule(), new GuavaCachedModule(),
+            new IgniteAndSchedulerTestModule());
+
+        IStringCompactor c = injector.getInstance(IStringCompactor.class);
+        BuildRefDao storage = injector.getInstance(BuildRefDao.class);
+        storage.init();
+
+        int srvId = ITeamcityIgnited.serverIdToInt("apachePatch");
+        int branch = c.getStringId("patchBranch");
+        int suite = c.getStringId("patchSuite");
+        int otherSuite = c.getStringId("patchOtherSuite");
+        Set<Integer> branchList = Collections.singleton(branch);
+
+        for (int i = 0; i < 10; i++) {
+            storage.save(srvId, new BuildRefCompacted().withId(2000 + i).branchName(branch)
+                .buildTypeId(i % 2 == 0 ? suite : otherSuite).state(0).status(2));
+        }
+
+        // Histories are cached.
+        assertEquals(5, storage.getAllBuildsCompacted(srvId, suite, branchList).size());
+        assertEquals(10, storage.getBuildsForBranch(srvId, branch).size());
+
+        storage.saveChunk(srvId, Collections.singletonList(new BuildRefCompacted().withId(2010).branchName(branch)
+            .buildTypeId(suite).state(0).status(2).toBuildRef(c)));
+
+        assertEquals(6, storage.getAllBuildsCompacted(srvId, suite, branchList).size());
+        assertEquals(11, storage.getBuildsForBranch(srvId, branch).size());
+
+        storage.removeAll(new HashSet<>(Arrays.asList(
+            BuildRefDao.buildIdToCacheKey(srvId, 2000),
+            BuildRefDao.buildIdToCacheKey(srvId, 2001),
+            BuildRefDao.buildIdToCacheKey(srvId, 2010))));
+        storage.remove(BuildRefDao.buildIdToCacheKey(srvId, 2002));
+
+        List<BuildRefCompacted> suiteHist = storage.getAllBuildsCompacted(srvId, suite, branchList);
+        assertEquals(3, suiteHist.size());
+        assertTrue(suiteHist.stream().noneMatch(ref -> ref.id() == 2000 || ref.id() == 2002 || ref.id() == 2010));
+
+        assertEquals(7, storage.getBuildsForBranch(srvId, branch).size());
+        assertEquals(3, storage.getBuildsNonCached(srvId, suite, branch).size());
+    }
+
+    @Test
+    public void testAgentsFilteredByServer() {
+        Injector injector = Guice.createInjector(new TeamcityIgnitedModule(), new GuavaCachedModule(),
+            new IgniteAndSchedulerTestModule());
+
+        IStringCompactor c = injector.getInstance(IStringCompactor.class);
+        AgentDao agentDao = injector.getInstance(AgentDao.class);
+        agentDao.init();
+
+        // Server IDs having common bits.
+        int srvId = 0b0011;
+        int otherSrvId = 0b0111;
+
+        agentDao.saveAll(srvId, Arrays.asList(agentCompacted(c, 1), agentCompacted(c, 2)));
+        agentDao.saveAll(otherSrvId, Arrays.asList(agentCompacted(c, 1), agentCompacted(c, 3)));
+
+        assertEquals(new TreeSet<>(Arrays.asList(1, 2)), new TreeSet<>(agentDao.getAll(srvId).keySet()));
+        assertEquals(new TreeSet<>(Arrays.asList(1, 3)), new TreeSet<>(agentDao.getAll(otherSrvId).keySet()));
+
+        agentDao.removeAll(otherSrvId, Collections.singletonList(1));
+
+        assertEquals(2, agentDao.getAll(srvId).size());
+        assertEquals(Collections.singleton(3), agentDao.getAll(otherSrvId).keySet());
+    }
+
+    /**
+     * @param c Compactor.
+     * @param id Agent ID.
+     */
+    private static AgentCompacted agentCompacted(IStringCompactor c, int id) {
+        AgentRef ref = new AgentRef();
+        ref.setId(id);
+        ref.setName("agent" + id);
+
+        return new AgentCompacted(ref, c);
+    }
+
     @Test
     public void testTestHistoryPropagation() {
         TeamcityIgnitedModule module = new TeamcityIgnitedModule();
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcservice.util;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.ignite.tcservice.model.result.tests.TestOccurrenceFull;
+import org.apache.ignite.tcservice.model.result.tests.TestOccurrencesFull;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class TestOccurrencesStreamParserTest {
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(TestOccurrencesStreamParserTest.class);
+
+    @Test
+    public void testStreamParserReturnsSameDataAsJaxb() throws Exception {
+        TestOccurrencesFull jaxb;
+        try (InputStream stream = getClass().getResourceAsStream("/testList.xml")) {
+            jaxb = XmlUtil.load(TestOccurrencesFull.class, new InputStreamReader(stream));
+        }
+
+        List<String> actual = new ArrayList<>();
+        String nextHref;
+        try (InputStream stream = getClass().getResourceAsStream("/testList.xml")) {
+            nextHref = parse(new InputStreamReader(stream), actual);
+        }
+
+        List<String> expected = save(jaxb);
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+        assertEquals(jaxb.nextHref(), nextHref);
+    }
+
+    @Test
+    public void testStreamParserReturnsSameDataAsJaxbForLargePage() throws Exception {
+        String xml = generatePage(5000);
+
+        List<String> actual = new ArrayList<>();
+        parse(new StringReader(xml), actual);
+
+        List<String> expected = save(XmlUtil.load(TestOccurrencesFull.class, new StringReader(xml)));
+
+        assertEquals(5000, expected.size());
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Compares time and allocation of JAXB and streaming parsers for large tests page. Logs results, checks only
+     * that both parsers found the same count of tests. Ignored to keep timings out of the unit suite, run manually.
+     */
+    @Test
+    @Ignore("Benchmark")
+    public void benchmarkStreamParserVsJaxb() throws Exception {
+        String xml = generatePage(5000);
+
+        for (int i = 0; i < 3; i++) {
+            long jaxbBytes = allocatedBytes();
+            long jaxbStart = System.nanoTime();
+
+            AtomicInteger jaxbCnt = new AtomicInteger();
+            XmlUtil.load(TestOccurrencesFull.class, new StringReader(xml)).getTests()
+                .forEach(t -> jaxbCnt.incrementAndGet());
+
+            long jaxbNanos = System.nanoTime() - jaxbStart;
+            jaxbBytes = allocatedBytes() - jaxbBytes;
+
+            long staxBytes = allocatedBytes();
+            long staxStart = System.nanoTime();
+
+            AtomicInteger staxCnt = new AtomicInteger();
+            new TestOccurrencesStreamParser().parse(new StringReader(xml), t -> staxCnt.incrementAndGet());
+
+            long staxNanos = System.nanoTime() - staxStart;
+            staxBytes = allocatedBytes() - staxBytes;
+
+            assertEquals(jaxbCnt.get(), staxCnt.get());
+
+            logger.info("Tests page of " + staxCnt.get() + " occurrences:"
+                + " JAXB " + jaxbNanos / 1_000_000 + " ms, " + jaxbBytes / 1024 + " KB;"
+                + " StAX " + staxNanos / 1_000_000 + " ms, " + staxBytes / 1024 + " KB");
+        }
+    }
+
+    /**
+     * @return Bytes allocated by current thread, or 0 if not supported by JVM.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+
+        return 0;
+    }
+
+    /**
+     * @param page Tests page parsed by JAXB.
+     * @return Occurrences saved to XML.
+     */
+    private static List<String> save(TestOccurrencesFull page) throws Exception {
+        List<String> res = new ArrayList<>();
+
+        for (TestOccurrenceFull occurrence : page.getTests())
+            res.add(XmlUtil.save(occurrence));
+
+        return res;
+    }
+
+    /**
+     * @param reader Reader of tests page.
+     * @param res Collection to add occurrences parsed by stream parser and saved to XML.
+     * @return Next page reference.
+     */
+    private static String parse(Reader reader, List<String> res) throws Exception {
+        return new TestOccurrencesStreamParser().parse(reader,
+            occurrence -> {
+                try {
+                    res.add(XmlUtil.save(occurrence));
+                }
+                catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+    }
+
+    /**
+     * @param cnt Count of occurrences.
+     */
+    private static String generatePage(int cnt) {
+        StringBuilder sb = new StringBuilder("<testOccurrences count=\"" + cnt + "\">");
+
+        for (int i = 0; i < cnt; i++) {
+            sb.append("<testOccurrence id=\"id:").append(i).append(",build:(id:2153237)\"")
+                .append(" name=\"org.apache.ignite.testsuites.IgniteCacheTestSuite: org.apache.ignite.SomeTest.test")
+                .append(i).append("\" status=\"").append(i % 10 == 0 ? "FAILURE" : "SUCCESS").append("\"")
+                .append(" ignored=\"false\" duration=\"").append(i).append("\" muted=\"false\"")
+                .append(" currentlyMuted=\"false\" currentlyInvestigated=\"false\">")
+                .append("<details>").append(i % 10 == 0 ? "java.lang.AssertionError: failed" : "").append("</details>")
+                .append("<test id=\"").append(3810451959920173755L + i).append("\"/>")
+                .append("<build id=\"2153237\"/>")
+                .append("</testOccurrence>");
+        }
+
+        return sb.append("</testOccurrences>").toString();
+    }
+}
@@ -57,6 +57,7 @@ public class Issue {
 
     public List<ChangeUi> changes = new ArrayList<>();
 
+    /** Addresses notified. Not updated since notification state is stored separately, see IssueNotifications. */
     public Set<String> addressNotified = new TreeSet<>();
 
     @Nullable
@@ -18,6 +18,7 @@
 package org.apache.ignite.ci.issue;
 
 import com.google.common.base.MoreObjects;
+import java.util.Objects;
 import org.apache.ignite.tcbot.persistence.Persisted;
 
 @Persisted
@@ -52,4 +53,21 @@ public class IssueKey {
             .add("testOrBuildName", testOrBuildName)
             .toString();
     }
+
+    /** {@inheritDoc} */
+    @Override public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        IssueKey key = (IssueKey)o;
+        return Objects.equals(server, key.server) &&
+            Objects.equals(buildId, key.buildId) &&
+            Objects.equals(testOrBuildName, key.testOrBuildName);
+    }
+
+    /** {@inheritDoc} */
+    @Override public int hashCode() {
+        return Objects.hash(server, buildId, testOrBuildName);
+    }
 }
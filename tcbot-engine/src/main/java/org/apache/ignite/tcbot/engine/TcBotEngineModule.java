@@ -25,6 +25,7 @@ import org.apache.ignite.tcbot.engine.boardmute.MutedIssuesDao;
 import org.apache.ignite.tcbot.engine.build.SingleBuildResultsService;
 import org.apache.ignite.tcbot.engine.buildtime.BuildTimeService;
 import org.apache.ignite.tcbot.engine.chain.BuildChainProcessor;
+import org.apache.ignite.tcbot.engine.defect.DefectsStorage;
 import org.apache.ignite.tcbot.engine.issue.IIssuesStorage;
 import org.apache.ignite.tcbot.engine.issue.IssuesStorage;
 import org.apache.ignite.tcbot.engine.newtests.NewTestsStorage;
@@ -48,6 +49,7 @@ public class TcBotEngineModule extends AbstractModule {
         bind(IIssuesStorage.class).to(IssuesStorage.class).in(new SingletonScope());
 
         bind(BoardService.class).in(new SingletonScope());
+        bind(DefectsStorage.class).in(new SingletonScope());
 
         bind(IUserStorage.class).to(UserAndSessionsStorage.class).in(new SingletonScope());
 
@@ -17,28 +17,23 @@
 
 package org.apache.ignite.tcbot.engine.buildtime;
 
-import org.apache.ignite.tcbot.common.interceptor.MonitoredTask;
 import org.apache.ignite.tcbot.common.util.TimeUtil;
 import org.apache.ignite.tcbot.engine.conf.ITcBotConfig;
 import org.apache.ignite.tcbot.engine.ui.BuildTimeRecordUi;
 import org.apache.ignite.tcbot.engine.ui.BuildTimeResultUi;
 import org.apache.ignite.tcbot.persistence.IStringCompactor;
-import org.apache.ignite.tcbot.persistence.scheduler.IScheduler;
 import org.apache.ignite.tcignited.ITeamcityIgnited;
-import org.apache.ignite.tcignited.build.FatBuildDao;
 import org.apache.ignite.tcignited.buildref.BuildRefDao;
+import org.apache.ignite.tcignited.buildtime.BuildTimeAggregator;
 import org.apache.ignite.tcignited.buildtime.BuildTimeRecord;
 import org.apache.ignite.tcignited.buildtime.BuildTimeResult;
 import org.apache.ignite.tcignited.creds.ICredentialsProv;
-import org.apache.ignite.tcignited.history.HistoryCollector;
 
 import javax.inject.Inject;
 import java.time.Duration;
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -48,15 +43,10 @@ public class BuildTimeService {
     /** Config. */
     @Inject private ITcBotConfig cfg;
 
-    @Inject private FatBuildDao fatBuildDao;
-
     @Inject private IStringCompactor compactor;
 
-    @Inject private HistoryCollector historyCollector;
-
-    @Inject private IScheduler scheduler;
-
-    private volatile BuildTimeResult lastRes1d = new BuildTimeResult();
+    /** Build times aggregated by build types. */
+    @Inject private BuildTimeAggregator buildTimeAggregator;
 
     @Inject private BuildRefDao buildRefDao;
 
@@ -66,8 +56,7 @@ public class BuildTimeService {
 
         Collection<String> allSrvs = cfg.getServerIds();
 
-        scheduler.sheduleNamed("BuildTimeService.loadAnalytics",
-                this::loadAnalytics, 15, TimeUnit.MINUTES);
+        buildTimeAggregator.ensureStarted(allSrvs);
 
         Set<Integer> availableSrvs = allSrvs.stream()
                 .filter(prov::hasAccess)
@@ -80,7 +69,7 @@ public class BuildTimeService {
         long minDurationTimeout = Duration.ofMinutes(60).toMillis();
         long totalDurationMs = Duration.ofHours(4).toMillis();
         int cntToInclude = 50;
-        BuildTimeResult res = lastRes1d;
+        BuildTimeResult res = buildTimeAggregator.result(1);
 
         res.topByBuildTypes(availableSrvs, minDuration, cntToInclude, totalDurationMs)
                 .stream().map(this::convertToUi).forEach(e -> resUi.byBuildType.add(e));
@@ -105,16 +94,4 @@ public class BuildTimeService {
 
         return buildTimeRecordUi;
     }
-
-    @SuppressWarnings("WeakerAccess")
-    @MonitoredTask(name = "Load Build Time Analytics")
-    protected void loadAnalytics() {
-        int days = 1;
-
-        List<Long> idsToCheck = historyCollector.findAllRecentBuilds(days, cfg.getServerIds());
-
-        BuildTimeResult res = fatBuildDao.loadBuildTimeResult(days, idsToCheck);
-
-        lastRes1d = res;
-    }
 }
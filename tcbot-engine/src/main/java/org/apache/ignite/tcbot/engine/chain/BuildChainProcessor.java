@@ -18,20 +18,27 @@
 package org.apache.ignite.tcbot.engine.chain;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -43,6 +50,7 @@ import org.apache.ignite.ci.teamcity.ignited.BuildRefCompacted;
 import org.apache.ignite.ci.teamcity.ignited.buildtype.ParametersCompacted;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
 import org.apache.ignite.ci.teamcity.ignited.runhist.Invocation;
+import org.apache.ignite.tcbot.common.exeption.ExceptionUtil;
 import org.apache.ignite.tcbot.common.interceptor.AutoProfiling;
 import org.apache.ignite.tcbot.common.util.FutureUtil;
 import org.apache.ignite.tcbot.engine.pool.TcUpdatePool;
@@ -79,6 +87,15 @@ public class BuildChainProcessor {
 
     @Inject private UpdateCountersStorage counters;
 
+    /**
+     * Chains loaded recently, shared between concurrent and subsequent reports for the same entry points. Concurrent
+     * requests for the same key wait for single load in progress. Entry is reloaded if any of involved branches was
+     * updated since load.
+     */
+    private final Cache<ChainLoadKey, LoadedChain> loadedChains = CacheBuilder.newBuilder()
+        .maximumSize(64)
+        .expireAfterWrite(10, TimeUnit.MINUTES)
+        .build();
 
     /**
      * Collects data about all long-running tests (run time more than one minute) across all suites in RunAll chain in
@@ -167,34 +184,11 @@ public class BuildChainProcessor {
 
         Integer failRateBranchId = compactor.getStringIdIfPresent(BranchEquivalence.normalizeBranch(failRateBranch));
 
-        Map<Integer, Future<FatBuildCompacted>> builds = loadAllBuildsInChains(entryPoints, mode, tcIgn);
-
-        Map<String, List<Future<FatBuildCompacted>>> freshRebuilds = new ConcurrentHashMap<>();
-
-        groupByBuildType(builds).forEach(
-            (k, buildsForBt) -> {
-                List<Future<FatBuildCompacted>> futures = replaceWithRecent(buildsForBt,
-                    entryPoints.size(),
-                    includeLatestRebuild,
-                    builds,
-                    mode,
-                    tcIgn,
-                    requireParamVal);
-
-                freshRebuilds.put(k, futures);
-            }
-        );
+        LoadedChain chain = loadChain(tcIgn, entryPoints, includeLatestRebuild, mode, requireParamVal);
 
-        List<MultBuildRunCtx> contexts = new ArrayList<>(freshRebuilds.size());
-
-        freshRebuilds.forEach((bt, listBuilds) -> {
-            List<FatBuildCompacted> buildsForSuite = FutureUtil.getResults(listBuilds)
-                .filter(buildCompacted -> !buildCompacted.isFakeStub())
-                .collect(Collectors.toList());
-
-            if (buildsForSuite.isEmpty())
-                return;
+        List<MultBuildRunCtx> contexts = new ArrayList<>(chain.buildsByBt.size());
 
+        chain.buildsByBt.forEach((bt, buildsForSuite) -> {
             BuildRef ref = buildsForSuite.iterator().next().toBuildRef(compactor);
 
             final MultBuildRunCtx ctx = new MultBuildRunCtx(ref, compactor);
@@ -213,10 +207,7 @@ public class BuildChainProcessor {
             contexts.add(ctx);
         });
 
-
-        Integer someEntryPnt = entryPoints.iterator().next();
-        Future<FatBuildCompacted> build = getOrLoadBuild(someEntryPnt, mode, builds, tcIgn);
-        FullChainRunCtx fullChainRunCtx = new FullChainRunCtx(FutureUtil.getResult(build).toBuild(compactor));
+        FullChainRunCtx fullChainRunCtx = new FullChainRunCtx(chain.entryBuild.toBuild(compactor));
 
         Function<MultBuildRunCtx, Double> function = null;
 
@@ -247,38 +238,163 @@ public class BuildChainProcessor {
         return fullChainRunCtx;
     }
 
+    /**
+     * Provides builds of the chain (with latest rebuilds applied) grouped by build type. Result is shared with other
+     * callers requesting the same chain until any of branches involved is updated.
+     *
+     * @param tcIgn Teamcity Ignited.
+     * @param entryPoints Entry point(s): Build(s) to start scan from.
+     * @param includeLatestRebuild Include latest rebuild.
+     * @param mode background data update mode.
+     * @param requireParamVal Require exact parameters value presence in the build. Null means no filtering.
+     */
+    private LoadedChain loadChain(ITeamcityIgnited tcIgn,
+        Collection<Integer> entryPoints,
+        LatestRebuildMode includeLatestRebuild,
+        SyncMode mode,
+        @Nullable Map<Integer, Integer> requireParamVal) {
+        ChainLoadKey key = new ChainLoadKey(tcIgn.serverCode(), entryPoints, mode, includeLatestRebuild,
+            requireParamVal);
+
+        try {
+            LoadedChain chain = loadedChains.get(key,
+                () -> doLoadChain(tcIgn, entryPoints, includeLatestRebuild, mode, requireParamVal));
+
+            if (chain.isActual(counters))
+                return chain;
+
+            loadedChains.asMap().remove(key, chain);
+
+            return loadedChains.get(key,
+                () -> doLoadChain(tcIgn, entryPoints, includeLatestRebuild, mode, requireParamVal));
+        }
+        catch (ExecutionException e) {
+            throw ExceptionUtil.propagateException(e);
+        }
+        catch (UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+
+            throw e;
+        }
+    }
+
+    /**
+     * @param tcIgn Teamcity Ignited.
+     * @param entryPoints Entry point(s): Build(s) to start scan from.
+     * @param includeLatestRebuild Include latest rebuild.
+     * @param mode background data update mode.
+     * @param requireParamVal Require exact parameters value presence in the build. Null means no filtering.
+     */
+    @AutoProfiling
+    protected LoadedChain doLoadChain(ITeamcityIgnited tcIgn,
+        Collection<Integer> entryPoints,
+        LatestRebuildMode includeLatestRebuild,
+        SyncMode mode,
+        @Nullable Map<Integer, Integer> requireParamVal) {
+        // Counters are read before load: build saved during load makes the chain outdated.
+        Map<Integer, Integer> countersBeforeLoad = counters.getAllCounters();
+
+        Map<Integer, Future<FatBuildCompacted>> builds = loadAllBuildsInChains(entryPoints, mode, tcIgn);
+
+        Map<String, List<Future<FatBuildCompacted>>> freshRebuilds = new ConcurrentHashMap<>();
+
+        groupByBuildType(builds).forEach(
+            (k, buildsForBt) -> {
+                List<Future<FatBuildCompacted>> futures = replaceWithRecent(buildsForBt,
+                    entryPoints.size(),
+                    includeLatestRebuild,
+                    builds,
+                    mode,
+                    tcIgn,
+                    requireParamVal);
+
+                freshRebuilds.put(k, futures);
+            }
+        );
+
+        Map<String, List<FatBuildCompacted>> buildsByBt = new HashMap<>();
+
+        freshRebuilds.forEach((bt, listBuilds) -> {
+            List<FatBuildCompacted> buildsForSuite = FutureUtil.getResults(listBuilds)
+                .filter(buildCompacted -> !buildCompacted.isFakeStub())
+                .collect(Collectors.toList());
+
+            if (!buildsForSuite.isEmpty())
+                buildsByBt.put(bt, buildsForSuite);
+        });
+
+        Integer someEntryPnt = entryPoints.iterator().next();
+        Future<FatBuildCompacted> build = getOrLoadBuild(someEntryPnt, mode, builds, tcIgn);
+
+        Map<Integer, Integer> branchCounters = new HashMap<>();
+        builds.values().forEach(fut -> {
+            int branch = FutureUtil.getResult(fut).branchName();
+
+            branchCounters.put(branch, countersBeforeLoad.getOrDefault(branch, 0));
+        });
+
+        return new LoadedChain(FutureUtil.getResult(build), buildsByBt, branchCounters);
+    }
+
     @Nonnull
     public Map<Integer, Future<FatBuildCompacted>> loadAllBuildsInChains(Collection<Integer> entryPoints,
         SyncMode mode,
         ITeamcityIgnited tcIgn) {
         Map<Integer, Future<FatBuildCompacted>> builds = new ConcurrentHashMap<>();
 
-        Stream<Future<FatBuildCompacted>> entryPointsFatBuilds = entryPoints.stream()
+        Set<Integer> remainedUnloaded = entryPoints.stream()
             .filter(Objects::nonNull)
-            .map(id -> getOrLoadBuild(id, mode, builds, tcIgn));
+            .collect(Collectors.toSet());
 
-        Set<Integer> remainedUnloadedDeps = entryPointsFatBuilds
-            .flatMap(ref -> dependencies(ref, mode, builds, tcIgn).stream()).collect(Collectors.toSet());
+        // Entry points and up to 5 levels of snapshot dependencies.
+        for (int level = 0; level <= 5; level++) {
+            if (remainedUnloaded.isEmpty())
+                break;
 
-        for (int level = 1; level < 5; level++) {
-            if (remainedUnloadedDeps.isEmpty())
+            if(logger.isDebugEnabled())
+                logger.debug("Level [" + level + "] builds:" + remainedUnloaded);
+
+            loadBuildsLevel(remainedUnloaded, mode, builds, tcIgn);
+
+            if (level == 5)
                 break;
 
-            Set<Integer> depsNextLevel = remainedUnloadedDeps
+            remainedUnloaded = remainedUnloaded
                 .stream()
                 .map(builds::get)
                 .peek(val -> Preconditions.checkNotNull(val, "Build future should be in context"))
-                .flatMap(ref -> dependencies(ref, mode, builds, tcIgn).stream()).collect(Collectors.toSet());
-
-            if(logger.isDebugEnabled())
-                logger.debug("Level [" + level + "] dependencies:" + depsNextLevel);
-
-            remainedUnloadedDeps = depsNextLevel;
+                .flatMap(ref -> IntStream.of(FutureUtil.getResult(ref).snapshotDependencies()).boxed())
+                .filter(id -> !builds.containsKey(id))
+                .collect(Collectors.toSet());
         }
 
         return builds;
     }
 
+    /**
+     * Reads all builds of the level with one bulk request, only builds missing or requiring reload are loaded
+     * asynchronously one by one.
+     *
+     * @param ids Build IDs of the level, not yet present in context.
+     * @param mode Mode.
+     * @param builds Build futures map.
+     * @param tcIgn Teamcity ignited.
+     */
+    private void loadBuildsLevel(Set<Integer> ids,
+        SyncMode mode,
+        Map<Integer, Future<FatBuildCompacted>> builds,
+        ITeamcityIgnited tcIgn) {
+        Map<Integer, FatBuildCompacted> actualBuilds = tcIgn.getFatBuildsIfActual(ids, mode);
+
+        for (Integer id : ids) {
+            builds.computeIfAbsent(id, id0 -> {
+                FatBuildCompacted build = actualBuilds.get(id0);
+
+                return build != null ? Futures.immediateFuture(build) : loadBuildAsync(id0, mode, tcIgn);
+            });
+        }
+    }
+
     @Nonnull
     public Map<String, List<FatBuildCompacted>> groupByBuildType(Map<Integer, Future<FatBuildCompacted>> builds) {
         Map<String, List<FatBuildCompacted>> buildsByBt = new ConcurrentHashMap<>();
@@ -469,31 +585,6 @@ public class BuildChainProcessor {
         }
     }
 
-    /**
-     * @param buildFut Chain build future.
-     * @param mode Mode.
-     * @param builds Build futures map.
-     * @param teamcityIgnited Teamcity ignited.
-     * @return Set of new builds found during this dependencies check round.
-     */
-    @Nonnull
-    private Set<Integer> dependencies(
-        Future<FatBuildCompacted> buildFut,
-        SyncMode mode,
-        Map<Integer, Future<FatBuildCompacted>> builds,
-        ITeamcityIgnited teamcityIgnited) {
-        Set<Integer> newBuilds = new HashSet<>();
-
-        IntStream.of(FutureUtil.getResult(buildFut).snapshotDependencies())
-            .forEach(id -> builds.computeIfAbsent(id, id0 -> {
-                newBuilds.add(id0);
-
-                return loadBuildAsync(id0, mode, teamcityIgnited);
-            }));
-
-        return newBuilds;
-    }
-
     public Future<FatBuildCompacted> loadBuildAsync(Integer id, SyncMode mode, ITeamcityIgnited teamcityIgnited) {
         if (mode == SyncMode.NONE)
             return Futures.immediateFuture(teamcityIgnited.getFatBuild(id, SyncMode.NONE));
@@ -504,4 +595,101 @@ public class BuildChainProcessor {
     private List<Future<FatBuildCompacted>> completed(List<FatBuildCompacted> builds) {
         return builds.stream().map(Futures::immediateFuture).collect(Collectors.toList());
     }
+
+    /**
+     * Key of the chain load: same entry points loaded in the same way produce the same builds.
+     */
+    private static class ChainLoadKey {
+        /** Server code. */
+        private final String srvCode;
+
+        /** Entry points, order is significant: first one is used as chain build. */
+        private final List<Integer> entryPoints;
+
+        /** Sync mode. */
+        private final SyncMode mode;
+
+        /** Latest rebuild mode. */
+        private final LatestRebuildMode rebuildMode;
+
+        /** Required parameters values, null means no filtering. */
+        @Nullable private final Map<Integer, Integer> requireParamVal;
+
+        /**
+         * @param srvCode Server code.
+         * @param entryPoints Entry points.
+         * @param mode Sync mode.
+         * @param rebuildMode Latest rebuild mode.
+         * @param requireParamVal Required parameters values.
+         */
+        ChainLoadKey(String srvCode, Collection<Integer> entryPoints, SyncMode mode, LatestRebuildMode rebuildMode,
+            @Nullable Map<Integer, Integer> requireParamVal) {
+            this.srvCode = srvCode;
+            this.entryPoints = new ArrayList<>(entryPoints);
+            this.mode = mode;
+            this.rebuildMode = rebuildMode;
+            this.requireParamVal = requireParamVal == null || requireParamVal.isEmpty()
+                ? null
+                : new TreeMap<>(requireParamVal);
+        }
+
+        /** {@inheritDoc} */
+        @Override public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            ChainLoadKey key = (ChainLoadKey)o;
+            return Objects.equals(srvCode, key.srvCode) &&
+                Objects.equals(entryPoints, key.entryPoints) &&
+                mode == key.mode &&
+                rebuildMode == key.rebuildMode &&
+                Objects.equals(requireParamVal, key.requireParamVal);
+        }
+
+        /** {@inheritDoc} */
+        @Override public int hashCode() {
+            return Objects.hash(srvCode, entryPoints, mode, rebuildMode, requireParamVal);
+        }
+    }
+
+    /**
+     * Builds of the loaded chain, read only after load.
+     */
+    protected static class LoadedChain {
+        /** Build for the first entry point. */
+        private final FatBuildCompacted entryBuild;
+
+        /** Builds to be shown (latest rebuilds applied) by build type ID. */
+        private final Map<String, List<FatBuildCompacted>> buildsByBt;
+
+        /** Update counters of all branches involved at the moment of load. */
+        private final Map<Integer, Integer> branchCounters;
+
+        /**
+         * @param entryBuild Entry build.
+         * @param buildsByBt Builds by build type ID.
+         * @param branchCounters Branch counters.
+         */
+        LoadedChain(FatBuildCompacted entryBuild,
+            Map<String, List<FatBuildCompacted>> buildsByBt,
+            Map<Integer, Integer> branchCounters) {
+            this.entryBuild = entryBuild;
+            this.buildsByBt = buildsByBt;
+            this.branchCounters = branchCounters;
+        }
+
+        /**
+         * @param counters Counters storage.
+         * @return {@code False} if any of branches was updated since load.
+         */
+        boolean isActual(UpdateCountersStorage counters) {
+            for (Map.Entry<Integer, Integer> e : branchCounters.entrySet()) {
+                if (counters.getIntegerForEntry(e.getKey()).get() != e.getValue())
+                    return false;
+            }
+
+            return true;
+        }
+    }
 }
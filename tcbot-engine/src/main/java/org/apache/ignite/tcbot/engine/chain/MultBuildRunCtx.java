@@ -32,6 +32,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -79,8 +80,39 @@ public class MultBuildRunCtx implements ISuiteResults {
     /** Tests merged: test name ID -> test compacted */
     private volatile Map<Integer, TestCompactedMult> testsMerged = null;
 
+    /** Count of builds having particular problem kind: index is {@link ProblemKind} ordinal. */
+    private final AtomicIntegerArray problemKindBuildsCnt = new AtomicIntegerArray(ProblemKind.values().length);
+
     public void addBuild(SingleBuildRunCtx ctx) {
         builds.add(ctx);
+
+        int mask = ctx.problemsMask();
+
+        for (ProblemKind kind : ProblemKind.values()) {
+            if (kind.isSet(mask))
+                problemKindBuildsCnt.incrementAndGet(kind.ordinal());
+        }
+    }
+
+    /**
+     * @param kind Problem kind.
+     * @return count of builds having problem of this kind.
+     */
+    private int buildsCnt(ProblemKind kind) {
+        return problemKindBuildsCnt.get(kind.ordinal());
+    }
+
+    /**
+     * @param excludedMask Problem kinds to skip.
+     * @return {@code true} if any build has a problem of kind not set in excluded mask.
+     */
+    private boolean hasProblemExcept(int excludedMask) {
+        for (ProblemKind kind : ProblemKind.values()) {
+            if (!kind.isSet(excludedMask) && buildsCnt(kind) > 0)
+                return true;
+        }
+
+        return false;
     }
 
     /** Currently running builds */
@@ -122,8 +154,7 @@ public class MultBuildRunCtx implements ISuiteResults {
 
 
     public boolean hasAnyBuildProblemExceptTestOrSnapshot() {
-        return allProblemsInAllBuilds()
-            .anyMatch(p -> !p.isFailedTests(compactor) && !p.isSnapshotDepProblem(compactor));
+        return hasProblemExcept(ProblemKind.TESTS_OR_SNAPSHOT_MASK);
     }
 
     public boolean onlyCancelledBuilds() {
@@ -162,12 +193,12 @@ public class MultBuildRunCtx implements ISuiteResults {
 
     /** */
     public long getMetricProblemCount() {
-        return buildsStream().filter(SingleBuildRunCtx::hasMetricProblem).count();
+        return buildsCnt(ProblemKind.METRIC);
     }
 
     /** */
     public long getBuildMessageProblemCount() {
-        return buildsStream().filter(SingleBuildRunCtx::hasBuildMessageProblem).count();
+        return buildsCnt(ProblemKind.BUILD_MESSAGE);
     }
 
     /** {@inheritDoc} */
@@ -177,7 +208,7 @@ public class MultBuildRunCtx implements ISuiteResults {
 
     /** */
     public long getCompilationProblemCount() {
-        return buildsStream().filter(SingleBuildRunCtx::hasCompilationProblem).count();
+        return buildsCnt(ProblemKind.COMPILATION);
     }
 
     /** {@inheritDoc} */
@@ -186,7 +217,7 @@ public class MultBuildRunCtx implements ISuiteResults {
     }
 
     private long getExecutionTimeoutCount() {
-        return buildsStream().filter(SingleBuildRunCtx::hasTimeoutProblem).count();
+        return buildsCnt(ProblemKind.TIMEOUT);
     }
 
     /** {@inheritDoc} */
@@ -195,7 +226,7 @@ public class MultBuildRunCtx implements ISuiteResults {
     }
 
     public long getJvmCrashProblemCount() {
-        return buildsCntHavingBuildProblem(ProblemOccurrence.TC_JVM_CRASH);
+        return buildsCnt(ProblemKind.JVM_CRASH);
     }
 
     /** {@inheritDoc} */
@@ -209,15 +240,15 @@ public class MultBuildRunCtx implements ISuiteResults {
     }
 
     public boolean hasProblemNonByFailedTest() {
-        return buildsStream().anyMatch(SingleBuildRunCtx::hasProblemNonByFailedTest);
+        return hasProblemExcept(ProblemKind.FAILED_TESTS.mask());
     }
 
     private long getExitCodeProblemsCount() {
-        return buildsStream().filter(SingleBuildRunCtx::hasExitCodeProblem).count();
+        return buildsCnt(ProblemKind.EXIT_CODE);
     }
 
     private long getOomeProblemCount() {
-        return buildsStream().filter(SingleBuildRunCtx::hasOomeProblem).count();
+        return buildsCnt(ProblemKind.OOME);
     }
 
     public int failedTests() {
@@ -252,26 +283,16 @@ public class MultBuildRunCtx implements ISuiteResults {
         addKnownProblemCnt(res, "Compilation Error", getCompilationProblemCount());
         addKnownProblemCnt(res, "Failure on metric", getMetricProblemCount());
 
-        {
-            Stream<ProblemCompacted> stream =
-                allProblemsInAllBuilds().filter(p ->
-                    !p.isFailedTests(compactor)
-                        && !p.isBuildFailureOnMetric(compactor)
-                        && !p.isCompilationError(compactor)
-                        && !p.isSnapshotDepProblem(compactor)
-                        && !p.isExecutionTimeout(compactor)
-                        && !p.isJvmCrash(compactor)
-                        && !p.isExitCode(compactor)
-                        //&& !p.isJavaLevelDeadlock(compactor)
-                        && !p.isOome(compactor));
-            Optional<ProblemCompacted> bpOpt = stream.findAny();
-            if (bpOpt.isPresent()) {
+        buildsStream()
+            .mapToInt(SingleBuildRunCtx::otherProblemType)
+            .filter(type -> type >= 0)
+            .findFirst()
+            .ifPresent(type -> {
                 if (res.length() > 0)
                     res.append(", ");
 
-                res.append(bpOpt.get().type(compactor)).append(" ");
-            }
-        }
+                res.append(compactor.getStringFromId(type)).append(" ");
+            });
 
         addKnownProblemCnt(res, ProblemOccurrence.JAVA_LEVEL_DEADLOCK, getJavaLevelDeadlocksCount());
 
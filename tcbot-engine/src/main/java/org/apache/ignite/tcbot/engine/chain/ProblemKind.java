@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcbot.engine.chain;
+
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.ProblemCompacted;
+import org.apache.ignite.tcbot.persistence.IStringCompactor;
+
+/**
+ * Kind of build problem, used for building per build problems bit mask.
+ */
+enum ProblemKind {
+    /** Execution timeout. */
+    TIMEOUT,
+    /** JVM crash. */
+    JVM_CRASH,
+    /** Out of memory error. */
+    OOME,
+    /** Exit code. */
+    EXIT_CODE,
+    /** Compilation error. */
+    COMPILATION,
+    /** Failure on metric. */
+    METRIC,
+    /** Failure on message. */
+    BUILD_MESSAGE,
+    /** Snapshot dependency problem. */
+    SNAPSHOT_DEP,
+    /** Failed tests. */
+    FAILED_TESTS,
+    /** Any other problem. */
+    OTHER;
+
+    /** Mask of problems caused by tests or snapshot dependencies failure. */
+    static final int TESTS_OR_SNAPSHOT_MASK = FAILED_TESTS.mask() | SNAPSHOT_DEP.mask();
+
+    /**
+     * @return bit of this kind.
+     */
+    int mask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * @param mask Problems kinds mask.
+     * @return {@code true} if problem of this kind is set in mask.
+     */
+    boolean isSet(int mask) {
+        return (mask & mask()) != 0;
+    }
+
+    /**
+     * @param p Problem.
+     * @param compactor Compactor.
+     */
+    static ProblemKind of(ProblemCompacted p, IStringCompactor compactor) {
+        if (p.isExecutionTimeout(compactor))
+            return TIMEOUT;
+
+        if (p.isJvmCrash(compactor))
+            return JVM_CRASH;
+
+        if (p.isOome(compactor))
+            return OOME;
+
+        if (p.isExitCode(compactor))
+            return EXIT_CODE;
+
+        if (p.isCompilationError(compactor))
+            return COMPILATION;
+
+        if (p.isBuildFailureOnMetric(compactor))
+            return METRIC;
+
+        if (p.isBuildFailureOnMessage(compactor))
+            return BUILD_MESSAGE;
+
+        if (p.isSnapshotDepProblem(compactor))
+            return SNAPSHOT_DEP;
+
+        if (p.isFailedTests(compactor))
+            return FAILED_TESTS;
+
+        return OTHER;
+    }
+}
@@ -51,10 +51,19 @@ import org.apache.ignite.tcservice.ITeamcity;
  */
 public class SingleBuildRunCtx implements ISuiteResults {
     /** Build compacted. */
-    private FatBuildCompacted buildCompacted;
+    private final FatBuildCompacted buildCompacted;
 
     /** Compactor. */
-    private IStringCompactor compactor;
+    private final IStringCompactor compactor;
+
+    /** Kinds of problems found in build: bits of {@link ProblemKind}. */
+    private final int problemsMask;
+
+    /**
+     * Compactor ID of first problem type not recognized as known critical problem (may be failure on message or other
+     * problem), or -1 if there is no such problem.
+     */
+    private final int otherProblemType;
 
     /** Changes. */
     private List<ChangeCompacted> changes = new ArrayList<>();
@@ -73,6 +82,35 @@ public class SingleBuildRunCtx implements ISuiteResults {
         IStringCompactor compactor) {
         this.buildCompacted = buildCompacted;
         this.compactor = compactor;
+
+        int mask = 0;
+        int otherType = -1;
+
+        for (ProblemCompacted p : buildCompacted.problems()) {
+            ProblemKind kind = ProblemKind.of(p, compactor);
+
+            mask |= kind.mask();
+
+            if (otherType == -1 && (kind == ProblemKind.BUILD_MESSAGE || kind == ProblemKind.OTHER))
+                otherType = p.type();
+        }
+
+        problemsMask = mask;
+        otherProblemType = otherType;
+    }
+
+    /**
+     * @return Kinds of problems found in build: bits of {@link ProblemKind}.
+     */
+    int problemsMask() {
+        return problemsMask;
+    }
+
+    /**
+     * @return Compactor ID of first problem type not recognized as known critical problem, or -1.
+     */
+    int otherProblemType() {
+        return otherProblemType;
     }
 
     /**
@@ -85,21 +123,17 @@ public class SingleBuildRunCtx implements ISuiteResults {
 
     /** {@inheritDoc} */
     @Override public boolean hasMetricProblem() {
-        return getProblemsStream().anyMatch(p -> p.isBuildFailureOnMetric(compactor));
+        return ProblemKind.METRIC.isSet(problemsMask);
     }
 
     /** {@inheritDoc} */
     @Override public boolean hasCompilationProblem() {
-        return getProblemsStream().anyMatch(p -> p.isCompilationError(compactor));
+        return ProblemKind.COMPILATION.isSet(problemsMask);
     }
 
 
     public boolean hasTimeoutProblem() {
-        return getExecutionTimeoutCount() > 0;
-    }
-
-    private long getExecutionTimeoutCount() {
-        return getProblemsStream().filter(p -> p.isExecutionTimeout(compactor)).count();
+        return ProblemKind.TIMEOUT.isSet(problemsMask);
     }
 
     Stream<ProblemCompacted> getProblemsStream() {
@@ -107,19 +141,19 @@ public class SingleBuildRunCtx implements ISuiteResults {
     }
 
     @Override public boolean hasJvmCrashProblem() {
-        return getProblemsStream().anyMatch(p -> p.isJvmCrash(compactor));
+        return ProblemKind.JVM_CRASH.isSet(problemsMask);
     }
 
     @Override public boolean hasOomeProblem() {
-        return getProblemsStream().anyMatch(p -> p.isOome(compactor));
+        return ProblemKind.OOME.isSet(problemsMask);
     }
 
     @Override public boolean hasExitCodeProblem() {
-        return getProblemsStream().anyMatch(p -> p.isExitCode(compactor));
+        return ProblemKind.EXIT_CODE.isSet(problemsMask);
     }
 
     @Override public boolean hasProblemNonByFailedTest() {
-        return getProblemsStream().anyMatch(p -> !p.isFailedTests(compactor));
+        return (problemsMask & ~ProblemKind.FAILED_TESTS.mask()) != 0;
     }
 
     @Override public String suiteId() {
@@ -127,7 +161,7 @@ public class SingleBuildRunCtx implements ISuiteResults {
     }
 
     @Override public boolean hasBuildMessageProblem() {
-        return getProblemsStream().anyMatch(p -> p.isBuildFailureOnMessage(compactor));
+        return ProblemKind.BUILD_MESSAGE.isSet(problemsMask);
     }
 
     public void setLogCheckResFut(CompletableFuture<ILogCheckResult> logCheckResFut) {
@@ -61,6 +61,7 @@ public class Cleaner {
     @Inject private BuildConditionDao buildConditionDao;
     @Inject private DefectsStorage defectsStorage;
     @Inject private NewTestsStorage newTestsStorage;
+    @Inject private IBuildStatisticsStorage buildStatisticsStorage;
     @Inject private ITcBotConfig cfg;
 
     /** Logger. */
@@ -126,6 +127,7 @@ public class Cleaner {
         buildConditionDao.removeAll(oldBuildsKeys);
         defectsStorage.removeOldDefects(oldBuildsTeamCityAndBuildIds);
         issuesStorage.removeOldIssues(oldBuildsTeamCityAndBuildIds);
+        buildStatisticsStorage.removeAll(oldBuildsKeys);
         fatBuildDao.removeAll(oldBuildsKeys);
 
         //Need to eventually delete data with broken consistency
@@ -106,6 +106,23 @@ public class DefectCompacted {
         return this;
     }
 
+    /**
+     * @return commits involved, sorted.
+     */
+    public List<CommitCompacted> commits() {
+        return Collections.unmodifiableList(commits);
+    }
+
+    /**
+     * @return commits of revisions involved, sorted.
+     */
+    public List<CommitCompacted> revisions() {
+        if (revisions == null)
+            return Collections.emptyList();
+
+        return Collections.unmodifiableList(revisions);
+    }
+
     public Map<Integer, DefectFirstBuild> buildsInvolved() {
         return Collections.unmodifiableMap(buildsInvolved);
     }
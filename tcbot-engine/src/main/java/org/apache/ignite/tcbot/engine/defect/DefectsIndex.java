@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcbot.engine.defect;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Lookup indexes used for merging issues into defects: build -> defect, and commits/revisions fingerprint -> open
+ * defects. Fingerprints may collide, so candidates returned should be verified by caller.
+ */
+class DefectsIndex {
+    /** Build key (server ID, build ID) -> defect ID. Contains both open and resolved defects. */
+    private final Map<Long, Integer> defectByBuild = new HashMap<>();
+
+    /** Fingerprint of server ID and commits -> IDs of open defects. */
+    private final Map<Long, Set<Integer>> openByCommits = new HashMap<>();
+
+    /** Fingerprint of server ID and revisions -> IDs of open defects. */
+    private final Map<Long, Set<Integer>> openByRevisions = new HashMap<>();
+
+    /** Defect ID -> keys registered for this defect. */
+    private final Map<Integer, IndexedKeys> keysByDefect = new HashMap<>();
+
+    /**
+     * Adds or replaces index entries for defect.
+     *
+     * @param id Defect ID.
+     * @param defect Defect.
+     */
+    synchronized void put(int id, DefectCompacted defect) {
+        remove(id);
+
+        int srvId = defect.tcSrvId();
+        IndexedKeys keys = new IndexedKeys();
+
+        keys.buildKeys = new long[defect.buildsInvolved().size()];
+
+        int i = 0;
+        for (Integer buildId : defect.buildsInvolved().keySet()) {
+            long buildKey = buildKey(srvId, buildId);
+
+            keys.buildKeys[i++] = buildKey;
+            defectByBuild.put(buildKey, id);
+        }
+
+        if (defect.resolvedByUsernameId() < 1) {
+            if (!defect.commits().isEmpty()) {
+                keys.commitsFp = fingerprint(srvId, defect.commits());
+                openByCommits.computeIfAbsent(keys.commitsFp, k -> new HashSet<>()).add(id);
+            }
+
+            if (!defect.revisions().isEmpty()) {
+                keys.revisionsFp = fingerprint(srvId, defect.revisions());
+                openByRevisions.computeIfAbsent(keys.revisionsFp, k -> new HashSet<>()).add(id);
+            }
+        }
+
+        keysByDefect.put(id, keys);
+    }
+
+    /**
+     * @param id Defect ID.
+     */
+    synchronized void remove(int id) {
+        IndexedKeys keys = keysByDefect.remove(id);
+
+        if (keys == null)
+            return;
+
+        for (long buildKey : keys.buildKeys)
+            defectByBuild.remove(buildKey, id);
+
+        removeFromSet(openByCommits, keys.commitsFp, id);
+        removeFromSet(openByRevisions, keys.revisionsFp, id);
+    }
+
+    /**
+     * @param srvId Server ID.
+     * @param buildId Build ID.
+     * @return ID of defect (open or resolved) which contains this build, or null.
+     */
+    @Nullable synchronized Integer defectForBuild(int srvId, int buildId) {
+        return defectByBuild.get(buildKey(srvId, buildId));
+    }
+
+    /**
+     * @param srvId Server ID.
+     * @param commits Commits, sorted.
+     * @return candidates: IDs of open defects with probably same commits.
+     */
+    synchronized Collection<Integer> openDefectsByCommits(int srvId, List<CommitCompacted> commits) {
+        return candidates(openByCommits, fingerprint(srvId, commits));
+    }
+
+    /**
+     * @param srvId Server ID.
+     * @param revisions Revisions, sorted.
+     * @return candidates: IDs of open defects with probably same revisions.
+     */
+    synchronized Collection<Integer> openDefectsByRevisions(int srvId, List<CommitCompacted> revisions) {
+        return candidates(openByRevisions, fingerprint(srvId, revisions));
+    }
+
+    /**
+     * @param map Fingerprint map.
+     * @param fp Fingerprint.
+     */
+    private static Collection<Integer> candidates(Map<Long, Set<Integer>> map, long fp) {
+        Set<Integer> ids = map.get(fp);
+
+        return ids == null ? Collections.emptyList() : new HashSet<>(ids);
+    }
+
+    /**
+     * @param map Fingerprint map.
+     * @param fp Fingerprint, null if was not registered.
+     * @param id Defect ID.
+     */
+    private static void removeFromSet(Map<Long, Set<Integer>> map, @Nullable Long fp, int id) {
+        if (fp == null)
+            return;
+
+        Set<Integer> ids = map.get(fp);
+
+        if (ids != null && ids.remove(id) && ids.isEmpty())
+            map.remove(fp);
+    }
+
+    /**
+     * @param srvId Server ID.
+     * @param buildId Build ID.
+     */
+    private static long buildKey(int srvId, int buildId) {
+        return (long)srvId << 32 | (buildId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param srvId Server ID.
+     * @param commits Commits, sorted.
+     * @return 64 bit hash of server ID and commits list.
+     */
+    static long fingerprint(int srvId, List<CommitCompacted> commits) {
+        long h = srvId * 31L + commits.size();
+
+        for (CommitCompacted commit : commits)
+            h = h * 0x9E3779B97F4A7C15L + commit.hashCode();
+
+        return h ^ (h >>> 29);
+    }
+
+    /** Keys registered for a defect. */
+    private static class IndexedKeys {
+        /** Build keys. */
+        long[] buildKeys;
+
+        /** Commits fingerprint, null if not registered. */
+        @Nullable Long commitsFp;
+
+        /** Revisions fingerprint, null if not registered. */
+        @Nullable Long revisionsFp;
+    }
+}
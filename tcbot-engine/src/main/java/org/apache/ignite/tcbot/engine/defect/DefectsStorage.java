@@ -18,11 +18,17 @@ package org.apache.ignite.tcbot.engine.defect;
 
 import com.google.common.base.Preconditions;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import javax.cache.Cache;
 import javax.inject.Inject;
@@ -55,6 +61,9 @@ public class DefectsStorage {
     @Inject
     private ChangeDao changeDao;
 
+    /** Lookup index for merging issues into defects, null until first merge. */
+    private volatile DefectsIndex idx;
+
 
     public DefectsStorage() {
     }
@@ -86,17 +95,16 @@ public class DefectsStorage {
         BiFunction<Integer, DefectCompacted, DefectCompacted> function) {
 
         IgniteCache<Integer, DefectCompacted> cache = cache();
+        DefectsIndex idx = index();
 
-        try (QueryCursor<Cache.Entry<Integer, DefectCompacted>> qry = cache.query(new ScanQuery<Integer, DefectCompacted>()
-            .setFilter((k, v) -> v.tcSrvId() == srvId))) {
-            //here we ignore if issue was resolved or not because defect can be already resolved,
-            // and if this(resolved) defect contains same build ID, as we've used earlier, no reason to open new defect for it.
-            for (Cache.Entry<Integer, DefectCompacted> next : qry) {
-                DefectCompacted openDefect = next.getValue();
+        //here we ignore if issue was resolved or not because defect can be already resolved,
+        // and if this(resolved) defect contains same build ID, as we've used earlier, no reason to open new defect for it.
+        Integer defectWithBuild = idx.defectForBuild(srvId, fatBuild.id());
+        if (defectWithBuild != null) {
+            DefectCompacted defect = load(defectWithBuild);
 
-                if (openDefect.hasBuild(fatBuild.id()))
-                    return processExisting(function, cache, next.getKey(), openDefect);
-            }
+            if (defect != null && defect.hasBuild(fatBuild.id()))
+                return processExisting(function, cache, defectWithBuild, defect);
         }
 
         int[] changes = fatBuild.changes();
@@ -111,15 +119,11 @@ public class DefectsStorage {
             .collect(toList());
 
         if (!commitsToUse.isEmpty()) {
-            try (QueryCursor<Cache.Entry<Integer, DefectCompacted>> qry = cache.query(new ScanQuery<Integer, DefectCompacted>()
-                .setFilter((k, v) -> v.resolvedByUsernameId() < 1 && v.tcSrvId() == srvId))) {
-                for (Cache.Entry<Integer, DefectCompacted> next : qry) {
-                    DefectCompacted openDefect = next.getValue();
+            DefectCompacted openDefect = findOpen(idx.openDefectsByCommits(srvId, commitsToUse), srvId,
+                d -> d.sameCommits(commitsToUse));
 
-                    if (openDefect.sameCommits(commitsToUse))
-                        return processExisting(function, cache, next.getKey(), openDefect);
-                }
-            }
+            if (openDefect != null)
+                return processExisting(function, cache, openDefect.id(), openDefect);
         }
 
         List<RevisionCompacted> buildRevisions = fatBuild.revisions();
@@ -134,15 +138,11 @@ public class DefectsStorage {
             .collect(toList());
 
         if (commitsToUse.isEmpty() && !buildRevisions.isEmpty()) {
-            try (QueryCursor<Cache.Entry<Integer, DefectCompacted>> qry = cache.query(new ScanQuery<Integer, DefectCompacted>()
-                .setFilter((k, v) -> v.resolvedByUsernameId() < 1 && v.tcSrvId() == srvId))) {
-                for (Cache.Entry<Integer, DefectCompacted> next : qry) {
-                    DefectCompacted openDefect = next.getValue();
+            DefectCompacted openDefect = findOpen(idx.openDefectsByRevisions(srvId, revisionsToUse), srvId,
+                d -> d.sameRevisions(revisionsToUse));
 
-                    if (openDefect.sameRevisions(revisionsToUse))
-                        return processExisting(function, cache, next.getKey(), openDefect);
-                }
-            }
+            if (openDefect != null)
+                return processExisting(function, cache, openDefect.id(), openDefect);
         }
 
         int id = (int)sequence().incrementAndGet();
@@ -161,9 +161,74 @@ public class DefectsStorage {
 
         boolean putSuccess = cache.putIfAbsent(id, defectT);
 
+        if (putSuccess)
+            idx.put(id, defectT);
+
         return defectT;
     }
 
+    /**
+     * @param candidates Candidate defect IDs found in index.
+     * @param srvId Server ID.
+     * @param matches Filter for defect.
+     * @return first open defect from candidates passing filter, or null.
+     */
+    @Nullable private DefectCompacted findOpen(Collection<Integer> candidates, int srvId,
+        Predicate<DefectCompacted> matches) {
+        for (Integer defectId : candidates) {
+            DefectCompacted defect = load(defectId);
+
+            if (defect != null && defect.resolvedByUsernameId() < 1 && defect.tcSrvId() == srvId && matches.test(defect))
+                return defect;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return index for merging defects, initialized by a cache scan on first access.
+     */
+    private DefectsIndex index() {
+        DefectsIndex res = idx;
+
+        if (res != null)
+            return res;
+
+        synchronized (this) {
+            if (idx == null) {
+                DefectsIndex newIdx = new DefectsIndex();
+
+                try (QueryCursor<Cache.Entry<Integer, DefectCompacted>> qry =
+                         cache().query(new ScanQuery<Integer, DefectCompacted>())) {
+                    for (Cache.Entry<Integer, DefectCompacted> next : qry)
+                        newIdx.put(next.getKey(), next.getValue());
+                }
+
+                idx = newIdx;
+            }
+
+            return idx;
+        }
+    }
+
+    /**
+     * Updates index if it was already initialized.
+     *
+     * @param id Defect ID.
+     * @param defect Defect saved, or null if it was removed.
+     */
+    private void onUpdate(int id, @Nullable DefectCompacted defect) {
+        DefectsIndex res = idx;
+
+        if (res == null)
+            return;
+
+        if (defect != null)
+            res.put(id, defect);
+        else
+            res.remove(id);
+    }
+
     public DefectCompacted processExisting(BiFunction<Integer, DefectCompacted, DefectCompacted> function,
                                            IgniteCache<Integer, DefectCompacted> cache, Integer id, DefectCompacted openDefect) {
         DefectCompacted defect = function.apply(id, openDefect);
@@ -202,6 +267,8 @@ public class DefectsStorage {
     public void save(DefectCompacted defect) {
         Preconditions.checkState(defect.id() != 0);
         cache().put(defect.id(), defect);
+
+        onUpdate(defect.id(), defect);
     }
 
     public void checkIfPossibleToRemove(Map<Integer, List<Integer>> oldBuildsTeamCityAndBuildIds) {
@@ -219,17 +286,21 @@ public class DefectsStorage {
     }
 
     public void removeOldDefects(Map<Integer, List<Integer>> oldBuildsTeamCityAndBuildIds) {
+        Map<Integer, Set<Integer>> buildIdsBySrv = new HashMap<>();
+        oldBuildsTeamCityAndBuildIds.forEach((srvId, buildIds) -> buildIdsBySrv.put(srvId, new HashSet<>(buildIds)));
+
+        Set<Integer> keysToRemove = new HashSet<>();
+
         cache().forEach(entry -> {
             DefectCompacted defect = entry.getValue();
 
-            Optional.ofNullable(oldBuildsTeamCityAndBuildIds.get(defect.tcSrvId())).ifPresent(buildIdsToRemove -> {
-                List<Integer> defectBuildIds = defect.buildsInvolved().values().stream()
-                    .map(build -> build.build().id()).collect(toList());
-
-                if (defectBuildIds.stream().anyMatch(buildIdsToRemove::contains))
-                    cache().remove(entry.getKey());
+            Optional.ofNullable(buildIdsBySrv.get(defect.tcSrvId())).ifPresent(buildIdsToRemove -> {
+                if (defect.buildsInvolved().keySet().stream().anyMatch(buildIdsToRemove::contains))
+                    keysToRemove.add(entry.getKey());
             });
         });
+
+        removeAll(keysToRemove);
     }
 
     public void removeOldDefects(long thresholdDate, int numOfItemsToDel) {
@@ -246,13 +317,26 @@ public class DefectsStorage {
                     !defect.hasField("resolvedTs");
             });
 
-        for (Cache.Entry<Integer, BinaryObject> entry : cacheWithBinary.query(scan)) {
-            if (numOfItemsToDel > 0) {
-                numOfItemsToDel--;
-                cacheWithBinary.remove(entry.getKey());
+        Set<Integer> keysToRemove = new HashSet<>();
+
+        try (QueryCursor<Cache.Entry<Integer, BinaryObject>> cursor = cacheWithBinary.query(scan)) {
+            for (Cache.Entry<Integer, BinaryObject> entry : cursor) {
+                if (keysToRemove.size() >= numOfItemsToDel)
+                    break;
+
+                keysToRemove.add(entry.getKey());
             }
-            else
-                break;
         }
+
+        removeAll(keysToRemove);
+    }
+
+    /**
+     * @param keys Defect IDs.
+     */
+    private void removeAll(Set<Integer> keys) {
+        cache().removeAll(keys);
+
+        keys.forEach(key -> onUpdate(key, null));
     }
 }
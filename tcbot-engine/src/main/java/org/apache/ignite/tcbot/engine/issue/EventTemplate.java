@@ -17,6 +17,7 @@
 
 package org.apache.ignite.tcbot.engine.issue;
 
+import org.apache.ignite.tcignited.history.EventTemplateMatcher;
 import org.apache.ignite.tcignited.history.IEventTemplate;
 
 public class EventTemplate implements IEventTemplate {
@@ -27,6 +28,8 @@ public class EventTemplate implements IEventTemplate {
      * Event template eventAndAfter should be always first build in history of non-missed object.
      */
     private boolean shouldBeFirstNonMissing = false;
+    /** Compiled matcher, reset if template is changed. */
+    private volatile EventTemplateMatcher matcher;
 
     public EventTemplate(int[] beforeEvent, int[] eventAndAfter) {
         this.beforeEvent = beforeEvent;
@@ -51,8 +54,19 @@ public class EventTemplate implements IEventTemplate {
         return shouldBeFirstNonMissing;
     }
 
+    /** {@inheritDoc} */
+    @Override public EventTemplateMatcher matcher() {
+        EventTemplateMatcher m = matcher;
+
+        if (m == null)
+            matcher = m = new EventTemplateMatcher(this);
+
+        return m;
+    }
+
     EventTemplate includeMissing(boolean include) {
         this.includeMissing = include;
+        this.matcher = null;
 
         return this;
     }
@@ -63,6 +77,7 @@ public class EventTemplate implements IEventTemplate {
 
     public EventTemplate onlyForFirstNonMissing(boolean shouldBeFirst) {
         this.shouldBeFirstNonMissing = shouldBeFirst;
+        this.matcher = null;
 
         return this;
     }
@@ -17,10 +17,10 @@
 
 package org.apache.ignite.tcbot.engine.issue;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
-import javax.annotation.Nullable;
 import org.apache.ignite.ci.issue.Issue;
 import org.apache.ignite.ci.issue.IssueKey;
 
@@ -40,15 +40,25 @@ public interface IIssuesStorage {
     public Stream<Issue> allIssues();
 
     /**
-     * Checks and saves address was notified (NotThreadSafe)
-     * @param key issue key.
-     * @param addr Address to register as notified.
-     * @param e Exception. Null means notification was successfull. Non null means notification failed
-     * @return update successful. This address was not notified before.
+     * @param detectedTs Timestamp, inclusive.
+     * @return Issues detected at the timestamp or later.
      */
-    public boolean getIsNewAndSetNotified(IssueKey key, String addr, @Nullable Exception e);
+    public Stream<Issue> issuesDetectedAfter(long detectedTs);
 
-    public void saveIssueSubscribersStat(IssueKey key, int cntSrvAllowed, int cntSubscribed, int cntTagsFilterPassed);
+    /**
+     * @param issues Issues.
+     * @return Notification state for each of issues, issue key of provided issue is used as map key.
+     */
+    public Map<IssueKey, IssueNotifications> getNotifications(Collection<Issue> issues);
+
+    /**
+     * Saves results of notification cycle in one transaction.
+     *
+     * @param notifications Notification states changed.
+     * @param subscribersStat Statistics of subscribers to be saved in issues.
+     */
+    public void saveNotifications(Map<IssueKey, IssueNotifications> notifications,
+        Map<IssueKey, Map<String, Object>> subscribersStat);
 
     public void removeOldIssues(Map<Integer, List<Integer>> oldBuildsTeamCityAndBuildIds);
 
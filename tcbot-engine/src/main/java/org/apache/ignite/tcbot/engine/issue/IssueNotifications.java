@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcbot.engine.issue;
+
+import com.google.common.base.MoreObjects;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.ignite.ci.issue.Issue;
+import org.apache.ignite.tcbot.persistence.Persisted;
+
+/**
+ * Notification state of an issue: addresses notified and notification failures. Stored separately from the issue, so
+ * notification cycle doesn't rewrite issues.
+ */
+@Persisted
+public class IssueNotifications {
+    /** Max count of notification retries for an address failed before. */
+    private static final int MAX_RETRIES = 2;
+
+    /** Addresses notified. */
+    private Set<String> addressNotified = new TreeSet<>();
+
+    /** Notification failed: Map from address to exception text */
+    private Map<String, String> notificationFailed = new HashMap<>();
+
+    /** Notification retries. */
+    private int notificationRetry;
+
+    /**
+     * Creates empty state.
+     */
+    public IssueNotifications() {
+    }
+
+    /**
+     * @param issue Issue with notification state saved by older versions of the bot.
+     */
+    public IssueNotifications(Issue issue) {
+        if (issue.addressNotified != null)
+            addressNotified.addAll(issue.addressNotified);
+
+        if (issue.notificationFailed != null)
+            notificationFailed.putAll(issue.notificationFailed);
+
+        notificationRetry = issue.notificationRetry;
+    }
+
+    /**
+     * Registers address as notified.
+     *
+     * @param addr Address.
+     * @return {@code true} if this address was not notified before and notification should be sent.
+     */
+    public boolean markNotified(String addr) {
+        if (notificationRetry >= MAX_RETRIES && notificationFailed.containsKey(addr))
+            return false; // no more tries;
+
+        boolean update = addressNotified.add(addr);
+
+        if (update)
+            notificationFailed.remove(addr);
+
+        return update;
+    }
+
+    /**
+     * Rolls back notification of the address.
+     *
+     * @param addr Address.
+     * @param e Notification failure.
+     */
+    public void markFailed(String addr, Exception e) {
+        if (notificationRetry < MAX_RETRIES)
+            addressNotified.remove(addr);
+
+        notificationRetry++;
+
+        notificationFailed.put(addr, e.getClass().getSimpleName() + ": " + e.getMessage());
+    }
+
+    /**
+     * @return {@code true} if no address was notified.
+     */
+    public boolean neverNotified() {
+        return addressNotified.isEmpty();
+    }
+
+    /**
+     * @return Addresses notified.
+     */
+    public Set<String> addressNotified() {
+        return Collections.unmodifiableSet(addressNotified);
+    }
+
+    /**
+     * @return Notification failed: Map from address to exception text
+     */
+    public Map<String, String> notificationFailed() {
+        return Collections.unmodifiableMap(notificationFailed);
+    }
+
+    /**
+     * Copies state to issue, used to display notification state along with issue.
+     *
+     * @param issue Issue.
+     */
+    public void copyTo(Issue issue) {
+        issue.addressNotified = new TreeSet<>(addressNotified);
+        issue.notificationFailed = new HashMap<>(notificationFailed);
+        issue.notificationRetry = notificationRetry;
+    }
+
+    /** {@inheritDoc} */
+    @Override public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("addressNotified", addressNotified)
+            .add("notificationFailed", notificationFailed)
+            .add("notificationRetry", notificationRetry)
+            .toString();
+    }
+}
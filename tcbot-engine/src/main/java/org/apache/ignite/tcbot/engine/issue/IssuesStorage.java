@@ -17,23 +17,38 @@
 
 package org.apache.ignite.tcbot.engine.issue;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
-import javax.annotation.Nullable;
 import javax.cache.Cache;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
 import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.cache.QueryEntity;
+import org.apache.ignite.cache.query.FieldsQueryCursor;
+import org.apache.ignite.cache.query.QueryCursor;
 import org.apache.ignite.cache.query.ScanQuery;
+import org.apache.ignite.cache.query.SqlFieldsQuery;
 import org.apache.ignite.ci.issue.Issue;
 import org.apache.ignite.ci.issue.IssueKey;
+import org.apache.ignite.configuration.CacheConfiguration;
+import org.apache.ignite.tcbot.common.interceptor.AutoProfiling;
 import org.apache.ignite.tcbot.persistence.CacheConfigs;
+import org.apache.ignite.transactions.Transaction;
+
+import static org.apache.ignite.transactions.TransactionConcurrency.PESSIMISTIC;
+import static org.apache.ignite.transactions.TransactionIsolation.REPEATABLE_READ;
 
 /**
  *
@@ -41,9 +56,27 @@ import org.apache.ignite.tcbot.persistence.CacheConfigs;
 public class IssuesStorage implements IIssuesStorage {
     public static final String BOT_DETECTED_ISSUES = "botDetectedIssues";
 
+    /** Index of issues by detection timestamp. */
+    public static final String BOT_DETECTED_ISSUES_TS_IDX = "botDetectedIssuesTsIdx";
+
+    /** Notification state of issues. */
+    public static final String BOT_ISSUES_NOTIFICATIONS = "botIssuesNotifications";
+
+    /**
+     * Key of entry marking that issues saved before index was introduced were added to the index. Its timestamp is
+     * never returned by index queries.
+     */
+    private static final IssueKey TS_IDX_BACKFILL_MARKER_KEY = new IssueKey("", -1, "tsIdxBackfilled");
+
+    /** Batch size for index backfill. */
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
     @Inject
     private Provider<Ignite> igniteProvider;
 
+    /** Detection timestamp index was checked to contain all issues. */
+    private volatile boolean tsIdxBackfilled;
+
     public IssuesStorage() {
     }
 
@@ -51,6 +84,18 @@ public class IssuesStorage implements IIssuesStorage {
         return botDetectedIssuesCache(getIgnite());
     }
 
+    private IgniteCache<IssueKey, IssueDetectedTs> detectedTsIdx() {
+        CacheConfiguration<IssueKey, IssueDetectedTs> cfg = CacheConfigs.getCacheV2Config(BOT_DETECTED_ISSUES_TS_IDX);
+
+        cfg.setQueryEntities(Collections.singletonList(new QueryEntity(IssueKey.class, IssueDetectedTs.class)));
+
+        return getIgnite().getOrCreateCache(cfg);
+    }
+
+    private IgniteCache<IssueKey, IssueNotifications> notificationsCache() {
+        return getIgnite().getOrCreateCache(CacheConfigs.getCacheV2TxConfig(BOT_ISSUES_NOTIFICATIONS));
+    }
+
     private Ignite getIgnite() {
         return igniteProvider.get();
     }
@@ -60,60 +105,54 @@ public class IssuesStorage implements IIssuesStorage {
     }
 
     /** {@inheritDoc} */
-    @Override public boolean getIsNewAndSetNotified(IssueKey issueKey, String to,
-        @Nullable Exception e) {
-        Issue issue = cache().get(issueKey);
-        if (issue == null)
-            return false;
-
-        boolean update;
-        if (e == null) {
-            if (issue.notificationRetry >= 2 && issue.notificationFailed.containsKey(to))
-                return false; // no more tries;
+    @Override public Map<IssueKey, IssueNotifications> getNotifications(Collection<Issue> issues) {
+        Set<IssueKey> keys = issues.stream().map(Issue::issueKey).collect(Collectors.toSet());
+        Map<IssueKey, IssueNotifications> saved = notificationsCache().getAll(keys);
+        Map<IssueKey, IssueNotifications> res = new HashMap<>();
 
-            update = issue.addressNotified.add(to);
+        for (Issue issue : issues) {
+            IssueNotifications notifications = saved.get(issue.issueKey());
 
-            if (update && issue.notificationFailed != null)
-                issue.notificationFailed.remove(to);
+            // Issues notified by older versions of the bot keep notification state inside.
+            res.put(issue.issueKey(), notifications != null ? notifications : new IssueNotifications(issue));
         }
-        else {
-            if (issue.notificationRetry < 2)
-                issue.addressNotified.remove(to);
 
-            issue.notificationRetry++;
+        return res;
+    }
 
-            if (issue.notificationFailed == null)
-                issue.notificationFailed = new HashMap<>();
+    /** {@inheritDoc} */
+    @Override public void saveNotifications(Map<IssueKey, IssueNotifications> notifications,
+        Map<IssueKey, Map<String, Object>> subscribersStat) {
+        if (notifications.isEmpty() && subscribersStat.isEmpty())
+            return;
 
-            issue.notificationFailed.put(to, e.getClass().getSimpleName() + ": " + e.getMessage());
+        // Caches can't be started inside transaction.
+        IgniteCache<IssueKey, Issue> cache = cache();
+        IgniteCache<IssueKey, IssueNotifications> notificationsCache = notificationsCache();
 
-            update = true;
-        }
+        try (Transaction tx = getIgnite().transactions().txStart(PESSIMISTIC, REPEATABLE_READ)) {
+            if (!notifications.isEmpty())
+                notificationsCache.putAll(new LinkedHashMap<>(notifications));
 
-        if (update)
-            cache().put(issueKey, issue);
+            Map<IssueKey, Issue> issuesToUpdate = new LinkedHashMap<>();
 
-        return update;
-    }
+            cache.getAll(subscribersStat.keySet()).forEach((key, issue) -> {
+                int hashCode = issue.hashCode();
 
-    @Override
-    public void saveIssueSubscribersStat(IssueKey issueKey, int cntSrvAllowed, int cntSubscribed,
-        int cntTagsFilterPassed) {
-        Issue issue = cache().get(issueKey);
-        if (issue == null)
-            return;
+                if (issue.stat == null)
+                    issue.stat = new HashMap<>();
 
-        int hashCode = issue.hashCode();
+                issue.stat.putAll(subscribersStat.get(key));
 
-        if (issue.stat == null)
-            issue.stat = new HashMap<>();
+                if (issue.hashCode() != hashCode)
+                    issuesToUpdate.put(key, issue); // protect from odd writes
+            });
 
-        issue.stat.put("cntSrvAllowed", cntSrvAllowed);
-        issue.stat.put("cntSubscribed", cntSubscribed);
-        issue.stat.put("cntTagsFilterPassed", cntTagsFilterPassed);
+            if (!issuesToUpdate.isEmpty())
+                cache.putAll(issuesToUpdate);
 
-        if (issue.hashCode() != hashCode)
-            cache().put(issueKey, issue); // protect from odd writes
+            tx.commit();
+        }
     }
 
     /** {@inheritDoc} */
@@ -124,6 +163,9 @@ public class IssuesStorage implements IIssuesStorage {
     /** {@inheritDoc} */
     @Override public void saveIssue(Issue issue) {
         cache().put(issue.issueKey(), issue);
+
+        if (issue.detectedTs != null)
+            detectedTsIdx().put(issue.issueKey(), new IssueDetectedTs(issue.detectedTs));
     }
 
     /** {@inheritDoc} */
@@ -136,17 +178,80 @@ public class IssuesStorage implements IIssuesStorage {
         return StreamSupport.stream(cache().spliterator(), false).map(Cache.Entry::getValue);
     }
 
+    /** {@inheritDoc} */
+    @AutoProfiling
+    @Override public Stream<Issue> issuesDetectedAfter(long detectedTs) {
+        IgniteCache<IssueKey, IssueDetectedTs> idx = detectedTsIdx();
+
+        backfillDetectedTsIdx(idx);
+
+        Set<IssueKey> keys = new HashSet<>();
+        SqlFieldsQuery qry = new SqlFieldsQuery("select _key from IssueDetectedTs where detectedTs >= ?")
+            .setArgs(detectedTs);
+
+        try (FieldsQueryCursor<List<?>> cursor = idx.query(qry)) {
+            for (List<?> row : cursor)
+                keys.add((IssueKey)row.get(0));
+        }
+
+        return cache().getAll(keys).values().stream();
+    }
+
+    /**
+     * Adds issues saved before index was introduced to the index, once.
+     *
+     * @param idx Index cache.
+     */
+    private synchronized void backfillDetectedTsIdx(IgniteCache<IssueKey, IssueDetectedTs> idx) {
+        if (tsIdxBackfilled)
+            return;
+
+        if (!idx.containsKey(TS_IDX_BACKFILL_MARKER_KEY)) {
+            Map<IssueKey, IssueDetectedTs> batch = new LinkedHashMap<>();
+
+            for (Cache.Entry<IssueKey, Issue> entry : cache()) {
+                Long ts = entry.getValue().detectedTs;
+
+                if (ts == null)
+                    continue;
+
+                batch.put(entry.getKey(), new IssueDetectedTs(ts));
+
+                if (batch.size() >= BACKFILL_BATCH_SIZE) {
+                    idx.putAll(batch);
+                    batch.clear();
+                }
+            }
+
+            if (!batch.isEmpty())
+                idx.putAll(batch);
+
+            idx.put(TS_IDX_BACKFILL_MARKER_KEY, new IssueDetectedTs(Long.MIN_VALUE));
+        }
+
+        tsIdxBackfilled = true;
+    }
+
     public void removeOldIssues(Map<Integer, List<Integer>> oldBuildsTeamCityAndBuildIds) {
+        Map<Integer, Set<Integer>> buildIdsBySrv = new HashMap<>();
+        oldBuildsTeamCityAndBuildIds.forEach((srvId, buildIds) -> buildIdsBySrv.put(srvId, new HashSet<>(buildIds)));
+
+        Set<IssueKey> keysToRemove = new HashSet<>();
+
         cache().forEach(entry -> {
             IssueKey issueKey = entry.getKey();
 
-            Optional.ofNullable(oldBuildsTeamCityAndBuildIds.get(Math.abs(issueKey.getServer().hashCode())))
+            Optional.ofNullable(buildIdsBySrv.get(Math.abs(issueKey.getServer().hashCode())))
                 .ifPresent(buildIdsToRemove -> {
                         if (buildIdsToRemove.contains(issueKey.getBuildId()))
-                            cache().remove(issueKey);
+                            keysToRemove.add(issueKey);
                     }
                 );
         });
+
+        cache().removeAll(keysToRemove);
+        detectedTsIdx().removeAll(keysToRemove);
+        notificationsCache().removeAll(keysToRemove);
     }
 
     public void removeOldIssues(long thresholdDate, int numOfItemsToDel) {
@@ -163,13 +268,19 @@ public class IssuesStorage implements IIssuesStorage {
                     !issue.hasField("detectedTs");
             });
 
-        for (Cache.Entry<BinaryObject, BinaryObject> entry : cacheWithBinary.query(scan)) {
-            if (numOfItemsToDel > 0) {
-                numOfItemsToDel--;
-                cacheWithBinary.remove(entry.getKey());
+        Set<BinaryObject> keysToRemove = new HashSet<>();
+
+        try (QueryCursor<Cache.Entry<BinaryObject, BinaryObject>> cursor = cacheWithBinary.query(scan)) {
+            for (Cache.Entry<BinaryObject, BinaryObject> entry : cursor) {
+                if (keysToRemove.size() >= numOfItemsToDel)
+                    break;
+
+                keysToRemove.add(entry.getKey());
             }
-            else
-                break;
         }
+
+        cacheWithBinary.removeAll(keysToRemove);
+        detectedTsIdx().withKeepBinary().removeAll(keysToRemove);
+        notificationsCache().withKeepBinary().removeAll(keysToRemove);
     }
 }
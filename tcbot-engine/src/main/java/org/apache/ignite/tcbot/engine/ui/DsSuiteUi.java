@@ -291,10 +291,13 @@ public class DsSuiteUi extends ShortSuiteUi {
             latestRunsSrc = statInBaseBranch;
 
         if (latestRunsSrc != null) {
-            if (latestRunsSrc.detectTemplate(EventTemplates.newFailureForFlakyTest) != null)
+            Integer[] detected = latestRunsSrc.detectTemplates(EventTemplates.newFailureForFlakyTest,
+                EventTemplates.newCriticalFailure);
+
+            if (detected[0] != null)
                 problemRef = new DsProblemRef("New Failure");
 
-            if (latestRunsSrc.detectTemplate(EventTemplates.newCriticalFailure) != null)
+            if (detected[1] != null)
                 problemRef = new DsProblemRef("New Critical Failure");
         }
 
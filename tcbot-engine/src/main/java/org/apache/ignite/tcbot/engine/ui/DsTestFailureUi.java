@@ -212,14 +212,16 @@ public class DsTestFailureUi extends ShortTestFailureUi {
             statForProblemsDetection = stat;
 
         if (statForProblemsDetection != null) {
-            if (statForProblemsDetection.detectTemplate(EventTemplates.newFailure) != null)
+            Integer[] detected = statForProblemsDetection.detectTemplates(EventTemplates.newFailure,
+                EventTemplates.newContributedTestFailure, EventTemplates.newFailureForFlakyTest);
+
+            if (detected[0] != null)
                 problemRef = new DsProblemRef("New Failure");
 
-            if (statForProblemsDetection.detectTemplate(EventTemplates.newContributedTestFailure) != null)
+            if (detected[1] != null)
                 problemRef = new DsProblemRef("Recently contributed test failure");
 
-            if (statForProblemsDetection.isFlaky()
-                    && statForProblemsDetection.detectTemplate(EventTemplates.newFailureForFlakyTest) != null)
+            if (statForProblemsDetection.isFlaky() && detected[2] != null)
                 problemRef = new DsProblemRef("New failure of flaky test");
         }
     }
@@ -16,6 +16,8 @@
  */
 package org.apache.ignite.tcbot.persistence;
 
+import java.util.Collection;
+
 /**
  *
  */
@@ -36,4 +38,20 @@ public interface IStringCompactor {
      * @param val Value to check in the compactor.
      */
     public Integer getStringIdIfPresent(String val);
+
+    /**
+     * Bulk version of {@link #getStringFromId(int)}.
+     *
+     * @param ids IDs of strings.
+     * @return Array of strings, element at position <code>i</code> corresponds to <code>ids[i]</code>.
+     */
+    public String[] getStringsFromIds(int[] ids);
+
+    /**
+     * Bulk version of {@link #getStringId(String)}, new IDs are assigned for unknown strings.
+     *
+     * @param vals Values to be identified as integers.
+     * @return Array of IDs in the collection iteration order.
+     */
+    public int[] getStringIds(Collection<String> vals);
 }
@@ -16,10 +16,15 @@
  */
 package org.apache.ignite.tcbot.persistence;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.concurrent.GuardedBy;
 import javax.cache.Cache;
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -28,11 +33,11 @@ import org.apache.ignite.IgniteAtomicSequence;
 import org.apache.ignite.IgniteCache;
 import org.apache.ignite.cache.QueryEntity;
 import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.cache.query.ScanQuery;
 import org.apache.ignite.cache.query.SqlQuery;
+import org.apache.ignite.ci.teamcity.ignited.IgniteStringCompactor.CompactorEntity;
 import org.apache.ignite.tcbot.common.interceptor.AutoProfiling;
 import org.apache.ignite.tcbot.common.exeption.ExceptionUtil;
-import org.apache.ignite.tcbot.common.interceptor.GuavaCached;
-import org.apache.ignite.tcbot.common.util.ObjectInterner;
 import org.apache.ignite.configuration.CacheConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,15 +55,29 @@ public class IgniteStringCompactor implements IStringCompactor {
     /** Strings sequence. */
     private static final String STRINGS_SEQ = "stringsSeq";
 
+    /** Count of IDs reserved from the sequence at once. */
+    private static final int ID_BLOCK_SIZE = 1000;
+
     /** Ignite provider. */
     @Inject private Provider<Ignite> igniteProvider;
 
     /** Builds cache. */
-    private IgniteCache<String, org.apache.ignite.ci.teamcity.ignited.IgniteStringCompactor.CompactorEntity> stringsCache;
+    private IgniteCache<String, CompactorEntity> stringsCache;
 
     /** Sequence. */
     private IgniteAtomicSequence seq;
 
+    /** In-memory copy of strings cache, provides both id to string and string to id lookups. */
+    private final StringDictionary dict = new StringDictionary();
+
+    /** Next ID to be assigned from currently reserved block. */
+    @GuardedBy("this")
+    private long nextId;
+
+    /** Upper bound (exclusive) of currently reserved block of IDs. */
+    @GuardedBy("this")
+    private long blockEnd;
+
     private void initIfNeeded() {
         if (initGuard.compareAndSet(false, true)) {
             init();
@@ -80,48 +99,108 @@ public class IgniteStringCompactor implements IStringCompactor {
      */
     public void init() {
         Ignite ignite = igniteProvider.get();
-        CacheConfiguration<String, org.apache.ignite.ci.teamcity.ignited.IgniteStringCompactor.CompactorEntity> cfg = CacheConfigs.getCache8PartsConfig(STRINGS_CACHE);
+        CacheConfiguration<String, CompactorEntity> cfg = CacheConfigs.getCache8PartsConfig(STRINGS_CACHE);
 
-        cfg.setQueryEntities(Collections.singletonList(new QueryEntity(String.class, org.apache.ignite.ci.teamcity.ignited.IgniteStringCompactor.CompactorEntity.class)));
+        cfg.setQueryEntities(Collections.singletonList(new QueryEntity(String.class, CompactorEntity.class)));
 
         stringsCache = ignite.getOrCreateCache(cfg);
 
         seq = ignite.atomicSequence(STRINGS_SEQ, 0, true);
+
+        warmUp();
+    }
+
+    /**
+     * Loads all persisted strings into the in-memory dictionary using single pass over the cache.
+     */
+    private void warmUp() {
+        long start = System.currentTimeMillis();
+
+        try (QueryCursor<Cache.Entry<String, CompactorEntity>> qry = stringsCache.query(new ScanQuery<>())) {
+            for (Cache.Entry<String, CompactorEntity> next : qry) {
+                CompactorEntity entity = next.getValue();
+
+                dict.put(entity.id(), entity.val());
+            }
+        }
+
+        logger.info("Strings dictionary loaded: " + dict.size() + " entries in "
+            + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * @return ID which was never returned before, IDs are reserved from the sequence by blocks.
+     */
+    private synchronized int nextId() {
+        if (nextId >= blockEnd) {
+            long prev = seq.getAndAdd(ID_BLOCK_SIZE);
+
+            nextId = prev + 1;
+            blockEnd = prev + ID_BLOCK_SIZE + 1;
+        }
+
+        return (int)nextId++;
     }
 
     /** {@inheritDoc} */
     @AutoProfiling
-    @GuavaCached(cacheNegativeNumbersRval = false)
     @Override public int getStringId(String val) {
         if (val == null)
             return STRING_NULL;
 
+        int id = dict.getId(val);
+        if (id >= 0)
+            return id;
+
         initIfNeeded();
 
-        org.apache.ignite.ci.teamcity.ignited.IgniteStringCompactor.CompactorEntity entity = stringsCache.get(val);
+        CompactorEntity entity = stringsCache.get(val);
         if (entity != null)
-            return entity.id();
+            return register(entity);
 
-        int codeCandidate = (int)seq.incrementAndGet();
+        int codeCandidate = nextId();
 
-        boolean valWasSet = stringsCache.putIfAbsent(val, new org.apache.ignite.ci.teamcity.ignited.IgniteStringCompactor.CompactorEntity(codeCandidate, val));
+        boolean valWasSet = stringsCache.putIfAbsent(val, new CompactorEntity(codeCandidate, val));
 
-        return valWasSet ? codeCandidate : stringsCache.get(val).id();
+        if (valWasSet) {
+            dict.put(codeCandidate, val);
+
+            return codeCandidate;
+        }
+
+        return register(stringsCache.get(val));
+    }
+
+    /**
+     * @param entity Persisted entity.
+     * @return ID of the string.
+     */
+    private int register(CompactorEntity entity) {
+        dict.put(entity.id(), entity.val());
+
+        return entity.id();
     }
 
     /** {@inheritDoc} */
     @AutoProfiling
-    @GuavaCached(cacheNullRval = false)
     @Override public String getStringFromId(int id) {
         if (id < 0)
             return null;
 
+        String val = dict.get(id);
+        if (val != null)
+            return val;
+
         initIfNeeded();
 
-        QueryCursor<Cache.Entry<String, org.apache.ignite.ci.teamcity.ignited.IgniteStringCompactor.CompactorEntity>> qryCursor
-            = stringsCache.query(new SqlQuery<String, org.apache.ignite.ci.teamcity.ignited.IgniteStringCompactor.CompactorEntity>(org.apache.ignite.ci.teamcity.ignited.IgniteStringCompactor.CompactorEntity.class, "id = ?").setArgs(id));
+        val = dict.get(id);
+        if (val != null)
+            return val;
 
-        Iterator<Cache.Entry<String, org.apache.ignite.ci.teamcity.ignited.IgniteStringCompactor.CompactorEntity>> iter = qryCursor.iterator();
+        QueryCursor<Cache.Entry<String, CompactorEntity>> qryCursor
+            = stringsCache.query(new SqlQuery<String, CompactorEntity>(CompactorEntity.class, "id = ?").setArgs(id));
+
+        Iterator<Cache.Entry<String, CompactorEntity>> iter = qryCursor.iterator();
 
         if (!iter.hasNext()) {
             System.err.println("Error: String Not found string by id " + id);
@@ -129,26 +208,87 @@ public class IgniteStringCompactor implements IStringCompactor {
             return null;
         }
 
-        Cache.Entry<String, org.apache.ignite.ci.teamcity.ignited.IgniteStringCompactor.CompactorEntity> next = iter.next();
+        Cache.Entry<String, CompactorEntity> next = iter.next();
 
         qryCursor.close();
 
-        return ObjectInterner.internString(next.getValue().val());
+        return dict.put(id, next.getValue().val());
     }
 
     /** {@inheritDoc} */
-    @GuavaCached(cacheNullRval = false, cacheNegativeNumbersRval = false)
     @Override public Integer getStringIdIfPresent(String val) {
         if (val == null)
             return -1;
 
+        int id = dict.getId(val);
+        if (id >= 0)
+            return id;
+
         initIfNeeded();
 
-        org.apache.ignite.ci.teamcity.ignited.IgniteStringCompactor.CompactorEntity entity = stringsCache.get(val);
+        CompactorEntity entity = stringsCache.get(val);
 
         if (entity != null)
-            return entity.id();
+            return register(entity);
 
         return null;
     }
+
+    /** {@inheritDoc} */
+    @AutoProfiling
+    @Override public String[] getStringsFromIds(int[] ids) {
+        initIfNeeded();
+
+        String[] res = new String[ids.length];
+
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i];
+
+            if (id < 0)
+                continue;
+
+            String val = dict.get(id);
+
+            res[i] = val != null ? val : getStringFromId(id);
+        }
+
+        return res;
+    }
+
+    /** {@inheritDoc} */
+    @AutoProfiling
+    @Override public int[] getStringIds(Collection<String> vals) {
+        initIfNeeded();
+
+        int[] res = new int[vals.size()];
+        Set<String> missing = new HashSet<>();
+        int i = 0;
+
+        for (String val : vals) {
+            int id = val == null ? STRING_NULL : dict.getId(val);
+
+            if (id < 0 && val != null)
+                missing.add(val);
+
+            res[i++] = id;
+        }
+
+        if (missing.isEmpty())
+            return res;
+
+        Map<String, CompactorEntity> persisted = stringsCache.getAll(missing);
+
+        persisted.values().forEach(this::register);
+        missing.removeAll(persisted.keySet());
+
+        i = 0;
+        for (String val : vals) {
+            if (val != null && res[i] < 0)
+                res[i] = missing.contains(val) ? getStringId(val) : dict.getId(val);
+
+            i++;
+        }
+
+        return res;
+    }
 }
@@ -16,6 +16,7 @@
  */
 package org.apache.ignite.tcbot.persistence;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -92,4 +93,25 @@ public class InMemoryStringCompactor implements IStringCompactor {
 
         return id;
     }
+
+    /** {@inheritDoc} */
+    @Override public String[] getStringsFromIds(int[] ids) {
+        String[] res = new String[ids.length];
+
+        for (int i = 0; i < ids.length; i++)
+            res[i] = getStringFromId(ids[i]);
+
+        return res;
+    }
+
+    /** {@inheritDoc} */
+    @Override public int[] getStringIds(Collection<String> vals) {
+        int[] res = new int[vals.size()];
+        int i = 0;
+
+        for (String val : vals)
+            res[i++] = getStringId(val);
+
+        return res;
+    }
 }
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcbot.persistence;
+
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Bidirectional in-memory dictionary of strings interned by {@link IStringCompactor}. Ids are dense and allocated from
+ * a sequence, so id to string mapping is a plain array indexed by ID, and string to id mapping is an open addressing
+ * table of IDs. Both directions are primitive-keyed, no boxing is needed for lookups.
+ *
+ * Writes are serialized, reads are lock-free. A read racing with a write may miss a just added entry, callers should
+ * treat a miss as 'unknown' and fall back to the persistent storage.
+ */
+public class StringDictionary {
+    /** Initial capacity of ID to string array. */
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    /** Maximum array size supported by JVMs. */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /** Empty slot marker in {@link #strToId}. */
+    private static final int EMPTY = 0;
+
+    /** String value by its ID. */
+    private volatile String[] idToStr = new String[INITIAL_CAPACITY];
+
+    /** Open addressing hash table, stores {@code id + 1} of the string, {@link #EMPTY} for free slots. */
+    private volatile int[] strToId = new int[INITIAL_CAPACITY * 2];
+
+    /** Count of strings stored. */
+    @GuardedBy("this")
+    private int size;
+
+    /**
+     * @param id String ID.
+     * @return String value or {@code null} if ID is unknown to the dictionary.
+     */
+    @Nullable public String get(int id) {
+        if (id < 0)
+            return null;
+
+        String[] arr = idToStr;
+
+        return id < arr.length ? arr[id] : null;
+    }
+
+    /**
+     * @param val String value.
+     * @return ID of the string or {@link IStringCompactor#STRING_NULL} if string is unknown to the dictionary.
+     */
+    public int getId(String val) {
+        if (val == null)
+            return IStringCompactor.STRING_NULL;
+
+        int[] tbl = strToId;
+        int mask = tbl.length - 1;
+
+        for (int slot = hash(val) & mask; ; slot = (slot + 1) & mask) {
+            int idPlusOne = tbl[slot];
+
+            if (idPlusOne == EMPTY)
+                return IStringCompactor.STRING_NULL;
+
+            int id = idPlusOne - 1;
+
+            if (val.equals(get(id)))
+                return id;
+        }
+    }
+
+    /**
+     * Registers string with its ID. Re-registering the same pair is no-op.
+     *
+     * @param id String ID, non-negative.
+     * @param val String value.
+     * @return Canonical instance of the string stored in the dictionary.
+     */
+    public synchronized String put(int id, String val) {
+        assert id >= 0 : id;
+
+        String exist = get(id);
+
+        if (exist != null)
+            return exist;
+
+        String[] arr = idToStr;
+
+        if (id >= arr.length) {
+            long newLen = Math.max(arr.length * 2L, id + 1L);
+
+            arr = Arrays.copyOf(arr, (int)Math.min(newLen, MAX_ARRAY_SIZE));
+
+            idToStr = arr;
+        }
+
+        arr[id] = val;
+
+        if ((size + 1) * 2 > strToId.length)
+            strToId = rehash(strToId.length * 2);
+
+        insert(strToId, id, val);
+
+        size++;
+
+        return val;
+    }
+
+    /**
+     * @return Count of strings stored.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param capacity New table capacity, power of 2.
+     */
+    @GuardedBy("this")
+    private int[] rehash(int capacity) {
+        int[] tbl = new int[capacity];
+        int[] old = strToId;
+
+        for (int idPlusOne : old) {
+            if (idPlusOne != EMPTY)
+                insert(tbl, idPlusOne - 1, idToStr[idPlusOne - 1]);
+        }
+
+        return tbl;
+    }
+
+    /**
+     * @param tbl Table.
+     * @param id Id.
+     * @param val Value.
+     */
+    private static void insert(int[] tbl, int id, String val) {
+        int mask = tbl.length - 1;
+        int slot = hash(val) & mask;
+
+        while (tbl[slot] != EMPTY)
+            slot = (slot + 1) & mask;
+
+        tbl[slot] = id + 1;
+    }
+
+    /**
+     * @param val Value.
+     */
+    private static int hash(String val) {
+        int h = val.hashCode();
+
+        return h ^ (h >>> 16);
+    }
+}
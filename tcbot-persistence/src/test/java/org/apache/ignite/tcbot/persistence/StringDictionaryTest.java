@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcbot.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test for strings dictionary.
+ */
+public class StringDictionaryTest {
+    /** Count of strings, greater than initial capacity of the dictionary, so tables are grown several times. */
+    private static final int CNT = 10_000;
+
+    @Test
+    public void testGrowthPastInitialCapacity() {
+        StringDictionary dict = new StringDictionary();
+
+        for (int id = 0; id < CNT; id++)
+            dict.put(id, str(id));
+
+        assertEquals(CNT, dict.size());
+
+        for (int id = 0; id < CNT; id++) {
+            assertEquals(str(id), dict.get(id));
+            assertEquals(id, dict.getId(str(id)));
+        }
+    }
+
+    @Test
+    public void testSparseIdsAndCollidingHashes() {
+        StringDictionary dict = new StringDictionary();
+
+        // "Aa" and "BB" have the same hash code.
+        dict.put(1, "Aa");
+        dict.put(100_000, "BB");
+
+        assertEquals("Aa", dict.get(1));
+        assertEquals("BB", dict.get(100_000));
+        assertEquals(1, dict.getId("Aa"));
+        assertEquals(100_000, dict.getId("BB"));
+        assertNull(dict.get(99_999));
+        assertEquals(2, dict.size());
+    }
+
+    @Test
+    public void testUnknownAndNegativeIds() {
+        StringDictionary dict = new StringDictionary();
+
+        dict.put(0, str(0));
+
+        assertNull(dict.get(-1));
+        assertNull(dict.get(Integer.MIN_VALUE));
+        assertNull(dict.get(1));
+        assertNull(dict.get(Integer.MAX_VALUE));
+
+        assertEquals(IStringCompactor.STRING_NULL, dict.getId(str(1)));
+        assertEquals(IStringCompactor.STRING_NULL, dict.getId(null));
+    }
+
+    @Test
+    public void testPutOfKnownIdReturnsCanonicalString() {
+        StringDictionary dict = new StringDictionary();
+
+        String val = str(42);
+
+        assertSame(val, dict.put(42, val));
+        assertSame(val, dict.put(42, new String(val)));
+        assertEquals(1, dict.size());
+    }
+
+    @Test
+    public void testConcurrentPutAndGet() throws Exception {
+        StringDictionary dict = new StringDictionary();
+
+        int writers = 4;
+        int readers = 4;
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers + readers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writersDone = new AtomicBoolean();
+
+        try {
+            List<Future<?>> writeFuts = new ArrayList<>();
+
+            for (int w = 0; w < writers; w++) {
+                int first = w;
+
+                writeFuts.add(pool.submit(() -> {
+                    start.await();
+
+                    for (int id = first; id < CNT; id += writers)
+                        assertEquals(str(id), dict.put(id, str(id)));
+
+                    return null;
+                }));
+            }
+
+            List<Future<?>> readFuts = new ArrayList<>();
+
+            for (int r = 0; r < readers; r++) {
+                readFuts.add(pool.submit(() -> {
+                    start.await();
+
+                    // Entry may be missed while being added, but should never be mapped to a wrong ID or string.
+                    while (!writersDone.get()) {
+                        for (int id = 0; id < CNT; id++) {
+                            String val = dict.get(id);
+
+                            if (val != null)
+                                assertEquals(str(id), val);
+
+                            int foundId = dict.getId(str(id));
+
+                            if (foundId != IStringCompactor.STRING_NULL)
+                                assertEquals(id, foundId);
+                        }
+                    }
+
+                    return null;
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<?> fut : writeFuts)
+                fut.get(1, TimeUnit.MINUTES);
+
+            writersDone.set(true);
+
+            for (Future<?> fut : readFuts)
+                fut.get(1, TimeUnit.MINUTES);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(CNT, dict.size());
+
+        for (int id = 0; id < CNT; id++)
+            assertEquals(id, dict.getId(str(id)));
+
+        assertNull(dict.get(CNT));
+    }
+
+    /**
+     * @param id String ID.
+     */
+    private static String str(int id) {
+        return "string" + id;
+    }
+}
@@ -33,20 +33,25 @@ import static org.apache.ignite.tcservice.model.hist.BuildRef.STATUS_UNKNOWN;
 
 @Persisted
 public class BuildRefCompacted {
+    /** Name of index by branch name and build type ID. */
+    public static final String BRANCH_SUITE_IDX = "branchSuite";
+
     /** Build Id without modifications, -1 if it is null. */
     private int id = -1;
 
     /** Compacter identifier for string 'Build type id'. */
+    @QuerySqlField(orderedGroups = {@QuerySqlField.Group(name = BRANCH_SUITE_IDX, order = 1)})
     private int buildTypeId = -1;
 
     /** Compacter identifier for string 'Branch name'. */
-    @QuerySqlField(index = true)
+    @QuerySqlField(index = true, orderedGroups = {@QuerySqlField.Group(name = BRANCH_SUITE_IDX, order = 0)})
     private int branchName = -1;
 
     /** Compacter identifier for string 'Status'. */
     private int status = -1;
 
     /** Compacter identifier for string 'State'. */
+    @QuerySqlField(index = true)
     private int state = -1;
 
     /** Status Unknown: Compactor identifier. */
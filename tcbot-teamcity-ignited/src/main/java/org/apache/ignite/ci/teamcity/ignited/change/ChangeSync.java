@@ -22,6 +22,7 @@ import org.apache.ignite.tcservice.model.changes.Change;
 import org.apache.ignite.tcbot.persistence.IStringCompactor;
 import org.apache.ignite.tcservice.ITeamcityConn;
 import org.apache.ignite.tcbot.common.exeption.ExceptionUtil;
+import org.apache.ignite.tcignited.pool.TcRequestsPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXParseException;
@@ -29,8 +30,21 @@ import org.xml.sax.SAXParseException;
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 public class ChangeSync {
+    /** Max count of changes requested concurrently, shared requests pool is used also for builds loading. */
+    public static final int MAX_CHANGES_IN_FLIGHT = 8;
+
     /** Logger. */
     private static final Logger logger = LoggerFactory.getLogger(ChangeSync.class);
 
@@ -39,6 +53,15 @@ public class ChangeSync {
 
     @Inject private IStringCompactor compactor;
 
+    /** Pool for changes batch reload requests. */
+    @Inject private TcRequestsPool requestsPool;
+
+    /** Permits for change requests in flight. */
+    private final Semaphore changesInFlight = new Semaphore(MAX_CHANGES_IN_FLIGHT);
+
+    /** Change requests waiting for a permit. */
+    private final Queue<Runnable> pendingRequests = new ConcurrentLinkedQueue<>();
+
     public ChangeCompacted change(int srvId, int changeId, ITeamcityConn conn) {
         final ChangeCompacted load = changeDao.load(srvId, changeId);
 
@@ -48,9 +71,156 @@ public class ChangeSync {
         return reloadChange(srvId, changeId, conn);
     }
 
+    /**
+     * Checks persisted changes with one batch request.
+     *
+     * @param srvId Server id.
+     * @param changeIds Change IDs.
+     * @return IDs of changes absent or outdated in the DB, these changes should be reloaded from the server.
+     */
+    @AutoProfiling
+    public int[] changesToReload(int srvId, int[] changeIds) {
+        if (changeIds.length == 0)
+            return changeIds;
+
+        Map<Integer, ChangeCompacted> existing = changeDao.getAll(srvId, changeIds);
+
+        return Arrays.stream(changeIds)
+            .filter(changeId -> {
+                ChangeCompacted load = existing.get(changeId);
+
+                return load == null || load.isOutdatedEntityVersion();
+            })
+            .toArray();
+    }
+
     @Nonnull
     @AutoProfiling
     public ChangeCompacted reloadChange(int srvId, int changeId, ITeamcityConn conn) {
+        final ChangeCompacted changeCompacted = loadChange(changeId, conn);
+
+        changeDao.save(srvId, changeId, changeCompacted);
+
+        return changeCompacted;
+    }
+
+    /**
+     * Reloads changes from the server, see {@link #reloadChangesAsync(int, int[], ITeamcityConn)}.
+     *
+     * @param srvId Server id.
+     * @param changeIds Change IDs to reload.
+     * @param conn Connection.
+     * @return Map from change ID to change reloaded, changes failed to load are logged and not included.
+     */
+    @AutoProfiling
+    public Map<Integer, ChangeCompacted> reloadChanges(int srvId, int[] changeIds, ITeamcityConn conn) {
+        return reloadChangesAsync(srvId, changeIds, conn).join();
+    }
+
+    /**
+     * Reloads changes from the server with bounded number of concurrent requests, limit is shared by all callers.
+     * Requests exceeding the limit are queued, so caller thread is not blocked. All changes loaded are saved with one
+     * batch update even if some requests failed.
+     *
+     * @param srvId Server id.
+     * @param changeIds Change IDs to reload.
+     * @param conn Connection.
+     * @return Future for map from change ID to change reloaded, changes failed to load are logged and not included.
+     */
+    public CompletableFuture<Map<Integer, ChangeCompacted>> reloadChangesAsync(int srvId, int[] changeIds,
+        ITeamcityConn conn) {
+        if (changeIds.length == 0)
+            return CompletableFuture.completedFuture(new HashMap<>());
+
+        Map<Integer, CompletableFuture<ChangeCompacted>> futs = new LinkedHashMap<>();
+
+        for (int changeId : changeIds) {
+            CompletableFuture<ChangeCompacted> fut = new CompletableFuture<>();
+
+            futs.put(changeId, fut);
+
+            pendingRequests.add(() -> {
+                try {
+                    fut.complete(loadChange(changeId, conn));
+                }
+                catch (Throwable e) {
+                    fut.completeExceptionally(e);
+                }
+            });
+        }
+
+        startPendingRequests();
+
+        return CompletableFuture.allOf(futs.values().toArray(new CompletableFuture<?>[0])).handle((v, err) -> {
+            Map<Integer, ChangeCompacted> res = new HashMap<>();
+
+            // Changes loaded successfully are saved even if some requests failed.
+            futs.forEach((changeId, fut) -> {
+                try {
+                    res.put(changeId, fut.join());
+                }
+                catch (CompletionException e) {
+                    logger.error("Loading changeId [" + changeId + "] for server [" + conn.serverCode() + "] failed: "
+                        + e.getCause().getMessage(), e.getCause());
+                }
+            });
+
+            saveChanges(srvId, res);
+
+            return res;
+        });
+    }
+
+    /**
+     * Submits queued change requests to the requests pool while permits are available. Called on enqueue and on
+     * completion of each request, so queued requests are not left behind.
+     */
+    private void startPendingRequests() {
+        while (!pendingRequests.isEmpty() && changesInFlight.tryAcquire()) {
+            Runnable req = pendingRequests.poll();
+
+            if (req == null) {
+                changesInFlight.release();
+
+                continue;
+            }
+
+            try {
+                requestsPool.getService().execute(() -> {
+                    try {
+                        req.run();
+                    }
+                    finally {
+                        changesInFlight.release();
+
+                        startPendingRequests();
+                    }
+                });
+            }
+            catch (RejectedExecutionException e) {
+                changesInFlight.release();
+
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @param srvId Server id.
+     * @param changes Changes loaded, by change ID.
+     */
+    public void saveChanges(int srvId, Map<Integer, ChangeCompacted> changes) {
+        changeDao.saveAll(srvId, changes);
+    }
+
+    /**
+     * Requests change from the server, change is not saved.
+     *
+     * @param changeId Change id.
+     * @param conn Connection.
+     */
+    @Nonnull
+    public ChangeCompacted loadChange(int changeId, ITeamcityConn conn) {
         Change change;
         try {
             change = conn.getChange(changeId);
@@ -69,10 +239,6 @@ public class ChangeSync {
                 throw ExceptionUtil.propagateException(e);
         }
 
-        final ChangeCompacted changeCompacted = new ChangeCompacted(compactor, change);
-
-        changeDao.save(srvId, changeId, changeCompacted);
-
-        return changeCompacted;
+        return new ChangeCompacted(compactor, change);
     }
 }
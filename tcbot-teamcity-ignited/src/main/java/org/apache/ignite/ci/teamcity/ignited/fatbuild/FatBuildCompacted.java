@@ -22,6 +22,7 @@ import com.google.common.base.Strings;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -381,6 +382,21 @@ public class FatBuildCompacted extends BuildRefCompacted implements IVersionedEn
         return this;
     }
 
+    /**
+     * @param compactedTests Tests already compacted.
+     */
+    public FatBuildCompacted addCompactedTests(Collection<? extends ITest> compactedTests) {
+        if (compactedTests.isEmpty())
+            return this;
+
+        if (testsV2 == null)
+            testsV2 = new ArrayList<>(compactedTests.size());
+
+        testsV2.addAll(compactedTests);
+
+        return this;
+    }
+
     /**
      * @param off Offset.
      * @param val Value.
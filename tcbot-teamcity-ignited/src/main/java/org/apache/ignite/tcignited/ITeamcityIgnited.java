@@ -35,6 +35,7 @@ import org.apache.ignite.ci.teamcity.ignited.change.RevisionCompacted;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
 import org.apache.ignite.internal.util.typedef.T2;
 import org.apache.ignite.tcbot.common.conf.ITcServerConfig;
+import org.apache.ignite.tcignited.agent.AgentsSnapshot;
 import org.apache.ignite.tcignited.history.IRunHistory;
 import org.apache.ignite.tcignited.history.ISuiteRunHistory;
 import org.apache.ignite.tcservice.model.agent.Agent;
@@ -164,6 +165,16 @@ public interface ITeamcityIgnited {
      */
     public FatBuildCompacted getFatBuild(int id, SyncMode mode);
 
+    /**
+     * Bulk read of builds already saved, which can be used as is in provided refresh mode. Builds absent in result
+     * should be requested using {@link #getFatBuild(int, SyncMode)}.
+     *
+     * @param ids Build IDs.
+     * @param mode Refresh mode.
+     * @return Map from build ID to build, which does not require reload.
+     */
+    public Map<Integer, FatBuildCompacted> getFatBuildsIfActual(Collection<Integer> ids, SyncMode mode);
+
     public Collection<ChangeCompacted> getAllChanges(int[] changeIds);
 
     /**
@@ -226,6 +237,14 @@ public interface ITeamcityIgnited {
      */
     public List<Agent> agents(boolean connected, boolean authorized);
 
+    /**
+     * Get statistics of connected and authorized agents. Agents are refreshed periodically in background, so snapshot
+     * may be several minutes old.
+     *
+     * @return Latest agents snapshot.
+     */
+    public AgentsSnapshot agentsSnapshot();
+
     /**
      * @param build Build.
      */
@@ -19,10 +19,12 @@ package org.apache.ignite.tcignited;
 import java.io.File;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -55,6 +57,9 @@ import org.apache.ignite.tcbot.common.interceptor.GuavaCached;
 import org.apache.ignite.tcbot.common.interceptor.MonitoredTask;
 import org.apache.ignite.tcbot.persistence.IStringCompactor;
 import org.apache.ignite.tcbot.persistence.scheduler.IScheduler;
+import org.apache.ignite.tcignited.agent.AgentDao;
+import org.apache.ignite.tcignited.agent.AgentSync;
+import org.apache.ignite.tcignited.agent.AgentsSnapshot;
 import org.apache.ignite.tcignited.build.FatBuildDao;
 import org.apache.ignite.tcignited.build.ProactiveFatBuildSync;
 import org.apache.ignite.tcignited.buildlog.BuildLogCheckResultDao;
@@ -122,6 +127,12 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
     /** Mute Sync. */
     @Inject private MuteSync muteSync;
 
+    /** Agent DAO. */
+    @Inject private AgentDao agentDao;
+
+    /** Agent Sync. */
+    @Inject private AgentSync agentSync;
+
     /** Changes DAO. */
     @Inject private ChangeDao changesDao;
 
@@ -170,6 +181,7 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
         changesDao.init();
         buildStartTimeStorage.init();
         muteDao.init();
+        agentDao.init();
         logCheckResDao.init();
         histDao.init();
     }
@@ -477,6 +489,11 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
         return conn.agents(connected, authorized);
     }
 
+    /** {@inheritDoc} */
+    @Override public AgentsSnapshot agentsSnapshot() {
+        return agentSync.agentsSnapshot(taskName("actualizeAgents"), srvIdMaskHigh, conn);
+    }
+
     @Nullable
     @Override
     public File downloadAndCacheBuildLog(int buildId) {
@@ -618,6 +635,27 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
         return savedVer;
     }
 
+    /** {@inheritDoc} */
+    @AutoProfiling
+    @Override public Map<Integer, FatBuildCompacted> getFatBuildsIfActual(Collection<Integer> ids, SyncMode mode) {
+        ensureActualizeRequested();
+
+        Map<Integer, FatBuildCompacted> res = new HashMap<>();
+
+        fatBuildDao.getAllFatBuilds(srvIdMaskHigh, ids).forEach((key, build) -> {
+            if (mode != SyncMode.NONE) {
+                if (fatBuildSync.isReloadRequired(build, mode))
+                    return;
+
+                fatBuildDao.runTestMigrationIfNeeded(srvIdMaskHigh, build);
+            }
+
+            res.put(BuildRefDao.cacheKeyToBuildId(key), build);
+        });
+
+        return res;
+    }
+
     protected FatBuildCompacted getFatBuildFromIgnite(int buildId) {
         ensureActualizeRequested();
 
@@ -629,13 +667,9 @@ public class TeamcityIgnitedImpl implements ITeamcityIgnited {
     @Override public Collection<ChangeCompacted> getAllChanges(int[] changeIds) {
         final Map<Integer, ChangeCompacted> changes = changesDao.getAll(srvIdMaskHigh, changeIds);
 
-        for (int changeId : changeIds) {
-            if (!changes.containsKey(changeId)) {
-                final ChangeCompacted change = changeSync.reloadChange(srvIdMaskHigh, changeId, conn);
+        int[] missing = Arrays.stream(changeIds).filter(changeId -> !changes.containsKey(changeId)).toArray();
 
-                changes.put(changeId, change);
-            }
-        }
+        changes.putAll(changeSync.reloadChanges(srvIdMaskHigh, missing, conn));
 
         return changes.values();
     }
@@ -19,6 +19,8 @@ package org.apache.ignite.tcignited;
 import com.google.inject.AbstractModule;
 import com.google.inject.internal.SingletonScope;
 import org.apache.ignite.ci.teamcity.ignited.buildcondition.BuildConditionDao;
+import org.apache.ignite.tcignited.agent.AgentDao;
+import org.apache.ignite.tcignited.agent.AgentSync;
 import org.apache.ignite.tcignited.build.UpdateCountersStorage;
 import org.apache.ignite.tcignited.buildlog.BuildLogCheckResultDao;
 import org.apache.ignite.tcignited.buildlog.ILogProductSpecific;
@@ -31,13 +33,16 @@ import org.apache.ignite.ci.teamcity.ignited.buildtype.BuildTypeSync;
 import org.apache.ignite.ci.teamcity.ignited.change.ChangeDao;
 import org.apache.ignite.ci.teamcity.ignited.change.ChangeSync;
 import org.apache.ignite.tcignited.build.FatBuildDao;
+import org.apache.ignite.tcignited.build.FatBuildDayIndexDao;
 import org.apache.ignite.tcignited.build.ProactiveFatBuildSync;
+import org.apache.ignite.tcignited.buildtime.BuildTimeAggregator;
 import org.apache.ignite.tcignited.history.HistoryCollector;
 import org.apache.ignite.tcignited.history.SuiteInvocationHistoryDao;
 import org.apache.ignite.tcignited.mute.MuteDao;
 import org.apache.ignite.tcignited.mute.MuteSync;
 import org.apache.ignite.tcignited.buildlog.BuildLogProcessorModule;
 import org.apache.ignite.tcignited.history.BuildStartTimeStorage;
+import org.apache.ignite.tcignited.pool.TcRequestsPool;
 import org.apache.ignite.tcservice.TcRealConnectionModule;
 import org.apache.ignite.tcservice.http.ITeamcityHttpConnection;
 
@@ -58,6 +63,7 @@ public class TeamcityIgnitedModule extends AbstractModule {
         bind(BuildRefSync.class).in(new SingletonScope());
         bind(BuildConditionDao.class).in(new SingletonScope());
         bind(FatBuildDao.class).in(new SingletonScope());
+        bind(FatBuildDayIndexDao.class).in(new SingletonScope());
         bind(ProactiveFatBuildSync.class).in(new SingletonScope());
         bind(ChangeSync.class).in(new SingletonScope());
         bind(ChangeDao.class).in(new SingletonScope());
@@ -67,11 +73,15 @@ public class TeamcityIgnitedModule extends AbstractModule {
         bind(BuildStartTimeStorage.class).in(new SingletonScope());
         bind(MuteDao.class).in(new SingletonScope());
         bind(MuteSync.class).in(new SingletonScope());
+        bind(AgentDao.class).in(new SingletonScope());
+        bind(AgentSync.class).in(new SingletonScope());
         bind(BuildLogCheckResultDao.class).in(new SingletonScope());
         bind(SuiteInvocationHistoryDao.class).in(new SingletonScope());
         bind(HistoryCollector.class).in(new SingletonScope());
         bind(ILogProductSpecific.class).to(LogIgniteSpecific.class).in(new SingletonScope());
         bind(UpdateCountersStorage.class).in(new SingletonScope());
+        bind(BuildTimeAggregator.class).in(new SingletonScope());
+        bind(TcRequestsPool.class).in(new SingletonScope());
 
         TcRealConnectionModule module = new TcRealConnectionModule();
         if (conn != null)
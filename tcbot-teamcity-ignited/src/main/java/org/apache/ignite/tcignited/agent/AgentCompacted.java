@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.agent;
+
+import java.util.Objects;
+import javax.annotation.Nullable;
+import org.apache.ignite.tcbot.persistence.IStringCompactor;
+import org.apache.ignite.tcbot.persistence.Persisted;
+import org.apache.ignite.tcservice.model.Properties;
+import org.apache.ignite.tcservice.model.Property;
+import org.apache.ignite.tcservice.model.agent.Agent;
+import org.apache.ignite.tcservice.model.agent.AgentPoolRef;
+import org.apache.ignite.tcservice.model.agent.AgentRef;
+import org.apache.ignite.tcservice.model.hist.BuildRef;
+
+/**
+ * Agent short info: only fields required for agents statistics are kept, all other properties are dropped.
+ *
+ * @see Agent
+ */
+@Persisted
+public class AgentCompacted {
+    /** Agent property containing OS name. */
+    public static final String OS_NAME_PROPERTY = "teamcity.agent.jvm.os.name";
+
+    /** Agent id. */
+    private int id;
+
+    /** Agent name, compacted string ID. */
+    private int name = -1;
+
+    /** Agent pool name, compacted string ID. */
+    private int poolName = -1;
+
+    /** OS name reported by agent JVM, compacted string ID. */
+    private int osName = -1;
+
+    /** Enabled flag. */
+    private boolean enabled;
+
+    /** ID of the build running on the agent, -1 if agent is idle. */
+    private int runningBuildId = -1;
+
+    /** Timestamp of the last load of agent with all details. */
+    private long fullLoadTs;
+
+    /**
+     * @param agent Agent with all details loaded.
+     * @param comp Compactor.
+     */
+    public AgentCompacted(Agent agent, IStringCompactor comp) {
+        id = agent.getId();
+        name = comp.getStringId(agent.getName());
+        poolName = poolNameId(agent.getPool(), comp);
+        osName = osNameId(agent.getProperties(), comp);
+        enabled = agent.isEnabled();
+        runningBuildId = runningBuildId(agent.getBuild());
+        fullLoadTs = System.currentTimeMillis();
+    }
+
+    /**
+     * Creates agent from state only, details are not known until agent is loaded.
+     *
+     * @param ref Agent reference with actual state.
+     * @param comp Compactor.
+     */
+    public AgentCompacted(AgentRef ref, IStringCompactor comp) {
+        id = ref.getId();
+        name = comp.getStringId(ref.getName());
+        poolName = poolNameId(ref.getPool(), comp);
+        enabled = ref.isEnabled();
+        runningBuildId = runningBuildId(ref.getBuild());
+    }
+
+    /**
+     * Updates fields which may be changed without agent reconnect.
+     *
+     * @param ref Agent reference with actual state.
+     * @param comp Compactor.
+     * @return {@code True} if state was changed and agent should be saved.
+     */
+    public boolean updateState(AgentRef ref, IStringCompactor comp) {
+        int poolName = poolNameId(ref.getPool(), comp);
+        boolean enabled = ref.isEnabled();
+        int runningBuildId = runningBuildId(ref.getBuild());
+
+        if (this.poolName == poolName && this.enabled == enabled && this.runningBuildId == runningBuildId)
+            return false;
+
+        this.poolName = poolName;
+        this.enabled = enabled;
+        this.runningBuildId = runningBuildId;
+
+        return true;
+    }
+
+    /**
+     * @param pool Pool.
+     * @param comp Compactor.
+     */
+    private static int poolNameId(@Nullable AgentPoolRef pool, IStringCompactor comp) {
+        return pool == null || pool.getName() == null ? -1 : comp.getStringId(pool.getName());
+    }
+
+    /**
+     * @param props Agent properties.
+     * @param comp Compactor.
+     */
+    private static int osNameId(@Nullable Properties props, IStringCompactor comp) {
+        if (props == null || props.getProperty() == null)
+            return -1;
+
+        return props.getProperty().stream()
+            .filter(prop -> OS_NAME_PROPERTY.equals(prop.getName()))
+            .map(Property::getValue)
+            .filter(Objects::nonNull)
+            .findAny()
+            .map(comp::getStringId)
+            .orElse(-1);
+    }
+
+    /**
+     * @param build Running build.
+     */
+    private static int runningBuildId(@Nullable BuildRef build) {
+        return build == null || build.getId() == null ? -1 : build.getId();
+    }
+
+    /**
+     * @return Agent ID.
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * @param comp Compactor.
+     * @return Agent name.
+     */
+    public String name(IStringCompactor comp) {
+        return comp.getStringFromId(name);
+    }
+
+    /**
+     * @return Pool name, compacted string ID or -1 if pool is unknown.
+     */
+    public int poolName() {
+        return poolName;
+    }
+
+    /**
+     * @return OS name, compacted string ID or -1 if OS is unknown.
+     */
+    public int osName() {
+        return osName;
+    }
+
+    /**
+     * @return Enabled flag.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return {@code True} if some build is running on the agent.
+     */
+    public boolean isRunning() {
+        return runningBuildId >= 0;
+    }
+
+    /**
+     * @return Timestamp of the last load of agent with all details.
+     */
+    public long fullLoadTs() {
+        return fullLoadTs;
+    }
+
+    /** {@inheritDoc} */
+    @Override public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        AgentCompacted compacted = (AgentCompacted)o;
+        return id == compacted.id &&
+            name == compacted.name &&
+            poolName == compacted.poolName &&
+            osName == compacted.osName &&
+            enabled == compacted.enabled &&
+            runningBuildId == compacted.runningBuildId &&
+            fullLoadTs == compacted.fullLoadTs;
+    }
+
+    /** {@inheritDoc} */
+    @Override public int hashCode() {
+        return Objects.hash(id, name, poolName, osName, enabled, runningBuildId, fullLoadTs);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.agent;
+
+import com.google.common.base.Preconditions;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.cache.Cache;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.cache.query.ScanQuery;
+import org.apache.ignite.internal.util.typedef.F;
+import org.apache.ignite.internal.util.typedef.internal.U;
+import org.apache.ignite.tcbot.common.interceptor.AutoProfiling;
+import org.apache.ignite.tcbot.persistence.CacheConfigs;
+
+/**
+ * Storage of compacted agents, cache key is built from server ID and agent ID.
+ */
+public class AgentDao {
+    /** Cache name. */
+    private static final String TEAMCITY_AGENT_CACHE_NAME = "teamcityAgent";
+
+    /** Ignite provider. */
+    @Inject private Provider<Ignite> igniteProvider;
+
+    /** Agents cache. */
+    private IgniteCache<Long, AgentCompacted> agentCache;
+
+    /**
+     *
+     */
+    public void init() {
+        agentCache = igniteProvider.get().getOrCreateCache(CacheConfigs.getCacheV2Config(TEAMCITY_AGENT_CACHE_NAME));
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @param agentId Agent id.
+     * @return Key from server-agent pair.
+     */
+    private static long agentIdToCacheKey(int srvIdMaskHigh, int agentId) {
+        return (long)agentId | (long)srvIdMaskHigh << 32;
+    }
+
+    /**
+     * @param key Cache key.
+     * @param srvIdMaskHigh Server id mask high.
+     */
+    private static boolean isKeyForServer(Long key, int srvIdMaskHigh) {
+        return key != null && key >> 32 == srvIdMaskHigh;
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @return All agents saved for server, mapped by agent ID.
+     */
+    @AutoProfiling
+    public Map<Integer, AgentCompacted> getAll(int srvIdMaskHigh) {
+        Preconditions.checkNotNull(agentCache, "init() was not called");
+
+        Map<Integer, AgentCompacted> res = new HashMap<>();
+
+        try (QueryCursor<Cache.Entry<Long, AgentCompacted>> qry = agentCache.query(
+            new ScanQuery<Long, AgentCompacted>((key, agent) -> isKeyForServer(key, srvIdMaskHigh)))) {
+            for (Cache.Entry<Long, AgentCompacted> entry : qry)
+                res.put((int)(long)entry.getKey(), entry.getValue());
+        }
+
+        return res;
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @param agents Agents to save.
+     */
+    @AutoProfiling
+    public void saveAll(int srvIdMaskHigh, Collection<AgentCompacted> agents) {
+        Preconditions.checkNotNull(agentCache, "init() was not called");
+
+        if (F.isEmpty(agents))
+            return;
+
+        Map<Long, AgentCompacted> entries = new HashMap<>(U.capacity(agents.size()));
+
+        for (AgentCompacted agent : agents)
+            entries.put(agentIdToCacheKey(srvIdMaskHigh, agent.id()), agent);
+
+        agentCache.putAll(entries);
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @param agentIds Agent IDs to remove.
+     */
+    @AutoProfiling
+    public void removeAll(int srvIdMaskHigh, Collection<Integer> agentIds) {
+        Preconditions.checkNotNull(agentCache, "init() was not called");
+
+        if (F.isEmpty(agentIds))
+            return;
+
+        Set<Long> keys = agentIds.stream()
+            .map(id -> agentIdToCacheKey(srvIdMaskHigh, id))
+            .collect(Collectors.toSet());
+
+        agentCache.removeAll(keys);
+    }
+}
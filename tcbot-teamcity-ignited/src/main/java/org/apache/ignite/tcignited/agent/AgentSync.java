@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.agent;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import org.apache.ignite.tcbot.common.interceptor.MonitoredTask;
+import org.apache.ignite.tcbot.common.util.FutureUtil;
+import org.apache.ignite.tcbot.persistence.IStringCompactor;
+import org.apache.ignite.tcbot.persistence.scheduler.IScheduler;
+import org.apache.ignite.tcignited.pool.TcRequestsPool;
+import org.apache.ignite.tcservice.ITeamcityConn;
+import org.apache.ignite.tcservice.model.agent.Agent;
+import org.apache.ignite.tcservice.model.agent.AgentRef;
+
+/**
+ * Keeps compacted agents of connected servers actual. One list request returns state of all agents; agent details
+ * (properties) are requested only for new agents and agents not reloaded for a long time.
+ */
+public class AgentSync {
+    /** Period of reload of agent with all details, agent properties are almost never changed without reconnect. */
+    public static final long FULL_RELOAD_PERIOD_MS = Duration.ofHours(1).toMillis();
+
+    /** Scheduler. */
+    @Inject private IScheduler scheduler;
+
+    /** Agent DAO. */
+    @Inject private AgentDao agentDao;
+
+    /** Compactor. */
+    @Inject private IStringCompactor compactor;
+
+    /** Pool for loading agents details. */
+    @Inject private TcRequestsPool requestsPool;
+
+    /** Latest agents snapshot, mapped by server ID. */
+    private final ConcurrentMap<Integer, AgentsSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Start named task to refresh agents of the server.
+     *
+     * @param taskName Task name.
+     * @param srvIdMaskHigh Server id mask high.
+     * @param conn TeamCity connection.
+     */
+    public void ensureActualizeAgents(String taskName, int srvIdMaskHigh, ITeamcityConn conn) {
+        scheduler.sheduleNamed(taskName, () -> actualizeAgents(srvIdMaskHigh, conn), 3, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Returns latest agents snapshot. If there is no snapshot yet, agents are refreshed synchronously.
+     *
+     * @param taskName Task name for periodic refresh.
+     * @param srvIdMaskHigh Server id mask high.
+     * @param conn TeamCity connection.
+     */
+    public AgentsSnapshot agentsSnapshot(String taskName, int srvIdMaskHigh, ITeamcityConn conn) {
+        ensureActualizeAgents(taskName, srvIdMaskHigh, conn);
+
+        AgentsSnapshot snapshot = snapshots.get(srvIdMaskHigh);
+
+        if (snapshot != null)
+            return snapshot;
+
+        actualizeAgents(srvIdMaskHigh, conn);
+
+        return snapshots.getOrDefault(srvIdMaskHigh, AgentsSnapshot.EMPTY);
+    }
+
+    /**
+     * Refresh agents of the server: only changed agents are saved.
+     *
+     * @param srvIdMaskHigh Server id mask high.
+     * @param conn TeamCity connection.
+     * @return Message with loading result.
+     */
+    @MonitoredTask(name = "Actualize Agents(srv)", nameExtArgsIndexes = {0})
+    protected synchronized String actualizeAgents(int srvIdMaskHigh, ITeamcityConn conn) {
+        Map<Integer, AgentCompacted> existing = agentDao.getAll(srvIdMaskHigh);
+        List<AgentRef> states = conn.agentsStates(true, true);
+
+        long minFullLoadTs = System.currentTimeMillis() - FULL_RELOAD_PERIOD_MS;
+        Map<Integer, AgentCompacted> actual = new HashMap<>();
+        Map<Integer, AgentCompacted> changed = new HashMap<>();
+        Map<Integer, Future<Agent>> fullLoads = new HashMap<>();
+
+        for (AgentRef ref : states) {
+            Integer id = ref.getId();
+
+            if (id == null)
+                continue;
+
+            AgentCompacted agent = existing.get(id);
+
+            if (agent == null) {
+                // Agent is counted even if its full load fails, details will be loaded by next refresh.
+                agent = new AgentCompacted(ref, compactor);
+
+                changed.put(id, agent);
+            }
+            else if (agent.updateState(ref, compactor))
+                changed.put(id, agent);
+
+            actual.put(id, agent);
+
+            if (agent.fullLoadTs() < minFullLoadTs)
+                fullLoads.put(id, requestsPool.getService().submit(() -> conn.getAgent(id)));
+        }
+
+        int loaded = 0;
+
+        for (Map.Entry<Integer, Future<Agent>> entry : fullLoads.entrySet()) {
+            Agent agent = FutureUtil.getResultSilent(entry.getValue());
+
+            if (agent == null || agent.getId() == null)
+                continue; // previous or state-only version remains actual.
+
+            AgentCompacted compacted = new AgentCompacted(agent, compactor);
+
+            actual.put(entry.getKey(), compacted);
+            changed.put(entry.getKey(), compacted);
+
+            loaded++;
+        }
+
+        agentDao.saveAll(srvIdMaskHigh, changed.values());
+
+        Set<Integer> removed = new HashSet<>(existing.keySet());
+        removed.removeAll(actual.keySet());
+
+        agentDao.removeAll(srvIdMaskHigh, removed);
+
+        snapshots.put(srvIdMaskHigh, new AgentsSnapshot(actual.values(), compactor, System.currentTimeMillis()));
+
+        return "Agents checked " + states.size() + ", loaded " + loaded + ", saved " + changed.size()
+            + ", removed " + removed.size();
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.agent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+import org.apache.ignite.tcbot.persistence.IStringCompactor;
+
+/**
+ * Immutable statistics of connected and authorized agents of one server. Agents are grouped by pool, OS and enabled
+ * flag, and totals are calculated once when snapshot is created.
+ */
+public class AgentsSnapshot {
+    /** Empty snapshot. */
+    public static final AgentsSnapshot EMPTY = new AgentsSnapshot(Collections.emptyList(), null, 0);
+
+    /** Groups of agents. */
+    private final List<AgentsGroup> groups;
+
+    /** Total agents. */
+    private final int total;
+
+    /** Agents with running builds. */
+    private final int running;
+
+    /** Snapshot creation timestamp. */
+    private final long ts;
+
+    /**
+     * @param agents Agents.
+     * @param comp Compactor.
+     * @param ts Snapshot creation timestamp.
+     */
+    public AgentsSnapshot(Collection<AgentCompacted> agents, @Nullable IStringCompactor comp, long ts) {
+        Map<AgentsGroup, AgentsGroup> grouped = new HashMap<>();
+        int running = 0;
+
+        for (AgentCompacted agent : agents) {
+            AgentsGroup key = new AgentsGroup(
+                stringOrEmpty(agent.poolName(), comp),
+                stringOrEmpty(agent.osName(), comp),
+                agent.isEnabled());
+
+            AgentsGroup grp = grouped.computeIfAbsent(key, k -> k);
+
+            grp.total++;
+
+            if (agent.isRunning()) {
+                grp.running++;
+
+                running++;
+            }
+        }
+
+        this.groups = Collections.unmodifiableList(new ArrayList<>(grouped.values()));
+        this.total = agents.size();
+        this.running = running;
+        this.ts = ts;
+    }
+
+    /**
+     * @param id String ID.
+     * @param comp Compactor.
+     */
+    private static String stringOrEmpty(int id, @Nullable IStringCompactor comp) {
+        if (id < 0 || comp == null)
+            return "";
+
+        String val = comp.getStringFromId(id);
+
+        return val == null ? "" : val;
+    }
+
+    /**
+     * @return Total agents.
+     */
+    public int total() {
+        return total;
+    }
+
+    /**
+     * @return Agents with running builds.
+     */
+    public int running() {
+        return running;
+    }
+
+    /**
+     * @param filter Groups filter.
+     * @return Total agents in groups matching filter.
+     */
+    public int total(Predicate<AgentsGroup> filter) {
+        return groups.stream().filter(filter).mapToInt(AgentsGroup::total).sum();
+    }
+
+    /**
+     * @param filter Groups filter.
+     * @return Agents with running builds in groups matching filter.
+     */
+    public int running(Predicate<AgentsGroup> filter) {
+        return groups.stream().filter(filter).mapToInt(AgentsGroup::running).sum();
+    }
+
+    /**
+     * @return Agents grouped by pool, OS and enabled flag.
+     */
+    public List<AgentsGroup> groups() {
+        return groups;
+    }
+
+    /**
+     * @return Snapshot creation timestamp.
+     */
+    public long timestamp() {
+        return ts;
+    }
+
+    /**
+     * Agents having the same pool, OS and enabled flag.
+     */
+    public static class AgentsGroup {
+        /** Pool name, empty if unknown. */
+        private final String pool;
+
+        /** OS name, empty if unknown. */
+        private final String os;
+
+        /** Enabled flag. */
+        private final boolean enabled;
+
+        /** Total agents in group. */
+        private int total;
+
+        /** Agents with running builds in group. */
+        private int running;
+
+        /**
+         * @param pool Pool.
+         * @param os Os.
+         * @param enabled Enabled.
+         */
+        private AgentsGroup(String pool, String os, boolean enabled) {
+            this.pool = pool;
+            this.os = os;
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return Pool name, empty if unknown.
+         */
+        public String pool() {
+            return pool;
+        }
+
+        /**
+         * @return OS name, empty if unknown.
+         */
+        public String os() {
+            return os;
+        }
+
+        /**
+         * @return Enabled flag.
+         */
+        public boolean enabled() {
+            return enabled;
+        }
+
+        /**
+         * @return Total agents in group.
+         */
+        public int total() {
+            return total;
+        }
+
+        /**
+         * @return Agents with running builds in group.
+         */
+        public int running() {
+            return running;
+        }
+
+        /** {@inheritDoc} */
+        @Override public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            AgentsGroup grp = (AgentsGroup)o;
+            return enabled == grp.enabled &&
+                Objects.equals(pool, grp.pool) &&
+                Objects.equals(os, grp.os);
+        }
+
+        /** {@inheritDoc} */
+        @Override public int hashCode() {
+            return Objects.hash(pool, os, enabled);
+        }
+    }
+}
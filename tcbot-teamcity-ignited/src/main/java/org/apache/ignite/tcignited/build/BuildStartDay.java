@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcignited.build;
+
+import org.apache.ignite.cache.query.annotations.QuerySqlField;
+import org.apache.ignite.tcbot.persistence.Persisted;
+
+/**
+ * Day of build start, entry of retention index.
+ */
+@Persisted
+public class BuildStartDay {
+    /** Days since epoch (UTC), 0 for builds without start date. */
+    @QuerySqlField(index = true)
+    private int day;
+
+    /**
+     * @param day Days since epoch.
+     */
+    public BuildStartDay(int day) {
+        this.day = day;
+    }
+
+    /**
+     * @return days since epoch.
+     */
+    public int day() {
+        return day;
+    }
+}
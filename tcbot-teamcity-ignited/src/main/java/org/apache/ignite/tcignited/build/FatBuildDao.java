@@ -21,7 +21,10 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterables;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,6 +32,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -45,22 +53,28 @@ import org.apache.ignite.IgniteCache;
 import org.apache.ignite.binary.BinaryObject;
 import org.apache.ignite.cache.CacheEntryProcessor;
 import org.apache.ignite.cache.affinity.Affinity;
+import org.apache.ignite.cache.query.QueryCursor;
 import org.apache.ignite.cache.query.ScanQuery;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.StatisticsCompacted;
+import org.apache.ignite.internal.util.GridIntList;
+import org.apache.ignite.internal.util.GridLongList;
 import org.apache.ignite.lang.IgniteBiPredicate;
 import org.apache.ignite.lang.IgniteBiTuple;
+import org.apache.ignite.lang.IgniteClosure;
+import org.apache.ignite.lang.IgniteFuture;
+import org.apache.ignite.tcbot.common.exeption.ExceptionUtil;
 import org.apache.ignite.tcbot.common.interceptor.AutoProfiling;
 import org.apache.ignite.tcbot.persistence.CacheConfigs;
 import org.apache.ignite.tcbot.persistence.IStringCompactor;
 import org.apache.ignite.tcignited.buildlog.ILogProductSpecific;
 import org.apache.ignite.tcignited.buildref.BuildRefDao;
-import org.apache.ignite.tcignited.buildtime.BuildTimeResult;
 import org.apache.ignite.tcignited.history.HistoryCollector;
 import org.apache.ignite.tcservice.model.changes.ChangesList;
-import org.apache.ignite.tcservice.model.hist.BuildRef;
 import org.apache.ignite.tcservice.model.result.Build;
 import org.apache.ignite.tcservice.model.result.problems.ProblemOccurrence;
 import org.apache.ignite.tcservice.model.result.stat.Statistics;
+import org.apache.ignite.tcservice.model.result.tests.TestOccurrenceFull;
 import org.apache.ignite.tcservice.model.result.tests.TestOccurrencesFull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -94,12 +108,20 @@ public class FatBuildDao {
     /** Update Counters for branch-related changes storage. */
     @Inject private UpdateCountersStorage countersStorage;
 
+    /** Retention index: build start days. */
+    @Inject private FatBuildDayIndexDao dayIdxDao;
+
+    /** Listeners of builds saved. */
+    private final List<IFatBuildListener> listeners = new CopyOnWriteArrayList<>();
+
     /**
      *
      */
     public FatBuildDao init() {
         buildsCache = igniteProvider.get().getOrCreateCache(CacheConfigs.getCacheV2Config(TEAMCITY_FAT_BUILD_CACHE_NAME));
 
+        dayIdxDao.init();
+
         return this;
     }
 
@@ -125,10 +147,42 @@ public class FatBuildDao {
         Preconditions.checkNotNull(buildsCache, "init() was not called");
         Preconditions.checkNotNull(build, "build can't be null");
 
+        List<ITest> compactedTests = new ArrayList<>();
+
+        for (TestOccurrencesFull next : tests) {
+            for (TestOccurrenceFull occurrence : next.getTests())
+                compactedTests.add(compactTest(occurrence));
+        }
+
+        return saveBuildCompacted(srvIdMaskHigh, buildId, build, compactedTests, problems, statistics, changesList,
+            existingBuild);
+    }
+
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @param buildId Build ID.
+     * @param build Build data.
+     * @param compactedTests Tests already compacted, see {@link #compactTest(TestOccurrenceFull)}.
+     * @param problems Problems.
+     * @param statistics Statistics.
+     * @param changesList Changes.
+     * @param existingBuild existing version of build in the DB.
+     * @return Fat Build saved (if modifications detected), otherwise null.
+     */
+    @Nullable public FatBuildCompacted saveBuildCompacted(int srvIdMaskHigh,
+                                       int buildId,
+                                       @Nonnull Build build,
+                                       @Nonnull List<? extends ITest> compactedTests,
+                                       @Nullable List<ProblemOccurrence> problems,
+                                       @Nullable Statistics statistics,
+                                       @Nullable ChangesList changesList,
+                                       @Nullable FatBuildCompacted existingBuild) {
+        Preconditions.checkNotNull(buildsCache, "init() was not called");
+        Preconditions.checkNotNull(build, "build can't be null");
+
         FatBuildCompacted newBuild = new FatBuildCompacted(compactor, build);
 
-        for (TestOccurrencesFull next : tests)
-            newBuild.addTests(compactor, next.getTests(), logProductSpecific);
+        newBuild.addCompactedTests(compactedTests);
 
         if (problems != null)
             newBuild.addProblems(compactor, problems);
@@ -148,13 +202,41 @@ public class FatBuildDao {
         return null;
     }
 
+    /**
+     * @param occurrence Test occurrence, may be reused by caller after return.
+     * @return Compacted test.
+     */
+    public TestCompactedV2 compactTest(TestOccurrenceFull occurrence) {
+        return new TestCompactedV2(compactor, occurrence, logProductSpecific);
+    }
+
     @AutoProfiling
     public void putFatBuild(int srvIdMaskHigh, int buildId, FatBuildCompacted newBuild) {
-        buildsCache.put(buildIdToCacheKey(srvIdMaskHigh, buildId), newBuild);
+        long key = buildIdToCacheKey(srvIdMaskHigh, buildId);
+
+        buildsCache.put(key, newBuild);
+
+        dayIdxDao.put(key, newBuild.getStartDateTs());
 
         histCollector.invalidateHistoryInMem(srvIdMaskHigh, newBuild);
 
         countersStorage.increment(newBuild.branchName());
+
+        for (IFatBuildListener listener : listeners) {
+            try {
+                listener.onBuildSaved(srvIdMaskHigh, buildId, newBuild);
+            }
+            catch (RuntimeException e) {
+                logger.error("Fat build listener failed for build " + buildId + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * @param listener Listener to be notified about each build saved.
+     */
+    public void addListener(IFatBuildListener listener) {
+        listeners.add(listener);
     }
 
     public static int[] extractChangeIds(@Nonnull ChangesList changesList) {
@@ -258,56 +340,85 @@ public class FatBuildDao {
      * @param ids Ids.
      */
     public Map<Integer, Long> getBuildStartTime(int srvId, Set<Integer> ids) {
+        return getBuildStartTime(srvId, ids, null);
+    }
+
+    /**
+     * Resolves start time of builds: keys are grouped by partition and requests for all partitions are run
+     * concurrently.
+     *
+     * @param srvId Server id.
+     * @param ids Ids.
+     * @param partResConsumer Consumer of results, called in the caller thread for each batch as it completes.
+     * @return Start timestamps of builds found.
+     */
+    @AutoProfiling
+    public Map<Integer, Long> getBuildStartTime(int srvId, Set<Integer> ids,
+        @Nullable Consumer<Map<Integer, Long>> partResConsumer) {
         IgniteCache<Long, BinaryObject> cacheBin = buildsCache.withKeepBinary();
-        Set<Long> keys = buildsIdsToCacheKeys(srvId, ids);
-        HashMap<Integer, Long> res = new HashMap<>();
+        Affinity<Long> affinity = affinity();
 
-        Iterables.partition(keys, MAX_FAT_BUILD_CHUNK).forEach(
-            chunk -> {
-                Map<Long, EntryProcessorResult<Long>> map = cacheBin.invokeAll(keys, new GetStartTimeProc());
-                map.forEach((k, r) -> {
-                    Long ts = r.get();
-                    if (ts != null)
-                        res.put(BuildRefDao.cacheKeyToBuildId(k), ts);
-                });
-            }
-        );
+        Map<Integer, List<Long>> keysByPart = buildsIdsToCacheKeys(srvId, ids).stream()
+            .collect(Collectors.groupingBy(affinity::partition));
 
-        return res;
-    }
+        BlockingQueue<IgniteFuture<Map<Long, EntryProcessorResult<Long>>>> completed = new LinkedBlockingQueue<>();
+        int batches = 0;
 
-    public BuildTimeResult loadBuildTimeResult(int ageDays, List<Long> idsToCheck) {
-        int stateRunning = compactor.getStringId(BuildRef.STATE_RUNNING);
-        Integer buildDurationId = compactor.getStringIdIfPresent(Statistics.BUILD_DURATION);
-        int timeoutProblemCode = compactor.getStringId(ProblemOccurrence.TC_EXECUTION_TIMEOUT);
+        for (List<Long> partKeys : keysByPart.values()) {
+            for (List<Long> chunk : Iterables.partition(partKeys, MAX_FAT_BUILD_CHUNK)) {
+                cacheBin.invokeAllAsync(new TreeSet<>(chunk), new GetStartTimeProc()).listen(completed::add);
 
-        BuildTimeResult res = new BuildTimeResult();
+                batches++;
+            }
+        }
 
-        // also may take affinity into account
-        Iterables.partition(idsToCheck, MAX_FAT_BUILD_CHUNK).forEach(
-                chunk -> {
-                    HashSet<Long> keys = new HashSet<>(chunk);
-                    Map<Long, FatBuildCompacted> all = buildsCache.getAll(keys);
-                    all.forEach((key, build) -> {
-                        if (build.isComposite())
-                            return;
+        Map<Integer, Long> res = new HashMap<>();
 
-                        long runningTime = getBuildRunningTime(stateRunning, buildDurationId, build);
-                        if (runningTime > 0) {
-                            int buildTypeId = build.buildTypeId();
-                            System.err.println("Running " + runningTime + " BT: " + buildTypeId);
+        try {
+            for (int i = 0; i < batches; i++) {
+                Map<Integer, Long> batchRes = new HashMap<>();
 
-                            int srvId = BuildRefDao.cacheKeyToSrvId(key);
-                            boolean hasTimeout = build.hasBuildProblemType(timeoutProblemCode);
+                completed.take().get().forEach((k, r) -> {
+                    Long ts = r.get();
+                    if (ts != null)
+                        batchRes.put(BuildRefDao.cacheKeyToBuildId(k), ts);
+                });
 
-                            res.addBuild(srvId, buildTypeId, runningTime, hasTimeout);
-                        }
-                    });
-                }
-        );
+                res.putAll(batchRes);
+
+                if (partResConsumer != null && !batchRes.isEmpty())
+                    partResConsumer.accept(batchRes);
+            }
+        }
+        catch (InterruptedException e) {
+            throw ExceptionUtil.propagateException(e);
+        }
 
         return res;
+    }
+
+    /**
+     * Scans builds in binary form, builds are not deserialized: only fields read by the filter and the transformer are
+     * unmarshalled.
+     *
+     * @param filter Filter of builds.
+     * @param transformer Transformer of builds passed the filter.
+     * @param consumer Consumer of non-null transformer results.
+     */
+    @AutoProfiling
+    public <R> void scanBuilds(IgniteBiPredicate<Long, BinaryObject> filter,
+        IgniteClosure<Cache.Entry<Long, BinaryObject>, R> transformer,
+        Consumer<R> consumer) {
+        Preconditions.checkNotNull(buildsCache, "init() was not called");
 
+        ScanQuery<Long, BinaryObject> qry = new ScanQuery<>(filter);
+
+        try (QueryCursor<R> cursor = buildsCache.<Long, BinaryObject>withKeepBinary().query(qry, transformer)) {
+            for (R res : cursor) {
+                if (res != null)
+                    consumer.accept(res);
+            }
+        }
     }
 
     public static long getBuildRunningTime(int stateRunning, Integer buildDurationId,
@@ -362,10 +473,8 @@ public class FatBuildDao {
 
             if (buildDurationId != null) {
                 BinaryObject statistics = buildBinary.field("statistics");
-                if(statistics!=null) {
-                    // statistics.field()
-                }
-                long val = -1; //statistics.findPropertyValue(buildDurationId);
+
+                long val = statistics == null ? -1 : findPropertyValue(statistics, buildDurationId);
 
                 runningTime = val >= 0 ? val : -1;
             }
@@ -382,6 +491,72 @@ public class FatBuildDao {
         return runningTime;
     }
 
+    /**
+     * @param statistics Binary statistics, see {@link StatisticsCompacted#findPropertyValue(int)}.
+     * @param propCode Property code.
+     */
+    private static long findPropertyValue(BinaryObject statistics, int propCode) {
+        GridIntList keys = unwrap(statistics.field("keys"));
+        GridLongList values = unwrap(statistics.field("values"));
+
+        if (keys == null || values == null)
+            return -1L;
+
+        for (int i = 0; i < keys.size(); i++) {
+            if (keys.get(i) == propCode)
+                return i < values.size() ? values.get(i) : -1L;
+        }
+
+        return -1L;
+    }
+
+    /**
+     * @param buildBinary Binary build.
+     * @param id Problem type string ID.
+     * @return {@code True} if build has problem of given type, see {@link FatBuildCompacted#hasBuildProblemType(int)}.
+     */
+    public static boolean hasBuildProblemType(BinaryObject buildBinary, int id) {
+        Collection<?> problems = buildBinary.field("problems");
+
+        if (problems == null)
+            return false;
+
+        for (Object next : problems) {
+            if (next instanceof BinaryObject && Objects.equals(((BinaryObject)next).field("type"), id))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @param buildBinary Binary build.
+     * @return {@code True} if build is composite or fake stub, see {@link FatBuildCompacted#isComposite()}.
+     */
+    public static boolean isCompositeOrFakeStub(BinaryObject buildBinary) {
+        BitSet flags = unwrap(buildBinary.field("flags"));
+
+        return flags != null
+            && (isFlagSet(flags, FatBuildCompacted.COMPOSITE_F) || isFlagSet(flags, FatBuildCompacted.FAKE_BUILD_F));
+    }
+
+    /**
+     * @param flags Flags of the build.
+     * @param off Offset of the flag, flag is stored as presence and value bits.
+     */
+    private static boolean isFlagSet(BitSet flags, int off) {
+        return flags.get(off) && flags.get(off + 1);
+    }
+
+    /**
+     * @param val Field value, can be binary if field type is not a primitive or a well-known type.
+     * @return Deserialized value.
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable private static <T> T unwrap(@Nullable Object val) {
+        return val instanceof BinaryObject ? ((BinaryObject)val).deserialize() : (T)val;
+    }
+
     public Affinity<Long> affinity() {
         return igniteProvider.get().affinity(buildsCache.getName());
     }
@@ -395,6 +570,35 @@ public class FatBuildDao {
         return map.values().stream().map(EntryProcessorResult::get).filter(Objects::nonNull).collect(Collectors.toList());
     }
 
+    /**
+     * Collects IDs of builds stored in one partition of the cache, builds are not deserialized.
+     *
+     * @param srvId Server id.
+     * @param part Partition.
+     * @param minBuildId Only builds having ID greater than this are collected.
+     * @return Sorted array of build IDs.
+     */
+    @AutoProfiling
+    public int[] getBuildIdsForPartition(int srvId, int part, int minBuildId) {
+        ScanQuery<Long, BinaryObject> qry = new ScanQuery<Long, BinaryObject>(
+            (k, v) -> isKeyForServer(k, srvId) && BuildRefDao.cacheKeyToBuildId(k) > minBuildId)
+            .setPartition(part);
+
+        GridIntList res = new GridIntList(1024);
+
+        try (QueryCursor<Integer> cursor = buildsCache.<Long, BinaryObject>withKeepBinary().query(qry,
+            e -> BuildRefDao.cacheKeyToBuildId(e.getKey()))) {
+            for (Integer buildId : cursor)
+                res.add(buildId);
+        }
+
+        int[] ids = res.array();
+
+        Arrays.sort(ids);
+
+        return ids;
+    }
+
     public void runTestMigrationIfNeeded(int srvIdMaskHigh, FatBuildCompacted build) {
         if (build.migrateTests(logProductSpecific))
             putFatBuild(srvIdMaskHigh, build.id(), build);
@@ -418,39 +622,67 @@ public class FatBuildDao {
         }
     }
 
+    /**
+     * @param thresholdDate Threshold timestamp.
+     * @param numOfItemsToDel Max number of builds to return.
+     * @return keys of builds started before threshold day, or having no start date at all.
+     */
+    @AutoProfiling
     public Set<Long> getOldBuilds(long thresholdDate, int numOfItemsToDel) {
+        if (!dayIdxDao.isBackfilled())
+            backfillDayIndex();
+
+        return dayIdxDao.getKeysOlderThan(thresholdDate, numOfItemsToDel);
+    }
+
+    /**
+     * Adds builds saved before the retention index was introduced to the index. Full scan, executed once.
+     */
+    private void backfillDayIndex() {
         IgniteCache<Long, BinaryObject> cacheWithBinary = buildsCache.withKeepBinary();
 
-        ScanQuery<Long, BinaryObject> scan = new ScanQuery<>((key, fatBuild) -> {
-                Long startDate = 0L;
+        ScanQuery<Long, BinaryObject> scan = new ScanQuery<>((key, fatBuild) ->
+            !fatBuild.hasField("startDate") || fatBuild.<Long>field("startDate") > 0);
 
-                if (fatBuild.hasField("startDate"))
-                    startDate = fatBuild.<Long>field("startDate");
+        Map<Long, BuildStartDay> batch = new HashMap<>();
+        int cnt = 0;
 
-                return (startDate > 0 && startDate < thresholdDate) ||
-                    !fatBuild.hasField("startDate");
-            }
-        );
+        try (QueryCursor<Cache.Entry<Long, BinaryObject>> cursor = cacheWithBinary.query(scan)) {
+            for (Cache.Entry<Long, BinaryObject> entry : cursor) {
+                BinaryObject fatBuild = entry.getValue();
+
+                int day = fatBuild.hasField("startDate")
+                    ? FatBuildDayIndexDao.toDay(fatBuild.<Long>field("startDate"))
+                    : 0;
 
-        Set<Long> oldBuildsKeys = new HashSet<>(numOfItemsToDel);
+                batch.put(entry.getKey(), new BuildStartDay(day));
 
-        for (Cache.Entry<Long, BinaryObject> entry : cacheWithBinary.query(scan)) {
-            if (numOfItemsToDel > 0) {
-                numOfItemsToDel--;
-                oldBuildsKeys.add(entry.getKey());
+                if (batch.size() >= MAX_FAT_BUILD_CHUNK) {
+                    cnt += batch.size();
+                    dayIdxDao.putAll(batch);
+                    batch.clear();
+                }
             }
-            else
-                break;
         }
-        return oldBuildsKeys;
+
+        cnt += batch.size();
+        dayIdxDao.putAll(batch);
+
+        dayIdxDao.markBackfilled();
+
+        logger.info("Builds retention index was filled with " + cnt + " builds");
     }
 
     public void remove(long key) {
         buildsCache.remove(key);
+
+        dayIdxDao.removeAll(Collections.singleton(key));
     }
 
     public void removeAll(Set<Long> keys) {
         buildsCache.removeAll(keys);
+
+        dayIdxDao.removeAll(keys);
     }
 
     /**
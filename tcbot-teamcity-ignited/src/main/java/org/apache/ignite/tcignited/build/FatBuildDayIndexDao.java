@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcignited.build;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.cache.QueryEntity;
+import org.apache.ignite.cache.query.FieldsQueryCursor;
+import org.apache.ignite.cache.query.SqlFieldsQuery;
+import org.apache.ignite.configuration.CacheConfiguration;
+import org.apache.ignite.tcbot.common.interceptor.AutoProfiling;
+import org.apache.ignite.tcbot.persistence.CacheConfigs;
+
+/**
+ * Retention index for fat builds: build cache key -> day of build start, indexed by day. Allows to find builds older
+ * than threshold without a full scan of builds cache.
+ */
+public class FatBuildDayIndexDao {
+    /** Cache name. */
+    public static final String TEAMCITY_FAT_BUILD_DAY_IDX_CACHE_NAME = "teamcityFatBuildDayIdx";
+
+    /**
+     * Key of entry marking that builds saved before index was introduced were added to the index. Never used by a
+     * build: server ID and build ID both can't be -1.
+     */
+    private static final long BACKFILL_MARKER_KEY = -1L;
+
+    /** Millis in day. */
+    private static final long MILLIS_IN_DAY = Duration.ofDays(1).toMillis();
+
+    /** Ignite provider. */
+    @Inject private Provider<Ignite> igniteProvider;
+
+    /** Days cache: Long(ServerId||BuildId)-> Build start day. */
+    private IgniteCache<Long, BuildStartDay> daysCache;
+
+    /**
+     *
+     */
+    public FatBuildDayIndexDao init() {
+        CacheConfiguration<Long, BuildStartDay> cfg = CacheConfigs.getCacheV2Config(TEAMCITY_FAT_BUILD_DAY_IDX_CACHE_NAME);
+
+        cfg.setQueryEntities(Collections.singletonList(new QueryEntity(Long.class, BuildStartDay.class)));
+
+        daysCache = igniteProvider.get().getOrCreateCache(cfg);
+
+        return this;
+    }
+
+    /**
+     * @param ts Timestamp.
+     * @return days since epoch.
+     */
+    public static int toDay(long ts) {
+        return (int)(ts / MILLIS_IN_DAY);
+    }
+
+    /**
+     * @param buildKey Fat build cache key.
+     * @param startTs Build start timestamp. Builds without start date are not indexed.
+     */
+    public void put(long buildKey, long startTs) {
+        if (startTs > 0)
+            daysCache.put(buildKey, new BuildStartDay(toDay(startTs)));
+    }
+
+    /**
+     * @param days Fat build cache key -> build start day.
+     */
+    public void putAll(Map<Long, BuildStartDay> days) {
+        daysCache.putAll(days);
+    }
+
+    /**
+     * @return {@code true} if builds existing before the index was introduced were added to it.
+     */
+    public boolean isBackfilled() {
+        return daysCache.containsKey(BACKFILL_MARKER_KEY);
+    }
+
+    /**
+     * Marks index as complete.
+     */
+    public void markBackfilled() {
+        daysCache.put(BACKFILL_MARKER_KEY, new BuildStartDay(Integer.MAX_VALUE));
+    }
+
+    /**
+     * @param thresholdTs Threshold timestamp, builds started at the threshold day and later are not returned.
+     * @param limit Max count of keys to return.
+     * @return fat build cache keys of oldest builds, builds without start date first.
+     */
+    @AutoProfiling
+    public Set<Long> getKeysOlderThan(long thresholdTs, int limit) {
+        Set<Long> res = new HashSet<>();
+
+        if (limit <= 0)
+            return res;
+
+        SqlFieldsQuery qry = new SqlFieldsQuery("select _key from BuildStartDay where day < ? order by day limit ?")
+            .setArgs(toDay(thresholdTs), limit);
+
+        try (FieldsQueryCursor<List<?>> cursor = daysCache.query(qry)) {
+            for (List<?> row : cursor)
+                res.add((Long)row.get(0));
+        }
+
+        return res;
+    }
+
+    /**
+     * @param keys Fat build cache keys.
+     */
+    public void removeAll(Collection<Long> keys) {
+        daysCache.removeAll(new HashSet<>(keys));
+    }
+}
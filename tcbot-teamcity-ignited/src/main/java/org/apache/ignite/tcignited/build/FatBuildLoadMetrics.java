@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.build;
+
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Throughput of fat builds loading from one TC server. Rates are calculated over time when at least one build was in
+ * flight, so idle periods between sync tasks don't decrease them.
+ */
+public class FatBuildLoadMetrics {
+    /** Builds loaded (or failed) since start. */
+    @GuardedBy("this")
+    private long builds;
+
+    /** REST requests issued since start. */
+    @GuardedBy("this")
+    private long requests;
+
+    /** Builds currently being loaded. */
+    @GuardedBy("this")
+    private int inFlight;
+
+    /** Time with builds in flight, excluding current busy period. */
+    @GuardedBy("this")
+    private long busyNanos;
+
+    /** Start of current busy period. */
+    @GuardedBy("this")
+    private long busySince;
+
+    /** Marks start of build loading. */
+    synchronized void buildStarted() {
+        if (inFlight++ == 0)
+            busySince = System.nanoTime();
+    }
+
+    /** Marks end of build loading. */
+    synchronized void buildFinished() {
+        builds++;
+
+        if (--inFlight == 0)
+            busyNanos += System.nanoTime() - busySince;
+    }
+
+    /**
+     * @param cnt Count of REST requests done.
+     */
+    synchronized void requestsDone(int cnt) {
+        requests += cnt;
+    }
+
+    /**
+     * @return Builds loaded since start.
+     */
+    public synchronized long builds() {
+        return builds;
+    }
+
+    /**
+     * @return REST requests issued since start.
+     */
+    public synchronized long requests() {
+        return requests;
+    }
+
+    /**
+     * @return Builds currently being loaded.
+     */
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return Builds loaded per second of busy time.
+     */
+    public synchronized double buildsPerSec() {
+        return perSec(builds);
+    }
+
+    /**
+     * @return Requests issued per second of busy time.
+     */
+    public synchronized double requestsPerSec() {
+        return perSec(requests);
+    }
+
+    /**
+     * @param cnt Count.
+     */
+    @GuardedBy("this")
+    private double perSec(long cnt) {
+        long busy = busyNanos + (inFlight > 0 ? System.nanoTime() - busySince : 0);
+
+        if (busy <= 0)
+            return 0;
+
+        return cnt * (double)TimeUnit.SECONDS.toNanos(1) / busy;
+    }
+}
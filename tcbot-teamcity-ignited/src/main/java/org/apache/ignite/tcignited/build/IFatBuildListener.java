@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcignited.build;
+
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
+
+/**
+ * Listener of fat builds saved into the storage. Called from sync thread, so implementations should offload any heavy
+ * processing.
+ */
+@FunctionalInterface
+public interface IFatBuildListener {
+    /**
+     * @param srvIdMaskHigh Server id mask high.
+     * @param buildId Build ID.
+     * @param build Build saved.
+     */
+    public void onBuildSaved(int srvIdMaskHigh, int buildId, FatBuildCompacted build);
+}
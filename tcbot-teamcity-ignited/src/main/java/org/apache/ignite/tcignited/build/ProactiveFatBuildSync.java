@@ -20,6 +20,7 @@ import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -28,14 +29,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import javax.inject.Inject;
-import org.apache.ignite.cache.affinity.Affinity;
+import javax.inject.Provider;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteAtomicLong;
 import org.apache.ignite.ci.teamcity.ignited.BuildRefCompacted;
 import org.apache.ignite.ci.teamcity.ignited.change.ChangeSync;
 import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
@@ -50,18 +57,33 @@ import org.apache.ignite.tcbot.persistence.scheduler.IScheduler;
 import org.apache.ignite.tcignited.ITeamcityIgnited;
 import org.apache.ignite.tcignited.SyncMode;
 import org.apache.ignite.tcignited.buildref.BuildRefDao;
+import org.apache.ignite.tcignited.pool.TcRequestsPool;
 import org.apache.ignite.tcservice.ITeamcityConn;
 import org.apache.ignite.tcservice.model.changes.ChangesList;
 import org.apache.ignite.tcservice.model.result.Build;
 import org.apache.ignite.tcservice.model.result.problems.ProblemOccurrence;
 import org.apache.ignite.tcservice.model.result.stat.Statistics;
-import org.apache.ignite.tcservice.model.result.tests.TestOccurrencesFull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class ProactiveFatBuildSync {
     public static final int FAT_BUILD_PROACTIVE_TASKS = 5;
 
+    /** Each N-th missing builds check ignores watermark and examines all build references. */
+    public static final int FULL_MISSING_BUILDS_CHECK_EVERY = 28;
+
+    /** Name prefix of atomic holding highest build ID examined by missing builds check. */
+    private static final String MISSING_BUILDS_WATERMARK = "missingBuildsWatermark.";
+
+    /** Max count of builds loaded concurrently from one server. */
+    public static final int MAX_BUILDS_IN_FLIGHT_PER_SRV = 8;
+
+    /**
+     * Max count of builds loaded concurrently from all servers. Build load waits for its parts requested in the same
+     * pool, so builds can't occupy all threads of requests pool.
+     */
+    public static final int MAX_BUILDS_IN_FLIGHT = TcRequestsPool.THREADS / 2;
+
     /** Logger. */
     private static final Logger logger = LoggerFactory.getLogger(ProactiveFatBuildSync.class);
 
@@ -75,14 +97,46 @@ public class ProactiveFatBuildSync {
     /** Scheduler. */
     @Inject private IScheduler scheduler;
 
+    /** Ignite provider. */
+    @Inject private Provider<Ignite> igniteProvider;
+
     @Inject private IStringCompactor compactor;
 
     /** Change sync. */
     @Inject private ChangeSync changeSync;
 
+    /** Pool for builds being loaded and independent REST requests issued for one build. */
+    @Inject private TcRequestsPool requestsPool;
+
     @GuardedBy("this")
     private Map<String, SyncTask> buildToLoad = new HashMap<>();
 
+    /** Count of missing builds checks done since start: server code to counter. */
+    private final Map<String, AtomicInteger> missingBuildsChecks = new ConcurrentHashMap<>();
+
+    /** Permits for builds loading in flight: server code to semaphore. */
+    private final Map<String, Semaphore> buildsInFlight = new ConcurrentHashMap<>();
+
+    /** Loading throughput: server code to metrics. */
+    private final Map<String, FatBuildLoadMetrics> loadMetrics = new ConcurrentHashMap<>();
+
+    /** Permits for builds loading in flight from all servers. */
+    private final Semaphore allBuildsInFlight = new Semaphore(MAX_BUILDS_IN_FLIGHT);
+
+    /**
+     * @return Fat builds loading throughput: server code to metrics.
+     */
+    public Map<String, FatBuildLoadMetrics> loadMetrics() {
+        return Collections.unmodifiableMap(loadMetrics);
+    }
+
+    /**
+     * @param srvCode Server code.
+     */
+    private FatBuildLoadMetrics metrics(String srvCode) {
+        return loadMetrics.computeIfAbsent(srvCode, k -> new FatBuildLoadMetrics());
+    }
+
     public void doLoadBuilds(int i, String srvNme, ITeamcityConn conn, Set<Integer> paginateUntil) {
         doLoadBuilds(i, srvNme, conn, paginateUntil, getSyncTask(conn).loadingBuilds);
     }
@@ -136,64 +190,106 @@ public class ProactiveFatBuildSync {
     protected String findMissingBuildsFromBuildRef(String srvCode, ITeamcityConn conn) {
         int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(srvCode);
 
+        IgniteAtomicLong watermark = igniteProvider.get().atomicLong(MISSING_BUILDS_WATERMARK + srvCode, 0, true);
+
+        int checkNo = missingBuildsChecks.computeIfAbsent(srvCode, k -> new AtomicInteger()).incrementAndGet();
+        boolean fullCheck = checkNo % FULL_MISSING_BUILDS_CHECK_EVERY == 0;
+        int minBuildId = fullCheck ? 0 : (int)watermark.get();
+
         List<Integer> buildsIdsToLoad = new ArrayList<>();
-        AtomicInteger totalAskedToLoad = new AtomicInteger();
-
-        Affinity<Long> affinity = fatBuildDao.affinity();
-        int partitions = affinity.partitions();
-        int checkBatchSize = 1000;
-
-        GridIntList keysToCheck = new GridIntList();
-        for (int p = 0; p < partitions; p++) {
-            int curPart = p;
-
-            buildRefDao.compactedBuildsForServer(srvIdMaskHigh, bref -> true)
-                .filter(
-                    bref -> {
-                        long fatBuildKey = FatBuildDao.buildIdToCacheKey(srvIdMaskHigh, bref.id());
-                        int part = affinity.partition(fatBuildKey);
-                        return part == curPart;
-                    }
-                )
-                .forEach(buildRef -> {
-                    int buildId = buildRef.id();
-
-                    if (buildRef.isRunning(compactor) || buildRef.isQueued(compactor))
-                        buildsIdsToLoad.add(buildId); //re-check queued
-                    else
-                        keysToCheck.add(buildId); // check if missing
-
-                    int initSize = keysToCheck.size();
-                    if (initSize >= checkBatchSize) {
-                        System.err.println("findMissingBuilds: Srv: " + srvCode + " Checking " + initSize + " builds for partition " + curPart);
-
-                        int[] buildIds = keysToCheck.array();
-                        keysToCheck.clear();
-
-                        Collection<Integer> builds = fatBuildDao.getMissingBuilds(srvIdMaskHigh, buildIds);
-                        System.err.println("foundMissing: " + builds.size() + ": Srv: " + srvCode + " Checking " + initSize + " builds for partition " + curPart);
-
-                        buildsIdsToLoad.addAll(builds);
-                    }
-
-                    if (buildsIdsToLoad.size() >= 100) {
-                        totalAskedToLoad.addAndGet(buildsIdsToLoad.size());
-                        scheduleBuildsLoad(conn, buildsIdsToLoad);
-                        buildsIdsToLoad.clear();
-                    }
-                });
-        }
+        int totalAskedToLoad = 0;
+        int checked = 0;
+
+        // Highest finished build ID seen.
+        int maxBuildId = minBuildId;
+
+        // Lowest finished build ID found missing, its load may fail, so next check should examine it again.
+        int lowestMissing = Integer.MAX_VALUE;
+
+        int partitions = fatBuildDao.affinity().partitions();
+
+        for (int part = 0; part < partitions; part++) {
+            GridIntList finished = new GridIntList(1024);
+            GridIntList queuedOrRunning = new GridIntList(16);
 
-        if (!keysToCheck.isEmpty())
-            buildsIdsToLoad.addAll(fatBuildDao.getMissingBuilds(srvIdMaskHigh, keysToCheck.array()));
+            buildRefDao.collectBuildIdsForPartition(srvIdMaskHigh, part, minBuildId, finished, queuedOrRunning);
 
+            if (finished.isEmpty() && queuedOrRunning.isEmpty())
+                continue;
+
+            int[] refIds = finished.array();
+            Arrays.sort(refIds);
+
+            int[] fatBuildIds = fatBuildDao.getBuildIdsForPartition(srvIdMaskHigh, part, minBuildId);
+
+            lowestMissing = Math.min(lowestMissing, collectMissingBuilds(refIds, fatBuildIds, buildsIdsToLoad));
+
+            if (refIds.length > 0)
+                maxBuildId = Math.max(maxBuildId, refIds[refIds.length - 1]);
+
+            for (int i = 0; i < queuedOrRunning.size(); i++)
+                buildsIdsToLoad.add(queuedOrRunning.get(i)); //re-check queued
+
+            checked += refIds.length + queuedOrRunning.size();
+
+            if (buildsIdsToLoad.size() >= 100) {
+                totalAskedToLoad += buildsIdsToLoad.size();
+                scheduleBuildsLoad(conn, buildsIdsToLoad);
+                buildsIdsToLoad = new ArrayList<>();
+            }
+        }
 
         if (!buildsIdsToLoad.isEmpty()) {
-            totalAskedToLoad.addAndGet(buildsIdsToLoad.size());
+            totalAskedToLoad += buildsIdsToLoad.size();
             scheduleBuildsLoad(conn, buildsIdsToLoad);
         }
 
-        return "Invoked later load for " + totalAskedToLoad.get() + " builds from " + srvCode;
+        int newWatermark = nextWatermark(maxBuildId, lowestMissing);
+
+        watermark.getAndSet(newWatermark);
+
+        return "Invoked later load for " + totalAskedToLoad + " builds from " + srvCode
+            + ", checked " + checked + " refs " + (fullCheck ? "(full)" : "after " + minBuildId)
+            + ", watermark " + newWatermark;
+    }
+
+    /**
+     * Collects finished builds having reference, but not having fat build. Both arrays are sorted, missing builds are
+     * collected by single merge pass.
+     *
+     * @param refIds Sorted IDs of finished builds having references.
+     * @param fatBuildIds Sorted IDs of fat builds.
+     * @param missing Output: IDs of builds missing.
+     * @return Lowest ID of build missing or {@link Integer#MAX_VALUE} if all builds are present.
+     */
+    static int collectMissingBuilds(int[] refIds, int[] fatBuildIds, List<Integer> missing) {
+        int lowestMissing = Integer.MAX_VALUE;
+        int fatIdx = 0;
+
+        for (int buildId : refIds) {
+            while (fatIdx < fatBuildIds.length && fatBuildIds[fatIdx] < buildId)
+                fatIdx++;
+
+            if (fatIdx >= fatBuildIds.length || fatBuildIds[fatIdx] != buildId) {
+                missing.add(buildId);
+
+                lowestMissing = Math.min(lowestMissing, buildId);
+            }
+        }
+
+        return lowestMissing;
+    }
+
+    /**
+     * Watermark is not moved above builds scheduled for load: loads complete later and may fail, such builds should be
+     * examined by next check again.
+     *
+     * @param maxBuildId Highest finished build ID examined.
+     * @param lowestMissing Lowest finished build ID found missing, or {@link Integer#MAX_VALUE}.
+     * @return Highest build ID, all finished builds up to it are known to be present.
+     */
+    static int nextWatermark(int maxBuildId, int lowestMissing) {
+        return lowestMissing == Integer.MAX_VALUE ? maxBuildId : Math.min(maxBuildId, lowestMissing - 1);
     }
 
     /** */
@@ -245,26 +341,60 @@ public class ProactiveFatBuildSync {
 
         Map<Long, FatBuildCompacted> builds = fatBuildDao.getAllFatBuilds(srvIdMaskHigh, load);
 
-        load.forEach(
-                buildId -> {
-                    try {
-                        FatBuildCompacted existingBuild = builds.get(FatBuildDao.buildIdToCacheKey(srvIdMaskHigh, buildId));
+        Semaphore permits = buildsInFlight.computeIfAbsent(srvId, k -> new Semaphore(MAX_BUILDS_IN_FLIGHT_PER_SRV));
+        FatBuildLoadMetrics metrics = metrics(srvId);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
 
-                        FatBuildCompacted savedVer = loadBuild(conn, buildId, existingBuild, SyncMode.RELOAD_QUEUED);
+        for (Integer buildId : load) {
+            try {
+                permits.acquire();
 
-                        if (savedVer != null)
-                            ld.incrementAndGet();
+                try {
+                    allBuildsInFlight.acquire();
+                }
+                catch (InterruptedException e) {
+                    permits.release();
 
-                        loadingBuilds.remove(buildId);
-                    }
-                    catch (Exception e) {
-                        logger.error("", e);
-                        err.incrementAndGet();
-                    }
+                    throw e;
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                logger.warn("Builds loading was interrupted for server " + srvId);
+
+                break;
+            }
+
+            metrics.buildStarted();
+
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    FatBuildCompacted existingBuild = builds.get(FatBuildDao.buildIdToCacheKey(srvIdMaskHigh, buildId));
+
+                    FatBuildCompacted savedVer = loadBuild(conn, buildId, existingBuild, SyncMode.RELOAD_QUEUED);
+
+                    if (savedVer != null)
+                        ld.incrementAndGet();
+
+                    loadingBuilds.remove(buildId);
+                }
+                catch (Exception e) {
+                    logger.error("", e);
+                    err.incrementAndGet();
                 }
-        );
+                finally {
+                    metrics.buildFinished();
+                    allBuildsInFlight.release();
+                    permits.release();
+                }
+            }, requestsPool.getService()));
+        }
 
-        return "Builds updated " + ld.get() + " from " + load.size() + " requested, errors: " + err;
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        return "Builds updated " + ld.get() + " from " + load.size() + " requested, errors: " + err
+            + ", throughput " + String.format("%.2f", metrics.buildsPerSec()) + " builds/s";
     }
 
     @Nonnull
@@ -327,15 +457,8 @@ public class ProactiveFatBuildSync {
     public FatBuildCompacted loadBuild(ITeamcityConn conn, int buildId,
         @Nullable FatBuildCompacted existingBuild,
         SyncMode mode) {
-        if (existingBuild != null && !existingBuild.isOutdatedEntityVersion()) {
-            boolean finished =
-                existingBuild.state(compactor) != null // don't count old fake builds as finished
-                    && !existingBuild.isRunning(compactor)
-                    && !existingBuild.isQueued(compactor);
-
-            if (finished || mode != SyncMode.RELOAD_QUEUED)
-                return null;
-        }
+        if (!isReloadRequired(existingBuild, mode))
+            return null;
 
         FatBuildCompacted savedVer = reloadBuild(conn, buildId, existingBuild);
 
@@ -354,6 +477,23 @@ public class ProactiveFatBuildSync {
         return savedVer;
     }
 
+    /**
+     * @param existingBuild Build from the cache, if present.
+     * @param mode Sync mode.
+     * @return {@code True} if build should be reloaded from TC in given mode, {@code false} if cached build may be used.
+     */
+    public boolean isReloadRequired(@Nullable FatBuildCompacted existingBuild, SyncMode mode) {
+        if (existingBuild == null || existingBuild.isOutdatedEntityVersion())
+            return true;
+
+        boolean finished =
+            existingBuild.state(compactor) != null // don't count old fake builds as finished
+                && !existingBuild.isRunning(compactor)
+                && !existingBuild.isQueued(compactor);
+
+        return !finished && mode == SyncMode.RELOAD_QUEUED;
+    }
+
     /**
      *
      * @param conn
@@ -374,13 +514,16 @@ public class ProactiveFatBuildSync {
                 return transformV5Build(srvIdMask, buildId, existingBuild);
         }
 
+        FatBuildLoadMetrics metrics = metrics(srvName);
+
         Build build;
-        List<TestOccurrencesFull> tests = new ArrayList<>();
+        List<ITest> tests = new ArrayList<>();
         List<ProblemOccurrence> problems = null;
         Statistics statistics = null;
         ChangesList changesList = null;
         try {
             build = conn.getBuild(buildId);
+            metrics.requestsDone(1);
 
             if (build.isFakeStub())
                 build.setCancelled(); // probably now it will not happen because of direct connection to TC.
@@ -390,32 +533,34 @@ public class ProactiveFatBuildSync {
                         "Build IDs are not consistent: returned " + build.getId() + " queued is " + buildId);
             }
 
+            // independent parts of build are requested concurrently, test pages are chained and loaded here
+            CompletableFuture<List<ProblemOccurrence>> problemsFut = build.problemOccurrences != null
+                ? request(metrics, () -> conn.getProblems(buildId).getProblemsNonNull())
+                : CompletableFuture.completedFuture(null);
+
+            CompletableFuture<Statistics> statisticsFut = build.statisticsRef != null
+                ? request(metrics, () -> conn.getStatistics(buildId))
+                : CompletableFuture.completedFuture(null);
+
+            CompletableFuture<ChangesList> changesFut = build.changesRef != null
+                ? request(metrics, () -> conn.getChangesList(buildId))
+                    .thenCompose(changes -> loadChanges(srvIdMask, changes, conn, metrics))
+                : CompletableFuture.completedFuture(null);
+
             if (build.testOccurrences != null && !build.isComposite()) { // don't query tests for compoite
                 String nextHref = null;
                 do {
-                    TestOccurrencesFull page = conn.getTestsPage(buildId, nextHref, true);
-                    nextHref = page.nextHref();
-
-                    tests.add(page);
+                    // occurrences are streamed from response and compacted immediately
+                    nextHref = conn.processTestsPage(buildId, nextHref, true,
+                        occurrence -> tests.add(fatBuildDao.compactTest(occurrence)));
+                    metrics.requestsDone(1);
                 }
                 while (!Strings.isNullOrEmpty(nextHref));
             }
 
-            if (build.problemOccurrences != null)
-                problems = conn.getProblems(buildId).getProblemsNonNull();
-
-            if (build.statisticsRef != null)
-                statistics = conn.getStatistics(buildId);
-
-            if (build.changesRef != null) {
-                changesList = conn.getChangesList(buildId);
-
-                for (int changeId : FatBuildDao.extractChangeIds(changesList)) {
-                    // consult change sync for provided changes data
-
-                    changeSync.change(srvIdMask, changeId, conn);
-                }
-            }
+            problems = problemsFut.join();
+            statistics = statisticsFut.join();
+            changesList = changesFut.join();
         }
         catch (Exception e) {
             Throwable cause = Throwables.getRootCause(e);
@@ -432,7 +577,9 @@ public class ProactiveFatBuildSync {
                     if (build.isFakeStub())
                         build.setCancelled();
 
-                    tests = Collections.singletonList(existingBuild.getTestOcurrences(compactor));
+                    tests.clear();
+                    existingBuild.getTestOcurrences(compactor).getTests()
+                        .forEach(occurrence -> tests.add(fatBuildDao.compactTest(occurrence)));
 
                     problems = existingBuild.problems(compactor);
 
@@ -456,7 +603,50 @@ public class ProactiveFatBuildSync {
 
         //if we are here because of some sort of outdated version of build,
         // new save will be performed with new entity version for compacted build
-        return fatBuildDao.saveBuild(srvIdMask, buildId, build, tests, problems, statistics, changesList, existingBuild);
+        return fatBuildDao.saveBuildCompacted(srvIdMask, buildId, build, tests, problems, statistics, changesList,
+            existingBuild);
+    }
+
+    /**
+     * @param metrics Metrics.
+     * @param req REST request.
+     * @return Future for request result.
+     */
+    private <T> CompletableFuture<T> request(FatBuildLoadMetrics metrics, Supplier<T> req) {
+        return CompletableFuture.supplyAsync(() -> {
+            T res = req.get();
+
+            metrics.requestsDone(1);
+
+            return res;
+        }, requestsPool.getService());
+    }
+
+    /**
+     * Reloads changes absent in the DB, persisted changes are checked with one batch request. Changes are requested
+     * by {@link ChangeSync#reloadChangesAsync(int, int[], ITeamcityConn)} with the limit of changes in flight shared
+     * with other callers, changes loaded are saved even if some requests failed.
+     *
+     * @param srvIdMask Server ID mask.
+     * @param changesList Changes of build.
+     * @param conn Connection.
+     * @param metrics Metrics.
+     * @return Future completed with provided changes list when all changes are loaded.
+     */
+    private CompletableFuture<ChangesList> loadChanges(int srvIdMask, ChangesList changesList, ITeamcityConn conn,
+        FatBuildLoadMetrics metrics) {
+        int[] toReload = changeSync.changesToReload(srvIdMask, FatBuildDao.extractChangeIds(changesList));
+
+        return changeSync.reloadChangesAsync(srvIdMask, toReload, conn).thenApply(loaded -> {
+            metrics.requestsDone(toReload.length);
+
+            if (loaded.size() < toReload.length) {
+                throw new IllegalStateException("Changes of build were not loaded: " +
+                    (toReload.length - loaded.size()) + " of " + toReload.length + " requests failed");
+            }
+
+            return changesList;
+        });
     }
 
     @Nullable
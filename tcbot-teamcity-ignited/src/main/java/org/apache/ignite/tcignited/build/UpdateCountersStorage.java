@@ -17,6 +17,7 @@
 package org.apache.ignite.tcignited.build;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
@@ -43,6 +44,17 @@ public class UpdateCountersStorage {
         return res;
     }
 
+    /**
+     * @return Current values of all counters, counters absent in result are equal to 0.
+     */
+    public Map<Integer, Integer> getAllCounters() {
+        Map<Integer, Integer> res = new HashMap<>();
+
+        counters.forEach((name, cntr) -> res.put(name, cntr.get()));
+
+        return res;
+    }
+
     public static String getCountersHash(Map<Integer, Integer> counters) {
         return Integer.toHexString(U.safeAbs(counters == null ? 0 : counters.hashCode()));
     }
@@ -54,4 +66,11 @@ public class UpdateCountersStorage {
     public void increment(int branchName) {
         getIntegerForEntry(branchName).incrementAndGet();
     }
+
+    /**
+     * @param branchNames Branch names to increment counter once for each.
+     */
+    public void incrementAll(Collection<Integer> branchNames) {
+        branchNames.forEach(this::increment);
+    }
 }
@@ -17,14 +17,11 @@
 
 package org.apache.ignite.tcignited.buildlog;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Stream;
 import java.util.zip.ZipInputStream;
 
 /**
@@ -38,10 +35,11 @@ class BuildLogStreamChecker {
     }
 
     void apply(ZipInputStream zipInputStream, File zipFile) {
-        Reader reader = new InputStreamReader(zipInputStream, StandardCharsets.UTF_8);
-
-        try (Stream<String> lines = new BufferedReader(reader).lines()) {
-            lines.forEach(line -> lineHandlersList.forEach(h -> h.accept(line, zipFile)));
+        try {
+            new LogLineScanner(lineHandlersList).scan(zipInputStream, zipFile);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
         finally {
             lineHandlersList.forEach(this::closeSilent);
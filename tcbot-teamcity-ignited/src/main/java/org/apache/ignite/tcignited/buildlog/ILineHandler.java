@@ -18,10 +18,37 @@
 package org.apache.ignite.tcignited.buildlog;
 
 import java.io.File;
+import java.util.Collection;
+import javax.annotation.Nullable;
 
 /**
  *
  */
 public interface ILineHandler extends AutoCloseable {
     public void accept(String line, File file);
+
+    /**
+     * @return Substrings the handler is interested in. Only lines containing at least one of markers are provided to
+     * {@link #accept(String, File)}, other lines are reported to {@link #skipLine(int, File)}. Null means every line
+     * is required.
+     */
+    @Nullable public default Collection<String> markers() {
+        return null;
+    }
+
+    /**
+     * @return {@code true} if handler currently requires every line regardless of markers.
+     */
+    public default boolean isCapturing() {
+        return false;
+    }
+
+    /**
+     * Notifies about line not containing any of {@link #markers()}.
+     *
+     * @param lineBytes Length of line in bytes.
+     * @param file File.
+     */
+    public default void skipLine(int lineBytes, File file) {
+    }
 }
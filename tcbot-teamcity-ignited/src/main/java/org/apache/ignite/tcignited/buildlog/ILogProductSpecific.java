@@ -17,6 +17,8 @@
 
 package org.apache.ignite.tcignited.buildlog;
 
+import java.util.Collection;
+
 /**
  *
  */
@@ -30,4 +32,10 @@ public interface ILogProductSpecific {
      * @param line Line.
      */
     public boolean needWarn(String line);
+
+    /**
+     * @return Substrings, at least one of them is contained in each line for which {@link #isTestStarting(String)}
+     * or {@link #needWarn(String)} returns {@code true}.
+     */
+    public Collection<String> lineMarkers();
 }
@@ -17,6 +17,10 @@
 
 package org.apache.ignite.tcignited.buildlog;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
 /**
  * Ignite specific logic related to build logs.
  */
@@ -28,6 +32,16 @@ public class LogIgniteSpecific implements ILogProductSpecific {
     /** Test name end. */
     private static final String TEST_NAME_END = " <<<";
 
+    /** Assertion error. */
+    private static final String ASSERTION_ERROR = "java.lang.AssertionError:";
+
+    /** Critical failure. */
+    private static final String CRITICAL_FAILURE = "Critical failure. Will be handled accordingly to configured handler";
+
+    /** Line markers. */
+    private static final Collection<String> LINE_MARKERS = Collections.unmodifiableList(
+        Arrays.asList(STARTING_TEST, ASSERTION_ERROR, JAVA_LEVEL_DEADLOCK_TXT, CRITICAL_FAILURE));
+
     /** {@inheritDoc} */
     @Override public boolean isTestStarting(String line) {
         return line.contains(STARTING_TEST) && line.contains(TEST_NAME_END);
@@ -35,8 +49,13 @@ public class LogIgniteSpecific implements ILogProductSpecific {
 
     /** {@inheritDoc} */
     @Override public boolean needWarn(String line) {
-        return line.contains("java.lang.AssertionError:")
+        return line.contains(ASSERTION_ERROR)
             || line.contains(JAVA_LEVEL_DEADLOCK_TXT)
-            || line.contains("Critical failure. Will be handled accordingly to configured handler");
+            || line.contains(CRITICAL_FAILURE);
+    }
+
+    /** {@inheritDoc} */
+    @Override public Collection<String> lineMarkers() {
+        return LINE_MARKERS;
     }
 }
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.buildlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Splits log into lines working with bytes. All markers of line handlers are searched in one pass using {@link
+ * MultiPatternMatcher}, line is decoded into String only if some handler needs it. Use one instance per one stream.
+ */
+@NotThreadSafe
+class LogLineScanner {
+    /** Initial buffer size. */
+    private static final int BUF_SIZE = 64 * 1024;
+
+    /** Line handlers. */
+    private final ILineHandler[] handlers;
+
+    /** Markers mask for each handler. */
+    private final long[] handlerMasks;
+
+    /** Handler requires every line, markers are not provided. */
+    private final boolean[] allLines;
+
+    /** Matcher for markers of all handlers. */
+    private final MultiPatternMatcher matcher;
+
+    /**
+     * @param handlers Line handlers.
+     */
+    LogLineScanner(List<ILineHandler> handlers) {
+        this.handlers = handlers.toArray(new ILineHandler[0]);
+        handlerMasks = new long[this.handlers.length];
+        allLines = new boolean[this.handlers.length];
+
+        Map<String, Integer> markerIdx = new LinkedHashMap<>();
+
+        for (int i = 0; i < this.handlers.length; i++) {
+            Collection<String> markers = this.handlers[i].markers();
+
+            if (markers == null) {
+                allLines[i] = true;
+
+                continue;
+            }
+
+            for (String marker : markers) {
+                int idx = markerIdx.computeIfAbsent(marker, m -> markerIdx.size());
+
+                handlerMasks[i] |= 1L << idx;
+            }
+        }
+
+        List<byte[]> patterns = new ArrayList<>();
+
+        markerIdx.keySet().forEach(m -> patterns.add(m.getBytes(StandardCharsets.UTF_8)));
+
+        matcher = new MultiPatternMatcher(patterns);
+    }
+
+    /**
+     * Reads all lines from the stream. Lines are separated by '\n', '\r' or "\r\n".
+     *
+     * @param in Input stream, it is not closed.
+     * @param file File being processed.
+     */
+    void scan(InputStream in, File file) throws IOException {
+        byte[] buf = new byte[BUF_SIZE];
+        int lineStart = 0;
+        int pos = 0;
+        int limit = 0;
+        boolean prevCr = false;
+
+        int state = MultiPatternMatcher.ROOT;
+        long mask = 0;
+
+        while (true) {
+            if (pos == limit) {
+                if (lineStart > 0) {
+                    System.arraycopy(buf, lineStart, buf, 0, limit - lineStart);
+
+                    pos -= lineStart;
+                    limit -= lineStart;
+                    lineStart = 0;
+                }
+
+                if (limit == buf.length)
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+
+                int read = in.read(buf, limit, buf.length - limit);
+
+                if (read < 0) {
+                    if (lineStart < limit)
+                        onLine(buf, lineStart, limit, mask, file);
+
+                    return;
+                }
+
+                limit += read;
+
+                continue;
+            }
+
+            byte b = buf[pos++];
+
+            if (b == '\n' && prevCr) {
+                prevCr = false;
+                lineStart = pos;
+
+                continue;
+            }
+
+            prevCr = false;
+
+            if (b == '\n' || b == '\r') {
+                onLine(buf, lineStart, pos - 1, mask, file);
+
+                prevCr = b == '\r';
+                lineStart = pos;
+                state = MultiPatternMatcher.ROOT;
+                mask = 0;
+            }
+            else {
+                state = matcher.next(state, b);
+                mask |= matcher.output(state);
+            }
+        }
+    }
+
+    /**
+     * @param buf Buffer.
+     * @param from Line start.
+     * @param to Line end, exclusive, line terminator is not included.
+     * @param mask Markers found in line.
+     * @param file File being processed.
+     */
+    private void onLine(byte[] buf, int from, int to, long mask, File file) {
+        String line = null;
+
+        for (int i = 0; i < handlers.length; i++) {
+            ILineHandler hnd = handlers[i];
+
+            if (allLines[i] || (mask & handlerMasks[i]) != 0 || hnd.isCapturing()) {
+                if (line == null)
+                    line = new String(buf, from, to - from, StandardCharsets.UTF_8);
+
+                hnd.accept(line, file);
+            }
+            else
+                hnd.skipLine(to - from, file);
+        }
+    }
+}
@@ -17,6 +17,8 @@
 
 package org.apache.ignite.tcignited.buildlog;
 
+import java.util.Collection;
+import java.util.Collections;
 import javax.annotation.Nullable;
 import org.apache.ignite.tcservice.model.result.problems.ProblemOccurrence;
 
@@ -37,6 +39,13 @@ public class LogMsgToWarn {
             || line.contains("Critical failure. Will be handled accordingly to configured handler");
     }
 
+    /**
+     * @return Substrings, at least one of them is contained in each line having {@link #getProblemCode(String)}.
+     */
+    public static Collection<String> problemMarkers() {
+        return Collections.singletonList(JAVA_LEVEL_DEADLOCK_TXT);
+    }
+
     @Nullable
     public static String getProblemCode(String line) {
         if (line.contains(JAVA_LEVEL_DEADLOCK_TXT))
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.buildlog;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton over bytes. Finds all registered markers in a single pass over the input. Up to {@link
+ * #MAX_PATTERNS} markers are supported, matching result is bit mask with bit set for each marker found.
+ */
+class MultiPatternMatcher {
+    /** Maximum count of patterns, limited by bits in result mask. */
+    static final int MAX_PATTERNS = Long.SIZE;
+
+    /** Alphabet size. */
+    private static final int ALPHABET = 256;
+
+    /** Initial state. */
+    static final int ROOT = 0;
+
+    /** Transitions: {@code state * 256 + byte} to next state. */
+    private final int[] delta;
+
+    /** Patterns ending in state, including patterns reached by suffix links. */
+    private final long[] out;
+
+    /**
+     * @param patterns Patterns, non empty byte sequences.
+     */
+    MultiPatternMatcher(List<byte[]> patterns) {
+        Preconditions.checkArgument(patterns.size() <= MAX_PATTERNS,
+            "Too many patterns: " + patterns.size());
+
+        List<int[]> trie = new ArrayList<>();
+        List<Long> outList = new ArrayList<>();
+
+        trie.add(newNode());
+        outList.add(0L);
+
+        for (int p = 0; p < patterns.size(); p++) {
+            byte[] pattern = patterns.get(p);
+
+            Preconditions.checkArgument(pattern.length > 0, "Empty pattern");
+
+            int state = ROOT;
+
+            for (byte b : pattern) {
+                int c = b & 0xFF;
+                int next = trie.get(state)[c];
+
+                if (next < 0) {
+                    next = trie.size();
+                    trie.add(newNode());
+                    outList.add(0L);
+                    trie.get(state)[c] = next;
+                }
+
+                state = next;
+            }
+
+            outList.set(state, outList.get(state) | 1L << p);
+        }
+
+        int states = trie.size();
+
+        delta = new int[states * ALPHABET];
+        out = new long[states];
+
+        for (int s = 0; s < states; s++)
+            out[s] = outList.get(s);
+
+        // BFS from root builds complete transition function using failure links.
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+        int[] root = trie.get(ROOT);
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = root[c];
+
+            if (next < 0)
+                delta[c] = ROOT;
+            else {
+                delta[c] = next;
+                fail[next] = ROOT;
+                queue.add(next);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            int[] node = trie.get(s);
+
+            out[s] |= out[fail[s]];
+
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = node[c];
+
+                if (next < 0)
+                    delta[s * ALPHABET + c] = delta[fail[s] * ALPHABET + c];
+                else {
+                    delta[s * ALPHABET + c] = next;
+                    fail[next] = delta[fail[s] * ALPHABET + c];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Trie node with no transitions.
+     */
+    private static int[] newNode() {
+        int[] node = new int[ALPHABET];
+
+        Arrays.fill(node, -1);
+
+        return node;
+    }
+
+    /**
+     * @param state Current state.
+     * @param b Next input byte.
+     * @return Next state.
+     */
+    int next(int state, byte b) {
+        return delta[state * ALPHABET + (b & 0xFF)];
+    }
+
+    /**
+     * @param state State.
+     * @return Mask of patterns which end at the current position of the input.
+     */
+    long output(int state) {
+        return out[state];
+    }
+
+    /**
+     * @param buf Buffer.
+     * @param from Start position, inclusive.
+     * @param to End position, exclusive.
+     * @return Mask of patterns found.
+     */
+    long match(byte[] buf, int from, int to) {
+        int state = ROOT;
+        long mask = 0;
+
+        for (int i = from; i < to; i++) {
+            state = next(state, buf[i]);
+            mask |= out[state];
+        }
+
+        return mask;
+    }
+}
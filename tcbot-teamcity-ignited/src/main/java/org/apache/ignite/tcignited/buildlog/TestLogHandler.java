@@ -18,6 +18,9 @@
 package org.apache.ignite.tcignited.buildlog;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import org.apache.ignite.tcbot.persistence.IStringCompactor;
 
 import javax.inject.Inject;
@@ -32,6 +35,10 @@ public class TestLogHandler implements ILineHandler {
     public static final TestLogCheckResultCompacted FAKE_RESULT = new TestLogCheckResultCompacted();
 
     private String currentTestName = null;
+
+    /** Result for current test, {@link #FAKE_RESULT} if no test is running. */
+    private TestLogCheckResultCompacted curTestRes = FAKE_RESULT;
+
     private File workFolder;
 
     /** Result. */
@@ -52,6 +59,8 @@ public class TestLogHandler implements ILineHandler {
                 currentTestName = null;
 
             this.currentTestName = line.substring(line.indexOf(STARTING_TEST) + STARTING_TEST.length(), line.indexOf(TEST_NAME_END));
+
+            curTestRes = res.getOrCreateTestResult(getLastTestName());
         }
 
         if (currentTestName == null)
@@ -69,9 +78,25 @@ public class TestLogHandler implements ILineHandler {
     }
 
     private TestLogCheckResultCompacted curTest() {
-        String curName = getLastTestName();
+        return curTestRes;
+    }
+
+    /** {@inheritDoc} */
+    @Override public Collection<String> markers() {
+        List<String> markers = new ArrayList<>(logSpecific.lineMarkers());
+
+        markers.addAll(LogMsgToWarn.problemMarkers());
+
+        return markers;
+    }
+
+    /** {@inheritDoc} */
+    @Override public void skipLine(int lineBytes, File file) {
+        if (workFolder == null)
+            workFolder = file.getParentFile();
 
-        return curName == null ? FAKE_RESULT : res.getOrCreateTestResult(curName);
+        if (currentTestName != null)
+            curTest().addLineStat(lineBytes);
     }
 
     /** {@inheritDoc} */
@@ -18,6 +18,8 @@
 package org.apache.ignite.tcignited.buildlog;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
 import javax.annotation.Nullable;
 
 /**
@@ -51,6 +53,16 @@ public class ThreadDumpInMemoryHandler implements ILineHandler {
         }
     }
 
+    /** {@inheritDoc} */
+    @Override public Collection<String> markers() {
+        return Collections.singletonList(FULL_THREAD_DUMP);
+    }
+
+    /** {@inheritDoc} */
+    @Override public boolean isCapturing() {
+        return currentThDump != null;
+    }
+
     /** {@inheritDoc} */
     @Override public void close() {
         closeCurrentIfNeed();
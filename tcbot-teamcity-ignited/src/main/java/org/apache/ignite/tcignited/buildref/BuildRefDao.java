@@ -19,8 +19,12 @@ package org.apache.ignite.tcignited.buildref;
 
 import com.google.common.cache.CacheBuilder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -38,9 +42,11 @@ import javax.inject.Inject;
 import javax.inject.Provider;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
+import org.apache.ignite.binary.BinaryObject;
 import org.apache.ignite.cache.QueryEntity;
 import org.apache.ignite.cache.query.QueryCursor;
 import org.apache.ignite.cache.query.ScanQuery;
+import org.apache.ignite.cache.query.SqlFieldsQuery;
 import org.apache.ignite.cache.query.SqlQuery;
 import org.apache.ignite.ci.teamcity.ignited.BuildRefCompacted;
 import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistKey;
@@ -54,11 +60,16 @@ import org.apache.ignite.tcbot.persistence.CacheConfigs;
 import org.apache.ignite.tcbot.persistence.IStringCompactor;
 import org.apache.ignite.tcignited.build.UpdateCountersStorage;
 import org.apache.ignite.tcservice.model.hist.BuildRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  *
  */
 public class BuildRefDao {
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(BuildRefDao.class);
+
     /** Cache name */
     public static final String TEAMCITY_BUILD_CACHE_NAME = "teamcityBuildRef";
 
@@ -77,7 +88,7 @@ public class BuildRefDao {
     /** Non persistence cache for all BuildRefsCompacted for particular branch.
      * RunHistKey(ServerId||BranchId||suiteId)-> Build reference
      */
-    private final com.google.common.cache.Cache<RunHistKey, List<BuildRefCompacted>> buildRefsInMemCache
+    private final com.google.common.cache.Cache<RunHistKey, RefsHolder> buildRefsInMemCache
         = CacheBuilder.newBuilder()
         .maximumSize(Boolean.valueOf(System.getProperty(TcBotSystemProperties.DEV_MODE)) ? 1000 : 8000)
         .expireAfterAccess(16, TimeUnit.MINUTES)
@@ -87,7 +98,7 @@ public class BuildRefDao {
 
 
     /** Build refs in mem cache for all branch. Mostly this cache exist for fast building replace with recent builds. */
-    private final com.google.common.cache.Cache<Long, List<BuildRefCompacted>> buildRefsInMemCacheForAllBranch
+    private final com.google.common.cache.Cache<Long, RefsHolder> buildRefsInMemCacheForAllBranch
         = CacheBuilder.newBuilder()
         .maximumSize(Boolean.valueOf(System.getProperty(TcBotSystemProperties.DEV_MODE)) ? 200 : 2000)
         .expireAfterAccess(2, TimeUnit.MINUTES)
@@ -103,9 +114,85 @@ public class BuildRefDao {
 
         buildRefsCache = igniteProvider.get().getOrCreateCache(cfg);
 
+        createIndexesIfAbsent();
+
         return this;
     }
 
+    /**
+     * Caches created by previous versions have only branch name indexed, cache configuration of already existing cache
+     * is not updated from query entity. Adds missing columns and indexes. Index is created only if there is no index
+     * starting with the same columns, so indexes declared by query entity of a new cache are not duplicated.
+     */
+    private void createIndexesIfAbsent() {
+        String tbl = BuildRefCompacted.class.getSimpleName().toUpperCase();
+
+        updateSchema("ALTER TABLE " + tbl + " ADD COLUMN IF NOT EXISTS BUILDTYPEID INT");
+        updateSchema("ALTER TABLE " + tbl + " ADD COLUMN IF NOT EXISTS STATE INT");
+
+        List<List<String>> idxs = indexedColumns(tbl);
+
+        if (!hasIndex(idxs, "BRANCHNAME", "BUILDTYPEID")) {
+            updateSchema("CREATE INDEX IF NOT EXISTS " + BuildRefCompacted.BRANCH_SUITE_IDX.toUpperCase()
+                + " ON " + tbl + " (BRANCHNAME, BUILDTYPEID)");
+        }
+
+        if (!hasIndex(idxs, "STATE"))
+            updateSchema("CREATE INDEX IF NOT EXISTS " + tbl + "_STATE_IDX ON " + tbl + " (STATE)");
+    }
+
+    /**
+     * @param sql DDL statement.
+     */
+    private void updateSchema(String sql) {
+        try {
+            buildRefsCache.query(new SqlFieldsQuery(sql)).getAll();
+        }
+        catch (Exception e) {
+            logger.error("Failed to update build references schema: " + sql, e);
+        }
+    }
+
+    /**
+     * @param tbl Table name.
+     * @return Columns of each index of the table, in index order. Empty list if indexes metadata is not available.
+     */
+    private List<List<String>> indexedColumns(String tbl) {
+        List<List<String>> res = new ArrayList<>();
+
+        try {
+            List<List<?>> rows = buildRefsCache.query(
+                new SqlFieldsQuery("SELECT COLUMNS FROM SYS.INDEXES WHERE CACHE_NAME = ? AND TABLE_NAME = ?")
+                    .setArgs(TEAMCITY_BUILD_CACHE_NAME, tbl)).getAll();
+
+            for (List<?> row : rows) {
+                // Columns are listed as: "BRANCHNAME" ASC, "BUILDTYPEID" ASC, "_KEY" ASC
+                List<String> cols = Stream.of(String.valueOf(row.get(0)).split(","))
+                    .map(col -> col.trim().split(" ")[0].replace("\"", "").toUpperCase())
+                    .collect(Collectors.toList());
+
+                res.add(cols);
+            }
+        }
+        catch (Exception e) {
+            logger.error("Failed to read build references indexes", e);
+        }
+
+        return res;
+    }
+
+    /**
+     * @param idxs Columns of each index.
+     * @param cols Leading columns of the index required.
+     * @return {@code True} if some index starts with provided columns.
+     */
+    private static boolean hasIndex(List<List<String>> idxs, String... cols) {
+        List<String> prefix = Arrays.asList(cols);
+
+        return idxs.stream().anyMatch(idxCols -> idxCols.size() >= prefix.size()
+            && idxCols.subList(0, prefix.size()).equals(prefix));
+    }
+
     /**
      * @param srvId Server id.
      * @return all builds for a server, full scan.
@@ -128,6 +215,54 @@ public class BuildRefDao {
             .map(javax.cache.Cache.Entry::getValue);
     }
 
+    /**
+     * Collects IDs of builds having references stored in one partition of the cache. References are not
+     * deserialized, only key and state are extracted.
+     *
+     * @param srvId Server id.
+     * @param part Partition.
+     * @param minBuildId Only finished builds having ID greater than this are collected, queued and running builds are
+     * collected regardless of ID.
+     * @param finished Output: IDs of builds not in queued or running state.
+     * @param queuedOrRunning Output: IDs of builds in queued or running state.
+     */
+    @AutoProfiling
+    public void collectBuildIdsForPartition(int srvId, int part, int minBuildId,
+        GridIntList finished, GridIntList queuedOrRunning) {
+        int stateQueuedId = compactor.getStringId(BuildRef.STATE_QUEUED);
+        int stateRunningId = compactor.getStringId(BuildRef.STATE_RUNNING);
+
+        ScanQuery<Long, BinaryObject> qry = new ScanQuery<Long, BinaryObject>(
+            (k, v) -> {
+                if (!isKeyForServer(k, srvId))
+                    return false;
+
+                if (cacheKeyToBuildId(k) > minBuildId)
+                    return true;
+
+                int state = v.field("state");
+
+                return state == stateQueuedId || state == stateRunningId;
+            })
+            .setPartition(part);
+
+        // Build ID in low bits, high bits are set for queued and running builds.
+        try (QueryCursor<Long> cursor = buildRefsCache.<Long, BinaryObject>withKeepBinary().query(qry,
+            e -> {
+                int state = e.getValue().field("state");
+                long buildId = cacheKeyToBuildId(e.getKey()) & 0xFFFFFFFFL;
+
+                return state == stateQueuedId || state == stateRunningId ? buildId | 1L << 32 : buildId;
+            })) {
+            for (Long val : cursor) {
+                if (val >>> 32 != 0)
+                    queuedOrRunning.add((int)(long)val);
+                else
+                    finished.add((int)(long)val);
+            }
+        }
+    }
+
     /**
      * @param key Key.
      * @param srvId Server id.
@@ -142,6 +277,20 @@ public class BuildRefDao {
      */
     @AutoProfiling
     public Set<Long> saveChunk(int srvId, List<BuildRef> ghData) {
+        return saveChunk(srvId, ghData, null);
+    }
+
+    /**
+     * Saves chunk of references and patches in-memory histories with new and changed references.
+     *
+     * @param srvId Server id mask high.
+     * @param ghData Gh data.
+     * @param branchesUpdated [out] Branch names IDs having updates. If provided update counters are not incremented,
+     * caller is responsible for it, so counter may be incremented once for a whole sync. If null, counters are
+     * incremented immediately.
+     */
+    @AutoProfiling
+    public Set<Long> saveChunk(int srvId, List<BuildRef> ghData, @Nullable Set<Integer> branchesUpdated) {
         Set<Long> ids = ghData.stream().map(BuildRef::getId)
             .filter(Objects::nonNull)
             .map(buildId -> buildIdToCacheKey(srvId, buildId))
@@ -166,28 +315,104 @@ public class BuildRefDao {
         if (size != 0) {
             buildRefsCache.putAll(entriesToPut);
 
-            invalidateHistoryInMem(srvId, entriesToPut.values().stream());
+            Set<Integer> branches = updateHistoryInMem(srvId, entriesToPut.values(), existingEntries);
+
+            if (branchesUpdated != null)
+                branchesUpdated.addAll(branches);
+            else
+                countersStorage.incrementAll(branches);
         }
 
         return entriesToPut.keySet();
     }
 
-    public void invalidateHistoryInMem(int srvId, Stream<BuildRefCompacted> stream) {
-        Set<RunHistKey> setOfHistToClear = stream
-            .map(b -> new RunHistKey(srvId, b.buildTypeId(), b.branchName()))
-            .collect(Collectors.toSet());
+    /**
+     * Applies saved references to in-memory histories (write-through). Only histories already present in memory are
+     * patched, absent ones will be loaded from persistence on demand. Histories for keys, which are no longer valid
+     * for a reference (e.g. branch was changed), are invalidated.
+     *
+     * @param srvId Server id.
+     * @param saved References saved to persistence.
+     * @param prevVersions Previous versions of references: cache key -> reference.
+     * @return Branch names IDs affected.
+     */
+    private Set<Integer> updateHistoryInMem(int srvId,
+        Collection<BuildRefCompacted> saved,
+        Map<Long, BuildRefCompacted> prevVersions) {
+        Map<RunHistKey, List<BuildRefCompacted>> bySuite = new HashMap<>();
+        Set<RunHistKey> staleSuiteHist = new HashSet<>();
+
+        for (BuildRefCompacted ref : saved) {
+            RunHistKey key = new RunHistKey(srvId, ref.buildTypeId(), ref.branchName());
+
+            bySuite.computeIfAbsent(key, k -> new ArrayList<>()).add(ref);
+
+            BuildRefCompacted prev = prevVersions.get(buildIdToCacheKey(srvId, ref.id()));
+
+            if (prev != null && (prev.buildTypeId() != ref.buildTypeId() || prev.branchName() != ref.branchName()))
+                staleSuiteHist.add(new RunHistKey(srvId, prev.buildTypeId(), prev.branchName()));
+        }
+
+        Map<Integer, List<BuildRefCompacted>> byBranch = new HashMap<>();
+        bySuite.forEach((key, refs) -> byBranch.computeIfAbsent(key.branch(), k -> new ArrayList<>()).addAll(refs));
+
+        staleSuiteHist.forEach(key -> {
+            buildRefsInMemCache.invalidate(key);
+            buildRefsInMemCacheForAllBranch.invalidate(branchNameToHistCacheKey(srvId, key.branch()));
+        });
+
+        // Holders are patched in place: cache entry is not rewritten, so its write time and expiration are kept.
+        bySuite.forEach((key, refs) -> {
+            RefsHolder holder = buildRefsInMemCache.getIfPresent(key);
+
+            if (holder != null)
+                holder.merge(refs);
+        });
+
+        byBranch.forEach((branch, refs) -> {
+            RefsHolder holder = buildRefsInMemCacheForAllBranch.getIfPresent(branchNameToHistCacheKey(srvId, branch));
+
+            if (holder != null)
+                holder.merge(refs);
+        });
+
+        Set<Integer> branches = new HashSet<>(byBranch.keySet());
 
-        Iterable<Long> cacheForAllBranch =
-            setOfHistToClear.stream()
-                .map(b -> branchNameToHistCacheKey(srvId, b.branch()))
-                .collect(Collectors.toSet());
+        staleSuiteHist.forEach(key -> branches.add(key.branch()));
 
-        buildRefsInMemCacheForAllBranch.invalidateAll(cacheForAllBranch);
-        buildRefsInMemCache.invalidateAll(setOfHistToClear);
+        return branches;
+    }
+
+    /**
+     * Removes references from in-memory histories already present in memory.
+     *
+     * @param removed Removed references: cache key -> reference.
+     */
+    private void removeHistoryInMem(Map<Long, BuildRefCompacted> removed) {
+        Map<RunHistKey, Set<Integer>> bySuite = new HashMap<>();
+        Map<Long, Set<Integer>> byBranch = new HashMap<>();
 
-        setOfHistToClear.forEach(b -> {
-            int branch = b.branch();
-            countersStorage.increment(branch);
+        removed.forEach((cacheKey, ref) -> {
+            int srvId = cacheKeyToSrvId(cacheKey);
+
+            bySuite.computeIfAbsent(new RunHistKey(srvId, ref.buildTypeId(), ref.branchName()), k -> new HashSet<>())
+                .add(ref.id());
+            byBranch.computeIfAbsent(branchNameToHistCacheKey(srvId, ref.branchName()), k -> new HashSet<>())
+                .add(ref.id());
+        });
+
+        bySuite.forEach((key, ids) -> {
+            RefsHolder holder = buildRefsInMemCache.getIfPresent(key);
+
+            if (holder != null)
+                holder.removeAll(ids);
+        });
+
+        byBranch.forEach((key, ids) -> {
+            RefsHolder holder = buildRefsInMemCacheForAllBranch.getIfPresent(key);
+
+            if (holder != null)
+                holder.removeAll(ids);
         });
     }
 
@@ -230,11 +455,7 @@ public class BuildRefDao {
             try {
                 List<BuildRefCompacted> compactedBuildsForBranch =
                     buildRefsInMemCache.get(runHistKey, () -> {
-                        List<BuildRefCompacted> branch = getBuildsForBranch(srvId, branchNameId);
-
-                        List<BuildRefCompacted> resForBranch = branch.stream()
-                            .filter(e -> e.buildTypeId() == buildTypeIdId)
-                            .collect(Collectors.toList());
+                        List<BuildRefCompacted> resForBranch = getBuildsNonCached(srvId, buildTypeIdId, branchNameId);
 
                         if (!resForBranch.isEmpty()) {
                             System.err.println("Branch " + compactor.getStringFromId(branchNameId)
@@ -242,8 +463,8 @@ public class BuildRefDao {
                                 + " builds " + resForBranch.size() + " ");
                         }
 
-                        return resForBranch;
-                    });
+                        return new RefsHolder(resForBranch);
+                    }).refs();
 
                 res.addAll(compactedBuildsForBranch);
             }
@@ -260,17 +481,47 @@ public class BuildRefDao {
      */
     @AutoProfiling
     public List<BuildRefCompacted> getQueuedAndRunning(int srvId) {
-        GridIntList list = new GridIntList(2);
         Integer stateQueuedId = compactor.getStringIdIfPresent(BuildRef.STATE_QUEUED);
-        if (stateQueuedId != null)
-            list.add(stateQueuedId);
-
         Integer stateRunningId = compactor.getStringIdIfPresent(BuildRef.STATE_RUNNING);
-        if (stateRunningId != null)
-            list.add(stateRunningId);
 
-        return compactedBuildsForServer(srvId, bref -> list.contains(bref.state()))
-            .collect(Collectors.toList());
+        if (stateQueuedId == null && stateRunningId == null)
+            return Collections.emptyList();
+
+        return query(srvId, "state in (?, ?)",
+            stateQueuedId == null ? stateRunningId : stateQueuedId,
+            stateRunningId == null ? stateQueuedId : stateRunningId);
+    }
+
+    /**
+     * Collects builds of suite in branch using index, non cached.
+     *
+     * @param srvId Server id.
+     * @param buildTypeIdId Build type (suite) id from compactor.
+     * @param branchNameId Branch name id from compactor.
+     */
+    public List<BuildRefCompacted> getBuildsNonCached(int srvId, int buildTypeIdId, int branchNameId) {
+        return query(srvId, "branchName = ? and buildTypeId = ?", branchNameId, buildTypeIdId);
+    }
+
+    /**
+     * @param srvId Server id.
+     * @param sqlCond SQL condition over indexed fields.
+     * @param args Arguments.
+     * @return references matching condition, filtered by server.
+     */
+    private List<BuildRefCompacted> query(int srvId, String sqlCond, Object... args) {
+        List<BuildRefCompacted> list = new ArrayList<>();
+
+        try (QueryCursor<Cache.Entry<Long, BuildRefCompacted>> qryCursor = buildRefsCache.query(
+            new SqlQuery<Long, BuildRefCompacted>(BuildRefCompacted.class, sqlCond).setArgs(args))) {
+
+            for (Cache.Entry<Long, BuildRefCompacted> next : qryCursor) {
+                if (isKeyForServer(next.getKey(), srvId))
+                    list.add(next.getValue());
+            }
+        }
+
+        return list;
     }
 
     private static long branchNameToHistCacheKey(long srvId, int branchName) {
@@ -289,7 +540,8 @@ public class BuildRefDao {
         long branchKey = branchNameToHistCacheKey(srvId, branchNameId);
 
         try {
-            return buildRefsInMemCacheForAllBranch.get(branchKey, () -> getBuildsForBranchNonCached(srvId, branchNameId));
+            return buildRefsInMemCacheForAllBranch.get(branchKey,
+                () -> new RefsHolder(getBuildsForBranchNonCached(srvId, branchNameId))).refs();
         }
         catch (ExecutionException e) {
             throw ExceptionUtil.propagateException(e);
@@ -297,21 +549,7 @@ public class BuildRefDao {
     }
 
     public List<BuildRefCompacted> getBuildsForBranchNonCached(int srvId, int branchNameId) {
-        List<BuildRefCompacted> list = new ArrayList<>();
-
-        try (QueryCursor<Cache.Entry<Long, BuildRefCompacted>> qryCursor = buildRefsCache.query(
-            new SqlQuery<Long, BuildRefCompacted>(BuildRefCompacted.class, "branchName = ?")
-                .setArgs((Integer)branchNameId))) {
-
-            for (Cache.Entry<Long, BuildRefCompacted> next : qryCursor) {
-                Long key = next.getKey();
-
-                if (!isKeyForServer(key, srvId))
-                    continue;
-
-                list.add(next.getValue());
-            }
-        }
+        List<BuildRefCompacted> list = query(srvId, "branchName = ?", branchNameId);
 
         if (!list.isEmpty()) {
             System.err.println(" Branch " + compactor.getStringFromId(branchNameId)
@@ -332,7 +570,15 @@ public class BuildRefDao {
 
         if (buildPersisted == null || !buildPersisted.equals(refCompacted)) {
             buildRefsCache.put(cacheKey, refCompacted);
-            invalidateHistoryInMem(srvId, Stream.of(refCompacted));
+
+            Map<Long, BuildRefCompacted> prevVersions = buildPersisted == null
+                ? Collections.emptyMap()
+                : Collections.singletonMap(cacheKey, buildPersisted);
+
+            // Copy is kept in memory, provided instance remains owned by caller and may be modified later.
+            BuildRefCompacted refCp = new BuildRefCompacted(refCompacted);
+
+            countersStorage.incrementAll(updateHistoryInMem(srvId, Collections.singletonList(refCp), prevVersions));
 
             return true;
         }
@@ -366,10 +612,78 @@ public class BuildRefDao {
     }
 
     public void remove(long key) {
-        buildRefsCache.remove(key);
+        removeAll(Collections.singleton(key));
     }
 
+    /**
+     * Removes references from persistence and from in-memory histories.
+     *
+     * @param keys Cache keys.
+     */
     public void removeAll(Set<Long> keys) {
+        Map<Long, BuildRefCompacted> removed = buildRefsCache.getAll(keys);
+
         buildRefsCache.removeAll(keys);
+
+        removeHistoryInMem(removed);
+    }
+
+    /**
+     * In-memory history: references list is replaced by patched copy, lists returned are not modified because these
+     * may be in use by readers.
+     */
+    private static class RefsHolder {
+        /** References. */
+        private volatile List<BuildRefCompacted> refs;
+
+        /**
+         * @param refs References.
+         */
+        RefsHolder(List<BuildRefCompacted> refs) {
+            this.refs = refs;
+        }
+
+        /**
+         * @return References.
+         */
+        List<BuildRefCompacted> refs() {
+            return refs;
+        }
+
+        /**
+         * @param updates New or changed references, updated entries are replaced and new entries are appended.
+         */
+        synchronized void merge(List<BuildRefCompacted> updates) {
+            Map<Integer, BuildRefCompacted> updById = new LinkedHashMap<>();
+            updates.forEach(ref -> updById.put(ref.id(), ref));
+
+            List<BuildRefCompacted> cached = refs;
+            List<BuildRefCompacted> res = new ArrayList<>(cached.size() + updById.size());
+
+            for (BuildRefCompacted ref : cached) {
+                BuildRefCompacted upd = updById.remove(ref.id());
+
+                res.add(upd != null ? upd : ref);
+            }
+
+            res.addAll(updById.values());
+
+            refs = res;
+        }
+
+        /**
+         * @param ids Build IDs to remove.
+         */
+        synchronized void removeAll(Set<Integer> ids) {
+            List<BuildRefCompacted> cached = refs;
+            List<BuildRefCompacted> res = new ArrayList<>(cached.size());
+
+            for (BuildRefCompacted ref : cached) {
+                if (!ids.contains(ref.id()))
+                    res.add(ref);
+            }
+
+            refs = res;
+        }
     }
 }
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcignited.buildref;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+import org.apache.ignite.tcbot.common.exeption.ExceptionUtil;
+import org.apache.ignite.tcservice.ITeamcityConn;
+import org.apache.ignite.tcservice.model.hist.BuildRef;
+
+/**
+ * Loads build reference pages in background: next pages are requested and parsed while previous ones are processed
+ * by the caller. Count of pages loaded ahead is limited by queue capacity.
+ */
+class BuildRefPagesPrefetcher implements AutoCloseable {
+    /** Max pages loaded, but not yet taken by the caller. */
+    static final int PREFETCH_PAGES = 2;
+
+    /** Pages loaded. */
+    private final BlockingQueue<Page> pages = new ArrayBlockingQueue<>(PREFETCH_PAGES);
+
+    /** Caller is not interested in more pages. */
+    private volatile boolean stopped;
+
+    /** Time spent to load and parse pages, nanos. */
+    private volatile long fetchNanos;
+
+    /** Time spent by the caller waiting for pages, nanos. */
+    private long waitNanos;
+
+    /** End of pages was reached. */
+    private boolean finished;
+
+    /**
+     * @param conn Connection.
+     * @param firstPageUrl URL of the first page to load.
+     * @param pool Pool to run loading.
+     */
+    BuildRefPagesPrefetcher(ITeamcityConn conn, String firstPageUrl, ExecutorService pool) {
+        pool.submit(() -> fetchPages(conn, firstPageUrl));
+    }
+
+    /**
+     * @param conn Connection.
+     * @param firstPageUrl First page url.
+     */
+    private void fetchPages(ITeamcityConn conn, String firstPageUrl) {
+        try {
+            String nextPageUrl = firstPageUrl;
+
+            while (nextPageUrl != null && !stopped) {
+                AtomicReference<String> outLinkNext = new AtomicReference<>();
+
+                long start = System.nanoTime();
+                List<BuildRef> page = conn.getBuildRefsPage(nextPageUrl, outLinkNext);
+                fetchNanos += System.nanoTime() - start;
+
+                put(new Page(page, null));
+
+                nextPageUrl = outLinkNext.get();
+            }
+
+            put(new Page(null, null));
+        }
+        catch (Throwable e) {
+            put(new Page(null, e));
+        }
+    }
+
+    /**
+     * @param page Page to put, waits until caller takes previous pages or stops iteration.
+     */
+    private void put(Page page) {
+        try {
+            while (!stopped) {
+                if (pages.offer(page, 100, TimeUnit.MILLISECONDS))
+                    return;
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Next page or null if there are no more pages.
+     */
+    @Nullable List<BuildRef> next() {
+        if (finished)
+            return null;
+
+        Page page;
+        long start = System.nanoTime();
+
+        try {
+            page = pages.take();
+        }
+        catch (InterruptedException e) {
+            throw ExceptionUtil.propagateException(e);
+        }
+        finally {
+            waitNanos += System.nanoTime() - start;
+        }
+
+        if (page.err != null) {
+            finished = true;
+
+            if (page.err instanceof Exception)
+                throw ExceptionUtil.propagateException((Exception)page.err);
+
+            throw (Error)page.err;
+        }
+
+        if (page.builds == null)
+            finished = true;
+
+        return page.builds;
+    }
+
+    /**
+     * @return Time spent to load and parse pages, millis.
+     */
+    long fetchMs() {
+        return TimeUnit.NANOSECONDS.toMillis(fetchNanos);
+    }
+
+    /**
+     * @return Time spent by the caller waiting for pages, millis.
+     */
+    long waitMs() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+    }
+
+    /** {@inheritDoc} */
+    @Override public void close() {
+        stopped = true;
+
+        pages.clear();
+    }
+
+    /**
+     * Loaded page, end marker, or loading error.
+     */
+    private static class Page {
+        /** Builds of page, null for end of pages. */
+        @Nullable private final List<BuildRef> builds;
+
+        /** Loading error. */
+        @Nullable private final Throwable err;
+
+        /**
+         * @param builds Builds.
+         * @param err Error.
+         */
+        Page(@Nullable List<BuildRef> builds, @Nullable Throwable err) {
+            this.builds = builds;
+            this.err = err;
+        }
+    }
+}
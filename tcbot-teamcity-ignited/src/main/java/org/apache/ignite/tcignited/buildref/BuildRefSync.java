@@ -18,6 +18,7 @@ package org.apache.ignite.tcignited.buildref;
 
 import java.time.Duration;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
@@ -30,6 +31,8 @@ import org.apache.ignite.tcbot.common.interceptor.MonitoredTask;
 import org.apache.ignite.tcbot.common.util.TimeUtil;
 import org.apache.ignite.tcignited.ITeamcityIgnited;
 import org.apache.ignite.tcignited.build.ProactiveFatBuildSync;
+import org.apache.ignite.tcignited.build.UpdateCountersStorage;
+import org.apache.ignite.tcignited.pool.TcRequestsPool;
 import org.apache.ignite.tcservice.ITeamcityConn;
 import org.apache.ignite.tcservice.model.hist.BuildRef;
 
@@ -54,6 +57,12 @@ public class BuildRefSync {
     /** Build Sync. */
     @Inject private ProactiveFatBuildSync fatBuildSync;
 
+    /** Update Counters for branch-related changes storage. */
+    @Inject private UpdateCountersStorage countersStorage;
+
+    /** Pool for loading of build reference pages ahead of processing. */
+    @Inject private TcRequestsPool requestsPool;
+
     public enum SyncMode {
         ULTRAFAST,
         FULL_REINDEX,
@@ -76,12 +85,37 @@ public class BuildRefSync {
         @Nullable Set<Integer> mandatoryToReload,
         ITeamcityConn conn) {
 
+        // Branches updated during this sync, counters are incremented once per sync instead of once per page.
+        Set<Integer> branchesUpdated = new HashSet<>();
+
+        try {
+            return actualizeBuildRefs(srvId, syncMode, mandatoryToReload, conn, branchesUpdated);
+        }
+        finally {
+            countersStorage.incrementAll(branchesUpdated);
+        }
+    }
+
+    /**
+     * @param srvId Server id.
+     * @param syncMode Sync mode.
+     * @param mandatoryToReload [in/out] Build ID should be found before end of sync.
+     * @param conn Teamcity to check builds.
+     * @param branchesUpdated [out] Branch names IDs having updated builds.
+     */
+    private String actualizeBuildRefs(String srvId,
+        SyncMode syncMode,
+        @Nullable Set<Integer> mandatoryToReload,
+        ITeamcityConn conn,
+        Set<Integer> branchesUpdated) {
         AtomicReference<String> outLinkNext = new AtomicReference<>();
+        long fetchStart = System.currentTimeMillis();
         List<BuildRef> tcDataFirstPage = conn.getBuildRefsPage(null, outLinkNext);
 
         long start = System.currentTimeMillis();
+        long fetchMs = start - fetchStart;
         int srvIdMaskHigh = ITeamcityIgnited.serverIdToInt(srvId);
-        Set<Long> buildsUpdated = buildRefDao.saveChunk(srvIdMaskHigh, tcDataFirstPage);
+        Set<Long> buildsUpdated = buildRefDao.saveChunk(srvIdMaskHigh, tcDataFirstPage, branchesUpdated);
         int totalUpdated = buildsUpdated.size();
         fatBuildSync.scheduleBuildsLoad(conn, cacheKeysToBuildIds(buildsUpdated));
 
@@ -112,42 +146,56 @@ public class BuildRefSync {
         //reason for end for incremental sync: decrementing counter of builds to find without modification to stop search.
         int buildsCntrToStop = INCREMENTAL_BUILDS_WO_MODIFICATION_TO_STOP;
 
-        while (outLinkNext.get() != null) {
-            String nextPageUrl = outLinkNext.get();
-            outLinkNext.set(null);
-            List<BuildRef> tcDataNextPage = conn.getBuildRefsPage(nextPageUrl, outLinkNext);
-            Set<Long> curChunkBuildsSaved = buildRefDao.saveChunk(srvIdMaskHigh, tcDataNextPage);
-            totalUpdated += curChunkBuildsSaved.size();
-            fatBuildSync.scheduleBuildsLoad(conn, cacheKeysToBuildIds(curChunkBuildsSaved));
-
-            int savedCurChunk = curChunkBuildsSaved.size();
-
-            totalChecked += tcDataNextPage.size();
-            if (savedCurChunk != 0) {
-                lastTimeUpdateFound = System.currentTimeMillis();
-
-                buildsCntrToStop = INCREMENTAL_BUILDS_WO_MODIFICATION_TO_STOP;
-            } else
-                buildsCntrToStop -= tcDataNextPage.size();
-
-            if (syncMode == SyncMode.ULTRAFAST && isEmpty(mandatoryToReload))
-                break;
-            else if (syncMode==SyncMode.FULL_REINDEX) {
-                timeoutForNewBuild = System.currentTimeMillis() > lastTimeUpdateFound + maxMsWithoutChanges;
-                if (timeoutForNewBuild
-                    && totalChecked > MAX_INCREMENTAL_BUILDS_TO_CHECK)
-                    break;
-            }
-            else {
-                boolean noMandatoryBuildsLeft = isEmpty(mandatoryToReload);
-                if (!noMandatoryBuildsLeft)
-                    tcDataNextPage.stream().map(BuildRef::getId).forEach(mandatoryToReload::remove);
-
-                if (buildsCntrToStop <= 0
-                    && (noMandatoryBuildsLeft || totalChecked > MAX_INCREMENTAL_BUILDS_TO_CHECK)) {
-                    // There are no modification at current page, hopefully no modifications at all
-                    break;
+        long saveMs = 0;
+        long scheduleMs = 0;
+        long waitMs = 0;
+
+        if (outLinkNext.get() != null) {
+            try (BuildRefPagesPrefetcher pages = new BuildRefPagesPrefetcher(conn, outLinkNext.get(), requestsPool.getService())) {
+                List<BuildRef> tcDataNextPage;
+
+                while ((tcDataNextPage = pages.next()) != null) {
+                    long saveStart = System.currentTimeMillis();
+                    Set<Long> curChunkBuildsSaved = buildRefDao.saveChunk(srvIdMaskHigh, tcDataNextPage, branchesUpdated);
+                    long scheduleStart = System.currentTimeMillis();
+                    totalUpdated += curChunkBuildsSaved.size();
+                    fatBuildSync.scheduleBuildsLoad(conn, cacheKeysToBuildIds(curChunkBuildsSaved));
+                    saveMs += scheduleStart - saveStart;
+                    scheduleMs += System.currentTimeMillis() - scheduleStart;
+
+                    int savedCurChunk = curChunkBuildsSaved.size();
+
+                    totalChecked += tcDataNextPage.size();
+                    if (savedCurChunk != 0) {
+                        lastTimeUpdateFound = System.currentTimeMillis();
+
+                        buildsCntrToStop = INCREMENTAL_BUILDS_WO_MODIFICATION_TO_STOP;
+                    } else
+                        buildsCntrToStop -= tcDataNextPage.size();
+
+                    if (syncMode == SyncMode.ULTRAFAST && isEmpty(mandatoryToReload))
+                        break;
+                    else if (syncMode==SyncMode.FULL_REINDEX) {
+                        timeoutForNewBuild = System.currentTimeMillis() > lastTimeUpdateFound + maxMsWithoutChanges;
+                        if (timeoutForNewBuild
+                            && totalChecked > MAX_INCREMENTAL_BUILDS_TO_CHECK)
+                            break;
+                    }
+                    else {
+                        boolean noMandatoryBuildsLeft = isEmpty(mandatoryToReload);
+                        if (!noMandatoryBuildsLeft)
+                            tcDataNextPage.stream().map(BuildRef::getId).forEach(mandatoryToReload::remove);
+
+                        if (buildsCntrToStop <= 0
+                            && (noMandatoryBuildsLeft || totalChecked > MAX_INCREMENTAL_BUILDS_TO_CHECK)) {
+                            // There are no modification at current page, hopefully no modifications at all
+                            break;
+                        }
+                    }
                 }
+
+                fetchMs += pages.fetchMs();
+                waitMs = pages.waitMs();
             }
         }
 
@@ -168,6 +216,15 @@ public class BuildRefSync {
         sb.append(TimeUtil.millisToDurationPrintable(System.currentTimeMillis()- lastTimeUpdateFound));
         sb.append(" ago");
 
+        sb.append(" Pages fetch ");
+        sb.append(TimeUtil.millisToDurationPrintable(fetchMs));
+        sb.append(" (waited ");
+        sb.append(TimeUtil.millisToDurationPrintable(waitMs));
+        sb.append("), save ");
+        sb.append(TimeUtil.millisToDurationPrintable(saveMs));
+        sb.append(", schedule load ");
+        sb.append(TimeUtil.millisToDurationPrintable(scheduleMs));
+
         if(timeoutForNewBuild) {
             sb.append("TIMEOUT, total time: ");
             sb.append(TimeUtil.millisToDurationPrintable(System.currentTimeMillis()- start));
@@ -0,0 +1,375 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.buildtime;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.apache.ignite.binary.BinaryObject;
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
+import org.apache.ignite.tcbot.common.interceptor.MonitoredTask;
+import org.apache.ignite.tcbot.persistence.IStringCompactor;
+import org.apache.ignite.tcbot.persistence.scheduler.IScheduler;
+import org.apache.ignite.tcignited.ITeamcityIgnited;
+import org.apache.ignite.tcignited.build.FatBuildDao;
+import org.apache.ignite.tcignited.build.IFatBuildListener;
+import org.apache.ignite.tcignited.buildref.BuildRefDao;
+import org.apache.ignite.tcservice.model.hist.BuildRef;
+import org.apache.ignite.tcservice.model.result.problems.ProblemOccurrence;
+import org.apache.ignite.tcservice.model.result.stat.Statistics;
+
+/**
+ * Build times of finished builds aggregated by (server, build type). Builds are added as soon as fat build is saved,
+ * so analytics for any window up to {@link #MAX_DAYS} is calculated without loading builds.
+ *
+ * Each build type has ring of buckets, bucket keeps count and total duration of builds started within
+ * {@link #BUCKET_HOURS} hours.
+ */
+public class BuildTimeAggregator implements IFatBuildListener {
+    /** Max age of builds aggregated, days. */
+    public static final int MAX_DAYS = 30;
+
+    /** Duration of the bucket, hours. */
+    public static final int BUCKET_HOURS = 4;
+
+    /** Buckets per day. */
+    private static final int BUCKETS_PER_DAY = 24 / BUCKET_HOURS;
+
+    /** Buckets count, one extra bucket is required because current bucket is not complete. */
+    private static final int BUCKETS = MAX_DAYS * BUCKETS_PER_DAY + 1;
+
+    /** Fat build DAO. */
+    @Inject private FatBuildDao fatBuildDao;
+
+    /** Compactor. */
+    @Inject private IStringCompactor compactor;
+
+    /** Scheduler. */
+    @Inject private IScheduler scheduler;
+
+    /** Aggregation started flag. */
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /** Finished state string ID. */
+    private volatile int stateFinished;
+
+    /** Running state string ID. */
+    private volatile int stateRunning;
+
+    /** Build duration statistic string ID. */
+    private volatile int buildDurationId;
+
+    /** Execution timeout problem string ID. */
+    private volatile int timeoutProblemCode;
+
+    /** Build times, map from (srvId||buildTypeId)->buckets. Guarded by this. */
+    private final Map<Long, BuildTypeTimes> byBuildType = new HashMap<>();
+
+    /** Server ID -> IDs of builds already aggregated. Guarded by this. */
+    private final Map<Integer, BitSet> aggregated = new HashMap<>();
+
+    /**
+     * Starts aggregation on first call: registers listener of saved builds and schedules loading of recent builds
+     * already saved.
+     *
+     * @param srvCodes Servers to load builds.
+     */
+    public void ensureStarted(Collection<String> srvCodes) {
+        if (!started.compareAndSet(false, true))
+            return;
+
+        stateFinished = compactor.getStringId(BuildRef.STATE_FINISHED);
+        stateRunning = compactor.getStringId(BuildRef.STATE_RUNNING);
+        buildDurationId = compactor.getStringId(Statistics.BUILD_DURATION);
+        timeoutProblemCode = compactor.getStringId(ProblemOccurrence.TC_EXECUTION_TIMEOUT);
+
+        fatBuildDao.addListener(this);
+
+        scheduler.invokeLater(() -> loadRecentBuilds(srvCodes), 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Adds builds already saved. Builds are scanned in binary form, so only fields required for build time are read,
+     * tests are not loaded. Builds saved concurrently are not counted twice.
+     *
+     * @param srvCodes Servers to load builds.
+     */
+    @SuppressWarnings("WeakerAccess")
+    @MonitoredTask(name = "Load Build Times")
+    protected String loadRecentBuilds(Collection<String> srvCodes) {
+        Set<Integer> srvIds = srvCodes.stream().map(ITeamcityIgnited::serverIdToInt).collect(Collectors.toSet());
+
+        long now = System.currentTimeMillis();
+        long minStartTs = now - TimeUnit.DAYS.toMillis(MAX_DAYS) - TimeUnit.HOURS.toMillis(BUCKET_HOURS);
+
+        // Locals are captured instead of fields, filter and transformer should not reference the aggregator.
+        int finished = stateFinished;
+        int running = stateRunning;
+        int durationId = buildDurationId;
+        int timeoutCode = timeoutProblemCode;
+
+        AtomicInteger cnt = new AtomicInteger();
+
+        fatBuildDao.scanBuilds(
+            (key, build) -> srvIds.contains(BuildRefDao.cacheKeyToSrvId(key))
+                && isFinishedAfter(build, finished, minStartTs),
+            entry -> SavedBuildTime.read(entry.getKey(), entry.getValue(), running, durationId, timeoutCode),
+            build -> {
+                addBuild(build.srvId, build.buildTypeId, build.buildId, build.startTs, build.runningTime,
+                    build.hasTimeout, now);
+
+                cnt.incrementAndGet();
+            });
+
+        return "Builds added " + cnt.get();
+    }
+
+    /**
+     * @param build Binary build.
+     * @param stateFinished Finished state string ID.
+     * @param minStartTs Min start timestamp.
+     * @return {@code True} if build is finished suite run started not earlier than timestamp.
+     */
+    private static boolean isFinishedAfter(BinaryObject build, int stateFinished, long minStartTs) {
+        Integer state = build.field("state");
+        Long startTs = build.field("startDate");
+
+        return state != null && state == stateFinished
+            && startTs != null && startTs >= minStartTs
+            && !FatBuildDao.isCompositeOrFakeStub(build);
+    }
+
+    /** {@inheritDoc} */
+    @Override public void onBuildSaved(int srvIdMaskHigh, int buildId, FatBuildCompacted build) {
+        if (build.isFakeStub() || build.isComposite() || build.state() != stateFinished)
+            return;
+
+        long startTs = build.getStartDateTs();
+
+        if (startTs <= 0)
+            return;
+
+        long runningTime = FatBuildDao.getBuildRunningTime(stateRunning, buildDurationId, build);
+
+        if (runningTime <= 0)
+            return;
+
+        addBuild(srvIdMaskHigh, build.buildTypeId(), buildId, startTs, runningTime,
+            build.hasBuildProblemType(timeoutProblemCode), System.currentTimeMillis());
+    }
+
+    /**
+     * @param srvId Server ID.
+     * @param buildTypeId Build type string ID.
+     * @param buildId Build ID.
+     * @param startTs Build start timestamp.
+     * @param runningTime Running time of the build.
+     * @param hasTimeout Build has execution timeout problem.
+     * @param now Current timestamp.
+     */
+    synchronized void addBuild(int srvId, int buildTypeId, int buildId, long startTs, long runningTime,
+        boolean hasTimeout, long now) {
+        int curBucket = bucket(now);
+        int bucket = Math.min(bucket(startTs), curBucket);
+
+        if (bucket <= curBucket - BUCKETS)
+            return;
+
+        BitSet builds = aggregated.computeIfAbsent(srvId, k -> new BitSet());
+
+        if (builds.get(buildId))
+            return;
+
+        builds.set(buildId);
+
+        byBuildType.computeIfAbsent(BuildTimeResult.buildTypeToCacheKey(srvId, buildTypeId), k -> new BuildTypeTimes())
+            .add(bucket, runningTime, hasTimeout);
+    }
+
+    /**
+     * @param days Window size, days, up to {@link #MAX_DAYS}. Window boundary is rounded to {@link #BUCKET_HOURS}.
+     * @return Build times of builds started within the window.
+     */
+    public BuildTimeResult result(int days) {
+        return result(days, System.currentTimeMillis());
+    }
+
+    /**
+     * @param days Window size, days.
+     * @param now Current timestamp.
+     */
+    synchronized BuildTimeResult result(int days, long now) {
+        int curBucket = bucket(now);
+        int minBucket = curBucket - Math.min(days, MAX_DAYS) * BUCKETS_PER_DAY;
+
+        BuildTimeResult res = new BuildTimeResult();
+
+        byBuildType.forEach((key, times) -> times.addTo(res, key, minBucket, curBucket));
+
+        return res;
+    }
+
+    /**
+     * @param ts Timestamp.
+     */
+    private static int bucket(long ts) {
+        return (int)(ts / TimeUnit.HOURS.toMillis(BUCKET_HOURS));
+    }
+
+    /**
+     * Fields of saved build required for build time.
+     */
+    private static class SavedBuildTime {
+        /** Server ID. */
+        private final int srvId;
+
+        /** Build ID. */
+        private final int buildId;
+
+        /** Build type string ID. */
+        private final int buildTypeId;
+
+        /** Start timestamp. */
+        private final long startTs;
+
+        /** Running time. */
+        private final long runningTime;
+
+        /** Build has execution timeout problem. */
+        private final boolean hasTimeout;
+
+        /**
+         * @param srvId Server ID.
+         * @param buildId Build ID.
+         * @param buildTypeId Build type string ID.
+         * @param startTs Start timestamp.
+         * @param runningTime Running time.
+         * @param hasTimeout Has timeout.
+         */
+        private SavedBuildTime(int srvId, int buildId, int buildTypeId, long startTs, long runningTime,
+            boolean hasTimeout) {
+            this.srvId = srvId;
+            this.buildId = buildId;
+            this.buildTypeId = buildTypeId;
+            this.startTs = startTs;
+            this.runningTime = runningTime;
+            this.hasTimeout = hasTimeout;
+        }
+
+        /**
+         * @param key Cache key.
+         * @param build Binary build.
+         * @param stateRunning Running state string ID.
+         * @param buildDurationId Build duration statistic string ID.
+         * @param timeoutProblemCode Execution timeout problem string ID.
+         * @return Build time or {@code null} if running time is unknown.
+         */
+        static SavedBuildTime read(long key, BinaryObject build, int stateRunning, int buildDurationId,
+            int timeoutProblemCode) {
+            long runningTime = FatBuildDao.getBuildRunningTime(stateRunning, buildDurationId, build);
+
+            if (runningTime <= 0)
+                return null;
+
+            int buildTypeId = build.field("buildTypeId");
+            long startTs = build.field("startDate");
+
+            return new SavedBuildTime(BuildRefDao.cacheKeyToSrvId(key), BuildRefDao.cacheKeyToBuildId(key),
+                buildTypeId, startTs, runningTime, FatBuildDao.hasBuildProblemType(build, timeoutProblemCode));
+        }
+    }
+
+    /**
+     * Ring of buckets for one build type. Slot is reused when bucket becomes older than {@link #MAX_DAYS}.
+     */
+    private static class BuildTypeTimes {
+        /** Bucket number stored in slot. */
+        private final int[] bucketNo = new int[BUCKETS];
+
+        /** Count of builds. */
+        private final int[] cnt = new int[BUCKETS];
+
+        /** Total duration of builds. */
+        private final long[] duration = new long[BUCKETS];
+
+        /** Count of timed out builds. */
+        private final int[] timeoutCnt = new int[BUCKETS];
+
+        /** Total duration of timed out builds. */
+        private final long[] timeoutDuration = new long[BUCKETS];
+
+        /**
+         * @param bucket Bucket.
+         * @param runningTime Running time.
+         * @param hasTimeout Has timeout.
+         */
+        void add(int bucket, long runningTime, boolean hasTimeout) {
+            int slot = bucket % BUCKETS;
+
+            if (bucketNo[slot] != bucket) {
+                if (bucketNo[slot] > bucket)
+                    return; // Slot already reused by a newer bucket, build is out of window.
+
+                bucketNo[slot] = bucket;
+                cnt[slot] = 0;
+                duration[slot] = 0;
+                timeoutCnt[slot] = 0;
+                timeoutDuration[slot] = 0;
+            }
+
+            cnt[slot]++;
+            duration[slot] += runningTime;
+
+            if (hasTimeout) {
+                timeoutCnt[slot]++;
+                timeoutDuration[slot] += runningTime;
+            }
+        }
+
+        /**
+         * @param res Result to add totals.
+         * @param key Key built from server ID and build type ID.
+         * @param minBucket Min bucket, exclusive.
+         * @param maxBucket Max bucket, inclusive.
+         */
+        void addTo(BuildTimeResult res, long key, int minBucket, int maxBucket) {
+            int totalCnt = 0;
+            long totalDuration = 0;
+            int totalTimeoutCnt = 0;
+            long totalTimeoutDuration = 0;
+
+            for (int slot = 0; slot < BUCKETS; slot++) {
+                if (bucketNo[slot] <= minBucket || bucketNo[slot] > maxBucket)
+                    continue;
+
+                totalCnt += cnt[slot];
+                totalDuration += duration[slot];
+                totalTimeoutCnt += timeoutCnt[slot];
+                totalTimeoutDuration += timeoutDuration[slot];
+            }
+
+            res.addBuilds(key, totalDuration, totalCnt, totalTimeoutDuration, totalTimeoutCnt);
+        }
+    }
+}
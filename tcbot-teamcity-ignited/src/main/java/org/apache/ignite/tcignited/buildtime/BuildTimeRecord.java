@@ -25,6 +25,11 @@ public class BuildTimeRecord {
         cnt++;
     }
 
+    public void addInvocations(long totalRunningTimeMs, int invocations) {
+        totaltime += totalRunningTimeMs;
+        cnt += invocations;
+    }
+
     public long avgDuration() {
         if (cnt == 0)
             return 0;
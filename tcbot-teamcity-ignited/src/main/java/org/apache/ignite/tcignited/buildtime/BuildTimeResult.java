@@ -39,6 +39,21 @@ public class BuildTimeResult {
             timedOutByBuildType.computeIfAbsent(cacheKey, k -> new BuildTimeRecord()).addInvocation(runningTime);
     }
 
+    /**
+     * @param cacheKey Key built from server ID and build type ID.
+     * @param runningTime Total running time of builds.
+     * @param cnt Count of builds.
+     * @param timedOutRunningTime Total running time of timed out builds.
+     * @param timedOutCnt Count of timed out builds.
+     */
+    public void addBuilds(long cacheKey, long runningTime, int cnt, long timedOutRunningTime, int timedOutCnt) {
+        if (cnt > 0)
+            btByBuildType.computeIfAbsent(cacheKey, k -> new BuildTimeRecord()).addInvocations(runningTime, cnt);
+
+        if (timedOutCnt > 0)
+            timedOutByBuildType.computeIfAbsent(cacheKey, k -> new BuildTimeRecord()).addInvocations(timedOutRunningTime, timedOutCnt);
+    }
+
     public static long buildTypeToCacheKey(long srvId, int btId) {
         return (long)btId | srvId << 32;
     }
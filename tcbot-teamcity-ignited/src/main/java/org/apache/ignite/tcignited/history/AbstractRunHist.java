@@ -16,8 +16,6 @@
  */
 package org.apache.ignite.tcignited.history;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import javax.annotation.Nullable;
@@ -102,76 +100,163 @@ public abstract class AbstractRunHist implements IRunHistory {
         return statusChange;
     }
 
-    @Nullable
-    public Integer detectTemplate(IEventTemplate t) {
-        int centralEvtBuild = t.beforeEvent().length;
+    /**
+     * @return Count of invocations in history.
+     */
+    protected abstract int historySize();
 
-        int[] template = concatArr(t.beforeEvent(), t.eventAndAfter());
+    /**
+     * @param idx Invocation index, from 0 to {@link #historySize()} exclusive.
+     * @return Invocation status.
+     */
+    protected abstract int statusAt(int idx);
+
+    /**
+     * @param idx Invocation index, from 0 to {@link #historySize()} exclusive.
+     * @return Build ID of invocation.
+     */
+    protected abstract int buildIdAt(int idx);
+
+    /**
+     * @return Cursor over invocation statuses, from the latest invocation to the first one.
+     */
+    protected StatusCursor statusesFromLatest() {
+        return new StatusCursor() {
+            private int idx = historySize() - 1;
+
+            @Override public boolean hasNext() {
+                return idx >= 0;
+            }
 
-        assert centralEvtBuild < template.length;
-        assert centralEvtBuild >= 0;
+            @Override public int next() {
+                return statusAt(idx--);
+            }
+        };
+    }
 
-        boolean includeMissing = t.includeMissing();
+    /**
+     * @return Index of the first non-missing invocation, or -1 if all invocations are missing.
+     */
+    protected int firstNonMissingIdx() {
+        int size = historySize();
 
-        List<Invocation> histAsArr = new ArrayList<>();
-        for (Invocation invocation : invocations()) {
-            if (includeMissing || invocation.status() != InvocationData.MISSING)
-                histAsArr.add(invocation);
+        for (int idx = 0; idx < size; idx++) {
+            if (statusAt(idx) != InvocationData.MISSING)
+                return idx;
         }
 
-        if (histAsArr.size() < template.length)
-            return null;
+        return -1;
+    }
+
+    /** {@inheritDoc} */
+    @Nullable
+    @Override public Integer detectTemplate(IEventTemplate t) {
+        return detectTemplates(t)[0];
+    }
+
+    /**
+     * Detects all templates during single pass over history, from the latest invocation. Each template is matched by
+     * its precompiled {@link EventTemplateMatcher}, so pass stops as soon as most recent occurrences of all templates
+     * are found.
+     *
+     * {@inheritDoc}
+     */
+    @Override public Integer[] detectTemplates(IEventTemplate... templates) {
+        int tCnt = templates.length;
+        Integer[] res = new Integer[tCnt];
 
-        Integer detectedAt = null;
+        if (tCnt == 0)
+            return res;
 
-        //startIgnite from the end to find most recent
-        for (int idx = histAsArr.size() - template.length; idx >= 0; idx--) {
-            detectedAt = checkTemplateAtPos(template, centralEvtBuild, histAsArr, idx);
+        EventTemplateMatcher[] matchers = new EventTemplateMatcher[tCnt];
+        long[] states = new long[tCnt];
+        int[] hitIdx = new int[tCnt];
 
-            if (detectedAt != null)
-                break;
+        for (int i = 0; i < tCnt; i++) {
+            matchers[i] = templates[i].matcher();
+            hitIdx[i] = -1;
         }
 
-        if (detectedAt != null && t.shouldBeFirstNonMissing()) {
-            for (Invocation invocation : invocations()) {
-                if (invocation.status() != InvocationData.MISSING)
-                    return invocation.buildId() != detectedAt ? null : detectedAt;
-            }
+        int unresolved = tCnt;
+        int idx = historySize() - 1;
 
-            return null;
+        for (StatusCursor cur = statusesFromLatest(); cur.hasNext() && unresolved > 0; idx--) {
+            int status = cur.next();
+
+            for (int i = 0; i < tCnt; i++) {
+                EventTemplateMatcher m = matchers[i];
+
+                if (hitIdx[i] >= 0 || m.skips(status))
+                    continue;
+
+                states[i] = m.step(states[i], status);
+
+                if (m.isHit(states[i])) {
+                    hitIdx[i] = idx;
+                    unresolved--;
+                }
+            }
         }
 
-        return detectedAt;
-    }
+        int firstNonMissingBuildId = -1;
 
-    private static int[] concatArr(int[] arr1, int[] arr2) {
-        int[] arr1and2 = new int[arr1.length + arr2.length];
-        System.arraycopy(arr1, 0, arr1and2, 0, arr1.length);
-        System.arraycopy(arr2, 0, arr1and2, arr1.length, arr2.length);
+        for (int i = 0; i < tCnt; i++) {
+            if (hitIdx[i] < 0)
+                continue;
 
-        return arr1and2;
-    }
+            int detectedAt = buildIdAt(centralIdx(matchers[i], hitIdx[i]));
 
-    @Nullable
-    private static Integer checkTemplateAtPos(int[] template, int centralEvtBuild, List<Invocation> histAsArr,
-        int idx) {
-        for (int tIdx = 0; tIdx < template.length; tIdx++) {
-            Invocation curStatus = histAsArr.get(idx + tIdx);
+            if (matchers[i].shouldBeFirstNonMissing()) {
+                if (firstNonMissingBuildId < 0) {
+                    int firstIdx = firstNonMissingIdx();
 
-            if (curStatus == null)
-                break;
+                    if (firstIdx < 0)
+                        continue;
 
-            RunStatus tmpl = RunStatus.byCode(template[tIdx]);
+                    firstNonMissingBuildId = buildIdAt(firstIdx);
+                }
 
-            if ((tmpl == RunStatus.RES_OK_OR_FAILURE && (curStatus.status() == InvocationData.OK || curStatus.status() == InvocationData.FAILURE))
-                || curStatus.status() == tmpl.getCode()) {
-                if (tIdx == template.length - 1)
-                    return histAsArr.get(idx + centralEvtBuild).buildId();
+                if (firstNonMissingBuildId != detectedAt)
+                    continue;
             }
-            else
-                break;
+
+            res[i] = detectedAt;
         }
 
-        return null;
+        return res;
+    }
+
+    /**
+     * @param m Matcher.
+     * @param startIdx Index of invocation matched by template start.
+     * @return Index of invocation matched by template event.
+     */
+    private int centralIdx(EventTemplateMatcher m, int startIdx) {
+        int idx = startIdx;
+
+        for (int matched = 0; ; idx++) {
+            if (m.skips(statusAt(idx)))
+                continue;
+
+            if (matched == m.central())
+                return idx;
+
+            matched++;
+        }
+    }
+
+    /**
+     * Reader of invocation statuses.
+     */
+    protected interface StatusCursor {
+        /**
+         * @return {@code true} if more statuses are available.
+         */
+        boolean hasNext();
+
+        /**
+         * @return Next status.
+         */
+        int next();
     }
 }
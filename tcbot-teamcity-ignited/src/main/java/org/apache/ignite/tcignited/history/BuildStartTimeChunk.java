@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcignited.history;
+
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import org.apache.ignite.tcbot.persistence.Persisted;
+
+/**
+ * Start times of builds having IDs in one range of {@link #CHUNK_SIZE} IDs. Entries are sorted by build ID and stored
+ * delta encoded: for each build there is variable length build ID delta and zigzag encoded start time delta from the
+ * previous entry.
+ *
+ * Decoded arrays are kept in memory and are the working state, entries are encoded only when chunk is copied for save.
+ * All access is synchronized on chunk.
+ */
+@Persisted
+public class BuildStartTimeChunk {
+    /** Bits of build ID used for position in chunk. */
+    public static final int CHUNK_BITS = 10;
+
+    /** Builds IDs range covered by one chunk. */
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /** Entries count. */
+    private int cnt;
+
+    /** Encoded entries, null if decoded arrays were modified after last encoding. */
+    @Nullable private byte[] data;
+
+    /** Sorted build IDs, decoded. */
+    @Nullable private transient int[] ids;
+
+    /** Start timestamps of builds, decoded. */
+    @Nullable private transient long[] startTs;
+
+    /** Max start timestamp of entries from first to current, inclusive: non decreasing, so allows binary search. */
+    @Nullable private transient long[] maxStartTs;
+
+    /**
+     * Creates empty chunk.
+     */
+    public BuildStartTimeChunk() {
+        this(0, new byte[0]);
+    }
+
+    /**
+     * @param cnt Entries count.
+     * @param data Encoded entries.
+     */
+    private BuildStartTimeChunk(int cnt, byte[] data) {
+        this.cnt = cnt;
+        this.data = data;
+    }
+
+    /**
+     * @param buildId Build ID.
+     * @return Number of chunk containing build.
+     */
+    public static int chunkNumber(int buildId) {
+        return buildId >>> CHUNK_BITS;
+    }
+
+    /**
+     * @param buildId Build ID.
+     * @return Start timestamp or null if build is not present.
+     */
+    @Nullable public synchronized Long startTime(int buildId) {
+        decodeIfNeeded();
+
+        int idx = Arrays.binarySearch(ids, 0, cnt, buildId);
+
+        return idx < 0 ? null : startTs[idx];
+    }
+
+    /**
+     * @param buildId Build ID.
+     * @param ts Start timestamp.
+     * @return {@code True} if build was added, {@code false} if start time for build was already present.
+     */
+    public synchronized boolean putIfAbsent(int buildId, long ts) {
+        decodeIfNeeded();
+
+        int idx = Arrays.binarySearch(ids, 0, cnt, buildId);
+
+        if (idx >= 0)
+            return false;
+
+        int insIdx = -(idx + 1);
+
+        if (cnt == ids.length) {
+            int newCap = Math.min(CHUNK_SIZE, Math.max(8, cnt * 2));
+
+            ids = Arrays.copyOf(ids, newCap);
+            startTs = Arrays.copyOf(startTs, newCap);
+            maxStartTs = Arrays.copyOf(maxStartTs, newCap);
+        }
+
+        System.arraycopy(ids, insIdx, ids, insIdx + 1, cnt - insIdx);
+        System.arraycopy(startTs, insIdx, startTs, insIdx + 1, cnt - insIdx);
+
+        ids[insIdx] = buildId;
+        startTs[insIdx] = ts;
+        cnt++;
+
+        updateMaxStartTs(insIdx);
+        data = null;
+
+        return true;
+    }
+
+    /**
+     * @param buildId Build ID.
+     * @return {@code True} if build was removed.
+     */
+    public synchronized boolean remove(int buildId) {
+        decodeIfNeeded();
+
+        int idx = Arrays.binarySearch(ids, 0, cnt, buildId);
+
+        if (idx < 0)
+            return false;
+
+        System.arraycopy(ids, idx + 1, ids, idx, cnt - idx - 1);
+        System.arraycopy(startTs, idx + 1, startTs, idx, cnt - idx - 1);
+        cnt--;
+
+        updateMaxStartTs(idx);
+        data = null;
+
+        return true;
+    }
+
+    /**
+     * @return Entries count.
+     */
+    public synchronized int size() {
+        return cnt;
+    }
+
+    /**
+     * @return Max start timestamp of builds in chunk, or {@link Long#MIN_VALUE} for empty chunk.
+     */
+    public synchronized long maxStartTime() {
+        decodeIfNeeded();
+
+        return cnt == 0 ? Long.MIN_VALUE : maxStartTs[cnt - 1];
+    }
+
+    /**
+     * @return Biggest build ID in chunk or null for empty chunk.
+     */
+    @Nullable public synchronized Integer lastBuildId() {
+        decodeIfNeeded();
+
+        return cnt == 0 ? null : ids[cnt - 1];
+    }
+
+    /**
+     * Finds border for builds started before provided timestamp: this build and all builds having smaller IDs in chunk
+     * were started before the timestamp.
+     *
+     * @param ts Timestamp.
+     * @return Build ID, or null if the first build of chunk was started at {@code ts} or later.
+     */
+    @Nullable public synchronized Integer lastBuildStartedBefore(long ts) {
+        decodeIfNeeded();
+
+        int lo = 0;
+        int hi = cnt;
+
+        // Find first entry with max start timestamp >= ts.
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+
+            if (maxStartTs[mid] < ts)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        return lo == 0 ? null : ids[lo - 1];
+    }
+
+    /**
+     * @return Immutable copy of persisted state to be saved, can be written without holding lock of this chunk.
+     */
+    public synchronized BuildStartTimeChunk copyForSave() {
+        if (data == null)
+            encode();
+
+        return new BuildStartTimeChunk(cnt, data);
+    }
+
+    /**
+     * @param fromIdx Index of first changed entry.
+     */
+    private void updateMaxStartTs(int fromIdx) {
+        for (int i = fromIdx; i < cnt; i++)
+            maxStartTs[i] = i == 0 ? startTs[i] : Math.max(maxStartTs[i - 1], startTs[i]);
+    }
+
+    /**
+     * Fills decoded arrays from persisted data, for chunk loaded from storage.
+     */
+    private void decodeIfNeeded() {
+        if (ids != null)
+            return;
+
+        ids = new int[cnt];
+        startTs = new long[cnt];
+        maxStartTs = new long[cnt];
+
+        int[] pos = new int[1];
+        int prevId = 0;
+        long prevTs = 0;
+
+        for (int i = 0; i < cnt; i++) {
+            prevId += (int)readVarLong(data, pos);
+            prevTs += zigZagDecode(readVarLong(data, pos));
+
+            ids[i] = prevId;
+            startTs[i] = prevTs;
+        }
+
+        updateMaxStartTs(0);
+    }
+
+    /**
+     * Encodes entries to persisted data.
+     */
+    private void encode() {
+        byte[] buf = new byte[cnt * 15];
+        int pos = 0;
+        int prevId = 0;
+        long prevTs = 0;
+
+        for (int i = 0; i < cnt; i++) {
+            pos = writeVarLong(buf, pos, ids[i] - prevId);
+            pos = writeVarLong(buf, pos, zigZagEncode(startTs[i] - prevTs));
+
+            prevId = ids[i];
+            prevTs = startTs[i];
+        }
+
+        data = Arrays.copyOf(buf, pos);
+    }
+
+    /**
+     * @param buf Buffer.
+     * @param pos Position to write.
+     * @param val Non negative value.
+     * @return Position after written value.
+     */
+    private static int writeVarLong(byte[] buf, int pos, long val) {
+        while ((val & ~0x7FL) != 0) {
+            buf[pos++] = (byte)((val & 0x7F) | 0x80);
+            val >>>= 7;
+        }
+
+        buf[pos++] = (byte)val;
+
+        return pos;
+    }
+
+    /**
+     * @param buf Buffer.
+     * @param pos [in/out] Position to read.
+     * @return Value.
+     */
+    private static long readVarLong(byte[] buf, int[] pos) {
+        long res = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = buf[pos[0]++];
+            res |= (long)(b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+
+        return res;
+    }
+
+    /**
+     * @param val Signed value.
+     * @return Value with sign moved to the lowest bit, small absolute values produce small results.
+     */
+    private static long zigZagEncode(long val) {
+        return (val << 1) ^ (val >> 63);
+    }
+
+    /**
+     * @param val Zigzag encoded value.
+     * @return Signed value.
+     */
+    private static long zigZagDecode(long val) {
+        return (val >>> 1) ^ -(val & 1);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.history;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.annotation.Nullable;
+
+/**
+ * Build start time chunks of one server, ordered by chunk number. Border build for age is found by binary search over
+ * max start timestamps of chunks prefix, which is recalculated lazily only from the first chunk modified.
+ */
+class BuildStartTimeChunks {
+    /** No build marker for {@link #lastIds}. */
+    private static final int NO_BUILD = -1;
+
+    /** Chunks: chunk number -> chunk. */
+    private final ConcurrentNavigableMap<Integer, BuildStartTimeChunk> chunks = new ConcurrentSkipListMap<>();
+
+    /** Chunks indexed, ordered by chunk number. Guarded by this. */
+    private BuildStartTimeChunk[] idxChunks = new BuildStartTimeChunk[0];
+
+    /** Chunk numbers indexed. Guarded by this. */
+    private int[] idxNums = new int[0];
+
+    /** Max start timestamp of chunks from first to current, inclusive: non decreasing. Guarded by this. */
+    private long[] prefixMaxTs = new long[0];
+
+    /** Biggest build ID of chunks from first to current, inclusive, or {@link #NO_BUILD}. Guarded by this. */
+    private int[] lastIds = new int[0];
+
+    /** Number of first chunk modified since index was calculated. Guarded by this. */
+    private int dirtyFrom = Integer.MIN_VALUE;
+
+    /**
+     * @param chunkNum Chunk number.
+     * @return Chunk or null if chunk is not present.
+     */
+    @Nullable BuildStartTimeChunk get(int chunkNum) {
+        return chunks.get(chunkNum);
+    }
+
+    /**
+     * @param chunkNum Chunk number.
+     * @return Existing or created chunk.
+     */
+    BuildStartTimeChunk getOrCreate(int chunkNum) {
+        BuildStartTimeChunk chunk = chunks.get(chunkNum);
+
+        if (chunk != null)
+            return chunk;
+
+        chunk = chunks.computeIfAbsent(chunkNum, k -> new BuildStartTimeChunk());
+
+        onModified(chunkNum);
+
+        return chunk;
+    }
+
+    /**
+     * @param chunkNum Chunk number.
+     * @param chunk Chunk loaded from storage.
+     */
+    void put(int chunkNum, BuildStartTimeChunk chunk) {
+        chunks.put(chunkNum, chunk);
+
+        onModified(chunkNum);
+    }
+
+    /**
+     * Should be called after each modification of chunk contents.
+     *
+     * @param chunkNum Chunk number.
+     */
+    synchronized void onModified(int chunkNum) {
+        if (dirtyFrom == Integer.MIN_VALUE || chunkNum < dirtyFrom)
+            dirtyFrom = chunkNum;
+    }
+
+    /**
+     * Finds border build: all builds having smaller IDs (and border build itself) were started before the timestamp.
+     *
+     * @param minTs Timestamp.
+     * @return Border build ID, or null if there is no build known to be older.
+     */
+    @Nullable synchronized Integer borderForStartTime(long minTs) {
+        refreshIndex();
+
+        int cnt = idxNums.length;
+        int lo = 0;
+        int hi = cnt;
+
+        // Find first chunk having build started at minTs or later.
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+
+            if (prefixMaxTs[mid] < minTs)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        if (lo < cnt) {
+            Integer lastOlder = idxChunks[lo].lastBuildStartedBefore(minTs);
+
+            if (lastOlder != null)
+                return lastOlder;
+        }
+
+        int border = lo == 0 ? NO_BUILD : lastIds[lo - 1];
+
+        return border == NO_BUILD ? null : border;
+    }
+
+    /**
+     * Recalculates index from the first chunk modified: index prefix before it is not changed, chunks having bigger
+     * numbers (including created ones) are re-read.
+     */
+    private void refreshIndex() {
+        if (dirtyFrom == Integer.MIN_VALUE)
+            return;
+
+        int from = Arrays.binarySearch(idxNums, dirtyFrom);
+
+        if (from < 0)
+            from = -(from + 1);
+
+        List<Map.Entry<Integer, BuildStartTimeChunk>> tail = new ArrayList<>(chunks.tailMap(dirtyFrom).entrySet());
+
+        int size = from + tail.size();
+
+        idxNums = Arrays.copyOf(idxNums, size);
+        idxChunks = Arrays.copyOf(idxChunks, size);
+        prefixMaxTs = Arrays.copyOf(prefixMaxTs, size);
+        lastIds = Arrays.copyOf(lastIds, size);
+
+        for (int i = from; i < size; i++) {
+            Map.Entry<Integer, BuildStartTimeChunk> e = tail.get(i - from);
+            BuildStartTimeChunk chunk = e.getValue();
+
+            long prevMax = i == 0 ? Long.MIN_VALUE : prefixMaxTs[i - 1];
+            int prevLast = i == 0 ? NO_BUILD : lastIds[i - 1];
+            Integer last = chunk.lastBuildId();
+
+            idxNums[i] = e.getKey();
+            idxChunks[i] = chunk;
+            prefixMaxTs[i] = Math.max(prevMax, chunk.maxStartTime());
+            lastIds[i] = last == null ? prevLast : last;
+        }
+
+        dirtyFrom = Integer.MIN_VALUE;
+    }
+}
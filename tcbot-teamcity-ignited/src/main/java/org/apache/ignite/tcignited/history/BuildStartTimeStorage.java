@@ -14,65 +14,125 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.apache.ignite.tcignited.history;
 
+import com.google.common.util.concurrent.Striped;
 import java.time.Duration;
-import java.util.Collection;
-import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicIntegerArray;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.Lock;
 import javax.annotation.Nullable;
 import javax.cache.Cache;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
-import org.apache.ignite.cache.query.ScanQuery;
-import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
-import org.apache.ignite.lang.IgniteBiPredicate;
-import org.apache.ignite.tcbot.common.TcBotConst;
 import org.apache.ignite.tcbot.common.interceptor.AutoProfiling;
 import org.apache.ignite.tcbot.persistence.CacheConfigs;
 import org.apache.ignite.tcignited.buildref.BuildRefDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
+ * Build start time index: for each server build IDs are mapped to start timestamps. Index is stored in chunks of
+ * {@link BuildStartTimeChunk#CHUNK_SIZE} build IDs, all chunks are loaded into memory at startup, so start time of a
+ * build and border build ID for age are available without Ignite requests.
  */
 public class BuildStartTimeStorage {
-    /** Build Start time Cache name. */
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(BuildStartTimeStorage.class);
+
+    /** Build Start time Cache name, cache with entry per build, used before index was introduced. */
     public static final String BUILD_START_TIME_CACHE_NAME = "teamcityBuildStartTime";
 
+    /** Build Start time index Cache name, Key is server ID (high bits) and chunk number. */
+    public static final String BUILD_START_TIME_IDX_CACHE_NAME = "teamcityBuildStartTimeIdx";
+
     /** Ignite provider. */
     @Inject
     private Provider<Ignite> igniteProvider;
 
-    /** Build start time. */
-    private IgniteCache<Long, Long> buildStartTime;
+    /** Build start time index chunks cache. */
+    private volatile IgniteCache<Long, BuildStartTimeChunk> chunksCache;
+
+    /** Chunks loaded. Map: server ID -> chunks of server. */
+    private final ConcurrentMap<Integer, BuildStartTimeChunks> chunks = new ConcurrentHashMap<>();
 
     /**
-     * Biggest build ID, which is older than particular days count.
-     * Map: server ID-> Array of build Ids
-     * Array[0] = max build ID
-     * Array[1] = max build ID older than 1 day
+     * Locks for chunk copy and write to cache, by chunk cache key: latest copy of chunk is always written last.
      */
-    private final ConcurrentMap<Integer, AtomicIntegerArray> maxBuildIdOlderThanDays = new ConcurrentHashMap<>();
+    private final Striped<Lock> saveLocks = Striped.lock(64);
 
     /** Millis in day. */
     private static final long MILLIS_IN_DAY = Duration.ofDays(1).toMillis();
 
     /**
-     * Initialize
+     * Initialize: loads all index chunks, at first start index is filled from legacy cache.
      */
-    public void init() {
+    public synchronized void init() {
+        if (chunksCache != null)
+            return;
+
         Ignite ignite = igniteProvider.get();
 
-        buildStartTime = ignite.getOrCreateCache(CacheConfigs.getCacheV2Config(BUILD_START_TIME_CACHE_NAME));
+        IgniteCache<Long, BuildStartTimeChunk> cache
+            = ignite.getOrCreateCache(CacheConfigs.getCacheV2Config(BUILD_START_TIME_IDX_CACHE_NAME));
+
+        for (Cache.Entry<Long, BuildStartTimeChunk> entry : cache)
+            chunksForServer(BuildRefDao.cacheKeyToSrvId(entry.getKey()))
+                .put(BuildRefDao.cacheKeyToBuildId(entry.getKey()), entry.getValue());
+
+        if (chunks.isEmpty() && ignite.cacheNames().contains(BUILD_START_TIME_CACHE_NAME))
+            migrateLegacyCache(ignite, cache);
+
+        chunksCache = cache;
+    }
+
+    /**
+     * Moves start times from legacy cache having entry per build to the index and destroys legacy cache.
+     *
+     * @param ignite Ignite.
+     * @param cache Index cache.
+     */
+    private void migrateLegacyCache(Ignite ignite, IgniteCache<Long, BuildStartTimeChunk> cache) {
+        IgniteCache<Long, Long> legacy = ignite.cache(BUILD_START_TIME_CACHE_NAME);
+
+        Map<Long, BuildStartTimeChunk> modified = new TreeMap<>();
+        int cnt = 0;
+
+        for (Cache.Entry<Long, Long> entry : legacy) {
+            Long ts = entry.getValue();
+            if (ts == null || ts <= 0)
+                continue;
+
+            int srvId = BuildRefDao.cacheKeyToSrvId(entry.getKey());
+            int buildId = BuildRefDao.cacheKeyToBuildId(entry.getKey());
+
+            if (putIfAbsent(srvId, buildId, ts, modified))
+                cnt++;
+        }
+
+        modified.replaceAll((k, chunk) -> chunk.copyForSave());
+        cache.putAll(modified);
+
+        ignite.destroyCache(BUILD_START_TIME_CACHE_NAME);
+
+        logger.info("Build start time index filled from legacy cache: " + cnt + " builds, "
+            + modified.size() + " chunks");
+    }
+
+    /**
+     * @param srvId Server id mask high.
+     * @param chunkNum Chunk number.
+     */
+    private static long chunkCacheKey(int srvId, int chunkNum) {
+        return (long)chunkNum | (long)srvId << 32;
     }
 
     /**
@@ -83,115 +143,179 @@ public class BuildStartTimeStorage {
         return (long)buildId | srvId << 32;
     }
 
+    /**
+     * @param srvId Server id.
+     */
+    private BuildStartTimeChunks chunksForServer(int srvId) {
+        return chunks.computeIfAbsent(srvId, k -> new BuildStartTimeChunks());
+    }
+
+    /**
+     * @param srvId Server id.
+     * @param buildId Build id.
+     */
+    @Nullable private BuildStartTimeChunk chunkIfPresent(int srvId, int buildId) {
+        BuildStartTimeChunks srvChunks = chunks.get(srvId);
+
+        return srvChunks == null ? null : srvChunks.get(BuildStartTimeChunk.chunkNumber(buildId));
+    }
+
     /**
      * @param srvId Server id.
      * @param buildId Build id.
      */
     @AutoProfiling
     @Nullable public Long getBuildStartTime(int srvId, int buildId) {
-        Long ts = buildStartTime.get(buildIdToCacheKey(srvId, buildId));
-        if (ts == null || ts <= 0)
-            return null;
-
-        processBuildForBorder(srvId, buildId, ts);
+        BuildStartTimeChunk chunk = chunkIfPresent(srvId, buildId);
 
-        return ts;
+        return chunk == null ? null : chunk.startTime(buildId);
     }
 
     public boolean setBuildStartTime(int srvId, int buildId, long ts) {
         if (ts <= 0)
             return false;
 
-        processBuildForBorder(srvId, buildId, ts);
+        Map<Long, BuildStartTimeChunk> modified = new TreeMap<>();
 
-        return buildStartTime.putIfAbsent(buildIdToCacheKey(srvId, buildId), ts);
-    }
-
-    @AutoProfiling
-    public boolean setBuildProcessed(int srvId, int buildId, long ts) {
-        if (ts <= 0)
-            return false;
+        boolean added = putIfAbsent(srvId, buildId, ts, modified);
 
-        processBuildForBorder(srvId, buildId, ts);
+        save(modified);
 
-        return buildStartTime.putIfAbsent(buildIdToCacheKey(srvId, buildId), ts);
+        return added;
     }
 
-    private static Set<Long> buildsIdsToCacheKeys(int srvId, Collection<Integer> ids) {
-        return ids.stream()
-            .filter(Objects::nonNull).map(id -> buildIdToCacheKey(srvId, id)).collect(Collectors.toSet());
+    @AutoProfiling
+    public boolean setBuildProcessed(int srvId, int buildId, long ts) {
+        return setBuildStartTime(srvId, buildId, ts);
     }
 
     public Map<Integer, Long> getBuildsStartTime(int srvId, Set<Integer> ids) {
-        Set<Long> cacheKeys = buildsIdsToCacheKeys(srvId, ids);
-
         Map<Integer, Long> res = new HashMap<>();
 
-        buildStartTime.getAll(cacheKeys).forEach((k, ts) -> {
-            if (ts != null && ts > 0) {
-                int buildId = BuildRefDao.cacheKeyToBuildId(k);
+        for (Integer buildId : ids) {
+            if (buildId == null)
+                continue;
 
-                res.put(buildId, ts);
+            Long ts = getBuildStartTime(srvId, buildId);
 
-                processBuildForBorder(srvId, buildId, ts);
-            }
-        });
+            if (ts != null)
+                res.put(buildId, ts);
+        }
 
         return res;
     }
 
     public void setBuildsStartTime(int srvId, Map<Integer, Long> builds) {
-        Map<Long, Long> res = new HashMap<>();
+        Map<Long, BuildStartTimeChunk> modified = new TreeMap<>();
 
         builds.forEach((buildId, ts) -> {
-            if (ts != null && ts > 0) {
-                res.put(buildIdToCacheKey(srvId, buildId), ts);
-
-                processBuildForBorder(srvId, buildId, ts);
-            }
+            if (ts != null && ts > 0)
+                putIfAbsent(srvId, buildId, ts, modified);
         });
 
-        buildStartTime.putAll(res);
+        save(modified);
     }
 
-    private void processBuildForBorder(int srvId, Integer buildId, Long ts) {
-        if (ts == null || ts <= 0)
-            return;
+    /**
+     * @param srvId Server id.
+     * @param buildId Build id.
+     * @param ts Start timestamp.
+     * @param modified [out] Chunks modified, by cache key.
+     * @return {@code True} if start time was added.
+     */
+    private boolean putIfAbsent(int srvId, int buildId, long ts, Map<Long, BuildStartTimeChunk> modified) {
+        int chunkNum = BuildStartTimeChunk.chunkNumber(buildId);
+
+        BuildStartTimeChunks srvChunks = chunksForServer(srvId);
+        BuildStartTimeChunk chunk = srvChunks.getOrCreate(chunkNum);
+
+        if (!chunk.putIfAbsent(buildId, ts))
+            return false;
 
-        AtomicIntegerArray arr = maxBuildIdOlderThanDays.computeIfAbsent(srvId,
-            k -> new AtomicIntegerArray(TcBotConst.BUILD_MAX_DAYS + 1));
+        srvChunks.onModified(chunkNum);
 
-        long ageMs = System.currentTimeMillis() - ts;
-        if (ageMs < 0)
+        modified.put(chunkCacheKey(srvId, chunkNum), chunk);
+
+        return true;
+    }
+
+    /**
+     * @param modified Chunks modified, by cache key.
+     */
+    private void save(Map<Long, BuildStartTimeChunk> modified) {
+        if (modified.isEmpty())
             return;
 
-        long days = ageMs / MILLIS_IN_DAY;
-        if (days > TcBotConst.BUILD_MAX_DAYS)
-            days = TcBotConst.BUILD_MAX_DAYS;
+        Iterable<Lock> locks = saveLocks.bulkGet(modified.keySet());
 
-        arr.accumulateAndGet((int)days, buildId, Math::max);
+        locks.forEach(Lock::lock);
+
+        try {
+            Map<Long, BuildStartTimeChunk> toSave = new TreeMap<>();
+            Set<Long> toRemove = new TreeSet<>();
+
+            // Empty chunks are kept in memory, so concurrent put into chunk being emptied is not lost.
+            modified.forEach((k, chunk) -> {
+                BuildStartTimeChunk copy = chunk.copyForSave();
+
+                if (copy.size() == 0)
+                    toRemove.add(k);
+                else
+                    toSave.put(k, copy);
+            });
+
+            if (!toSave.isEmpty())
+                chunksCache.putAll(toSave);
+
+            if (!toRemove.isEmpty())
+                chunksCache.removeAll(toRemove);
+        }
+        finally {
+            locks.forEach(Lock::unlock);
+        }
     }
 
+    /**
+     * Finds border build: build IDs bigger than border were started later than {@code ageDays} days ago or later. All
+     * builds having smaller IDs (and border build itself) are known to be older.
+     *
+     * @param srvId Server id.
+     * @param ageDays Age in days.
+     * @return Border build ID, or null if there is no build known to be older.
+     */
     @Nullable public Integer getBorderForAgeForBuildId(int srvId, int ageDays) {
-        AtomicIntegerArray arr = maxBuildIdOlderThanDays.get(srvId);
-        if (arr == null)
+        BuildStartTimeChunks srvChunks = chunks.get(srvId);
+        if (srvChunks == null)
             return null;
 
-        for (int i = ageDays; i < TcBotConst.BUILD_MAX_DAYS; i++) {
-            int buildId = arr.get(i);
-            if (buildId != 0)
-                return buildId;
-        }
-
-        return null;
+        return srvChunks.borderForStartTime(System.currentTimeMillis() - ageDays * MILLIS_IN_DAY);
     }
 
     public void remove(long key) {
-        buildStartTime.remove(key);
+        removeAll(Collections.singleton(key));
     }
 
+    /**
+     * @param keys Build cache keys: server ID (high bits) and build ID.
+     */
     public void removeAll(Set<Long> keys) {
-        buildStartTime.removeAll(keys);
-    }
+        Map<Long, BuildStartTimeChunk> modified = new TreeMap<>();
+
+        for (Long key : keys) {
+            int srvId = BuildRefDao.cacheKeyToSrvId(key);
+            int buildId = BuildRefDao.cacheKeyToBuildId(key);
+            int chunkNum = BuildStartTimeChunk.chunkNumber(buildId);
+
+            BuildStartTimeChunks srvChunks = chunks.get(srvId);
+            BuildStartTimeChunk chunk = srvChunks == null ? null : srvChunks.get(chunkNum);
 
+            if (chunk != null && chunk.remove(buildId)) {
+                srvChunks.onModified(chunkNum);
+
+                modified.put(chunkCacheKey(srvId, chunkNum), chunk);
+            }
+        }
+
+        save(modified);
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcignited.history;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Event template compiled into bit-parallel (shift-and) automaton. History is scanned from the latest invocation,
+ * so template is stored reversed: bit {@code i} of state is set if last {@code i + 1} statuses read match template
+ * suffix of the same length.
+ */
+public class EventTemplateMatcher {
+    /** Count of status codes supported, statuses are 4-bit codes. */
+    private static final int STATUSES = 16;
+
+    /** For each status code: bits of reversed template positions accepting this status. */
+    private final long[] accept = new long[STATUSES];
+
+    /** Bit set in state if whole template was matched. */
+    private final long hitBit;
+
+    /** Position of event in template, counting from template start. */
+    private final int central;
+
+    /** Missing statuses are matched by template, otherwise these are skipped. */
+    private final boolean includeMissing;
+
+    /** Event should be the first non-missing invocation in history. */
+    private final boolean shouldBeFirstNonMissing;
+
+    /**
+     * @param t Template.
+     */
+    public EventTemplateMatcher(IEventTemplate t) {
+        int[] before = t.beforeEvent();
+        int[] evtAndAfter = t.eventAndAfter();
+        int len = before.length + evtAndAfter.length;
+
+        Preconditions.checkArgument(evtAndAfter.length > 0, "Event should be present in template");
+        Preconditions.checkArgument(len <= Long.SIZE, "Template is too long: " + len);
+
+        for (int i = 0; i < len; i++) {
+            int code = i < before.length ? before[i] : evtAndAfter[i - before.length];
+            long bit = 1L << (len - 1 - i);
+
+            if (code == RunStatus.RES_OK_OR_FAILURE.getCode()) {
+                accept[InvocationData.OK] |= bit;
+                accept[InvocationData.FAILURE] |= bit;
+            }
+            else if (code >= 0 && code < STATUSES)
+                accept[code] |= bit;
+        }
+
+        hitBit = 1L << (len - 1);
+        central = before.length;
+        includeMissing = t.includeMissing();
+        shouldBeFirstNonMissing = t.shouldBeFirstNonMissing();
+    }
+
+    /**
+     * @param status Status.
+     * @return {@code true} if status is not considered by template.
+     */
+    boolean skips(int status) {
+        return !includeMissing && status == InvocationData.MISSING;
+    }
+
+    /**
+     * @param state Current state.
+     * @param status Previous (older) status in history, should not be skipped.
+     * @return New state.
+     */
+    long step(long state, int status) {
+        long acceptBits = status >= 0 && status < STATUSES ? accept[status] : 0;
+
+        return ((state << 1) | 1L) & acceptBits;
+    }
+
+    /**
+     * @param state State.
+     * @return {@code true} if template matched starting at the last status read.
+     */
+    boolean isHit(long state) {
+        return (state & hitBit) != 0;
+    }
+
+    /**
+     * @return Position of event in template, counting from template start.
+     */
+    int central() {
+        return central;
+    }
+
+    /**
+     * @return Event should be the first non-missing invocation in history.
+     */
+    boolean shouldBeFirstNonMissing() {
+        return shouldBeFirstNonMissing;
+    }
+}
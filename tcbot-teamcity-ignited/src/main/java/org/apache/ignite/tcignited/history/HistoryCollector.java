@@ -21,11 +21,13 @@ import com.google.common.collect.Iterables;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiPredicate;
@@ -39,6 +41,7 @@ import org.apache.ignite.binary.BinaryObject;
 import org.apache.ignite.cache.query.QueryCursor;
 import org.apache.ignite.cache.query.ScanQuery;
 import org.apache.ignite.ci.teamcity.ignited.BuildRefCompacted;
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
 import org.apache.ignite.ci.teamcity.ignited.runhist.Invocation;
 import org.apache.ignite.ci.teamcity.ignited.runhist.RunHistKey;
 import org.apache.ignite.tcbot.common.TcBotConst;
@@ -99,6 +102,9 @@ public class HistoryCollector {
         .softValues()
         .build();
 
+    /** Server ID to server code mapping, filled on history load, used for incremental history update. */
+    private final Map<Integer, String> srvIdToCode = new ConcurrentHashMap<>();
+
     /**
      * @param srvCode Server id mask to be placed at high bits in the key.
      * @param testName Test name.
@@ -118,6 +124,8 @@ public class HistoryCollector {
         int srvId = ITeamcityIgnited.serverIdToInt(srvCode);
         RunHistKey runHistKey = new RunHistKey(srvId, buildTypeId, normalizedBaseBranch);
 
+        srvIdToCode.putIfAbsent(srvId, srvCode);
+
         SuiteHistory hist;
         try {
             hist = runHistInMemCache.get(runHistKey,
@@ -148,16 +156,11 @@ public class HistoryCollector {
             buildRefDao.getAllBuildsCompacted(srvId, buildTypeId, strings);
 
         long curTs = System.currentTimeMillis();
-        Set<Integer> buildIds = bRefsList.stream()
-            .filter(b -> {
-                Integer maxBuildIdForDay = buildStartTimeStorage.getBorderForAgeForBuildId(srvId, TcBotConst.HISTORY_BUILD_ID_BORDER_DAYS);
+        Integer maxBuildIdForDay = buildStartTimeStorage.getBorderForAgeForBuildId(srvId,
+            TcBotConst.HISTORY_BUILD_ID_BORDER_DAYS);
 
-                if (maxBuildIdForDay == null)
-                    return true;
-
-                return b.id() > maxBuildIdForDay;
-
-            })
+        Set<Integer> buildIds = bRefsList.stream()
+            .filter(b -> maxBuildIdForDay == null || b.id() > maxBuildIdForDay)
             .filter(this::applicableForHistory)
             .map(BuildRefCompacted::id)
             .filter(bId -> !knownBuilds.contains(bId)).collect(Collectors.toSet());
@@ -171,13 +174,8 @@ public class HistoryCollector {
         Set<Integer> notFoundKeys = new HashSet<>(buildIds);
         notFoundKeys.removeAll(buildStartTimes.keySet());
 
-        if (!notFoundKeys.isEmpty()) {
-            Map<Integer, Long> buildStartTimeFromFatBuild = getStartTimeFromFatBuild(srvId, notFoundKeys);
-
-            buildStartTimes.putAll(buildStartTimeFromFatBuild);
-
-            buildStartTimeStorage.setBuildsStartTime(srvId, buildStartTimeFromFatBuild);
-        }
+        if (!notFoundKeys.isEmpty())
+            buildStartTimes.putAll(getStartTimeFromFatBuild(srvId, notFoundKeys));
 
         long minBuildStartTs = curTs - Duration.ofDays(TcBotConst.HISTORY_MAX_DAYS).toMillis();
 
@@ -201,10 +199,17 @@ public class HistoryCollector {
         return buildStartTimeStorage.getBuildsStartTime(srvId, buildIds);
     }
 
+    /**
+     * Reads start time from fat builds, each batch read is saved to start time storage as soon as it completes.
+     *
+     * @param srvId Server id.
+     * @param buildIds Build IDs.
+     */
     @SuppressWarnings("WeakerAccess")
     @AutoProfiling
     protected Map<Integer, Long> getStartTimeFromFatBuild(int srvId, Set<Integer> buildIds) {
-        return fatBuildDao.getBuildStartTime(srvId, buildIds);
+        return fatBuildDao.getBuildStartTime(srvId, buildIds,
+            batch -> buildStartTimeStorage.setBuildsStartTime(srvId, batch));
     }
 
     /**
@@ -248,13 +253,44 @@ public class HistoryCollector {
     }
 
     /**
+     * Updates in memory history with new build. Finished build is appended to already loaded suite history, history
+     * is evicted only if build can't be appended (e.g. it was already included or it is older than latest build).
+     *
      * @param srvId Server id.
-     * @param b Build ref to invalidate.
+     * @param b Build ref or fat build saved.
      */
     public void invalidateHistoryInMem(int srvId, BuildRefCompacted b) {
         RunHistKey inv = new RunHistKey(srvId, b.buildTypeId(), b.branchName());
 
-        runHistInMemCache.invalidate(inv);
+        SuiteHistory hist = runHistInMemCache.getIfPresent(inv);
+
+        if (hist == null)
+            return;
+
+        if (!applicableForHistory(b)) {
+            // Running or queued builds are not included into history, only previously included build may be affected.
+            if (b.id() <= hist.maxBuildId())
+                runHistInMemCache.invalidate(inv);
+
+            return;
+        }
+
+        String srvCode = srvIdToCode.get(srvId);
+
+        if (srvCode == null || !(b instanceof FatBuildCompacted)) {
+            runHistInMemCache.invalidate(inv);
+
+            return;
+        }
+
+        FatBuildCompacted fatBuild = (FatBuildCompacted)b;
+        SuiteInvocation sinv = toSuiteInvocation(srvId, b.branchName(), fatBuild,
+            paramsFilter(srvCode), compactor.getStringId(TestOccurrence.STATUS_SUCCESS));
+
+        if (hist.appendInvocation(fatBuild.id(), sinv))
+            histDao.putAll(srvId, Collections.singletonMap(fatBuild.id(), sinv));
+        else
+            runHistInMemCache.invalidate(inv);
     }
 
     @Nonnull
@@ -275,8 +311,7 @@ public class HistoryCollector {
                                                                          HashSet<Integer> missedBuildsIds,
                                                                          int normalizedBaseBranch) {
 
-        Set<Integer> filteringParameters = getFilteringParameters(srvCode);
-        BiPredicate<Integer, Integer> paramsFilter = (k, v) -> filteringParameters.contains(k);
+        BiPredicate<Integer, Integer> paramsFilter = paramsFilter(srvCode);
 
         Map<Integer, SuiteInvocation> suiteRunHist = new HashMap<>();
         int successStatusStrId = compactor.getStringId(TestOccurrence.STATUS_SUCCESS);
@@ -290,17 +325,8 @@ public class HistoryCollector {
                     if (!applicableForHistory(fatBuildCompacted))
                         return;
 
-                    SuiteInvocation sinv = new SuiteInvocation(srvId, normalizedBaseBranch, fatBuildCompacted, compactor, paramsFilter);
-
-                    Stream<ITest> tests = fatBuildCompacted.getAllTests();
-                    tests.forEach(
-                        testCompacted -> {
-                            Invocation invocation = TestCompactedV2.toInvocation(testCompacted,
-                                fatBuildCompacted, successStatusStrId);
-
-                            sinv.addTest(testCompacted.testName(), invocation);
-                        }
-                    );
+                    SuiteInvocation sinv = toSuiteInvocation(srvId, normalizedBaseBranch, fatBuildCompacted,
+                        paramsFilter, successStatusStrId);
 
                     suiteRunHist.put(fatBuildCompacted.id(), sinv);
                 });
@@ -317,6 +343,39 @@ public class HistoryCollector {
         return suiteRunHist;
     }
 
+    /**
+     * @param srvCode Server code.
+     * @return Filter for build parameters to be saved in history.
+     */
+    private BiPredicate<Integer, Integer> paramsFilter(String srvCode) {
+        Set<Integer> filteringParameters = getFilteringParameters(srvCode);
+
+        return (k, v) -> filteringParameters.contains(k);
+    }
+
+    /**
+     * @param srvId Server id.
+     * @param normalizedBaseBranch Normalized base branch.
+     * @param fatBuild Fat build.
+     * @param paramsFilter Build parameters filter.
+     * @param successStatusStrId Success status string ID.
+     */
+    private SuiteInvocation toSuiteInvocation(int srvId, int normalizedBaseBranch, FatBuildCompacted fatBuild,
+        BiPredicate<Integer, Integer> paramsFilter, int successStatusStrId) {
+        SuiteInvocation sinv = new SuiteInvocation(srvId, normalizedBaseBranch, fatBuild, compactor, paramsFilter);
+
+        Stream<ITest> tests = fatBuild.getAllTests();
+        tests.forEach(
+            testCompacted -> {
+                Invocation invocation = TestCompactedV2.toInvocation(testCompacted, fatBuild, successStatusStrId);
+
+                sinv.addTest(testCompacted.testName(), invocation);
+            }
+        );
+
+        return sinv;
+    }
+
     /**
      * @param srvCode Server code.
      * @param buildTypeId Build type id.
@@ -345,6 +404,13 @@ public class HistoryCollector {
         return time;
     }
 
+    /**
+     * Scans all build references to find started builds.
+     *
+     * @param days Max age of builds.
+     * @param allServers Servers to check.
+     * @return Cache keys of builds started within given number of days.
+     */
     public List<Long> findAllRecentBuilds(int days, Collection<String> allServers) {
         IgniteCache<Long, BuildRefCompacted> cache = buildRefDao.buildRefsCache();
         if (cache == null)
@@ -380,7 +446,6 @@ public class HistoryCollector {
                             return stateQueued != state;
                         }));
 
-        int cnt = 0;
         List<Long> idsToCheck = new ArrayList<>();
 
         try (QueryCursor<Cache.Entry<Long, BinaryObject>> cursor = query) {
@@ -390,7 +455,7 @@ public class HistoryCollector {
 
                 int buildId = BuildRefDao.cacheKeyToBuildId(key);
 
-                Integer borderBuildId = buildStartTimeStorage.getBorderForAgeForBuildId(srvId, days);
+                Integer borderBuildId = preBorder.get(srvId);
 
                 boolean passesDate = borderBuildId == null || buildId >= borderBuildId;
 
@@ -401,16 +466,10 @@ public class HistoryCollector {
                 if (startTs == null || startTs < minTs)
                     continue; //time not saved in the DB, skip
 
-                System.err.println("Found build at srv [" + srvId + "]: [" + buildId + "] to analyze, ts=" + startTs);
-
-                cnt++;
-
                 idsToCheck.add(key);
             }
         }
 
-        System.err.println("Total builds to load " + cnt);
-
         return idsToCheck;
     }
 }
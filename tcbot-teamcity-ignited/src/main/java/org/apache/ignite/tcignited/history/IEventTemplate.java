@@ -27,4 +27,11 @@ public interface IEventTemplate {
     boolean includeMissing();
 
     boolean shouldBeFirstNonMissing();
+
+    /**
+     * @return Matcher compiled from this template. Implementations may cache matcher if template is not changed.
+     */
+    default EventTemplateMatcher matcher() {
+        return new EventTemplateMatcher(this);
+    }
 }
@@ -40,6 +40,19 @@ public interface IRunHistory {
     @Nullable
     public Integer detectTemplate(IEventTemplate t);
 
+    /**
+     * @param templates Templates to detect.
+     * @return Array of the same length as templates: build ID of event detected for each template or null.
+     */
+    public default Integer[] detectTemplates(IEventTemplate... templates) {
+        Integer[] res = new Integer[templates.length];
+
+        for (int i = 0; i < templates.length; i++)
+            res[i] = detectTemplate(templates[i]);
+
+        return res;
+    }
+
     public default String getCriticalFailPercentPrintable() {
         return getPercentPrintable(getCriticalFailRate() * 100.0f);
     }
@@ -125,10 +125,17 @@ public class InvocationData {
         return Collections.unmodifiableList(invocationList);
     }
 
+    /**
+     * @return Count of invocations.
+     */
+    public int size() {
+        return invocationList.size();
+    }
+
     public Invocation getInvocationAt(int idx) {
         int size = invocationList.size();
         Preconditions.checkState(idx < size,
-            "Requested invocation outside suite history [" + idx + "] size [" + size + "]");
+            "Requested invocation outside suite history [%s] size [%s]", idx, size);
         return invocationList.get(idx);
     }
 }
@@ -0,0 +1,501 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcignited.history;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Statuses of one test in suite history, one status per suite invocation (build). Statuses are stored as runs (status
+ * and run length packed into int) while history has few status changes, and as 4-bit codes (16 per long) otherwise.
+ * Positions after {@link #length()} are implicitly {@link RunStatus#RES_MISSING}.
+ *
+ * Column is append-only: data before current length is never changed, so {@link #view()} taken earlier remains valid
+ * while writer appends new statuses.
+ */
+class StatusColumn {
+    /** Missing status code. */
+    static final byte MISSING = (byte)RunStatus.RES_MISSING.getCode();
+
+    /** Bits per status in packed form. */
+    private static final int BITS = 4;
+
+    /** Statuses per long word in packed form. */
+    private static final int PER_WORD = Long.SIZE / BITS;
+
+    /** Status mask. */
+    private static final int MASK = (1 << BITS) - 1;
+
+    /** Maximal length of one run. */
+    private static final int MAX_RUN_LEN = Integer.MAX_VALUE >>> BITS;
+
+    /** Minimal length of column to be considered for conversion to packed form. */
+    private static final int MIN_LEN_TO_PACK = 64;
+
+    /** Runs: status in lower bits, length in higher bits. Null if column is in packed form. */
+    private int[] runs;
+
+    /** Count of runs used. */
+    private int runsCnt;
+
+    /** Packed statuses. Null if column is in runs form. */
+    private long[] packed;
+
+    /** Count of statuses stored. */
+    private int len;
+
+    /**
+     * Creates empty column.
+     */
+    StatusColumn() {
+        runs = new int[2];
+    }
+
+    /**
+     * @param src Source column.
+     */
+    private StatusColumn(StatusColumn src) {
+        runs = src.runs;
+        runsCnt = src.runsCnt;
+        packed = src.packed;
+        len = src.len;
+    }
+
+    /**
+     * @return Read-only view of current state of this column, not affected by further appends.
+     */
+    StatusColumn view() {
+        return new StatusColumn(this);
+    }
+
+    /**
+     * @return Count of statuses stored explicitly.
+     */
+    int length() {
+        return len;
+    }
+
+    /**
+     * Appends status, positions between current length and {@code pos} are filled with missing status.
+     *
+     * @param pos Position (build index in suite history), should be not less than current length.
+     * @param status Status code.
+     */
+    void append(int pos, byte status) {
+        assert pos >= len : "Column is append-only [pos=" + pos + ", len=" + len + "]";
+
+        if (pos > len)
+            appendRun(MISSING, pos - len);
+
+        appendRun(status, 1);
+    }
+
+    /**
+     * @param status Status code.
+     * @param cnt Count of statuses to add.
+     */
+    private void appendRun(byte status, int cnt) {
+        if (packed != null) {
+            ensurePackedCapacity(len + cnt);
+
+            for (int i = 0; i < cnt; i++)
+                setPacked(packed, len + i, status);
+
+            len += cnt;
+
+            return;
+        }
+
+        while (cnt > 0) {
+            int last = runsCnt - 1;
+
+            if (last >= 0 && (runs[last] & MASK) == status && (runs[last] >>> BITS) < MAX_RUN_LEN) {
+                int add = Math.min(cnt, MAX_RUN_LEN - (runs[last] >>> BITS));
+
+                // Readers limit run by their length, so growing last run is invisible for them.
+                runs[last] += add << BITS;
+                len += add;
+                cnt -= add;
+
+                continue;
+            }
+
+            if (runsCnt == runs.length)
+                runs = Arrays.copyOf(runs, runs.length * 2);
+
+            int add = Math.min(cnt, MAX_RUN_LEN);
+
+            runs[runsCnt] = (add << BITS) | status;
+            runsCnt++;
+            len += add;
+            cnt -= add;
+        }
+
+        // Runs take 32 bits each, packed statuses take 4 bits: switch if runs don't save memory anymore.
+        if (len >= MIN_LEN_TO_PACK && runsCnt > len / (Integer.SIZE / BITS))
+            convertToPacked();
+    }
+
+    /**
+     * Converts column from runs to packed form.
+     */
+    private void convertToPacked() {
+        long[] res = new long[wordsFor(len + len / 2)];
+
+        int pos = 0;
+        for (int i = 0; i < runsCnt; i++) {
+            int status = runs[i] & MASK;
+            int runLen = runs[i] >>> BITS;
+
+            for (int j = 0; j < runLen; j++)
+                setPacked(res, pos++, status);
+        }
+
+        packed = res;
+        runs = null;
+        runsCnt = 0;
+    }
+
+    /**
+     * @param cap Required capacity in statuses.
+     */
+    private void ensurePackedCapacity(int cap) {
+        int words = wordsFor(cap);
+
+        if (words > packed.length)
+            packed = Arrays.copyOf(packed, Math.max(words, packed.length + (packed.length >> 1)));
+    }
+
+    /**
+     * @param cnt Statuses count.
+     */
+    private static int wordsFor(int cnt) {
+        return (cnt + PER_WORD - 1) / PER_WORD;
+    }
+
+    /**
+     * @param arr Words.
+     * @param pos Position.
+     * @param status Status.
+     */
+    private static void setPacked(long[] arr, int pos, int status) {
+        int shift = (pos % PER_WORD) * BITS;
+
+        arr[pos / PER_WORD] = (arr[pos / PER_WORD] & ~((long)MASK << shift)) | ((long)status << shift);
+    }
+
+    /**
+     * @param arr Words.
+     * @param pos Position.
+     */
+    private static byte getPacked(long[] arr, int pos) {
+        return (byte)((arr[pos / PER_WORD] >>> ((pos % PER_WORD) * BITS)) & MASK);
+    }
+
+    /**
+     * Projects column through mask of builds to keep.
+     *
+     * @param mask Positions to keep, in {@link java.util.BitSet#toLongArray()} format.
+     * @return New column with statuses of kept positions only.
+     */
+    StatusColumn project(long[] mask) {
+        StatusColumn res = new StatusColumn();
+        int dst = 0;
+
+        if (packed != null) {
+            for (int w = 0; w < mask.length && w * Long.SIZE < len; w++) {
+                for (long bits = mask[w]; bits != 0; bits &= bits - 1) {
+                    int pos = w * Long.SIZE + Long.numberOfTrailingZeros(bits);
+
+                    if (pos >= len)
+                        break;
+
+                    byte status = getPacked(packed, pos);
+
+                    if (status != MISSING)
+                        res.append(dst, status);
+
+                    dst++;
+                }
+            }
+
+            return res;
+        }
+
+        int start = 0;
+
+        for (int i = 0; i < runsCnt && start < len; i++) {
+            int runLen = Math.min(runs[i] >>> BITS, len - start);
+            int kept = cardinality(mask, start, start + runLen);
+            byte status = (byte)(runs[i] & MASK);
+
+            if (kept > 0 && status != MISSING) {
+                if (dst > res.len)
+                    res.appendRun(MISSING, dst - res.len);
+
+                res.appendRun(status, kept);
+            }
+
+            dst += kept;
+            start += runLen;
+        }
+
+        return res;
+    }
+
+    /**
+     * @param mask Bit mask.
+     * @param from Start position, inclusive.
+     * @param to End position, exclusive.
+     * @return Count of bits set in range.
+     */
+    static int cardinality(long[] mask, int from, int to) {
+        if (from >= to)
+            return 0;
+
+        int fromWord = from >>> 6;
+        int toWord = Math.min((to - 1) >>> 6, mask.length - 1);
+        int res = 0;
+
+        for (int w = fromWord; w <= toWord; w++) {
+            long bits = mask[w];
+
+            if (w == fromWord)
+                bits &= -1L << (from & 63);
+
+            if (w == (to - 1) >>> 6)
+                bits &= -1L >>> (63 - ((to - 1) & 63));
+
+            res += Long.bitCount(bits);
+        }
+
+        return res;
+    }
+
+    /**
+     * Counts statuses matching predicate.
+     *
+     * @param cnt Total count of builds in history, positions after column length are missing.
+     * @param pred Status predicate.
+     */
+    int count(int cnt, IntPredicate pred) {
+        int res = 0;
+        int stored = Math.min(len, cnt);
+
+        if (packed != null) {
+            for (int i = 0; i < stored; i++) {
+                if (pred.test(getPacked(packed, i)))
+                    res++;
+            }
+        }
+        else {
+            int remaining = stored;
+
+            for (int i = 0; i < runsCnt && remaining > 0; i++) {
+                int runLen = Math.min(runs[i] >>> BITS, remaining);
+
+                if (pred.test(runs[i] & MASK))
+                    res += runLen;
+
+                remaining -= runLen;
+            }
+        }
+
+        if (cnt > stored && pred.test(MISSING))
+            res += cnt - stored;
+
+        return res;
+    }
+
+    /**
+     * @param pos Position.
+     * @return Status at position, missing for positions after column length.
+     */
+    byte get(int pos) {
+        if (pos >= len)
+            return MISSING;
+
+        if (packed != null)
+            return getPacked(packed, pos);
+
+        int start = 0;
+
+        for (int i = 0; i < runsCnt; i++) {
+            start += runs[i] >>> BITS;
+
+            if (pos < start)
+                return (byte)(runs[i] & MASK);
+        }
+
+        return MISSING;
+    }
+
+    /**
+     * @return Position of first non-missing status, or -1 if there is no such status.
+     */
+    int firstNonMissing() {
+        if (packed != null) {
+            for (int i = 0; i < len; i++) {
+                if (getPacked(packed, i) != MISSING)
+                    return i;
+            }
+
+            return -1;
+        }
+
+        int start = 0;
+
+        for (int i = 0; i < runsCnt && start < len; i++) {
+            if ((runs[i] & MASK) != MISSING)
+                return start;
+
+            start += runs[i] >>> BITS;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param cnt Total count of builds in history, positions after column length are missing.
+     * @return Cursor over statuses.
+     */
+    Cursor cursor(int cnt) {
+        return new Cursor(cnt);
+    }
+
+    /**
+     * @param cnt Total count of builds in history, positions after column length are missing.
+     * @return Cursor over statuses, from the latest to the first one.
+     */
+    ReverseCursor reverseCursor(int cnt) {
+        return new ReverseCursor(cnt);
+    }
+
+    /**
+     * Sequential reader of column statuses.
+     */
+    class Cursor {
+        /** Count of statuses to return. */
+        private final int cnt;
+
+        /** Position of next status. */
+        private int pos;
+
+        /** Current run index. */
+        private int runIdx;
+
+        /** Statuses left in current run. */
+        private int runLeft;
+
+        /**
+         * @param cnt Count of statuses to return.
+         */
+        Cursor(int cnt) {
+            this.cnt = cnt;
+        }
+
+        /**
+         * @return {@code true} if more statuses are available.
+         */
+        boolean hasNext() {
+            return pos < cnt;
+        }
+
+        /**
+         * @return Next status.
+         */
+        byte next() {
+            assert hasNext();
+
+            int cur = pos++;
+
+            if (cur >= len)
+                return MISSING;
+
+            if (packed != null)
+                return getPacked(packed, cur);
+
+            while (runLeft == 0) {
+                runLeft = runs[runIdx] >>> BITS;
+                runIdx++;
+            }
+
+            runLeft--;
+
+            return (byte)(runs[runIdx - 1] & MASK);
+        }
+    }
+
+    /**
+     * Reader of column statuses in reverse order, from the latest status.
+     */
+    class ReverseCursor {
+        /** Position of next status. */
+        private int pos;
+
+        /** Index of run containing next status, valid in runs form only. */
+        private int runIdx;
+
+        /** Start position of current run. */
+        private int runStart;
+
+        /**
+         * @param cnt Count of statuses to return.
+         */
+        ReverseCursor(int cnt) {
+            pos = cnt - 1;
+
+            if (packed == null && runsCnt > 0) {
+                // Last run may be grown by writer, so only preceding runs are summed up.
+                runIdx = runsCnt - 1;
+
+                for (int i = 0; i < runIdx; i++)
+                    runStart += runs[i] >>> BITS;
+            }
+        }
+
+        /**
+         * @return {@code true} if more statuses are available.
+         */
+        boolean hasNext() {
+            return pos >= 0;
+        }
+
+        /**
+         * @return Next status.
+         */
+        byte next() {
+            assert hasNext();
+
+            int cur = pos--;
+
+            if (cur >= len)
+                return MISSING;
+
+            if (packed != null)
+                return getPacked(packed, cur);
+
+            while (cur < runStart) {
+                runIdx--;
+                runStart -= runs[runIdx] >>> BITS;
+            }
+
+            return (byte)(runs[runIdx] & MASK);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcignited.history;
+
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
+
+/**
+ * Open addressing map: test name ID -> statuses column. Replaces boxed hash map to save memory for large suites.
+ * Not thread safe.
+ */
+class StatusColumns {
+    /** Initial capacity, power of 2. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Test name IDs. */
+    private int[] keys;
+
+    /** Columns, {@code null} means free slot. */
+    private StatusColumn[] cols;
+
+    /** Count of columns. */
+    private int size;
+
+    /**
+     * @param expectedSize Expected count of tests.
+     */
+    StatusColumns(int expectedSize) {
+        int cap = INITIAL_CAPACITY;
+
+        while (cap < expectedSize * 2)
+            cap <<= 1;
+
+        keys = new int[cap];
+        cols = new StatusColumn[cap];
+    }
+
+    /**
+     * @param key Key.
+     * @param mask Table mask.
+     */
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * @param testName Test name ID.
+     * @return Column or {@code null} if test was never executed in the suite.
+     */
+    @Nullable StatusColumn get(int testName) {
+        int mask = keys.length - 1;
+
+        for (int i = slot(testName, mask); cols[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == testName)
+                return cols[i];
+        }
+
+        return null;
+    }
+
+    /**
+     * @param testName Test name ID.
+     * @return Existing or newly created column.
+     */
+    StatusColumn getOrCreate(int testName) {
+        StatusColumn col = get(testName);
+
+        if (col != null)
+            return col;
+
+        col = new StatusColumn();
+
+        put(testName, col);
+
+        return col;
+    }
+
+    /**
+     * @param testName Test name ID, should be absent.
+     * @param col Column.
+     */
+    void put(int testName, StatusColumn col) {
+        if ((size + 1) * 2 > keys.length)
+            rehash(keys.length * 2);
+
+        insert(keys, cols, testName, col);
+
+        size++;
+    }
+
+    /**
+     * @param cap New capacity.
+     */
+    private void rehash(int cap) {
+        int[] newKeys = new int[cap];
+        StatusColumn[] newCols = new StatusColumn[cap];
+
+        for (int i = 0; i < keys.length; i++) {
+            if (cols[i] != null)
+                insert(newKeys, newCols, keys[i], cols[i]);
+        }
+
+        keys = newKeys;
+        cols = newCols;
+    }
+
+    /**
+     * @param keys Keys.
+     * @param cols Columns.
+     * @param key Key to insert, should be absent.
+     * @param col Column.
+     */
+    private static void insert(int[] keys, StatusColumn[] cols, int key, StatusColumn col) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+
+        while (cols[i] != null)
+            i = (i + 1) & mask;
+
+        keys[i] = key;
+        cols[i] = col;
+    }
+
+    /**
+     * @return Count of tests.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param consumer Consumer of test name ID and column.
+     */
+    void forEach(BiConsumer<Integer, StatusColumn> consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (cols[i] != null)
+                consumer.accept(keys[i], cols[i]);
+        }
+    }
+}
@@ -14,18 +14,18 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.apache.ignite.tcignited.history;
 
 import com.google.common.base.Preconditions;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.apache.ignite.ci.teamcity.ignited.runhist.Invocation;
@@ -34,164 +34,231 @@ import org.apache.ignite.ci.teamcity.ignited.runhist.Invocation;
  * Suite run history (in memory) summary with tests grouped by name.
  */
 public class SuiteHistory implements ISuiteRunHistory {
-    /** Tests history: Test name ID->statuses for invocations */
-    private Map<Integer, byte[]> testsInvStatues = new HashMap<>();
+    /** Max count of filtered views cached for one suite history. */
+    private static final int MAX_FILTERED_VIEWS = 8;
+
+    /** Tests history: Test name ID->statuses for invocations, see {@link StatusColumn}. */
+    private StatusColumns testsInvStatues;
 
     /** Suite history. */
     private RunHistCompacted suiteHist = new RunHistCompacted();
 
-    public SuiteHistory(Map<Integer, SuiteInvocation> suiteRunHist) {
-        //filling data for tests invoked.
-        Map<Integer, RunHistCompacted> testsHist = new HashMap<>();
-
-        suiteRunHist.forEach((buildId, suiteInv) -> addSuiteInvocation(suiteInv, testsHist));
-
-        suiteHist.sort();
+    /** Count of builds (suite invocations) in history. */
+    private int buildsCnt;
 
-        Map<Integer, Integer> buildIdToIdx = suiteHist.buildIdsMapping();
-        int buildsCnt = buildIdToIdx.size();
+    /** Maximal build ID in history, appended builds should have ID greater than this. */
+    private int maxBuildId = -1;
 
-        byte missingCode = (byte)RunStatus.RES_MISSING.getCode();
-        testsHist.forEach((k, testHist) -> {
-            byte[] testStatusesUltraComp = new byte[buildsCnt];
-
-            for (int i = 0; i < testStatusesUltraComp.length; i++)
-                testStatusesUltraComp[i] = missingCode;
-
-            testHist.getInvocations().forEach(
-                invocation -> {
-                    int i = invocation.buildId();
-                    Integer idx = buildIdToIdx.get(i);
-                    if (idx == null)
-                        return;
+    /** Filtered views of this history for recently requested parameters, dropped on append. */
+    private final Map<Map<Integer, Integer>, SuiteHistory> filteredCache =
+        new LinkedHashMap<Map<Integer, Integer>, SuiteHistory>(4, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Map<Integer, Integer>, SuiteHistory> eldest) {
+                return size() > MAX_FILTERED_VIEWS;
+            }
+        };
 
-                    Preconditions.checkState(idx < testStatusesUltraComp.length);
+    public SuiteHistory(Map<Integer, SuiteInvocation> suiteRunHist) {
+        testsInvStatues = new StatusColumns(estimateTestsCount(suiteRunHist));
 
-                    testStatusesUltraComp[idx] = invocation.status();
-                }
-            );
+        //filling data for tests invoked, builds are processed in order of build ID.
+        new TreeMap<>(suiteRunHist).forEach(this::addSuiteInvocation);
+    }
 
-            testsInvStatues.put(k, testStatusesUltraComp);
-        });
+    /**
+     * @param testsCnt Expected tests count.
+     */
+    private SuiteHistory(int testsCnt) {
+        testsInvStatues = new StatusColumns(testsCnt);
     }
 
-    private SuiteHistory() {}
+    /**
+     * @param suiteRunHist Suite run history.
+     * @return Maximal count of tests in one build.
+     */
+    private static int estimateTestsCount(Map<Integer, SuiteInvocation> suiteRunHist) {
+        return suiteRunHist.values().stream().mapToInt(inv -> inv.tests().size()).max().orElse(0);
+    }
 
     /**
+     * @param buildId Build ID, should be greater than all build IDs already added.
      * @param suiteInv suite invocation (build) to be added to history (summary).
-     * @param testsHist tests map.
      */
-    private void addSuiteInvocation(SuiteInvocation suiteInv, Map<Integer, RunHistCompacted> testsHist) {
+    private void addSuiteInvocation(int buildId, SuiteInvocation suiteInv) {
+        int idx = buildsCnt;
+
         suiteInv.tests().forEach(
-            (tName, invocation) -> {
-                testsHist.computeIfAbsent(tName, k_ -> new RunHistCompacted())
-                    .addInvocation(invocation);
-            });
+            (tName, invocation) -> testsInvStatues.getOrCreate(tName).append(idx, invocation.status()));
 
         suiteHist.addInvocation(suiteInv.suiteInvocation());
+        maxBuildId = buildId;
+        buildsCnt = idx + 1;
+    }
+
+    /**
+     * Appends newly finished build to the end of this history in place. Existing statuses are never overwritten, so
+     * test histories returned earlier remain consistent.
+     *
+     * @param buildId Build ID.
+     * @param suiteInv Suite invocation (build) to be appended.
+     * @return {@code false} if build can't be appended because it is already present or it is older than latest build
+     * in history, full history reload is required in this case.
+     */
+    public synchronized boolean appendInvocation(int buildId, SuiteInvocation suiteInv) {
+        if (buildId <= maxBuildId)
+            return false;
+
+        // Copy on write: already returned test histories keep reference to previous suite invocations.
+        RunHistCompacted oldSuiteHist = suiteHist;
+        suiteHist = new RunHistCompacted();
+        oldSuiteHist.getInvocations().forEach(suiteHist::addInvocation);
+
+        addSuiteInvocation(buildId, suiteInv);
+
+        filteredCache.clear();
+
+        return true;
+    }
+
+    /**
+     * @return Maximal build ID included into this history, or -1 if history is empty.
+     */
+    public synchronized int maxBuildId() {
+        return maxBuildId;
     }
 
     /** {@inheritDoc} */
-    @Nullable @Override public IRunHistory getTestRunHist(int testName) {
-        byte[] testInvStatuses = testsInvStatues.get(testName);
+    @Nullable @Override public synchronized IRunHistory getTestRunHist(int testName) {
+        StatusColumn col = testsInvStatues.get(testName);
 
-        if(testInvStatuses == null)
+        if (col == null)
             return null;
 
-        return new TestUltraCompactRunHist(testInvStatuses, suiteHist);
+        return new TestUltraCompactRunHist(col.view(), buildsCnt, suiteHist);
     }
 
     /** {@inheritDoc} */
-    @Override public ISuiteRunHistory filter(Map<Integer, Integer> requireParameters) {
-        RunHistCompacted suitesFiltered = suiteHist.filterSuiteInvByParms(requireParameters);
+    @Override public synchronized ISuiteRunHistory filter(Map<Integer, Integer> requireParameters) {
+        SuiteHistory cached = filteredCache.get(requireParameters);
 
-        Map<Integer, Integer> buildIdToIdx = suiteHist.buildIdsMapping();
+        if (cached != null)
+            return cached;
 
-        Set<Integer> indexesToKeep = suitesFiltered.buildIds().stream().map(buildIdToIdx::get).collect(Collectors.toSet());
+        RunHistCompacted suitesFiltered = new RunHistCompacted();
+        BitSet indexesToKeep = new BitSet(buildsCnt);
 
-        SuiteHistory res = new SuiteHistory();
+        int idx = 0;
+        for (Invocation invocation : suiteHist.invocations()) {
+            if (invocation.containsParameterValue(requireParameters)) {
+                indexesToKeep.set(idx);
+                suitesFiltered.addInvocation(invocation);
+            }
 
-        res.suiteHist = suitesFiltered;
+            idx++;
+        }
 
-        testsInvStatues.forEach((tName, invList) -> {
-            byte[] buildsFiltered = new byte[indexesToKeep.size()];
+        long[] mask = indexesToKeep.toLongArray();
 
-            int j = 0;
-            for (int i = 0; i < invList.length; i++) {
-                if (!indexesToKeep.contains(i))
-                    continue;
+        SuiteHistory res = new SuiteHistory(testsInvStatues.size());
 
-                buildsFiltered[j] = invList[i];
-                j++;
-            }
+        res.suiteHist = suitesFiltered;
+        res.buildsCnt = indexesToKeep.cardinality();
+        res.maxBuildId = maxBuildId;
 
-            res.testsInvStatues.put(tName, buildsFiltered);
-        });
+        testsInvStatues.forEach((tName, col) -> res.testsInvStatues.put(tName, col.project(mask)));
+
+        filteredCache.put(new HashMap<>(requireParameters), res);
 
         return res;
     }
-    @Override public IRunHistory self() {
+
+    /** {@inheritDoc} */
+    @Override public synchronized IRunHistory self() {
         return suiteHist;
     }
 
     private static class TestUltraCompactRunHist extends AbstractRunHist {
-        @Nonnull private final byte[] testInvStatuses;
+        /** Statuses column view. */
+        @Nonnull private final StatusColumn testInvStatuses;
+        /** Count of builds in history. */
+        private final int cnt;
         @Nonnull private final RunHistCompacted suiteHist;
 
-        public TestUltraCompactRunHist(@Nonnull byte[] testInvStatuses, @Nonnull RunHistCompacted suiteHist) {
+        public TestUltraCompactRunHist(@Nonnull StatusColumn testInvStatuses, int cnt,
+            @Nonnull RunHistCompacted suiteHist) {
             this.testInvStatuses = testInvStatuses;
+            this.cnt = cnt;
             this.suiteHist = suiteHist;
 
-            Preconditions.checkState(testInvStatuses.length == suiteHist.getInvocations().count());
+            Preconditions.checkState(testInvStatuses.length() <= cnt);
+            Preconditions.checkState(cnt == suiteHist.getInvocations().count());
         }
 
         /** {@inheritDoc} */
         @Nullable @Override public List<Integer> getLatestRunResults() {
-            List<Integer> res = new ArrayList<>();
-            for (int i = 0; i < testInvStatuses.length; i++)
-                res.add((int)testInvStatuses[i]);
+            List<Integer> res = new ArrayList<>(cnt);
+            StatusColumn.Cursor cursor = testInvStatuses.cursor(cnt);
+
+            while (cursor.hasNext())
+                res.add((int)cursor.next());
 
             return res;
         }
 
         /** {@inheritDoc} */
         @Override public int getCriticalFailuresCount() {
-            int res = 0;
-            for (int i = 0; i < testInvStatuses.length; i++) {
-                if (testInvStatuses[i] == InvocationData.CRITICAL_FAILURE)
-                    res++;
-            }
-
-            return res;
+            return testInvStatuses.count(cnt, status -> status == InvocationData.CRITICAL_FAILURE);
         }
 
         /** {@inheritDoc} */
         @Override public int getRunsCount() {
-            int res = 0;
-            for (int i = 0; i < testInvStatuses.length; i++) {
-                byte status = testInvStatuses[i];
-                if (status != InvocationData.MISSING && !Invocation.isMutedOrIgnored(status))
-                    res++;
-            }
-
-            return res;
+            return testInvStatuses.count(cnt,
+                status -> status != InvocationData.MISSING && !Invocation.isMutedOrIgnored((byte)status));
         }
 
         /** {@inheritDoc} */
         @Override public int getFailuresCount() {
-            int res = 0;
-            for (int i = 0; i < testInvStatuses.length; i++) {
-                byte status = testInvStatuses[i];
-                if (status == InvocationData.FAILURE || status == InvocationData.CRITICAL_FAILURE)
-                    res++;
-            }
-
-            return res;
+            return testInvStatuses.count(cnt,
+                status -> status == InvocationData.FAILURE || status == InvocationData.CRITICAL_FAILURE);
         }
 
         /** {@inheritDoc} */
         @Override public Iterable<Invocation> invocations() {
-            return () -> new TestUltraCompactRunHistIterator(testInvStatuses, suiteHist);
+            return () -> new TestUltraCompactRunHistIterator(testInvStatuses.cursor(cnt), suiteHist);
+        }
+
+        /** {@inheritDoc} */
+        @Override protected int historySize() {
+            return cnt;
+        }
+
+        /** {@inheritDoc} */
+        @Override protected int statusAt(int idx) {
+            return testInvStatuses.get(idx);
+        }
+
+        /** {@inheritDoc} */
+        @Override protected int buildIdAt(int idx) {
+            return suiteHist.getInvocationAt(idx).buildId();
+        }
+
+        /** {@inheritDoc} */
+        @Override protected StatusCursor statusesFromLatest() {
+            StatusColumn.ReverseCursor cursor = testInvStatuses.reverseCursor(cnt);
+
+            return new StatusCursor() {
+                @Override public boolean hasNext() {
+                    return cursor.hasNext();
+                }
+
+                @Override public int next() {
+                    return cursor.next();
+                }
+            };
+        }
+
+        /** {@inheritDoc} */
+        @Override protected int firstNonMissingIdx() {
+            return testInvStatuses.firstNonMissing();
         }
     }
 
@@ -199,18 +266,19 @@ public class SuiteHistory implements ISuiteRunHistory {
     private static class TestUltraCompactRunHistIterator implements Iterator<Invocation> {
         /** Cur index: index of element to be returned in case next is called now. */
         private int curIdx = 0;
-        @Nonnull private final byte[] testInvStatuses;
+        /** Statuses cursor. */
+        @Nonnull private final StatusColumn.Cursor cursor;
         @Nonnull private final RunHistCompacted suiteHist;
 
-        public TestUltraCompactRunHistIterator(@Nonnull byte[] testInvStatuses,
+        public TestUltraCompactRunHistIterator(@Nonnull StatusColumn.Cursor cursor,
             @Nonnull RunHistCompacted suiteHist) {
-            this.testInvStatuses = testInvStatuses;
+            this.cursor = cursor;
             this.suiteHist = suiteHist;
         }
 
         /** {@inheritDoc} */
         @Override public boolean hasNext() {
-            return curIdx < testInvStatuses.length;
+            return cursor.hasNext();
         }
 
         /** {@inheritDoc} */
@@ -222,7 +290,7 @@ public class SuiteHistory implements ISuiteRunHistory {
 
             Invocation invocation = new Invocation(suiteInv.buildId())
                 .withChangeState(suiteInv.changesState())
-                .withStatus(testInvStatuses[curIdx]);
+                .withStatus(cursor.next());
 
             curIdx++;
 
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.pool;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared bounded pool for requests to TeamCity servers: build loading and its parts, build reference pages prefetch,
+ * changes and agents loading. Tasks waiting for other tasks of this pool should be limited to keep threads available.
+ */
+public class TcRequestsPool {
+    /** Threads count. */
+    public static final int THREADS = 64;
+
+    /** Executor service. */
+    private final ExecutorService service = Executors.newFixedThreadPool(THREADS,
+        new ThreadFactoryBuilder().setNameFormat("tc-request-%d").setDaemon(true).build());
+
+    /**
+     * @return Executor service to issue TC requests there.
+     */
+    public ExecutorService getService() {
+        return service;
+    }
+
+    /**
+     * Stops pool, should be called before Ignite node is stopped.
+     */
+    public void stop() {
+        service.shutdown();
+        try {
+            if (!service.awaitTermination(10, TimeUnit.SECONDS))
+                service.shutdownNow();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
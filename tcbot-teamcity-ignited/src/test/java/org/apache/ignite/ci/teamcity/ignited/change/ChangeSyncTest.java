@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.ci.teamcity.ignited.change;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.apache.ignite.tcbot.persistence.IStringCompactor;
+import org.apache.ignite.tcservice.ITeamcityConn;
+import org.apache.ignite.tcservice.model.changes.Change;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ChangeSyncTest {
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testChangesLoadedAreSavedIfSomeRequestsFailed() {
+        ChangeDao changeDao = Mockito.mock(ChangeDao.class);
+
+        Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override protected void configure() {
+                bind(ChangeDao.class).toProvider(() -> changeDao);
+                bind(IStringCompactor.class).toInstance(Mockito.mock(IStringCompactor.class));
+            }
+        });
+
+        ITeamcityConn conn = Mockito.mock(ITeamcityConn.class);
+        when(conn.serverCode()).thenReturn("apache");
+        when(conn.getChange(anyInt())).thenAnswer(inv -> {
+            int changeId = inv.getArgument(0);
+
+            if (changeId == 2)
+                throw new IllegalStateException("Server unavailable");
+
+            Change change = new Change();
+            change.id = Integer.toString(changeId);
+
+            return change;
+        });
+
+        Map<Integer, ChangeCompacted> res = injector.getInstance(ChangeSync.class)
+            .reloadChanges(1, new int[] {1, 2, 3}, conn);
+
+        assertEquals(2, res.size());
+        assertFalse(res.containsKey(2));
+
+        ArgumentCaptor<Map<Integer, ChangeCompacted>> saved = ArgumentCaptor.forClass(Map.class);
+        verify(changeDao).saveAll(eq(1), saved.capture());
+
+        assertEquals(res.keySet(), saved.getValue().keySet());
+    }
+
+    @Test
+    public void testChangesInFlightAreBounded() {
+        Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override protected void configure() {
+                bind(ChangeDao.class).toInstance(Mockito.mock(ChangeDao.class));
+                bind(IStringCompactor.class).toInstance(Mockito.mock(IStringCompactor.class));
+            }
+        });
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        ITeamcityConn conn = Mockito.mock(ITeamcityConn.class);
+        when(conn.serverCode()).thenReturn("apache");
+        when(conn.getChange(anyInt())).thenAnswer(inv -> {
+            int changeId = inv.getArgument(0);
+
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+            try {
+                Thread.sleep(5);
+            }
+            finally {
+                inFlight.decrementAndGet();
+            }
+
+            Change change = new Change();
+            change.id = Integer.toString(changeId);
+
+            return change;
+        });
+
+        ChangeSync changeSync = injector.getInstance(ChangeSync.class);
+
+        int[] changeIds = IntStream.rangeClosed(1, 100).toArray();
+        int[] buildChangeIds = IntStream.rangeClosed(101, 150).toArray();
+
+        // Batch reload of build sync is not blocked and shares the limit with concurrent reload.
+        CompletableFuture<Map<Integer, ChangeCompacted>> buildChanges
+            = changeSync.reloadChangesAsync(1, buildChangeIds, conn);
+
+        Map<Integer, ChangeCompacted> res = changeSync.reloadChanges(1, changeIds, conn);
+
+        assertEquals(changeIds.length, res.size());
+        assertEquals(buildChangeIds.length, buildChanges.join().size());
+        assertTrue("Changes in flight: " + maxInFlight.get(),
+            maxInFlight.get() <= ChangeSync.MAX_CHANGES_IN_FLIGHT);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.agent;
+
+import org.apache.ignite.tcbot.persistence.IStringCompactor;
+import org.apache.ignite.tcbot.persistence.InMemoryStringCompactor;
+import org.apache.ignite.tcservice.model.Properties;
+import org.apache.ignite.tcservice.model.Property;
+import org.apache.ignite.tcservice.model.agent.Agent;
+import org.apache.ignite.tcservice.model.agent.AgentPoolRef;
+import org.apache.ignite.tcservice.model.agent.AgentRef;
+import org.apache.ignite.tcservice.model.hist.BuildRef;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AgentCompactedTest {
+    @Test
+    public void testUpdateState() {
+        IStringCompactor c = new InMemoryStringCompactor();
+
+        AgentCompacted agent = new AgentCompacted(agent(1, "pool1", "Linux", true, null), c);
+
+        assertFalse(agent.updateState(ref(1, "pool1", true, null), c));
+
+        assertTrue(agent.updateState(ref(1, "pool1", true, 100), c));
+        assertTrue(agent.isRunning());
+        assertFalse(agent.updateState(ref(1, "pool1", true, 100), c));
+
+        assertTrue(agent.updateState(ref(1, "pool1", false, 100), c));
+        assertFalse(agent.isEnabled());
+
+        assertTrue(agent.updateState(ref(1, "pool2", false, null), c));
+        assertEquals(c.getStringId("pool2"), agent.poolName());
+        assertFalse(agent.isRunning());
+
+        // Details are not changed by state update.
+        assertEquals(c.getStringId("Linux"), agent.osName());
+        assertEquals("agent1", agent.name(c));
+    }
+
+    @Test
+    public void testStateOnlyAgentRequiresFullLoad() {
+        IStringCompactor c = new InMemoryStringCompactor();
+
+        AgentCompacted agent = new AgentCompacted(ref(2, "pool1", true, 100), c);
+
+        assertEquals(0, agent.fullLoadTs());
+        assertEquals(-1, agent.osName());
+        assertTrue(agent.isRunning());
+        assertFalse(agent.updateState(ref(2, "pool1", true, 100), c));
+    }
+
+    /**
+     * @param id Agent ID.
+     * @param pool Pool name.
+     * @param enabled Enabled flag.
+     * @param runningBuildId Running build ID or null for idle agent.
+     */
+    static AgentRef ref(int id, String pool, boolean enabled, Integer runningBuildId) {
+        AgentRef ref = new AgentRef();
+
+        ref.setId(id);
+        ref.setName("agent" + id);
+        ref.setPool(pool(pool));
+        ref.setEnabled(enabled);
+        ref.setBuild(build(runningBuildId));
+
+        return ref;
+    }
+
+    /**
+     * @param id Agent ID.
+     * @param pool Pool name.
+     * @param os OS name.
+     * @param enabled Enabled flag.
+     * @param runningBuildId Running build ID or null for idle agent.
+     */
+    static Agent agent(int id, String pool, String os, boolean enabled, Integer runningBuildId) {
+        Agent agent = new Agent();
+
+        agent.setId(id);
+        agent.setName("agent" + id);
+        agent.setPool(pool(pool));
+        agent.setEnabled(enabled);
+        agent.setBuild(build(runningBuildId));
+
+        Property osProp = new Property();
+        osProp.setName(AgentCompacted.OS_NAME_PROPERTY);
+        osProp.setValue(os);
+
+        Properties props = new Properties();
+        props.getProperty().add(osProp);
+        agent.setProperties(props);
+
+        return agent;
+    }
+
+    /**
+     * @param name Pool name.
+     */
+    private static AgentPoolRef pool(String name) {
+        AgentPoolRef pool = new AgentPoolRef();
+
+        pool.setName(name);
+
+        return pool;
+    }
+
+    /**
+     * @param id Build ID or null.
+     */
+    private static BuildRef build(Integer id) {
+        if (id == null)
+            return null;
+
+        BuildRef build = new BuildRef();
+
+        build.setId(id);
+
+        return build;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.agent;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import org.apache.ignite.tcbot.persistence.IStringCompactor;
+import org.apache.ignite.tcbot.persistence.InMemoryStringCompactor;
+import org.apache.ignite.tcbot.persistence.scheduler.IScheduler;
+import org.apache.ignite.tcservice.ITeamcityConn;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import static org.apache.ignite.tcignited.agent.AgentCompactedTest.agent;
+import static org.apache.ignite.tcignited.agent.AgentCompactedTest.ref;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AgentSyncTest {
+    /** Server ID. */
+    private static final int SRV_ID = 1;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testOnlyChangedAgentsSavedAndAbsentRemoved() {
+        IStringCompactor c = new InMemoryStringCompactor();
+        AgentDao agentDao = Mockito.mock(AgentDao.class);
+
+        Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override protected void configure() {
+                bind(AgentDao.class).toProvider(() -> agentDao);
+                bind(IScheduler.class).toProvider(() -> Mockito.mock(IScheduler.class));
+                bind(IStringCompactor.class).toInstance(c);
+            }
+        });
+
+        // Agent 1 is not changed, 2 started build, 3 is disconnected, 4 and 5 are new.
+        Map<Integer, AgentCompacted> existing = new HashMap<>();
+        existing.put(1, new AgentCompacted(agent(1, "default", "Linux", true, null), c));
+        existing.put(2, new AgentCompacted(agent(2, "default", "Linux", true, null), c));
+        existing.put(3, new AgentCompacted(agent(3, "default", "Linux", true, null), c));
+        when(agentDao.getAll(SRV_ID)).thenReturn(existing);
+
+        ITeamcityConn conn = Mockito.mock(ITeamcityConn.class);
+        when(conn.agentsStates(anyBoolean(), anyBoolean())).thenReturn(Arrays.asList(
+            ref(1, "default", true, null),
+            ref(2, "default", true, 100),
+            ref(4, "default", true, null),
+            ref(5, "default", true, 101)));
+
+        when(conn.getAgent(anyInt())).thenAnswer(inv -> {
+            int id = inv.getArgument(0);
+
+            if (id == 5)
+                throw new IllegalStateException("Agent details are not available");
+
+            return agent(id, "default", "Windows 10", true, null);
+        });
+
+        AgentSync sync = injector.getInstance(AgentSync.class);
+
+        sync.actualizeAgents(SRV_ID, conn);
+
+        ArgumentCaptor<Collection<AgentCompacted>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(agentDao).saveAll(eq(SRV_ID), saved.capture());
+
+        Map<Integer, AgentCompacted> savedById = new HashMap<>();
+        saved.getValue().forEach(agent -> savedById.put(agent.id(), agent));
+
+        assertEquals(new HashSet<>(Arrays.asList(2, 4, 5)), savedById.keySet());
+        assertEquals(c.getStringId("Windows 10"), savedById.get(4).osName());
+        assertEquals(0, savedById.get(5).fullLoadTs());
+
+        ArgumentCaptor<Collection<Integer>> removed = ArgumentCaptor.forClass(Collection.class);
+        verify(agentDao).removeAll(eq(SRV_ID), removed.capture());
+        assertEquals(new HashSet<>(Arrays.asList(3)), new HashSet<>(removed.getValue()));
+
+        // Agent failed to load is counted from its state.
+        AgentsSnapshot snapshot = sync.agentsSnapshot("agents", SRV_ID, conn);
+        assertEquals(4, snapshot.total());
+        assertEquals(2, snapshot.running());
+        assertEquals(2, snapshot.total(grp -> "Linux".equals(grp.os())));
+        assertEquals(1, snapshot.total(grp -> grp.os().isEmpty()));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.agent;
+
+import java.util.Arrays;
+import java.util.List;
+import org.apache.ignite.tcbot.persistence.IStringCompactor;
+import org.apache.ignite.tcbot.persistence.InMemoryStringCompactor;
+import org.junit.Test;
+
+import static org.apache.ignite.tcignited.agent.AgentCompactedTest.agent;
+import static org.apache.ignite.tcignited.agent.AgentCompactedTest.ref;
+import static org.junit.Assert.assertEquals;
+
+public class AgentsSnapshotTest {
+    @Test
+    public void testAgentsGrouped() {
+        IStringCompactor c = new InMemoryStringCompactor();
+
+        List<AgentCompacted> agents = Arrays.asList(
+            new AgentCompacted(agent(1, "default", "Linux", true, 10), c),
+            new AgentCompacted(agent(2, "default", "Linux", true, null), c),
+            new AgentCompacted(agent(3, "default", "Windows 10", true, 11), c),
+            new AgentCompacted(agent(4, "default", "Windows 10", false, null), c),
+            new AgentCompacted(agent(5, "private", "Linux", true, 12), c),
+            new AgentCompacted(ref(6, "private", true, null), c));
+
+        AgentsSnapshot snapshot = new AgentsSnapshot(agents, c, 42);
+
+        assertEquals(6, snapshot.total());
+        assertEquals(3, snapshot.running());
+        assertEquals(42, snapshot.timestamp());
+        assertEquals(5, snapshot.groups().size());
+
+        assertEquals(2, snapshot.total(grp -> "Linux".equals(grp.os()) && "default".equals(grp.pool())));
+        assertEquals(1, snapshot.running(grp -> "Linux".equals(grp.os()) && "default".equals(grp.pool())));
+
+        assertEquals(2, snapshot.total(grp -> grp.os().startsWith("Windows")));
+        assertEquals(1, snapshot.total(grp -> grp.os().startsWith("Windows") && grp.enabled()));
+        assertEquals(1, snapshot.running(grp -> grp.os().startsWith("Windows")));
+
+        // OS is unknown for agent not loaded with details.
+        assertEquals(1, snapshot.total(grp -> grp.os().isEmpty()));
+        assertEquals(2, snapshot.total(grp -> "private".equals(grp.pool())));
+
+        assertEquals(0, AgentsSnapshot.EMPTY.total());
+        assertEquals(0, AgentsSnapshot.EMPTY.total(grp -> true));
+    }
+}
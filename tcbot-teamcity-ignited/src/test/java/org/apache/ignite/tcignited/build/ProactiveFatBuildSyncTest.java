@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.build;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProactiveFatBuildSyncTest {
+    @Test
+    public void testMissingBuildsCollected() {
+        List<Integer> missing = new ArrayList<>();
+
+        int lowest = ProactiveFatBuildSync.collectMissingBuilds(new int[] {3, 5, 7, 9, 11}, new int[] {1, 5, 6, 9},
+            missing);
+
+        assertEquals(Arrays.asList(3, 7, 11), missing);
+        assertEquals(3, lowest);
+
+        missing.clear();
+
+        assertEquals(Integer.MAX_VALUE,
+            ProactiveFatBuildSync.collectMissingBuilds(new int[] {5, 9}, new int[] {5, 9, 12}, missing));
+        assertTrue(missing.isEmpty());
+    }
+
+    @Test
+    public void testIncrementalCheckDoesNotSkipFailedLoads() {
+        // Finished builds with references, only even builds have fat build.
+        TreeSet<Integer> refs = new TreeSet<>();
+        TreeSet<Integer> fatBuilds = new TreeSet<>();
+
+        IntStream.rangeClosed(1, 20).forEach(refs::add);
+        IntStream.rangeClosed(1, 20).filter(id -> id % 2 == 0).forEach(fatBuilds::add);
+
+        int watermark = 0;
+
+        List<Integer> missing = incrementalCheck(refs, fatBuilds, watermark);
+        assertEquals(10, missing.size());
+
+        watermark = ProactiveFatBuildSync.nextWatermark(refs.last(), missing.get(0));
+        assertEquals(0, watermark);
+
+        // Loads completed, except build 7.
+        missing.stream().filter(id -> id != 7).forEach(fatBuilds::add);
+        IntStream.rangeClosed(21, 25).forEach(refs::add);
+
+        missing = incrementalCheck(refs, fatBuilds, watermark);
+        assertEquals(Arrays.asList(7, 21, 22, 23, 24, 25), missing);
+
+        watermark = ProactiveFatBuildSync.nextWatermark(refs.last(), missing.get(0));
+        assertEquals(6, watermark);
+
+        fatBuilds.addAll(missing);
+
+        missing = incrementalCheck(refs, fatBuilds, watermark);
+        assertTrue(missing.isEmpty());
+
+        watermark = ProactiveFatBuildSync.nextWatermark(refs.last(), Integer.MAX_VALUE);
+        assertEquals(25, watermark);
+
+        assertTrue(incrementalCheck(refs, fatBuilds, watermark).isEmpty());
+    }
+
+    /**
+     * @param refs References.
+     * @param fatBuilds Fat builds.
+     * @param minBuildId Watermark.
+     * @return Builds missing having IDs above watermark.
+     */
+    private static List<Integer> incrementalCheck(TreeSet<Integer> refs, TreeSet<Integer> fatBuilds, int minBuildId) {
+        List<Integer> missing = new ArrayList<>();
+
+        ProactiveFatBuildSync.collectMissingBuilds(
+            refs.tailSet(minBuildId, false).stream().mapToInt(Integer::intValue).toArray(),
+            fatBuilds.tailSet(minBuildId, false).stream().mapToInt(Integer::intValue).toArray(),
+            missing);
+
+        return missing;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.buildlog;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import org.apache.ignite.tcbot.persistence.IStringCompactor;
+import org.apache.ignite.tcbot.persistence.InMemoryStringCompactor;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.Assert.assertEquals;
+
+public class LogLineScannerTest {
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(LogLineScannerTest.class);
+
+    @Test
+    public void testMatcherFindsOverlappingPatterns() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList(
+            bytes("he"), bytes("she"), bytes("his"), bytes("hers")));
+
+        byte[] txt = bytes("ushers");
+
+        assertEquals(0b1011, matcher.match(txt, 0, txt.length));
+
+        byte[] noMatch = bytes("h e r s");
+
+        assertEquals(0, matcher.match(noMatch, 0, noMatch.length));
+    }
+
+    @Test
+    public void testOnlyMarkedLinesAreDecoded() throws Exception {
+        RecordingHandler all = new RecordingHandler(null);
+        RecordingHandler marked = new RecordingHandler(Collections.singletonList("Starting test"));
+
+        String log = "[10:00] line1\r\n"
+            + "[10:01] >>> Starting test: A <<<\n"
+            + "\n"
+            + "[10:02] \u041d\u0435\u0442\r"
+            + "last Starting test";
+
+        new LogLineScanner(Arrays.asList(all, marked))
+            .scan(new ByteArrayInputStream(bytes(log)), new File("log.txt"));
+
+        assertEquals(Arrays.asList("[10:00] line1", "[10:01] >>> Starting test: A <<<", "", "[10:02] \u041d\u0435\u0442",
+            "last Starting test"), all.lines);
+
+        assertEquals(Arrays.asList("[10:01] >>> Starting test: A <<<", "last Starting test"), marked.lines);
+        assertEquals(3, marked.skipped);
+        assertEquals(13 + 0 + bytes("[10:02] \u041d\u0435\u0442").length, marked.skippedBytes);
+    }
+
+    @Test
+    public void testLongLinesSpanningBuffer() throws Exception {
+        RecordingHandler marked = new RecordingHandler(Collections.singletonList("MARK"));
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100_000; i++)
+            sb.append('x');
+
+        String longLine = sb + "MARK" + sb;
+
+        new LogLineScanner(Collections.singletonList(marked))
+            .scan(new ByteArrayInputStream(bytes(longLine + "\n" + sb + "\n")), new File("log.txt"));
+
+        assertEquals(Collections.singletonList(longLine), marked.lines);
+        assertEquals(1, marked.skipped);
+    }
+
+    @Test
+    @Ignore("Benchmark")
+    public void benchmarkScannerVsBufferedReaderLines() throws Exception {
+        Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override protected void configure() {
+                bind(IStringCompactor.class).toInstance(new InMemoryStringCompactor());
+                bind(ILogProductSpecific.class).to(LogIgniteSpecific.class);
+            }
+        });
+
+        byte[] log = generateLog(500, 1000);
+        File file = new File("log.txt");
+
+        for (int i = 0; i < 3; i++) {
+            TestLogHandler readerTests = injector.getInstance(TestLogHandler.class);
+            List<ILineHandler> readerHnds = Arrays.asList(readerTests, new ThreadDumpInMemoryHandler());
+
+            long readerBytes = allocatedBytes();
+            long readerStart = System.nanoTime();
+
+            try (Stream<String> lines = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(log), StandardCharsets.UTF_8)).lines()) {
+                lines.forEach(line -> readerHnds.forEach(h -> h.accept(line, file)));
+            }
+
+            long readerNanos = System.nanoTime() - readerStart;
+            readerBytes = allocatedBytes() - readerBytes;
+
+            TestLogHandler scannerTests = injector.getInstance(TestLogHandler.class);
+            List<ILineHandler> scannerHnds = Arrays.asList(scannerTests, new ThreadDumpInMemoryHandler());
+
+            long scannerBytes = allocatedBytes();
+            long scannerStart = System.nanoTime();
+
+            try (InputStream in = new ByteArrayInputStream(log)) {
+                new LogLineScanner(scannerHnds).scan(in, file);
+            }
+
+            long scannerNanos = System.nanoTime() - scannerStart;
+            scannerBytes = allocatedBytes() - scannerBytes;
+
+            assertEquals(readerTests.getResult(false).getTestLogCheckResult().size(),
+                scannerTests.getResult(false).getTestLogCheckResult().size());
+
+            logger.info("Log of " + log.length / 1024 + " KB:" +
+                " BufferedReader.lines() " + readerNanos / 1_000_000 + " ms, " + readerBytes / 1024 + " KB;" +
+                " LogLineScanner " + scannerNanos / 1_000_000 + " ms, " + scannerBytes / 1024 + " KB");
+        }
+    }
+
+    /**
+     * @param tests Tests count.
+     * @param linesPerTest Log lines per test.
+     * @return Synthetic Ignite test log, some tests have an assertion error or a thread dump.
+     */
+    private static byte[] generateLog(int tests, int linesPerTest) {
+        StringBuilder sb = new StringBuilder();
+
+        for (int t = 0; t < tests; t++) {
+            sb.append("[2019-06-01 10:00:00,000][INFO ][main][root] >>> Starting test: ")
+                .append("GridCacheTest").append(t % 50).append("#testOperation").append(t).append(" <<<\n");
+
+            for (int l = 0; l < linesPerTest; l++) {
+                sb.append("[2019-06-01 10:00:01,").append(l % 1000).append("][INFO ][sys-#").append(l % 64)
+                    .append("%cache.GridCacheTest").append(t % 50).append("0%][GridDhtPartitionsExchangeFuture]")
+                    .append(" Finished exchange init [topVer=AffinityTopologyVersion [topVer=").append(l)
+                    .append(", minorTopVer=0], crd=true]\n");
+            }
+
+            if (t % 10 == 0) {
+                sb.append("[2019-06-01 10:00:02,000][ERROR][main][root] Test failed.\n")
+                    .append("java.lang.AssertionError: Values are not equal\n")
+                    .append("\tat org.junit.Assert.fail(Assert.java:88)\n");
+            }
+
+            if (t % 100 == 0) {
+                sb.append("Full thread dump Java HotSpot(TM) 64-Bit Server VM (25.201-b09 mixed mode):\n");
+
+                for (int th = 0; th < 50; th++) {
+                    sb.append("\"sys-#").append(th).append("\" #").append(th).append(" prio=5 WAITING\n")
+                        .append("\tat sun.misc.Unsafe.park(Native Method)\n");
+                }
+            }
+        }
+
+        return bytes(sb.toString());
+    }
+
+    /**
+     * @return Bytes allocated by current thread, 0 if not supported by JVM.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+
+        return 0;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class RecordingHandler implements ILineHandler {
+        private final Collection<String> markers;
+        private final List<String> lines = new ArrayList<>();
+        private int skipped;
+        private int skippedBytes;
+
+        RecordingHandler(Collection<String> markers) {
+            this.markers = markers;
+        }
+
+        @Override public void accept(String line, File file) {
+            lines.add(line);
+        }
+
+        @Override public Collection<String> markers() {
+            return markers;
+        }
+
+        @Override public void skipLine(int lineBytes, File file) {
+            skipped++;
+            skippedBytes += lineBytes;
+        }
+
+        @Override public void close() {
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.buildtime;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BuildTimeAggregatorTest {
+    @Test
+    public void testBuildsAggregatedByWindows() {
+        BuildTimeAggregator aggregator = new BuildTimeAggregator();
+
+        long now = 1_500_000_000_000L;
+        long hour = Duration.ofHours(1).toMillis();
+        long day = Duration.ofDays(1).toMillis();
+        int srvId = 7;
+        int bt = 42;
+
+        aggregator.addBuild(srvId, bt, 1, now - 2 * hour, 10 * hour, false, now);
+        aggregator.addBuild(srvId, bt, 1, now - 2 * hour, 10 * hour, false, now); // same build saved again
+        aggregator.addBuild(srvId, bt, 2, now - 3 * day, 5 * hour, true, now);
+        aggregator.addBuild(srvId, bt, 3, now - 20 * day, hour, false, now);
+        aggregator.addBuild(srvId, bt, 4, now - 40 * day, hour, false, now); // out of all windows
+
+        checkRecord(aggregator.result(1, now).topByBuildTypes(Collections.singleton(srvId), -1, 10, -1), 1, 10 * hour);
+        checkRecord(aggregator.result(7, now).topByBuildTypes(Collections.singleton(srvId), -1, 10, -1), 2, 15 * hour);
+        checkRecord(aggregator.result(30, now).topByBuildTypes(Collections.singleton(srvId), -1, 10, -1), 3, 16 * hour);
+
+        checkRecord(aggregator.result(7, now).topTimeoutsByBuildTypes(Collections.singleton(srvId), -1, 10, -1),
+            1, 5 * hour);
+        assertTrue(aggregator.result(1, now).topTimeoutsByBuildTypes(Collections.singleton(srvId), -1, 10, -1).isEmpty());
+
+        // 25 days later the build started 20 days before is out of the window.
+        long later = now + 25 * day;
+
+        aggregator.addBuild(srvId, bt, 5, later - hour, hour, false, later);
+
+        checkRecord(aggregator.result(30, later).topByBuildTypes(Collections.singleton(srvId), -1, 10, -1), 3, 16 * hour);
+    }
+
+    private void checkRecord(List<Map.Entry<Long, BuildTimeRecord>> records, int cnt, long totalDuration) {
+        assertEquals(1, records.size());
+        assertEquals(cnt, records.get(0).getValue().count());
+        assertEquals(totalDuration, records.get(0).getValue().totalDuration());
+    }
+}
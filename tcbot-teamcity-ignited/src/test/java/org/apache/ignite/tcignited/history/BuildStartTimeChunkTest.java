@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcignited.history;
+
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BuildStartTimeChunkTest {
+    @Test
+    public void testStartTimesSurviveEncoding() {
+        Random rnd = new Random(42);
+        BuildStartTimeChunk chunk = new BuildStartTimeChunk();
+        TreeMap<Integer, Long> expected = new TreeMap<>();
+
+        long baseTs = 1_500_000_000_000L;
+
+        for (int i = 0; i < 700; i++) {
+            int buildId = 5 * BuildStartTimeChunk.CHUNK_SIZE + rnd.nextInt(BuildStartTimeChunk.CHUNK_SIZE);
+            // Start time is not monotonic by build ID, builds may wait in queue.
+            long ts = baseTs + buildId * 60_000L - rnd.nextInt(100_000_000);
+
+            assertEquals(!expected.containsKey(buildId), chunk.putIfAbsent(buildId, ts));
+
+            expected.putIfAbsent(buildId, ts);
+        }
+
+        Integer removed = expected.firstKey();
+        assertTrue(chunk.remove(removed));
+        assertFalse(chunk.remove(removed));
+        expected.remove(removed);
+
+        BuildStartTimeChunk loaded = chunk.copyForSave();
+
+        assertEquals(expected.size(), loaded.size());
+        assertEquals(expected.lastKey(), loaded.lastBuildId());
+        assertNull(loaded.startTime(removed));
+
+        expected.forEach((buildId, ts) -> assertEquals(ts, loaded.startTime(buildId)));
+    }
+
+    @Test
+    public void testCopyForSaveIsNotAffectedByLaterChanges() {
+        BuildStartTimeChunk chunk = new BuildStartTimeChunk();
+
+        chunk.putIfAbsent(10, 1000);
+        chunk.putIfAbsent(11, 2000);
+
+        BuildStartTimeChunk first = chunk.copyForSave();
+
+        chunk.remove(10);
+        chunk.putIfAbsent(12, 3000);
+
+        BuildStartTimeChunk second = chunk.copyForSave();
+
+        assertEquals(2, first.size());
+        assertEquals(Long.valueOf(1000), first.startTime(10));
+        assertNull(first.startTime(12));
+
+        assertEquals(2, second.size());
+        assertNull(second.startTime(10));
+        assertEquals(Long.valueOf(3000), second.startTime(12));
+    }
+
+    @Test
+    public void testLastBuildStartedBefore() {
+        BuildStartTimeChunk chunk = new BuildStartTimeChunk();
+
+        chunk.putIfAbsent(10, 1000);
+        chunk.putIfAbsent(11, 3000);
+        // Started before build 11, but after it in IDs order.
+        chunk.putIfAbsent(12, 2000);
+        chunk.putIfAbsent(13, 4000);
+
+        assertNull(chunk.lastBuildStartedBefore(1000));
+        assertEquals(Integer.valueOf(10), chunk.lastBuildStartedBefore(1001));
+        assertEquals(Integer.valueOf(10), chunk.lastBuildStartedBefore(2500));
+        assertEquals(Integer.valueOf(12), chunk.lastBuildStartedBefore(3500));
+        assertEquals(Integer.valueOf(13), chunk.lastBuildStartedBefore(5000));
+        assertEquals(4000, chunk.maxStartTime());
+    }
+}
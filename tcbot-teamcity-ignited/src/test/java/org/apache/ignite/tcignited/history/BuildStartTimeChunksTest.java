@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.history;
+
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BuildStartTimeChunksTest {
+    @Test
+    public void testBorderIsSameAsFullScan() {
+        Random rnd = new Random(42);
+        BuildStartTimeChunks chunks = new BuildStartTimeChunks();
+        TreeMap<Integer, BuildStartTimeChunk> expected = new TreeMap<>();
+
+        long baseTs = 1_500_000_000_000L;
+
+        assertNull(chunks.borderForStartTime(baseTs));
+
+        for (int i = 0; i < 3000; i++) {
+            // Chunks are created not in order, some are emptied.
+            int buildId = rnd.nextInt(40 * BuildStartTimeChunk.CHUNK_SIZE);
+            int chunkNum = BuildStartTimeChunk.chunkNumber(buildId);
+
+            BuildStartTimeChunk chunk = chunks.getOrCreate(chunkNum);
+            expected.put(chunkNum, chunk);
+
+            if (rnd.nextInt(10) == 0) {
+                Integer last = chunk.lastBuildId();
+
+                if (last != null && chunk.remove(last))
+                    chunks.onModified(chunkNum);
+            }
+            // Start time is not monotonic by build ID, builds may wait in queue.
+            else if (chunk.putIfAbsent(buildId, baseTs + buildId * 60_000L - rnd.nextInt(100_000_000)))
+                chunks.onModified(chunkNum);
+
+            if (i % 10 == 0) {
+                long minTs = baseTs + rnd.nextInt(45 * BuildStartTimeChunk.CHUNK_SIZE) * 60_000L;
+
+                assertEquals(fullScanBorder(expected, minTs), chunks.borderForStartTime(minTs));
+            }
+        }
+
+        assertEquals(expected.lastEntry().getValue().lastBuildId(), chunks.borderForStartTime(Long.MAX_VALUE));
+        assertNull(chunks.borderForStartTime(Long.MIN_VALUE));
+    }
+
+    /**
+     * @param chunks Chunks by number.
+     * @param minTs Timestamp.
+     * @return Border found by scan of all chunks.
+     */
+    private static Integer fullScanBorder(TreeMap<Integer, BuildStartTimeChunk> chunks, long minTs) {
+        Integer border = null;
+
+        for (BuildStartTimeChunk chunk : chunks.values()) {
+            if (chunk.maxStartTime() < minTs) {
+                Integer lastId = chunk.lastBuildId();
+
+                if (lastId != null)
+                    border = lastId;
+
+                continue;
+            }
+
+            Integer lastOlder = chunk.lastBuildStartedBefore(minTs);
+
+            return lastOlder != null ? lastOlder : border;
+        }
+
+        return border;
+    }
+}
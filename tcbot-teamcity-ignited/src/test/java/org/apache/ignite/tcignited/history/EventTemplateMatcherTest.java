@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcignited.history;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.ignite.ci.teamcity.ignited.runhist.Invocation;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class EventTemplateMatcherTest {
+    private static final int OK = RunStatus.RES_OK.getCode();
+    private static final int FAIL = RunStatus.RES_FAILURE.getCode();
+    private static final int CRITICAL = RunStatus.RES_CRITICAL_FAILURE.getCode();
+    private static final int MISSING = RunStatus.RES_MISSING.getCode();
+    private static final int OK_OR_FAIL = RunStatus.RES_OK_OR_FAILURE.getCode();
+
+    private static final IEventTemplate[] TEMPLATES = {
+        template(new int[] {OK, OK, OK}, new int[] {FAIL, FAIL}, false, false),
+        template(new int[] {OK_OR_FAIL}, new int[] {CRITICAL, CRITICAL}, false, false),
+        template(new int[] {MISSING, MISSING}, new int[] {FAIL, FAIL}, true, true),
+        template(new int[] {OK, OK}, new int[] {FAIL, FAIL, FAIL}, false, true)
+    };
+
+    @Test
+    public void testMostRecentEventDetected() {
+        RunHistCompacted hist = hist(OK, OK, OK, FAIL, FAIL, OK, OK, MISSING, OK, FAIL, FAIL, FAIL);
+
+        IEventTemplate t = TEMPLATES[0];
+
+        assertEquals(Integer.valueOf(1009), hist.detectTemplate(t));
+        assertNull(hist.detectTemplate(TEMPLATES[1]));
+        assertNull(hist.detectTemplate(TEMPLATES[3]));
+    }
+
+    @Test
+    public void testAllTemplatesMatchSlidingWindowDetection() {
+        Random rnd = new Random(11);
+        int[] statuses = {OK, FAIL, CRITICAL, MISSING};
+
+        for (int iter = 0; iter < 2000; iter++) {
+            int[] hist = new int[rnd.nextInt(30)];
+            for (int i = 0; i < hist.length; i++)
+                hist[i] = statuses[rnd.nextInt(rnd.nextBoolean() ? 2 : statuses.length)];
+
+            RunHistCompacted runHist = hist(hist);
+
+            Integer[] expected = new Integer[TEMPLATES.length];
+            for (int i = 0; i < TEMPLATES.length; i++)
+                expected[i] = slidingWindow(runHist, TEMPLATES[i]);
+
+            assertArrayEquals(expected, runHist.detectTemplates(TEMPLATES));
+        }
+    }
+
+    /**
+     * @param statuses Statuses, build IDs are assigned starting from 1000.
+     */
+    private static RunHistCompacted hist(int... statuses) {
+        RunHistCompacted res = new RunHistCompacted();
+
+        for (int i = 0; i < statuses.length; i++)
+            res.addInvocation(new Invocation(1000 + i).withStatus(statuses[i]));
+
+        return res;
+    }
+
+    /**
+     * Straightforward detection: copies invocations and tries template at each position from the end.
+     */
+    private static Integer slidingWindow(IRunHistory hist, IEventTemplate t) {
+        int central = t.beforeEvent().length;
+        List<Integer> template = new ArrayList<>();
+        for (int code : t.beforeEvent())
+            template.add(code);
+        for (int code : t.eventAndAfter())
+            template.add(code);
+
+        List<Invocation> invs = new ArrayList<>();
+        for (Invocation inv : hist.invocations()) {
+            if (t.includeMissing() || inv.status() != MISSING)
+                invs.add(inv);
+        }
+
+        for (int idx = invs.size() - template.size(); idx >= 0; idx--) {
+            boolean match = true;
+
+            for (int i = 0; i < template.size() && match; i++) {
+                int status = invs.get(idx + i).status();
+                int code = template.get(i);
+
+                match = code == OK_OR_FAIL ? status == OK || status == FAIL : status == code;
+            }
+
+            if (!match)
+                continue;
+
+            int detected = invs.get(idx + central).buildId();
+
+            if (!t.shouldBeFirstNonMissing())
+                return detected;
+
+            for (Invocation inv : hist.invocations()) {
+                if (inv.status() != MISSING)
+                    return inv.buildId() == detected ? detected : null;
+            }
+
+            return null;
+        }
+
+        return null;
+    }
+
+    private static IEventTemplate template(int[] before, int[] evtAndAfter, boolean includeMissing,
+        boolean firstNonMissing) {
+        return new IEventTemplate() {
+            @Override public int[] beforeEvent() {
+                return before;
+            }
+
+            @Override public int[] eventAndAfter() {
+                return evtAndAfter;
+            }
+
+            @Override public boolean includeMissing() {
+                return includeMissing;
+            }
+
+            @Override public boolean shouldBeFirstNonMissing() {
+                return firstNonMissing;
+            }
+        };
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcignited.history;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StatusColumnTest {
+    @Test
+    public void testRunsAndPackedFormsReturnSameStatuses() {
+        Random rnd = new Random(42);
+
+        for (int changeEvery : new int[] {1, 3, 50, 1000}) {
+            StatusColumn col = new StatusColumn();
+            List<Integer> expected = new ArrayList<>();
+            int status = RunStatus.RES_OK.getCode();
+
+            for (int pos = 0; pos < 500; pos++) {
+                if (rnd.nextInt(changeEvery) == 0)
+                    status = rnd.nextInt(8);
+
+                if (status == StatusColumn.MISSING) {
+                    expected.add(status);
+
+                    continue;
+                }
+
+                col.append(pos, (byte)status);
+                expected.add(status);
+            }
+
+            int cnt = expected.size() + 10;
+
+            for (int i = 0; i < 10; i++)
+                expected.add((int)StatusColumn.MISSING);
+
+            assertEquals(expected, read(col, cnt));
+
+            List<Integer> reversed = new ArrayList<>();
+            StatusColumn.ReverseCursor reverseCursor = col.reverseCursor(cnt);
+
+            while (reverseCursor.hasNext())
+                reversed.add((int)reverseCursor.next());
+
+            Collections.reverse(reversed);
+            assertEquals(expected, reversed);
+
+            for (int pos = 0; pos < cnt; pos++)
+                assertEquals(expected.get(pos).intValue(), col.get(pos));
+
+            int firstNonMissing = -1;
+            for (int pos = 0; pos < cnt && firstNonMissing < 0; pos++) {
+                if (expected.get(pos) != StatusColumn.MISSING)
+                    firstNonMissing = pos;
+            }
+
+            assertEquals(firstNonMissing, col.firstNonMissing());
+
+            for (int code = 0; code < 8; code++) {
+                int c = code;
+
+                assertEquals((int)expected.stream().filter(s -> s == c).count(), col.count(cnt, s -> s == c));
+            }
+        }
+    }
+
+    @Test
+    public void testViewIsNotAffectedByAppend() {
+        StatusColumn col = new StatusColumn();
+
+        col.append(0, (byte)RunStatus.RES_OK.getCode());
+        col.append(1, (byte)RunStatus.RES_OK.getCode());
+
+        StatusColumn view = col.view();
+
+        for (int pos = 2; pos < 200; pos++)
+            col.append(pos, (byte)(pos % 2));
+
+        assertEquals(2, view.length());
+        assertEquals(1, view.count(3, s -> s == StatusColumn.MISSING));
+        assertEquals(2, view.count(3, s -> s == RunStatus.RES_OK.getCode()));
+        assertEquals(101, col.count(200, s -> s == RunStatus.RES_OK.getCode()));
+    }
+
+    @Test
+    public void testProjectionKeepsMaskedPositions() {
+        Random rnd = new Random(7);
+
+        for (int changeEvery : new int[] {1, 20, 1000}) {
+            StatusColumn col = new StatusColumn();
+            int status = RunStatus.RES_OK.getCode();
+
+            for (int pos = 0; pos < 300; pos++) {
+                if (rnd.nextInt(changeEvery) == 0)
+                    status = rnd.nextInt(8);
+
+                if (status != StatusColumn.MISSING)
+                    col.append(pos, (byte)status);
+            }
+
+            BitSet keep = new BitSet();
+            for (int i = 0; i < 320; i++) {
+                if (rnd.nextInt(3) == 0)
+                    keep.set(i);
+            }
+
+            List<Integer> all = read(col, 320);
+            List<Integer> expected = new ArrayList<>();
+            keep.stream().forEach(i -> expected.add(all.get(i)));
+
+            assertEquals(expected, read(col.project(keep.toLongArray()), keep.cardinality()));
+        }
+    }
+
+    @Test
+    public void testCardinality() {
+        BitSet bits = new BitSet();
+        bits.set(3, 70);
+        bits.set(130);
+
+        long[] mask = bits.toLongArray();
+
+        assertEquals(68, StatusColumn.cardinality(mask, 0, 200));
+        assertEquals(2, StatusColumn.cardinality(mask, 62, 64));
+        assertEquals(1, StatusColumn.cardinality(mask, 69, 130));
+        assertEquals(2, StatusColumn.cardinality(mask, 69, 131));
+        assertEquals(0, StatusColumn.cardinality(mask, 10, 10));
+    }
+
+    @Test
+    public void testColumnsMap() {
+        StatusColumns cols = new StatusColumns(1);
+
+        for (int i = 0; i < 1000; i++)
+            cols.getOrCreate(i * 31).append(0, (byte)(i % 4));
+
+        assertEquals(1000, cols.size());
+
+        for (int i = 0; i < 1000; i++)
+            assertEquals(Integer.valueOf(i % 4), read(cols.get(i * 31), 1).get(0));
+
+        assertEquals(null, cols.get(7));
+    }
+
+    /**
+     * @param col Column.
+     * @param cnt Count of builds.
+     */
+    private static List<Integer> read(StatusColumn col, int cnt) {
+        List<Integer> res = new ArrayList<>();
+        StatusColumn.Cursor cursor = col.cursor(cnt);
+
+        while (cursor.hasNext())
+            res.add((int)cursor.next());
+
+        return res;
+    }
+}
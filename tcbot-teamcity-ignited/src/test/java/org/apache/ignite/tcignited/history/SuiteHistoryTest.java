@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ignite.tcignited.history;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.apache.ignite.ci.teamcity.ignited.fatbuild.FatBuildCompacted;
+import org.apache.ignite.ci.teamcity.ignited.runhist.Invocation;
+import org.apache.ignite.tcbot.persistence.IStringCompactor;
+import org.apache.ignite.tcbot.persistence.InMemoryStringCompactor;
+import org.apache.ignite.tcservice.model.hist.BuildRef;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SuiteHistoryTest {
+    /** Tests count. */
+    private static final int TESTS = 40;
+
+    /** Builds count. */
+    private static final int BUILDS = 60;
+
+    /** Builds count in history created before appends. */
+    private static final int INITIAL_BUILDS = 20;
+
+    /** Parameter name ID, used to check filtered views. */
+    private static final int PARM = 1;
+
+    /** Statuses of tests invocations. */
+    private static final RunStatus[] STATUSES = {
+        RunStatus.RES_OK, RunStatus.RES_FAILURE, RunStatus.RES_MUTED_FAILURE, RunStatus.RES_CRITICAL_FAILURE,
+        RunStatus.RES_OK_MUTED, RunStatus.RES_FAILURE_MUTED, RunStatus.RES_IGNORED};
+
+    /** Compactor. */
+    private final IStringCompactor compactor = new InMemoryStringCompactor();
+
+    @Test
+    public void testAppendedHistorySameWithFullRebuild() {
+        Map<Integer, SuiteInvocation> builds = generateBuilds(new Random(42));
+        List<Integer> buildIds = new ArrayList<>(builds.keySet());
+
+        Map<Integer, SuiteInvocation> initial = new TreeMap<>(builds.entrySet().stream()
+            .filter(e -> e.getKey() <= buildIds.get(INITIAL_BUILDS - 1))
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+
+        SuiteHistory appended = new SuiteHistory(initial);
+
+        // Histories returned before append should not be affected by it.
+        Map<IRunHistory, List<Integer>> resultsBeforeAppend = new HashMap<>();
+        for (int t = 0; t < TESTS; t++) {
+            IRunHistory hist = appended.getTestRunHist(t);
+
+            if (hist != null)
+                resultsBeforeAppend.put(hist, hist.getLatestRunResults());
+        }
+        IRunHistory suiteBeforeAppend = appended.self();
+
+        for (int i = INITIAL_BUILDS; i < buildIds.size(); i++) {
+            int buildId = buildIds.get(i);
+
+            assertTrue(appended.appendInvocation(buildId, builds.get(buildId)));
+        }
+
+        assertEquals(buildIds.get(buildIds.size() - 1).intValue(), appended.maxBuildId());
+
+        assertSameHistory(new SuiteHistory(builds), appended);
+        assertSameHistory(new SuiteHistory(builds).filter(Collections.singletonMap(PARM, 1)),
+            appended.filter(Collections.singletonMap(PARM, 1)));
+
+        assertFalse(resultsBeforeAppend.isEmpty());
+        resultsBeforeAppend.forEach((hist, results) -> assertEquals(results, hist.getLatestRunResults()));
+        assertEquals(INITIAL_BUILDS, suiteBeforeAppend.getInvocations().count());
+    }
+
+    @Test
+    public void testOlderOrSameBuildIsNotAppended() {
+        Map<Integer, SuiteInvocation> builds = generateBuilds(new Random(7));
+        List<Integer> buildIds = new ArrayList<>(builds.keySet());
+
+        SuiteHistory hist = new SuiteHistory(builds);
+        int maxBuildId = hist.maxBuildId();
+
+        assertFalse(hist.appendInvocation(maxBuildId, builds.get(maxBuildId)));
+        assertFalse(hist.appendInvocation(buildIds.get(0), builds.get(buildIds.get(0))));
+
+        assertEquals(maxBuildId, hist.maxBuildId());
+        assertEquals(BUILDS, hist.self().getInvocations().count());
+    }
+
+    /**
+     * @param exp Expected history.
+     * @param act Actual history.
+     */
+    private static void assertSameHistory(ISuiteRunHistory exp, ISuiteRunHistory act) {
+        assertEquals(exp.self().getInvocations().collect(Collectors.toList()),
+            act.self().getInvocations().collect(Collectors.toList()));
+
+        for (int t = 0; t < TESTS; t++) {
+            IRunHistory expTest = exp.getTestRunHist(t);
+            IRunHistory actTest = act.getTestRunHist(t);
+
+            if (expTest == null) {
+                assertNull(actTest);
+
+                continue;
+            }
+
+            assertEquals(expTest.getLatestRunResults(), actTest.getLatestRunResults());
+            assertEquals(expTest.getRunsCount(), actTest.getRunsCount());
+            assertEquals(expTest.getFailuresCount(), actTest.getFailuresCount());
+            assertEquals(expTest.getCriticalFailuresCount(), actTest.getCriticalFailuresCount());
+            assertEquals(expTest.isFlaky(), actTest.isFlaky());
+            assertEquals(expTest.getInvocations().collect(Collectors.toList()),
+                actTest.getInvocations().collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * @param rnd Random.
+     * @return Suite invocations mapped by build ID, tests are missing in some builds, some tests appear later.
+     */
+    private Map<Integer, SuiteInvocation> generateBuilds(Random rnd) {
+        Map<Integer, SuiteInvocation> res = new TreeMap<>();
+
+        int buildId = 1000;
+
+        for (int i = 0; i < BUILDS; i++) {
+            buildId += 1 + rnd.nextInt(5);
+
+            SuiteInvocation inv = suiteInvocation(buildId, rnd.nextBoolean());
+
+            inv.suiteInvocation().withParameters(Collections.singletonMap(PARM, i % 2));
+
+            // Tests with higher IDs are added later, so appended builds create new test columns.
+            int testsInBuild = Math.min(TESTS, 10 + i);
+
+            for (int t = 0; t < testsInBuild; t++) {
+                if (rnd.nextInt(5) == 0)
+                    continue;
+
+                RunStatus status = STATUSES[rnd.nextInt(10) < 7 ? 0 : rnd.nextInt(STATUSES.length)];
+
+                inv.addTest(t, new Invocation(buildId).withStatus(status.getCode()));
+            }
+
+            res.put(buildId, inv);
+        }
+
+        return res;
+    }
+
+    /**
+     * @param buildId Build ID.
+     * @param success Suite passed.
+     */
+    private SuiteInvocation suiteInvocation(int buildId, boolean success) {
+        BuildRef ref = new BuildRef();
+        ref.setId(buildId);
+        ref.buildTypeId = "Suite";
+        ref.branchName = "refs/heads/master";
+        ref.state = BuildRef.STATE_FINISHED;
+        ref.status = success ? BuildRef.STATUS_SUCCESS : BuildRef.STATUS_FAILURE;
+
+        FatBuildCompacted build = new FatBuildCompacted();
+        build.fillFieldsFromBuildRef(compactor, ref);
+
+        return new SuiteInvocation(0, compactor.getStringId(ref.branchName), build, compactor, (k, v) -> false);
+    }
+}
@@ -24,10 +24,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.apache.ignite.tcservice.model.agent.Agent;
+import org.apache.ignite.tcservice.model.agent.AgentRef;
 import org.apache.ignite.tcservice.model.changes.Change;
 import org.apache.ignite.tcservice.model.changes.ChangesList;
 import org.apache.ignite.tcservice.model.conf.BuildType;
@@ -38,6 +40,7 @@ import org.apache.ignite.tcservice.model.mute.MuteInfo;
 import org.apache.ignite.tcservice.model.result.Build;
 import org.apache.ignite.tcservice.model.result.problems.ProblemOccurrences;
 import org.apache.ignite.tcservice.model.result.stat.Statistics;
+import org.apache.ignite.tcservice.model.result.tests.TestOccurrenceFull;
 import org.apache.ignite.tcservice.model.result.tests.TestOccurrencesFull;
 import org.apache.ignite.tcbot.common.exeption.ServiceConflictException;
 import org.apache.ignite.tcbot.common.conf.ITcServerConfig;
@@ -101,6 +104,25 @@ public interface ITeamcityConn {
      */
     public TestOccurrencesFull getTestsPage(int buildId, @Nullable String href, boolean testDtls);
 
+    /**
+     * Loads tests page and provides each test occurrence to consumer. Implementation may reuse the same occurrence
+     * instance for all tests of the page, so consumer should not keep reference to it.
+     *
+     * @param buildId Build id.
+     * @param href Href. Null activates first page loaded.
+     * @param testDtls Query test details.
+     * @param consumer Test occurrence consumer.
+     * @return Next page href or {@code null} for the last page.
+     */
+    @Nullable public default String processTestsPage(int buildId, @Nullable String href, boolean testDtls,
+        Consumer<TestOccurrenceFull> consumer) {
+        TestOccurrencesFull page = getTestsPage(buildId, href, testDtls);
+
+        page.getTests().forEach(consumer);
+
+        return page.nextHref();
+    }
+
     /**
      * Trigger build.
      * @param buildTypeId Build type (suite) identifier.
@@ -170,6 +192,21 @@ public interface ITeamcityConn {
      */
     public List<Agent> agents(boolean connected, boolean authorized);
 
+    /**
+     * Get list of teamcity agents with state only: enabled flag, pool and running build. Properties are not loaded.
+     *
+     * @param connected Connected flag.
+     * @param authorized Authorized flag.
+     * @return List of teamcity agents references.
+     */
+    public List<AgentRef> agentsStates(boolean connected, boolean authorized);
+
+    /**
+     * @param agentId Agent ID.
+     * @return Agent with all details, including properties.
+     */
+    public Agent getAgent(int agentId);
+
     /**
      * @param buildId
      * @return
@@ -30,11 +30,13 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.SortedSet;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
 import org.apache.ignite.tcbot.common.conf.IDataSourcesConfigSupplier;
 import org.apache.ignite.tcbot.common.conf.ITcServerConfig;
 import org.apache.ignite.tcbot.common.conf.TcBotWorkDir;
@@ -44,6 +46,7 @@ import org.apache.ignite.tcbot.common.interceptor.AutoProfiling;
 import org.apache.ignite.tcbot.common.util.HttpUtil;
 import org.apache.ignite.tcservice.http.ITeamcityHttpConnection;
 import org.apache.ignite.tcservice.model.agent.Agent;
+import org.apache.ignite.tcservice.model.agent.AgentRef;
 import org.apache.ignite.tcservice.model.agent.AgentsRef;
 import org.apache.ignite.tcservice.model.changes.Change;
 import org.apache.ignite.tcservice.model.changes.ChangesList;
@@ -58,9 +61,11 @@ import org.apache.ignite.tcservice.model.mute.Mutes;
 import org.apache.ignite.tcservice.model.result.Build;
 import org.apache.ignite.tcservice.model.result.problems.ProblemOccurrences;
 import org.apache.ignite.tcservice.model.result.stat.Statistics;
+import org.apache.ignite.tcservice.model.result.tests.TestOccurrenceFull;
 import org.apache.ignite.tcservice.model.result.tests.TestOccurrencesFull;
 import org.apache.ignite.tcservice.model.user.User;
 import org.apache.ignite.tcservice.model.user.Users;
+import org.apache.ignite.tcservice.util.TestOccurrencesStreamParser;
 import org.apache.ignite.tcservice.util.XmlUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -117,6 +122,21 @@ public class TeamcityServiceConnection implements ITeamcity {
             .collect(Collectors.toList());
     }
 
+    /** {@inheritDoc} */
+    @AutoProfiling
+    @Override public List<AgentRef> agentsStates(boolean connected, boolean authorized) {
+        String url = "app/rest/agents?locator=connected:" + connected + ",authorized:" + authorized
+            + "&fields=count,agent(id,name,href,enabled,pool(id,name),build(id))";
+
+        return getJaxbUsingHref(url, AgentsRef.class).getAgent();
+    }
+
+    /** {@inheritDoc} */
+    @AutoProfiling
+    @Override public Agent getAgent(int agentId) {
+        return getJaxbUsingHref("app/rest/agents/id:" + agentId, Agent.class);
+    }
+
     /** {@inheritDoc} */
     @AutoProfiling
     public File downloadAndCacheBuildLog(int buildId) {
@@ -372,9 +392,33 @@ public class TeamcityServiceConnection implements ITeamcity {
     /** {@inheritDoc} */
     @AutoProfiling
     @Override public TestOccurrencesFull getTestsPage(int buildId, @Nullable String href, boolean testDtls) {
+        return sendGetXmlParseJaxb(testsPageUrl(buildId, href, testDtls), TestOccurrencesFull.class);
+    }
+
+    /** {@inheritDoc} */
+    @AutoProfiling
+    @Override public String processTestsPage(int buildId, @Nullable String href, boolean testDtls,
+        Consumer<TestOccurrenceFull> consumer) {
+        try (InputStream inputStream = teamcityHttpConn.sendGet(basicAuthTok, testsPageUrl(buildId, href, testDtls))) {
+            return new TestOccurrencesStreamParser().parse(new InputStreamReader(inputStream), consumer);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        catch (XMLStreamException e) {
+            throw ExceptionUtil.propagateException(e);
+        }
+    }
+
+    /**
+     * @param buildId Build id.
+     * @param href Href. Null activates first page loaded.
+     * @param testDtls Query test details.
+     */
+    private String testsPageUrl(int buildId, @Nullable String href, boolean testDtls) {
         String relPathSelected = Strings.isNullOrEmpty(href) ? testsStartHref(buildId, testDtls) : href;
-        String url = host() + (relPathSelected.startsWith("/") ? relPathSelected.substring(1) : relPathSelected);
-        return sendGetXmlParseJaxb(url, TestOccurrencesFull.class);
+
+        return host() + (relPathSelected.startsWith("/") ? relPathSelected.substring(1) : relPathSelected);
     }
 
     /**
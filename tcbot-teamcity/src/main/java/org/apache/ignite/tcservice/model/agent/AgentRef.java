@@ -20,8 +20,10 @@ package org.apache.ignite.tcservice.model.agent;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlType;
 import org.apache.ignite.tcservice.model.Properties;
+import org.apache.ignite.tcservice.model.hist.BuildRef;
 
 /**
  * <p>Java class for agent complex type.
@@ -35,6 +37,7 @@ import org.apache.ignite.tcservice.model.Properties;
  *       &lt;sequence>
  *         &lt;element ref="{}properties" minOccurs="0"/>
  *         &lt;element name="pool" type="{}agentPool-ref" minOccurs="0"/>
+ *         &lt;element name="build" type="{}build" minOccurs="0"/>
  *       &lt;/sequence>
  *       &lt;attribute name="href" type="{http://www.w3.org/2001/XMLSchema}string" />
  *       &lt;attribute name="id" type="{http://www.w3.org/2001/XMLSchema}int" />
@@ -56,7 +59,8 @@ import org.apache.ignite.tcservice.model.Properties;
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(name = "agent", propOrder = {
     "properties",
-    "pool"
+    "pool",
+    "build"
 })
 public class AgentRef {
 
@@ -82,6 +86,8 @@ public class AgentRef {
     protected String ip;
     @XmlAttribute(name = "locator")
     protected String locator;
+    @XmlElement(name = "build")
+    protected BuildRef build;
 
     /**
      * Gets the value of the properties property.
@@ -338,4 +344,18 @@ public class AgentRef {
     public void setLocator(String value) {
         this.locator = value;
     }
+
+    /**
+     * @param build Build running on the agent.
+     */
+    public void setBuild(BuildRef build) {
+        this.build = build;
+    }
+
+    /**
+     * @return Build running on the agent, or null if agent is idle.
+     */
+    public BuildRef getBuild() {
+        return build;
+    }
 }
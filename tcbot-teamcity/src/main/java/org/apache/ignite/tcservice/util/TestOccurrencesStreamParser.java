@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ignite.tcservice.util;
+
+import java.io.Reader;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.ignite.tcservice.model.hist.BuildRef;
+import org.apache.ignite.tcservice.model.result.tests.TestOccurrenceFull;
+import org.apache.ignite.tcservice.model.result.tests.TestRef;
+
+/**
+ * Streaming (StAX) parser of test occurrences page. Unlike JAXB it does not build list of occurrences for whole page:
+ * each occurrence is parsed into one reused {@link TestOccurrenceFull} instance and passed to consumer immediately.
+ */
+public class TestOccurrencesStreamParser {
+    /** Factory, thread safe after configuration. */
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /** Reused occurrence. */
+    private final TestOccurrenceFull occurrence = new TestOccurrenceFull();
+
+    /** Reused test reference. */
+    private final TestRef testRef = new TestRef();
+
+    /** Reused build reference. */
+    private final BuildRef buildRef = new BuildRef();
+
+    /**
+     * @param reader Reader of {@code testOccurrences} XML.
+     * @param consumer Consumer of occurrences. The same instance is provided for each test, so consumer should not
+     * keep reference to it.
+     * @return Next page href or {@code null} for the last page.
+     */
+    @Nullable public String parse(Reader reader, Consumer<TestOccurrenceFull> consumer) throws XMLStreamException {
+        XMLStreamReader xml = FACTORY.createXMLStreamReader(reader);
+
+        try {
+            String nextHref = null;
+
+            while (xml.hasNext()) {
+                if (xml.next() != XMLStreamConstants.START_ELEMENT)
+                    continue;
+
+                String elem = xml.getLocalName();
+
+                if ("testOccurrences".equals(elem))
+                    nextHref = xml.getAttributeValue(null, "nextHref");
+                else if ("testOccurrence".equals(elem)) {
+                    readOccurrence(xml);
+
+                    consumer.accept(occurrence);
+                }
+            }
+
+            return nextHref;
+        }
+        finally {
+            xml.close();
+        }
+    }
+
+    /**
+     * Reads occurrence, reader is positioned at start of {@code testOccurrence} element and is left at its end.
+     *
+     * @param xml Reader.
+     */
+    private void readOccurrence(XMLStreamReader xml) throws XMLStreamException {
+        occurrence.id(xml.getAttributeValue(null, "id"));
+        occurrence.name = xml.getAttributeValue(null, "name");
+        occurrence.status = xml.getAttributeValue(null, "status");
+        occurrence.duration = intAttr(xml, "duration");
+        occurrence.href = xml.getAttributeValue(null, "href");
+        occurrence.muted = boolAttr(xml, "muted");
+        occurrence.currentlyMuted = boolAttr(xml, "currentlyMuted");
+        occurrence.currentlyInvestigated = boolAttr(xml, "currentlyInvestigated");
+        occurrence.ignored = boolAttr(xml, "ignored");
+        occurrence.test = null;
+        occurrence.build = null;
+        occurrence.details = null;
+
+        int depth = 1;
+
+        while (depth > 0) {
+            int evt = xml.next();
+
+            if (evt == XMLStreamConstants.END_ELEMENT)
+                depth--;
+            else if (evt == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+
+                if (depth != 2)
+                    continue;
+
+                String elem = xml.getLocalName();
+
+                if ("details".equals(elem)) {
+                    occurrence.details = xml.getElementText();
+
+                    depth--; // getElementText() consumes end element
+                }
+                else if ("test".equals(elem)) {
+                    testRef.id = xml.getAttributeValue(null, "id");
+                    testRef.name = xml.getAttributeValue(null, "name");
+                    occurrence.test = testRef;
+                }
+                else if ("build".equals(elem)) {
+                    buildRef.setId(intAttr(xml, "id"));
+                    occurrence.build = buildRef;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param xml Reader.
+     * @param name Attribute name.
+     */
+    @Nullable private static Integer intAttr(XMLStreamReader xml, String name) {
+        String val = xml.getAttributeValue(null, name);
+
+        return val == null ? null : Integer.valueOf(val.trim());
+    }
+
+    /**
+     * @param xml Reader.
+     * @param name Attribute name.
+     */
+    @Nullable private static Boolean boolAttr(XMLStreamReader xml, String name) {
+        String val = xml.getAttributeValue(null, name);
+
+        return val == null ? null : Boolean.valueOf(val.trim());
+    }
+}